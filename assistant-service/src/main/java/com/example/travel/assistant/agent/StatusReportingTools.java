@@ -0,0 +1,60 @@
+package com.example.travel.assistant.agent;
+
+import com.example.travel.assistant.memory.ConversationContext;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers tool objects with the agent the way {@code AiServices.tools(Object...)} does, but
+ * reports each call to the streaming client ({@link ConversationContext#status}) before it
+ * runs. The model decides on tool calls only at the end of a streamed response, so this is the
+ * only point where "searching flights…" can be shown while the search is still in progress.
+ */
+public final class StatusReportingTools {
+
+    private StatusReportingTools() {}
+
+    private static final Map<String, String> LABELS = Map.ofEntries(
+            Map.entry("searchFlights", "Searching flights"),
+            Map.entry("searchConnections", "Looking for connections"),
+            Map.entry("cheapestFlight", "Finding the cheapest flight"),
+            Map.entry("fareCalendar", "Checking fares around the date"),
+            Map.entry("suggestDestinations", "Looking for destinations"),
+            Map.entry("recommendFromOrigin", "Looking for destinations"),
+            Map.entry("selectFromLast", "Picking from the last results"),
+            Map.entry("createBooking", "Booking"),
+            Map.entry("registerBooking", "Booking"),
+            Map.entry("listBookings", "Loading bookings"),
+            Map.entry("listUserBookings", "Loading bookings"),
+            Map.entry("getBooking", "Loading the booking"),
+            Map.entry("updateBooking", "Updating the booking"),
+            Map.entry("deleteBooking", "Cancelling the booking"),
+            Map.entry("cancelBooking", "Cancelling the booking"),
+            Map.entry("listProfiles", "Loading profiles"),
+            Map.entry("getProfileById", "Loading the profile"));
+
+    public static Map<ToolSpecification, ToolExecutor> of(List<Object> tools) {
+        Map<ToolSpecification, ToolExecutor> out = new LinkedHashMap<>();
+        for (Object tool : tools) {
+            for (Method method : tool.getClass().getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(Tool.class)) continue;
+                ToolSpecification spec = ToolSpecifications.toolSpecificationFrom(method);
+                ToolExecutor delegate = new DefaultToolExecutor(tool, method);
+                String label = LABELS.getOrDefault(spec.name(), "Running " + spec.name()) + "…";
+                out.put(spec, (request, memoryId) -> {
+                    ConversationContext.status(label);
+                    return delegate.execute(request, memoryId);
+                });
+            }
+        }
+        return out;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.travel.assistant.agent;
 
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 
 /**
@@ -16,4 +17,10 @@ public interface TravelAssistantAgent {
      * The first parameter is a memory id to maintain a per-session conversation memory.
      */
     String chat(@MemoryId String memoryId, @UserMessage String message);
+
+    /**
+     * Same as {@link #chat}, but streams the answer as the model produces it. Tools run between
+     * streamed model responses, on the thread that called {@link TokenStream#start()}.
+     */
+    TokenStream chatStream(@MemoryId String memoryId, @UserMessage String message);
 }
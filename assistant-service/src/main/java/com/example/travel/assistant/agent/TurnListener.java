@@ -0,0 +1,14 @@
+package com.example.travel.assistant.agent;
+
+/**
+ * Receives the progress of one chat turn while it runs, for clients that render the answer
+ * incrementally. Calls come from the thread running the turn, in order.
+ */
+public interface TurnListener {
+
+    /** Interim progress, e.g. a tool that started running. */
+    void status(String message);
+
+    /** The next piece of the answer text. */
+    void token(String text);
+}
@@ -1,29 +1,47 @@
 package com.example.travel.assistant.api;
 
+import com.example.travel.assistant.agent.TurnListener;
+import com.example.travel.assistant.llm.LlmRejectedException;
 import com.example.travel.assistant.service.AgentService;
+import com.example.travel.assistant.session.SessionBusyException;
+import com.example.travel.assistant.session.SessionMailbox;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/assistant/agent")
 public class AgentController {
 
+    private static final Logger log = LoggerFactory.getLogger(AgentController.class);
+
     public static class AskRequest {
         private final String prompt;
         private final String sessionId;
+        private final String userId;
         @JsonCreator
         public AskRequest(@JsonProperty("prompt") String prompt,
-                          @JsonProperty("sessionId") String sessionId) {
+                          @JsonProperty("sessionId") String sessionId,
+                          @JsonProperty("userId") String userId) {
             this.prompt = prompt;
             this.sessionId = sessionId;
+            this.userId = userId;
         }
         public String getPrompt() { return prompt; }
         public String getSessionId() { return sessionId; }
+        public String getUserId() { return userId; }
     }
 
     public static class AskResponse {
@@ -33,9 +51,12 @@ public class AgentController {
     }
 
     private final AgentService agentService;
+    private final long streamTimeoutMs;
 
-    public AgentController(AgentService agentService) {
+    public AgentController(AgentService agentService,
+                           @Value("${assistant.agent.stream-timeout-ms:${ASSISTANT_AGENT_STREAM_TIMEOUT_MS:180000}}") long streamTimeoutMs) {
         this.agentService = agentService;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
     @PostMapping("/ask")
@@ -46,8 +67,92 @@ public class AgentController {
         if (request.getPrompt() == null || request.getPrompt().isBlank()) {
             return ResponseEntity.badRequest().body(new AskResponse("Please provide a non-empty 'prompt'."));
         }
-        String memoryId = request.getSessionId() != null && !request.getSessionId().isBlank() ? request.getSessionId() : "default";
-        String reply = agentService.ask(memoryId, request.getPrompt());
+        String reply = agentService.ask(memoryId(request), request.getPrompt(), request.getUserId());
         return ResponseEntity.ok(new AskResponse(reply));
     }
+
+    /**
+     * Streaming variant of {@link #ask}: Server-Sent Events with JSON data, sent as the turn runs.
+     * <pre>
+     *   event: status  data: {"message": "Searching flights…"}   while a tool runs
+     *   event: token   data: {"text": "..."}                     next piece of the answer
+     *   event: done    data: {"answer": "..."}                   the full answer, last event
+     *   event: error   data: {"code": "...", "message": "..."}   instead of done
+     * </pre>
+     * Error codes: SESSION_BUSY, LLM_RATE_LIMITED and LLM_OVERLOADED (these two add "retryAfter"
+     * in seconds), INTERNAL_ERROR.
+     * The turn runs on a virtual thread, so the request thread is released right away. When the
+     * stream ends early (the client disconnects or the stream times out) that thread is
+     * interrupted, which abandons the turn; see {@link SessionMailbox}.
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> askStream(@RequestBody(required = false) AskRequest request) {
+        if (request == null || request.getPrompt() == null || request.getPrompt().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        String memoryId = memoryId(request);
+        Thread turn = Thread.ofVirtual().name("sse-turn-", 0).unstarted(() -> stream(emitter, memoryId, request));
+        emitter.onTimeout(() -> {
+            log.debug("[AgentController] Stream for session {} timed out after {} ms", memoryId, streamTimeoutMs);
+            turn.interrupt();
+        });
+        emitter.onError(e -> {
+            log.debug("[AgentController] Stream for session {} failed: {}", memoryId, e.toString());
+            turn.interrupt();
+        });
+        // also fires after a normal end, when the turn thread is finishing and the interrupt is moot
+        emitter.onCompletion(turn::interrupt);
+        turn.start();
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void stream(SseEmitter emitter, String memoryId, AskRequest request) {
+        TurnListener listener = new TurnListener() {
+            @Override
+            public void status(String message) { send(emitter, "status", Map.of("message", message)); }
+
+            @Override
+            public void token(String text) { send(emitter, "token", Map.of("text", text)); }
+        };
+        try {
+            String answer = agentService.askStream(memoryId, request.getPrompt(), request.getUserId(), listener);
+            send(emitter, "done", Map.of("answer", answer == null ? "" : answer));
+            emitter.complete();
+        } catch (SessionBusyException e) {
+            send(emitter, "error", Map.of("code", "SESSION_BUSY", "message", e.getMessage()));
+            emitter.complete();
+        } catch (LlmRejectedException e) {
+            send(emitter, "error", Map.of("code", errorCode(e), "message", e.getMessage(),
+                    "retryAfter", String.valueOf(e.getRetryAfterSeconds())));
+            emitter.complete();
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.debug("[AgentController] Streaming turn for session {} abandoned: {}", memoryId, e.toString());
+                return;
+            }
+            log.warn("[AgentController] Streaming turn failed for session {}: {}", memoryId, e.toString());
+            String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            send(emitter, "error", Map.of("code", "INTERNAL_ERROR", "message", "Assistant error: " + msg));
+            emitter.complete();
+        }
+    }
+
+    /** LLM_RATE_LIMITED for the rate limit, LLM_OVERLOADED when the model has no capacity. */
+    static String errorCode(LlmRejectedException e) {
+        return e.getReason() == LlmRejectedException.Reason.RATE_LIMITED ? "LLM_RATE_LIMITED" : "LLM_OVERLOADED";
+    }
+
+    /** Sends one event; a client that went away is not an error for the turn, which still completes. */
+    private static void send(SseEmitter emitter, String event, Map<String, String> data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("[AgentController] Dropping '{}' event, client gone: {}", event, e.toString());
+        }
+    }
+
+    private static String memoryId(AskRequest request) {
+        return request.getSessionId() != null && !request.getSessionId().isBlank() ? request.getSessionId() : "default";
+    }
 }
@@ -2,6 +2,8 @@ package com.example.travel.assistant.api;
 
 import com.example.travel.assistant.service.AgentService;
 import com.example.travel.assistant.service.AssistantService;
+import com.example.travel.assistant.llm.LlmRejectedException;
+import com.example.travel.assistant.session.SessionBusyException;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.http.ResponseEntity;
@@ -93,6 +95,8 @@ public class AssistantQueryController {
                 reply = assistantService.ask(compiledPrompt);
             }
             return ResponseEntity.ok(new QueryResponse(reply));
+        } catch (SessionBusyException | LlmRejectedException e) {
+            throw e; // 429/503 from GlobalExceptionHandler
         } catch (Exception e) {
             String msg = "Assistant error: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
             return ResponseEntity.internalServerError().body(new QueryResponse(msg));
@@ -0,0 +1,39 @@
+package com.example.travel.assistant.api;
+
+import com.example.travel.assistant.flights.FlightCatalog;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/assistant/admin/flights")
+public class FlightAdminController {
+
+    private final FlightCatalog catalog;
+
+    public FlightAdminController(FlightCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @GetMapping
+    public Map<String, Object> status() {
+        return catalog.describe();
+    }
+
+    /** Rebuilds the dataset snapshot and publishes it; searches keep running against the old one meanwhile. */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        try {
+            catalog.reload();
+            return ResponseEntity.ok(catalog.describe());
+        } catch (Exception e) {
+            Map<String, Object> resp = new LinkedHashMap<>(catalog.describe());
+            resp.put("code", "RELOAD_FAILED");
+            resp.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(resp);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.travel.assistant.api;
 
+import com.example.travel.assistant.llm.LlmRejectedException;
+import com.example.travel.assistant.session.SessionBusyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -46,6 +49,22 @@ public class GlobalExceptionHandler {
         return body(HttpStatus.BAD_REQUEST, ex.getMessage(), "ILLEGAL_ARGUMENT");
     }
 
+    @ExceptionHandler(SessionBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleSessionBusy(SessionBusyException ex) {
+        HttpStatus status = ex.isTimedOut() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS;
+        ResponseEntity<Map<String, Object>> res = body(status, ex.getMessage(), "SESSION_BUSY");
+        return ResponseEntity.status(res.getStatusCode()).header(HttpHeaders.RETRY_AFTER, "1").body(res.getBody());
+    }
+
+    @ExceptionHandler(LlmRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleLlmRejected(LlmRejectedException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatus());
+        ResponseEntity<Map<String, Object>> res = body(status, ex.getMessage(), AgentController.errorCode(ex));
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(res.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleOther(Exception ex) {
         log.warn("[GlobalExceptionHandler] Unhandled error: {}", ex.toString(), ex);
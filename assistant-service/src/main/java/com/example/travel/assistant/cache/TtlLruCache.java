@@ -0,0 +1,135 @@
+package com.example.travel.assistant.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded map whose entries expire a fixed TTL after they were written, or with
+ * {@code idleExpiry} after they were last read or written. When it holds more than
+ * {@code maxEntries}, the least recently used entry is evicted; an expired entry is dropped by
+ * the lookup that finds it. With idle expiry the access order is also the expiry order, so
+ * every operation sweeps expired entries from the cold end. A cache with no room or no TTL
+ * keeps nothing.
+ *
+ * Every operation is a few map steps under one lock, so callers compute values outside it.
+ * The lock is a {@link ReentrantLock} rather than a monitor, so a virtual thread waiting for it
+ * does not pin its carrier.
+ */
+public final class TtlLruCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final boolean idleExpiry;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicLong expiredEvictions = new AtomicLong();
+
+    public TtlLruCache(int maxEntries, long ttlNanos, LongSupplier clock) {
+        this(maxEntries, ttlNanos, false, clock);
+    }
+
+    public TtlLruCache(int maxEntries, long ttlNanos, boolean idleExpiry, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = ttlNanos;
+        this.idleExpiry = idleExpiry;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= TtlLruCache.this.maxEntries) return false;
+                sizeEvictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** False when the cache can hold nothing, so callers can skip building keys. */
+    public boolean enabled() {
+        return maxEntries > 0 && ttlNanos > 0;
+    }
+
+    /** The live value for the key, or null. */
+    public V get(K key) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            sweepIdle(now);
+            Entry<V> e = entries.get(key);
+            if (e == null) return null;
+            if (e.expiresAt - now > 0) {
+                if (idleExpiry) entries.put(key, new Entry<>(e.value, now + ttlNanos));
+                return e.value;
+            }
+            entries.remove(key);
+            expiredEvictions.incrementAndGet();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        if (!enabled()) return;
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            sweepIdle(now);
+            entries.put(key, new Entry<>(value, now + ttlNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops every entry; returns whether there was any. */
+    public boolean clear() {
+        lock.lock();
+        try {
+            boolean had = !entries.isEmpty();
+            entries.clear();
+            return had;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            sweepIdle(clock.getAsLong());
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sweepIdle(long now) {
+        if (!idleExpiry) return;
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt - now > 0) return; // access order: the rest is fresher
+            it.remove();
+            expiredEvictions.incrementAndGet();
+        }
+    }
+
+    public long sizeEvictions() { return sizeEvictions.get(); }
+
+    public long expiredEvictions() { return expiredEvictions.get(); }
+}
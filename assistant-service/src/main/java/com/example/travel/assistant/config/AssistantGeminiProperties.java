@@ -3,6 +3,9 @@ package com.example.travel.assistant.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "assistant.gemini")
 public class AssistantGeminiProperties {
@@ -10,6 +13,8 @@ public class AssistantGeminiProperties {
     private String model = "gemini-1.5-flash";
     private long requestTimeoutMs = 60000;
     private double temperature = 0.2;
+    /** Models tried in order when the primary fails; the first one also takes hedge requests. */
+    private List<String> fallbackModels = new ArrayList<>();
 
     public String getApiKey() { return apiKey; }
     public void setApiKey(String apiKey) { this.apiKey = apiKey; }
@@ -22,4 +27,7 @@ public class AssistantGeminiProperties {
 
     public double getTemperature() { return temperature; }
     public void setTemperature(double temperature) { this.temperature = temperature; }
+
+    public List<String> getFallbackModels() { return fallbackModels; }
+    public void setFallbackModels(List<String> fallbackModels) { this.fallbackModels = fallbackModels; }
 }
@@ -1,43 +1,100 @@
 package com.example.travel.assistant.config;
 
+import com.example.travel.assistant.agent.StatusReportingTools;
 import com.example.travel.assistant.agent.TravelAssistantAgent;
+import com.example.travel.assistant.llm.GatedChatLanguageModel;
+import com.example.travel.assistant.llm.GatedStreamingChatLanguageModel;
+import com.example.travel.assistant.llm.LlmGateway;
+import com.example.travel.assistant.llm.RoutedChatLanguageModel;
 import com.example.travel.assistant.memory.SharedChatMemoryProvider;
+import com.example.travel.assistant.replay.ConversationRecorder;
+import com.example.travel.assistant.session.SessionStore;
 import com.example.travel.assistant.tools.BookingTools;
 import com.example.travel.assistant.tools.ProfileLookupTool;
 import com.example.travel.assistant.tools.FlightSearchTool;
 import com.example.travel.assistant.tools.SelectFromLastSearchTool;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class LangChainAgentConfig {
 
+    /**
+     * The primary Gemini model and the configured fallbacks, each behind the gateway, routed
+     * with hedging for slow calls and fallback on errors.
+     */
     @Bean
+    @Profile("!offline")
     public ChatLanguageModel chatLanguageModel(
-            AssistantGeminiProperties geminiProps
+            AssistantGeminiProperties geminiProps,
+            LlmGateway gateway,
+            ConversationRecorder recorder,
+            MeterRegistry meterRegistry,
+            @Value("${assistant.llm.hedge.enabled:${ASSISTANT_LLM_HEDGE_ENABLED:true}}") boolean hedge,
+            @Value("${assistant.llm.hedge.percentile:${ASSISTANT_LLM_HEDGE_PERCENTILE:0.95}}") double hedgePercentile,
+            @Value("${assistant.llm.hedge.min-delay-ms:${ASSISTANT_LLM_HEDGE_MIN_DELAY_MS:1000}}") long hedgeMinDelayMs,
+            @Value("${assistant.llm.hedge.max-delay-ms:${ASSISTANT_LLM_HEDGE_MAX_DELAY_MS:15000}}") long hedgeMaxDelayMs
     ) {
         if (geminiProps.getApiKey() == null || geminiProps.getApiKey().isBlank()) {
             throw new IllegalStateException("assistant.gemini.api-key is required to start assistant-service");
         }
-        return GoogleAiGeminiChatModel.builder()
+        List<RoutedChatLanguageModel.Route> routes = new ArrayList<>();
+        for (String modelName : modelChain(geminiProps)) {
+            ChatLanguageModel gemini = GoogleAiGeminiChatModel.builder()
+                    .apiKey(geminiProps.getApiKey())
+                    .modelName(modelName)
+                    .temperature(geminiProps.getTemperature())
+                    .timeout(Duration.ofMillis(geminiProps.getRequestTimeoutMs()))
+                    .build();
+            routes.add(new RoutedChatLanguageModel.Route(modelName, new GatedChatLanguageModel(gemini, gateway)));
+        }
+        return recorder.record(new RoutedChatLanguageModel(routes, hedge, hedgePercentile, hedgeMinDelayMs, hedgeMaxDelayMs, meterRegistry));
+    }
+
+    private static List<String> modelChain(AssistantGeminiProperties geminiProps) {
+        List<String> chain = new ArrayList<>();
+        chain.add(geminiProps.getModel());
+        for (String m : geminiProps.getFallbackModels()) {
+            if (m != null && !m.isBlank() && !chain.contains(m.trim())) chain.add(m.trim());
+        }
+        return chain;
+    }
+
+    @Bean
+    @Profile("!offline")
+    public StreamingChatLanguageModel streamingChatLanguageModel(AssistantGeminiProperties geminiProps, LlmGateway gateway,
+                                                                 ConversationRecorder recorder) {
+        if (geminiProps.getApiKey() == null || geminiProps.getApiKey().isBlank()) {
+            throw new IllegalStateException("assistant.gemini.api-key is required to start assistant-service");
+        }
+        StreamingChatLanguageModel gemini = GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(geminiProps.getApiKey())
                 .modelName(geminiProps.getModel())
                 .temperature(geminiProps.getTemperature())
                 .timeout(Duration.ofMillis(geminiProps.getRequestTimeoutMs()))
                 .build();
+        return recorder.record(new GatedStreamingChatLanguageModel(gemini, gateway));
     }
 
     @Bean
-    public SharedChatMemoryProvider sharedChatMemoryProvider() {
-        return new SharedChatMemoryProvider(50);
+    public SharedChatMemoryProvider sharedChatMemoryProvider(SessionStore sessionStore,
+            @Value("${assistant.session.max-entries:${ASSISTANT_SESSION_MAX_ENTRIES:10000}}") int maxSessions,
+            @Value("${assistant.session.idle-ttl-seconds:${ASSISTANT_SESSION_IDLE_TTL_SECONDS:1800}}") long idleTtlSeconds) {
+        return new SharedChatMemoryProvider(50, sessionStore, maxSessions, idleTtlSeconds * 1_000_000_000L, System::nanoTime);
     }
 
     @Bean
@@ -47,6 +104,7 @@ public class LangChainAgentConfig {
 
     @Bean
     public TravelAssistantAgent travelAssistantAgent(ChatLanguageModel model,
+                                                     StreamingChatLanguageModel streamingModel,
                                                      BookingTools bookingTools,
                                                      ProfileLookupTool profileLookupTool,
                                                      FlightSearchTool flightSearchTool,
@@ -55,13 +113,15 @@ public class LangChainAgentConfig {
                                                      @Value("${assistant.agent.tools-enabled:${ASSISTANT_AGENT_TOOLS_ENABLED:true}}") boolean agentToolsEnabled) {
         var builder = AiServices.builder(TravelAssistantAgent.class)
                 .chatLanguageModel(model)
+                .streamingChatLanguageModel(streamingModel)
                 .chatMemoryProvider(memoryProvider);
         if (agentToolsEnabled) {
-            builder.tools(bookingTools, profileLookupTool, flightSearchTool);
+            List<Object> tools = new ArrayList<>(List.of(bookingTools, profileLookupTool, flightSearchTool));
             SelectFromLastSearchTool selector = selectFromLastSearchToolProvider.getIfAvailable();
             if (selector != null) {
-                builder.tools(selector);
+                tools.add(selector);
             }
+            builder.tools(StatusReportingTools.of(tools));
         }
         return builder.build();
     }
@@ -0,0 +1,48 @@
+package com.example.travel.assistant.config;
+
+import com.example.travel.assistant.llm.GatedChatLanguageModel;
+import com.example.travel.assistant.llm.GatedStreamingChatLanguageModel;
+import com.example.travel.assistant.llm.LlmGateway;
+import com.example.travel.assistant.replay.LatencyModel;
+import com.example.travel.assistant.replay.ReplayScript;
+import com.example.travel.assistant.replay.ScriptedChatLanguageModel;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The {@code offline} profile: Gemini is replaced by a {@link ScriptedChatLanguageModel} that
+ * replays a recorded conversation file with simulated latency, so the whole agent pipeline
+ * (intent detection, memory, tools, admission control) can be load-tested without an API key
+ * or network. Record a file with assistant.replay.record-file on a normal run first.
+ */
+@Configuration
+@Profile("offline")
+public class OfflineModelConfig {
+
+    @Bean
+    public ScriptedChatLanguageModel scriptedChatModel(
+            @Value("${assistant.replay.file:${ASSISTANT_REPLAY_FILE:}}") String file,
+            @Value("${assistant.replay.latency:${ASSISTANT_REPLAY_LATENCY:recorded}}") String latency,
+            @Value("${assistant.replay.latency-scale:${ASSISTANT_REPLAY_LATENCY_SCALE:1.0}}") double latencyScale,
+            @Value("${assistant.replay.default-answer:${ASSISTANT_REPLAY_DEFAULT_ANSWER:Offline mode: no recorded answer for this message.}}") String defaultAnswer) {
+        return new ScriptedChatLanguageModel(ReplayScript.load(file), LatencyModel.parse(latency, latencyScale), defaultAnswer);
+    }
+
+    // primary: the scripted model is itself a ChatLanguageModel and StreamingChatLanguageModel
+    @Bean
+    @Primary
+    public ChatLanguageModel chatLanguageModel(ScriptedChatLanguageModel scripted, LlmGateway gateway) {
+        return new GatedChatLanguageModel(scripted, gateway);
+    }
+
+    @Bean
+    @Primary
+    public StreamingChatLanguageModel streamingChatLanguageModel(ScriptedChatLanguageModel scripted, LlmGateway gateway) {
+        return new GatedStreamingChatLanguageModel(scripted, gateway);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.travel.assistant.config;
+
+import com.example.travel.assistant.session.FileSessionStore;
+import com.example.travel.assistant.session.InMemorySessionStore;
+import com.example.travel.assistant.session.SessionStore;
+import com.example.travel.assistant.session.WriteBehindSessionStore;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Chooses where chat memory and session state live: {@code memory} (default, lost on restart)
+ * or {@code file}, an embedded append-only log written behind the request path.
+ */
+@Configuration
+public class SessionStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public SessionStore sessionStore(@Value("${assistant.session.store:${ASSISTANT_SESSION_STORE:memory}}") String type,
+                                     @Value("${assistant.session.file:${ASSISTANT_SESSION_FILE:data/sessions.log}}") String file,
+                                     @Value("${assistant.session.write-behind.interval-ms:${ASSISTANT_SESSION_WRITE_BEHIND_INTERVAL_MS:200}}") long intervalMs,
+                                     @Value("${assistant.session.write-behind.batch-size:${ASSISTANT_SESSION_WRITE_BEHIND_BATCH_SIZE:256}}") int batchSize) {
+        return switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "memory" -> new InMemorySessionStore();
+            case "file" -> new WriteBehindSessionStore(new FileSessionStore(Path.of(file)), intervalMs, batchSize);
+            default -> throw new IllegalStateException("assistant.session.store must be 'memory' or 'file', got '" + type + "'");
+        };
+    }
+
+    @Bean
+    public MeterBinder sessionStoreMetrics(SessionStore sessionStore) {
+        return registry -> {
+            if (sessionStore instanceof MeterBinder binder) binder.bindTo(registry);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.travel.assistant.flights;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Chunk-local string interning keyed by raw UTF-8 bytes, so repeated CSV values are resolved
+ * to dense ids without creating a String per field. Strings are only materialized once per
+ * distinct value, when the chunk is merged into the store.
+ */
+final class ByteStringTable {
+
+    private byte[] pool = new byte[4096];
+    private int poolSize;
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] hashes = new int[64];
+    private int size;
+    private int[] slots = new int[128]; // id + 1, 0 = empty
+
+    int intern(byte[] src, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) h = 31 * h + src[i];
+        h ^= h >>> 16;
+        int len = to - from;
+        int mask = slots.length - 1;
+        int i = h & mask;
+        int slot;
+        while ((slot = slots[i]) != 0) {
+            int id = slot - 1;
+            if (hashes[id] == h && lengths[id] == len
+                    && Arrays.equals(pool, offsets[id], offsets[id] + len, src, from, to)) {
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+        if (poolSize + len > pool.length) pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+        System.arraycopy(src, from, pool, poolSize, len);
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        offsets[id] = poolSize;
+        lengths[id] = len;
+        hashes[id] = h;
+        poolSize += len;
+        slots[i] = id + 1;
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        int[] next = new int[slots.length * 2];
+        int mask = next.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (next[i] != 0) i = (i + 1) & mask;
+            next[i] = id + 1;
+        }
+        slots = next;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String get(int id) {
+        return new String(pool, offsets[id], lengths[id], StandardCharsets.UTF_8);
+    }
+}
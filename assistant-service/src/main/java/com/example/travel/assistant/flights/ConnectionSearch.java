@@ -0,0 +1,155 @@
+package com.example.travel.assistant.flights;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Itinerary search with at most one stop over a {@link FlightSnapshot}.
+ *
+ * First legs are the departures from the origin airports on the requested day, read from the
+ * {@link DepartureIndex} slice of each airport. For every first leg, the second legs are read
+ * from the time-ordered (hub, destination) route slice, starting at the earliest departure
+ * that respects the minimum connection time. No self-join over the dataset is needed.
+ *
+ * Times are the local clock times of the dataset; an arrival at or before its departure is
+ * taken to land the next day. Legs priced in different currencies are never joined, since their
+ * prices cannot be added. Only the best {@code limit} itineraries are materialized.
+ */
+public final class ConnectionSearch {
+
+    public static final int DEFAULT_MIN_CONNECTION_MINUTES = 45;
+    public static final int DEFAULT_MAX_CONNECTION_MINUTES = 12 * 60;
+
+    public enum Rank { PRICE, DURATION }
+
+    /** A direct flight ({@code second == -1}) or a one-stop connection; minutes are local epoch minutes. */
+    public record Itinerary(int first, int second, double price, int departureMinute, int arrivalMinute) {
+        public boolean direct() { return second < 0; }
+        public int durationMinutes() { return arrivalMinute - departureMinute; }
+    }
+
+    private ConnectionSearch() {}
+
+    public static List<Itinerary> search(FlightSnapshot snap, int[] origins, int[] destinations, int epochDay,
+                                         Rank rank, int limit) {
+        return search(snap, origins, destinations, epochDay, rank, limit,
+                DEFAULT_MIN_CONNECTION_MINUTES, DEFAULT_MAX_CONNECTION_MINUTES);
+    }
+
+    public static List<Itinerary> search(FlightSnapshot snap, int[] origins, int[] destinations, int epochDay,
+                                         Rank rank, int limit, int minConnection, int maxConnection) {
+        FlightStore store = snap.store();
+        if (store.isEmpty() || origins.length == 0 || destinations.length == 0 || limit <= 0) return List.of();
+        DepartureIndex departures = snap.departureIndex();
+        boolean[] excludedHub = new boolean[store.airports().size()];
+        boolean[] isDestination = new boolean[excludedHub.length];
+        for (int o : origins) excludedHub[o] = true;
+        for (int d : destinations) {
+            excludedHub[d] = true;
+            isDestination[d] = true;
+        }
+
+        TopK top = new TopK(limit, rank);
+        int dayStart = epochDay * 1440;
+        int dayEnd = dayStart + 1440;
+        for (int o : origins) {
+            int end = departures.airportEnd(o);
+            for (int p = departures.airportFirstAtOrAfter(o, dayStart); p < end; p++) {
+                int first = departures.airportRow(p);
+                int dep = store.departureMinute(first);
+                if (dep >= dayEnd) break;
+                int hub = store.destinationId(first);
+                int arr = arrival(store, first);
+                if (isDestination[hub]) {
+                    top.offer(first, -1, store.price(first), dep, arr);
+                    continue;
+                }
+                if (excludedHub[hub]) continue;
+                int earliest = arr + minConnection;
+                int latest = arr + maxConnection;
+                double firstPrice = store.price(first);
+                int currency = store.currencyId(first);
+                for (int d : destinations) {
+                    int route = departures.route(hub, d);
+                    if (route < 0) continue;
+                    int routeEnd = departures.routeEnd(route);
+                    for (int q = departures.routeFirstAtOrAfter(route, earliest); q < routeEnd; q++) {
+                        int second = departures.routeRow(q);
+                        if (store.departureMinute(second) > latest) break;
+                        if (store.currencyId(second) != currency) continue;
+                        top.offer(first, second, firstPrice + store.price(second), dep, arrival(store, second));
+                    }
+                }
+            }
+        }
+        return top.result();
+    }
+
+    /** Arrival minute, rolled to the next day when the clock time is not after the departure. */
+    public static int arrival(FlightStore store, int row) {
+        int dep = store.departureMinute(row);
+        int arr = store.arrivalMinute(row);
+        return arr > dep ? arr : arr + 1440;
+    }
+
+    /** Bounded best-first list; small K, so insertion into sorted parallel arrays is cheapest. */
+    private static final class TopK {
+        private final int capacity;
+        private final boolean byPrice;
+        private final int[] first;
+        private final int[] second;
+        private final double[] price;
+        private final int[] dep;
+        private final int[] arr;
+        private int size;
+
+        TopK(int capacity, Rank rank) {
+            this.capacity = capacity;
+            this.byPrice = rank == Rank.PRICE;
+            first = new int[capacity];
+            second = new int[capacity];
+            price = new double[capacity];
+            dep = new int[capacity];
+            arr = new int[capacity];
+        }
+
+        void offer(int f, int s, double p, int d, int a) {
+            if (size == capacity && !before(f, s, p, d, a, size - 1)) return;
+            int i = size == capacity ? size - 1 : size++;
+            while (i > 0 && before(f, s, p, d, a, i - 1)) {
+                first[i] = first[i - 1];
+                second[i] = second[i - 1];
+                price[i] = price[i - 1];
+                dep[i] = dep[i - 1];
+                arr[i] = arr[i - 1];
+                i--;
+            }
+            first[i] = f;
+            second[i] = s;
+            price[i] = p;
+            dep[i] = d;
+            arr[i] = a;
+        }
+
+        private boolean before(int f, int s, double p, int d, int a, int i) {
+            int duration = a - d;
+            int otherDuration = arr[i] - dep[i];
+            if (byPrice) {
+                if (p != price[i]) return p < price[i];
+                if (duration != otherDuration) return duration < otherDuration;
+            } else {
+                if (duration != otherDuration) return duration < otherDuration;
+                if (p != price[i]) return p < price[i];
+            }
+            if (d != dep[i]) return d < dep[i];
+            if (f != first[i]) return f < first[i];
+            return s < second[i];
+        }
+
+        List<Itinerary> result() {
+            List<Itinerary> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(new Itinerary(first[i], second[i], price[i], dep[i], arr[i]));
+            return out;
+        }
+    }
+}
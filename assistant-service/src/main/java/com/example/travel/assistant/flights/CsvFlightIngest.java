@@ -0,0 +1,464 @@
+package com.example.travel.assistant.flights;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ToIntFunction;
+
+/**
+ * Parallel CSV ingest into a {@link FlightStore.Builder}.
+ *
+ * The input is split into byte-range chunks on line boundaries. Each chunk is parsed on a
+ * {@link ForkJoinPool} straight from bytes: string fields are interned per chunk by their
+ * bytes, dates and times are decoded to epoch days/minutes without going through java.time,
+ * and simple decimal prices are decoded without a String. Chunks are then merged into the
+ * builder in file order, so de-duplication keeps the first occurrence exactly as a sequential
+ * parse would.
+ *
+ * Fields follow RFC 4180 quoting: a quoted field may contain commas and doubled quotes, but
+ * not line breaks, since chunks are split on raw newlines. Lines with fewer than 11 fields, an
+ * invalid date or time, or broken quoting are rejected and reported with their line number
+ * (the header is line 1). An unparseable price is read as 0, as before.
+ */
+public final class CsvFlightIngest {
+
+    static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+    private static final int FIELDS = 11;
+    private static final int MAX_REPORTED = 100;
+    private static final int STRIDE = 10; // ints per parsed row in a chunk
+
+    public record Rejection(long line, String reason) {}
+
+    /**
+     * Outcome of an ingest. {@code lines} counts non-blank data lines; {@code rejected} keeps
+     * the first {@value #MAX_REPORTED} rejections in line order.
+     */
+    public record Report(boolean header, long lines, long accepted, long duplicates, long rejectedCount,
+                         List<Rejection> rejected, int chunks, long millis) {
+        public long rowsPerSecond() {
+            return millis == 0 ? lines * 1000 : lines * 1000 / millis;
+        }
+    }
+
+    private CsvFlightIngest() {}
+
+    public static Report ingest(Path file, FlightStore.Builder builder) throws IOException {
+        return ingest(file, builder, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public static Report ingest(Path file, FlightStore.Builder builder, ForkJoinPool pool, int chunkBytes) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return run(new FileInput(ch), builder, pool, chunkBytes);
+        }
+    }
+
+    public static Report ingest(byte[] data, FlightStore.Builder builder) throws IOException {
+        return ingest(data, builder, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public static Report ingest(byte[] data, FlightStore.Builder builder, ForkJoinPool pool, int chunkBytes) throws IOException {
+        return run(new ArrayInput(data), builder, pool, chunkBytes);
+    }
+
+    private static Report run(Input in, FlightStore.Builder builder, ForkJoinPool pool, int chunkBytes) throws IOException {
+        long started = System.nanoTime();
+        long length = in.length();
+        if (length == 0) return new Report(false, 0, 0, 0, 0, List.of(), 0, 0);
+
+        long headerEnd = in.lineStart(1);
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (long from = headerEnd; from < length; ) {
+            long to = in.lineStart(Math.min(length, from + Math.max(1, chunkBytes)));
+            long start = from;
+            tasks.add(pool.submit(() -> {
+                try {
+                    return parse(in.slice(start, to));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            from = to;
+        }
+
+        long nextLine = 2; // the header is line 1
+        long lines = 0, accepted = 0, duplicates = 0, rejectedCount = 0;
+        List<Rejection> rejected = new ArrayList<>();
+        try {
+            for (ForkJoinTask<Chunk> task : tasks) {
+                Chunk chunk = task.join();
+                for (int r = 0; r < chunk.reportedCount && rejected.size() < MAX_REPORTED; r++) {
+                    rejected.add(new Rejection(nextLine + chunk.reportedLines[r], chunk.reportedReasons[r]));
+                }
+                int added = merge(chunk, builder);
+                accepted += added;
+                duplicates += chunk.rows - added;
+                rejectedCount += chunk.rejectedCount;
+                lines += chunk.rows + chunk.rejectedCount;
+                nextLine += chunk.lines;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (ForkJoinTask<Chunk> task : tasks) task.cancel(false);
+        }
+        return new Report(true, lines, accepted, duplicates, rejectedCount, List.copyOf(rejected),
+                tasks.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // ---- Merge (sequential, file order) ----
+
+    private static int merge(Chunk chunk, FlightStore.Builder builder) {
+        ByteStringTable strings = chunk.strings;
+        int[] carriers = unmapped(strings.size());
+        int[] flightNumbers = unmapped(strings.size());
+        int[] airports = unmapped(strings.size());
+        int[] cities = unmapped(strings.size());
+        int[] currencies = unmapped(strings.size());
+        int[] c = chunk.cols;
+        int added = 0;
+        for (int r = 0; r < chunk.rows; r++) {
+            int base = r * STRIDE;
+            int carrierId = global(carriers, c[base], strings, builder::internCarrier);
+            int flightNumberId = global(flightNumbers, c[base + 1], strings, builder::internFlightNumber);
+            int day = c[base + 7];
+            int slot = builder.freeTripSlot(carrierId, flightNumberId, day);
+            if (slot < 0) continue;
+            builder.append(slot, carrierId, flightNumberId,
+                    global(airports, c[base + 2], strings, builder::internAirport),
+                    global(airports, c[base + 3], strings, builder::internAirport),
+                    global(cities, c[base + 4], strings, builder::internCity),
+                    global(cities, c[base + 5], strings, builder::internCity),
+                    day, c[base + 8], c[base + 9], chunk.prices[r],
+                    global(currencies, c[base + 6], strings, builder::internCurrency));
+            added++;
+        }
+        return added;
+    }
+
+    private static int[] unmapped(int size) {
+        int[] map = new int[size];
+        Arrays.fill(map, -1);
+        return map;
+    }
+
+    private static int global(int[] map, int localId, ByteStringTable strings, ToIntFunction<String> intern) {
+        int id = map[localId];
+        if (id < 0) id = map[localId] = intern.applyAsInt(strings.get(localId));
+        return id;
+    }
+
+    // ---- Chunk parsing (parallel) ----
+
+    private static final class Chunk {
+        final ByteStringTable strings = new ByteStringTable();
+        int[] cols = new int[1024 * STRIDE]; // carrier, flightNo, origin, dest, originCity, destCity, currency, day, dep, arr
+        double[] prices = new double[1024];
+        int rows;
+        int lines;
+        int rejectedCount;
+        int[] reportedLines = new int[8]; // chunk-relative, 0-based
+        String[] reportedReasons = new String[8];
+        int reportedCount;
+
+        void reject(int line, String reason) {
+            rejectedCount++;
+            if (reportedCount == MAX_REPORTED) return;
+            if (reportedCount == reportedLines.length) {
+                reportedLines = Arrays.copyOf(reportedLines, reportedCount * 2);
+                reportedReasons = Arrays.copyOf(reportedReasons, reportedCount * 2);
+            }
+            reportedLines[reportedCount] = line;
+            reportedReasons[reportedCount++] = reason;
+        }
+
+        int nextRow() {
+            if (rows == prices.length) {
+                prices = Arrays.copyOf(prices, rows * 2);
+                cols = Arrays.copyOf(cols, rows * 2 * STRIDE);
+            }
+            return rows++;
+        }
+    }
+
+    private static Chunk parse(Slice slice) {
+        byte[] data = slice.data();
+        int to = slice.to();
+        Chunk chunk = new Chunk();
+        byte[][] bufs = new byte[FIELDS][];
+        int[] starts = new int[FIELDS];
+        int[] ends = new int[FIELDS];
+        byte[] scratch = new byte[256];
+        int pos = slice.from();
+        while (pos < to) {
+            int lineEnd = pos;
+            while (lineEnd < to && data[lineEnd] != '\n') lineEnd++;
+            int next = lineEnd < to ? lineEnd + 1 : to;
+            int end = lineEnd > pos && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            int line = chunk.lines++;
+            if (!isBlank(data, pos, end)) {
+                if (scratch.length < end - pos) scratch = new byte[end - pos];
+                parseLine(chunk, line, data, pos, end, scratch, bufs, starts, ends);
+            }
+            pos = next;
+        }
+        return chunk;
+    }
+
+    private static void parseLine(Chunk chunk, int line, byte[] data, int start, int end, byte[] scratch,
+                                  byte[][] bufs, int[] starts, int[] ends) {
+        int n = 0;
+        int p = start;
+        int scratchLen = 0;
+        while (true) {
+            if (p < end && data[p] == '"') {
+                int q = p + 1;
+                int from = scratchLen;
+                boolean closed = false;
+                while (q < end) {
+                    byte b = data[q];
+                    if (b == '"') {
+                        if (q + 1 < end && data[q + 1] == '"') {
+                            scratch[scratchLen++] = '"';
+                            q += 2;
+                            continue;
+                        }
+                        closed = true;
+                        q++;
+                        break;
+                    }
+                    scratch[scratchLen++] = b;
+                    q++;
+                }
+                if (!closed) {
+                    chunk.reject(line, "unterminated quoted field " + (n + 1));
+                    return;
+                }
+                if (q < end && data[q] != ',') {
+                    chunk.reject(line, "unexpected character after quoted field " + (n + 1));
+                    return;
+                }
+                if (n < FIELDS) {
+                    bufs[n] = scratch;
+                    starts[n] = from;
+                    ends[n] = scratchLen;
+                }
+                p = q;
+            } else {
+                int q = p;
+                while (q < end && data[q] != ',') q++;
+                if (n < FIELDS) {
+                    bufs[n] = data;
+                    starts[n] = p;
+                    ends[n] = q;
+                }
+                p = q;
+            }
+            n++;
+            if (p >= end) break;
+            p++; // comma
+        }
+        if (n < FIELDS) {
+            chunk.reject(line, "expected " + FIELDS + " fields, found " + n);
+            return;
+        }
+        int day = epochDay(bufs[4], starts[4], ends[4]);
+        if (day == Integer.MIN_VALUE) {
+            chunk.reject(line, "invalid date");
+            return;
+        }
+        int dep = minuteOfDay(bufs[5], starts[5], ends[5]);
+        if (dep < 0) {
+            chunk.reject(line, "invalid departure time");
+            return;
+        }
+        int arr = minuteOfDay(bufs[6], starts[6], ends[6]);
+        if (arr < 0) {
+            chunk.reject(line, "invalid arrival time");
+            return;
+        }
+        int r = chunk.nextRow();
+        int base = r * STRIDE;
+        int[] c = chunk.cols;
+        ByteStringTable strings = chunk.strings;
+        c[base] = strings.intern(bufs[0], starts[0], ends[0]);
+        c[base + 1] = strings.intern(bufs[1], starts[1], ends[1]);
+        c[base + 2] = strings.intern(bufs[2], starts[2], ends[2]);
+        c[base + 3] = strings.intern(bufs[3], starts[3], ends[3]);
+        c[base + 4] = strings.intern(bufs[9], starts[9], ends[9]);
+        c[base + 5] = strings.intern(bufs[10], starts[10], ends[10]);
+        c[base + 6] = strings.intern(bufs[8], starts[8], ends[8]);
+        c[base + 7] = day;
+        c[base + 8] = day * 1440 + dep;
+        c[base + 9] = day * 1440 + arr;
+        chunk.prices[r] = price(bufs[7], starts[7], ends[7]);
+    }
+
+    private static boolean isBlank(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] != ' ' && b[i] != '\t') return false;
+        }
+        return true;
+    }
+
+    // ---- Field decoders ----
+
+    /** Epoch day of a YYYY-MM-DD date, or Integer.MIN_VALUE when it is not a valid date. */
+    static int epochDay(byte[] b, int from, int to) {
+        if (to - from != 10 || b[from + 4] != '-' || b[from + 7] != '-') return Integer.MIN_VALUE;
+        int y = digits(b, from, 4);
+        int m = digits(b, from + 5, 2);
+        int d = digits(b, from + 8, 2);
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > lengthOfMonth(y, m)) return Integer.MIN_VALUE;
+        // days from civil (proleptic Gregorian), as in java.time.LocalDate#toEpochDay
+        int yy = m <= 2 ? y - 1 : y;
+        int era = yy / 400;
+        int yoe = yy - era * 400;
+        int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int lengthOfMonth(int y, int m) {
+        if (m == 2) return (y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) ? 29 : 28;
+        return (m == 4 || m == 6 || m == 9 || m == 11) ? 30 : 31;
+    }
+
+    /** Minute of day for HH:MM, HH:MM:SS or HH:MM:SS.fraction (blank is midnight), or -1. */
+    static int minuteOfDay(byte[] b, int from, int to) {
+        if (isBlank(b, from, to)) return 0;
+        int len = to - from;
+        if (len < 5 || b[from + 2] != ':') return -1;
+        int h = digits(b, from, 2);
+        int m = digits(b, from + 3, 2);
+        if (h < 0 || h > 23 || m < 0 || m > 59) return -1;
+        if (len > 5) {
+            if (len < 8 || b[from + 5] != ':') return -1;
+            int s = digits(b, from + 6, 2);
+            if (s < 0 || s > 59) return -1;
+            if (len > 8) {
+                if (b[from + 8] != '.' || len == 9 || len > 18 || digits(b, from + 9, len - 9) < 0) return -1;
+            }
+        }
+        return h * 60 + m;
+    }
+
+    private static int digits(byte[] b, int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            v = v * 10 + digit;
+        }
+        return v;
+    }
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Decodes a price. Plain decimals whose digits fit in 53 bits are computed exactly as
+     * mantissa / 10^scale (the same correctly rounded value Double.parseDouble returns);
+     * anything else goes through Double.parseDouble, and unparseable values are 0.
+     */
+    static double price(byte[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '-' || b[i] == '+')) negative = b[i++] == '-';
+        long mantissa = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; i < to; i++) {
+            byte c = b[i];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            if (c < '0' || c > '9' || mantissa >= (1L << 53) / 10) break;
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if (scale >= 0) scale++;
+        }
+        if (i == to && digits > 0 && scale <= 22) {
+            double v = scale > 0 ? mantissa / POW10[scale] : mantissa;
+            return negative ? -v : v;
+        }
+        try {
+            return Double.parseDouble(new String(b, from, to - from, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    // ---- Inputs ----
+
+    private record Slice(byte[] data, int from, int to) {}
+
+    private interface Input {
+        long length();
+
+        /** Smallest position at or after pos that starts a line (or the end of input). */
+        long lineStart(long pos) throws IOException;
+
+        Slice slice(long from, long to) throws IOException;
+    }
+
+    private record ArrayInput(byte[] data) implements Input {
+        public long length() { return data.length; }
+
+        public long lineStart(long pos) {
+            int p = (int) pos;
+            while (p < data.length && data[p - 1] != '\n') p++;
+            return p;
+        }
+
+        public Slice slice(long from, long to) { return new Slice(data, (int) from, (int) to); }
+    }
+
+    private record FileInput(FileChannel channel) implements Input {
+        public long length() {
+            try {
+                return channel.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public long lineStart(long pos) throws IOException {
+            long size = channel.size();
+            ByteBuffer window = ByteBuffer.allocate(4096);
+            long p = pos - 1;
+            while (p < size) {
+                window.clear();
+                int n = channel.read(window, p);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (window.get(i) == '\n') return Math.min(size, p + i + 1);
+                }
+                p += n;
+            }
+            return size;
+        }
+
+        public Slice slice(long from, long to) throws IOException {
+            long len = to - from;
+            if (len > Integer.MAX_VALUE - 16) throw new IOException("CSV line too long near offset " + from);
+            byte[] data = new byte[(int) len];
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, from + buf.position()) < 0) throw new IOException("Unexpected end of file");
+            }
+            return new Slice(data, 0, data.length);
+        }
+    }
+}
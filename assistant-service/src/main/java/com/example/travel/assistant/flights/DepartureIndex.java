@@ -0,0 +1,115 @@
+package com.example.travel.assistant.flights;
+
+import java.util.Arrays;
+
+/**
+ * Departures ordered by time, per origin airport and per (origin, destination) route, across
+ * all dates. A time window is a binary search plus a contiguous slice, which is what the
+ * connection search needs for both the first and the second leg.
+ */
+public final class DepartureIndex {
+
+    private final int[] airportStart; // airport a spans airportRows[airportStart[a], airportStart[a + 1])
+    private final int[] airportRows;
+    private final LongIntHashMap routeSlice;
+    private final int[] routeStart;
+    private final int[] routeRows;
+    private final FlightStore store;
+
+    private DepartureIndex(FlightStore store, int[] airportStart, int[] airportRows,
+                           LongIntHashMap routeSlice, int[] routeStart, int[] routeRows) {
+        this.store = store;
+        this.airportStart = airportStart;
+        this.airportRows = airportRows;
+        this.routeSlice = routeSlice;
+        this.routeStart = routeStart;
+        this.routeRows = routeRows;
+    }
+
+    public static DepartureIndex build(FlightStore store) {
+        int n = store.size();
+        int airports = store.airports().size();
+
+        int[] airportStart = new int[airports + 1];
+        for (int row = 0; row < n; row++) airportStart[store.originId(row) + 1]++;
+        for (int a = 0; a < airports; a++) airportStart[a + 1] += airportStart[a];
+        int[] fill = Arrays.copyOf(airportStart, airports);
+        int[] airportRows = new int[n];
+        for (int row = 0; row < n; row++) airportRows[fill[store.originId(row)]++] = row;
+        long[] keys = new long[n];
+        for (int a = 0; a < airports; a++) sortByDeparture(store, airportRows, keys, airportStart[a], airportStart[a + 1]);
+
+        // routes: walk each airport's time-ordered slice and scatter it by destination
+        LongIntHashMap routeSlice = new LongIntHashMap(Math.max(16, n / 8));
+        int[] routeOfRow = new int[n];
+        int[] counts = new int[64];
+        int routes = 0;
+        for (int p = 0; p < n; p++) {
+            int row = airportRows[p];
+            long key = routeKey(store.originId(row), store.destinationId(row));
+            int r = routeSlice.get(key);
+            if (r < 0) {
+                r = routes++;
+                routeSlice.put(key, r);
+                if (r == counts.length) counts = Arrays.copyOf(counts, r * 2);
+            }
+            counts[r]++;
+            routeOfRow[p] = r;
+        }
+        int[] routeStart = new int[routes + 1];
+        for (int r = 0; r < routes; r++) routeStart[r + 1] = routeStart[r] + counts[r];
+        int[] routeFill = Arrays.copyOf(routeStart, routes);
+        int[] routeRows = new int[n];
+        for (int p = 0; p < n; p++) routeRows[routeFill[routeOfRow[p]]++] = airportRows[p];
+
+        return new DepartureIndex(store, airportStart, airportRows, routeSlice, routeStart, routeRows);
+    }
+
+    private static void sortByDeparture(FlightStore store, int[] rows, long[] keys, int from, int to) {
+        for (int i = from; i < to; i++) keys[i] = ((long) store.departureMinute(rows[i]) << 32) | rows[i];
+        Arrays.sort(keys, from, to);
+        for (int i = from; i < to; i++) rows[i] = (int) keys[i];
+    }
+
+    private static long routeKey(int originId, int destinationId) {
+        return ((long) originId << 32) | (destinationId & 0xFFFFFFFFL);
+    }
+
+    // ---- Per origin airport ----
+
+    public int airportStart(int airportId) { return airportStart[airportId]; }
+    public int airportEnd(int airportId) { return airportStart[airportId + 1]; }
+    public int airportRow(int position) { return airportRows[position]; }
+
+    /** First position in the airport's slice departing at or after the minute. */
+    public int airportFirstAtOrAfter(int airportId, int minute) {
+        return lowerBound(airportRows, airportStart[airportId], airportStart[airportId + 1], minute);
+    }
+
+    // ---- Per route ----
+
+    /** Route slice id, or -1 when nothing flies from origin to destination. */
+    public int route(int originId, int destinationId) {
+        return routeSlice.get(routeKey(originId, destinationId));
+    }
+
+    public int routeStart(int route) { return routeStart[route]; }
+    public int routeEnd(int route) { return routeStart[route + 1]; }
+    public int routeRow(int position) { return routeRows[position]; }
+
+    /** First position in the route's slice departing at or after the minute. */
+    public int routeFirstAtOrAfter(int route, int minute) {
+        return lowerBound(routeRows, routeStart[route], routeStart[route + 1], minute);
+    }
+
+    private int lowerBound(int[] rows, int from, int to, int minute) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (store.departureMinute(rows[mid]) < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.travel.assistant.flights;
+
+import java.util.Arrays;
+
+/**
+ * Per-route fare calendar: for every (origin, destination) pair a dense, date-ordered array
+ * covering the route's first to last flight day, holding the {@link RouteDateIndex} bucket of
+ * each day (or -1). The cheapest flight of a day is the head of its bucket, so a window of N
+ * days costs N array reads plus one hash lookup for the route.
+ */
+public final class FareCalendarIndex {
+
+    private final RouteDateIndex routeIndex;
+    private final LongIntHashMap routeByKey;
+    private final int[] firstDay;
+    private final int[] slotStart; // route r spans buckets[slotStart[r], slotStart[r + 1]), one slot per day
+    private final int[] buckets;
+
+    private FareCalendarIndex(RouteDateIndex routeIndex, LongIntHashMap routeByKey, int[] firstDay,
+                              int[] slotStart, int[] buckets) {
+        this.routeIndex = routeIndex;
+        this.routeByKey = routeByKey;
+        this.firstDay = firstDay;
+        this.slotStart = slotStart;
+        this.buckets = buckets;
+    }
+
+    public static FareCalendarIndex build(FlightStore store, RouteDateIndex routeIndex) {
+        int bucketCount = routeIndex.bucketCount();
+        LongIntHashMap routeByKey = new LongIntHashMap(Math.max(16, bucketCount / 8));
+        int[] routeOfBucket = new int[bucketCount];
+        int[] minDay = new int[64];
+        int[] maxDay = new int[64];
+        int routes = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            int row = routeIndex.cheapest(b);
+            int day = store.epochDay(row);
+            long key = routeKey(store.originId(row), store.destinationId(row));
+            int r = routeByKey.get(key);
+            if (r < 0) {
+                r = routes++;
+                routeByKey.put(key, r);
+                if (r == minDay.length) {
+                    minDay = Arrays.copyOf(minDay, r * 2);
+                    maxDay = Arrays.copyOf(maxDay, r * 2);
+                }
+                minDay[r] = day;
+                maxDay[r] = day;
+            } else {
+                minDay[r] = Math.min(minDay[r], day);
+                maxDay[r] = Math.max(maxDay[r], day);
+            }
+            routeOfBucket[b] = r;
+        }
+        int[] slotStart = new int[routes + 1];
+        for (int r = 0; r < routes; r++) slotStart[r + 1] = slotStart[r] + (maxDay[r] - minDay[r] + 1);
+        int[] buckets = new int[slotStart[routes]];
+        Arrays.fill(buckets, -1);
+        for (int b = 0; b < bucketCount; b++) {
+            int r = routeOfBucket[b];
+            buckets[slotStart[r] + store.epochDay(routeIndex.cheapest(b)) - minDay[r]] = b;
+        }
+        return new FareCalendarIndex(routeIndex, routeByKey, Arrays.copyOf(minDay, routes), slotStart, buckets);
+    }
+
+    private static long routeKey(int originId, int destinationId) {
+        return ((long) originId << 32) | (destinationId & 0xFFFFFFFFL);
+    }
+
+    /** Route id, or -1 when nothing flies from origin to destination. */
+    public int route(int originId, int destinationId) {
+        return routeByKey.get(routeKey(originId, destinationId));
+    }
+
+    /** Bucket of the route on the day, or -1 when it has no flights that day. */
+    public int bucket(int route, int epochDay) {
+        int slot = epochDay - firstDay[route];
+        if (slot < 0 || slot >= slotStart[route + 1] - slotStart[route]) return -1;
+        return buckets[slotStart[route] + slot];
+    }
+
+    /**
+     * Cheapest row per day of {@code [fromDay, fromDay + cheapest.length)} over all the given
+     * routes, written into {@code cheapest} (-1 for days without flights); {@code counts} gets
+     * the number of flights per day.
+     */
+    public void fill(FlightStore store, int[] routes, int fromDay, int[] cheapest, int[] counts) {
+        Arrays.fill(cheapest, -1);
+        Arrays.fill(counts, 0);
+        for (int route : routes) {
+            if (route < 0) continue;
+            int first = firstDay[route];
+            int length = slotStart[route + 1] - slotStart[route];
+            int from = Math.max(0, first - fromDay);
+            int to = Math.min(cheapest.length, first + length - fromDay);
+            for (int i = from; i < to; i++) {
+                int b = buckets[slotStart[route] + fromDay + i - first];
+                if (b < 0) continue;
+                int row = routeIndex.cheapest(b);
+                counts[i] += routeIndex.bucketEnd(b) - routeIndex.bucketStart(b);
+                int best = cheapest[i];
+                if (best < 0 || store.price(row) < store.price(best)
+                        || (store.price(row) == store.price(best) && row < best)) {
+                    cheapest[i] = row;
+                }
+            }
+        }
+    }
+
+    public int routeCount() { return firstDay.length; }
+}
@@ -0,0 +1,53 @@
+package com.example.travel.assistant.flights;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One flight as seen by the assistant: search results, the session's last results and the
+ * chosen flight. Maps (and JSON) are built from it only at the LLM and HTTP boundary.
+ *
+ * Cities are null for flights that do not come from the dataset (mock results).
+ */
+public record Flight(String carrier,
+                     String flightNumber,
+                     String origin,
+                     String destination,
+                     LocalDate date,
+                     OffsetDateTime departure,
+                     OffsetDateTime arrival,
+                     double price,
+                     String currency,
+                     String originCity,
+                     String destinationCity) {
+
+    /** Booking trip id: {@code <carrier without spaces>-<flightNumber>-<date>}. */
+    public String tripId() {
+        return carrier.replace(" ", "") + "-" + flightNumber + "-" + date;
+    }
+
+    /** ISO_OFFSET_DATE_TIME, as rendered in tool responses. */
+    public static String iso(OffsetDateTime time) {
+        return time == null ? null : time.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    }
+
+    /** The tool JSON shape: dates as strings, cities only when known. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("carrier", carrier);
+        m.put("flightNumber", flightNumber);
+        m.put("origin", origin);
+        m.put("destination", destination);
+        m.put("date", date.toString());
+        m.put("departure", iso(departure));
+        m.put("arrival", iso(arrival));
+        m.put("price", price);
+        m.put("currency", currency);
+        if (originCity != null) m.put("originCity", originCity);
+        if (destinationCity != null) m.put("destinationCity", destinationCity);
+        return m;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.travel.assistant.flights;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compact binary flight dataset, designed to be memory-mapped.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *  0  magic "FLTSTORE"          32  dictionary section offset (long)
+ *  8  version (int)             40  column directory offset (long)
+ * 12  flags (int)               48  trip table offset (long)
+ * 16  row count (int)           56  file length (long)
+ * 20  int column count (int)
+ * 24  trip table slots (int)
+ * 28  reserved (int)
+ * </pre>
+ * The dictionary section holds carriers, flight numbers, airports, cities and currencies, each
+ * as a count followed by length-prefixed UTF-8 strings. The column directory holds one section
+ * offset (long) per {@link FlightStore} column: the int columns in {@code COL_*} order, then the
+ * price column. Each column section is {@code rowCount} ints (or doubles, for prices) and is
+ * mapped as its own {@link IntBuffer}/{@link DoubleBuffer}, so a scan over one field pages in
+ * only that field. The trip table is the store's open-addressing trip index, so neither it nor
+ * the columns need to be rebuilt at startup. All sections are 8-byte aligned.
+ */
+public final class FlightBinaryFormat {
+
+    static final byte[] MAGIC = "FLTSTORE".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 64;
+
+    /** Flag: rows are ordered by (origin, destination, date, price); see {@link FlightStore#sortedByRoute()}. */
+    public static final int FLAG_SORTED = 1;
+
+    private FlightBinaryFormat() {}
+
+    /** True when the bytes start with the binary dataset magic. */
+    public static boolean isBinary(byte[] head, int length) {
+        if (length < MAGIC.length) return false;
+        return Arrays.equals(head, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /** Maps the file read-only and opens it as a store; the mapping outlives the channel. */
+    public static FlightStore map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /** Opens a store over the given buffer (mapped or heap) without copying the row section. */
+    public static FlightStore read(ByteBuffer source) {
+        ByteBuffer buf = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        byte[] head = new byte[MAGIC.length];
+        if (buf.capacity() < HEADER_BYTES) throw new IllegalArgumentException("Not a flight dataset: file too short");
+        buf.get(0, head);
+        if (!isBinary(head, head.length)) throw new IllegalArgumentException("Not a flight dataset: bad magic");
+        int version = buf.getInt(8);
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported flight dataset version " + version);
+        int rowCount = buf.getInt(16);
+        int intColumns = buf.getInt(20);
+        int tripSlots = buf.getInt(24);
+        long dictOffset = buf.getLong(32);
+        long directoryOffset = buf.getLong(40);
+        long tripOffset = buf.getLong(48);
+        long length = buf.getLong(56);
+        if (intColumns != FlightStore.INT_COLUMNS) {
+            throw new IllegalArgumentException("Unsupported column count " + intColumns);
+        }
+        if (length != buf.capacity()
+                || rowCount < 0
+                || directoryOffset < HEADER_BYTES
+                || directoryOffset + 8L * (intColumns + 1) > length
+                || tripOffset + 4L * tripSlots > length
+                || Integer.bitCount(tripSlots) != 1) {
+            throw new IllegalArgumentException("Corrupt flight dataset: inconsistent section offsets");
+        }
+        long[] columnOffsets = new long[intColumns + 1];
+        for (int c = 0; c <= intColumns; c++) {
+            long offset = buf.getLong((int) directoryOffset + 8 * c);
+            long bytes = (long) rowCount * (c < intColumns ? Integer.BYTES : Double.BYTES);
+            if ((offset & 7) != 0 || offset < HEADER_BYTES || offset + bytes > tripOffset) {
+                throw new IllegalArgumentException("Corrupt flight dataset: inconsistent section offsets");
+            }
+            columnOffsets[c] = offset;
+        }
+
+        buf.position((int) dictOffset);
+        StringDictionary carriers = readDictionary(buf);
+        StringDictionary flightNumbers = readDictionary(buf);
+        StringDictionary airports = readDictionary(buf);
+        StringDictionary cities = readDictionary(buf);
+        StringDictionary currencies = readDictionary(buf);
+
+        IntBuffer[] columns = new IntBuffer[intColumns];
+        for (int c = 0; c < intColumns; c++) {
+            columns[c] = buf.slice((int) columnOffsets[c], rowCount * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        DoubleBuffer prices = buf.slice((int) columnOffsets[intColumns], rowCount * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        IntBuffer trips = buf.slice((int) tripOffset, tripSlots * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        boolean sorted = (buf.getInt(12) & FLAG_SORTED) != 0;
+        return new FlightStore(carriers, flightNumbers, airports, cities, currencies,
+                rowCount, columns, prices, trips, sorted);
+    }
+
+    /** Returns the header flags of a binary dataset. */
+    public static int flags(ByteBuffer source) {
+        return source.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(12);
+    }
+
+    public static void write(FlightStore store, Path file, int flags) throws IOException {
+        ByteBuffer dictionaries = encodeDictionaries(store);
+        IntBuffer[] columns = store.columns();
+        IntBuffer tripSlots = store.tripSlots();
+        int rowCount = store.size();
+        long directoryOffset = HEADER_BYTES;
+        long dictOffset = directoryOffset + 8L * (columns.length + 1);
+        ByteBuffer directory = ByteBuffer.allocate(8 * (columns.length + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        long offset = align(dictOffset + dictionaries.remaining());
+        for (int c = 0; c < columns.length; c++) {
+            directory.putLong(offset);
+            offset = align(offset + (long) rowCount * Integer.BYTES);
+        }
+        directory.putLong(offset);
+        long tripOffset = align(offset + (long) rowCount * Double.BYTES);
+        directory.flip();
+        long length = tripOffset + 4L * tripSlots.capacity();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Dataset too large for a single mapping: " + length + " bytes");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(flags);
+        header.putInt(rowCount);
+        header.putInt(columns.length);
+        header.putInt(tripSlots.capacity());
+        header.putInt(0);
+        header.putLong(dictOffset);
+        header.putLong(directoryOffset);
+        header.putLong(tripOffset);
+        header.putLong(length);
+        header.flip();
+
+        ByteBuffer trips = ByteBuffer.allocate(4 * tripSlots.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        trips.asIntBuffer().put(tripSlots.clear());
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeAt(ch, header, 0);
+            writeAt(ch, directory, directoryOffset);
+            writeAt(ch, dictionaries, dictOffset);
+            for (int c = 0; c < columns.length; c++) {
+                ByteBuffer section = ByteBuffer.allocate(rowCount * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                section.asIntBuffer().put(columns[c].clear().limit(rowCount));
+                writeAt(ch, section, directory.getLong(8 * c));
+            }
+            ByteBuffer prices = ByteBuffer.allocate(rowCount * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            prices.asDoubleBuffer().put(store.prices().clear().limit(rowCount));
+            writeAt(ch, prices, directory.getLong(8 * columns.length));
+            writeAt(ch, trips, tripOffset);
+        }
+    }
+
+    private static void writeAt(FileChannel ch, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += ch.write(data, position);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static ByteBuffer encodeDictionaries(FlightStore store) {
+        StringDictionary[] dictionaries = {
+                store.carriers(), store.flightNumbers(), store.airports(), store.cities(), store.currencies()
+        };
+        int bytes = 0;
+        byte[][][] encoded = new byte[dictionaries.length][][];
+        for (int d = 0; d < dictionaries.length; d++) {
+            StringDictionary dict = dictionaries[d];
+            encoded[d] = new byte[dict.size()][];
+            bytes += 4;
+            for (int i = 0; i < dict.size(); i++) {
+                encoded[d][i] = dict.get(i).getBytes(StandardCharsets.UTF_8);
+                bytes += 4 + encoded[d][i].length;
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[][] dict : encoded) {
+            out.putInt(dict.length);
+            for (byte[] value : dict) {
+                out.putInt(value.length);
+                out.put(value);
+            }
+        }
+        return out.flip();
+    }
+
+    private static StringDictionary readDictionary(ByteBuffer buf) {
+        int count = buf.getInt();
+        StringDictionary dict = new StringDictionary();
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int len = buf.getInt();
+            if (len > scratch.length) scratch = new byte[len];
+            buf.get(scratch, 0, len);
+            if (dict.intern(new String(scratch, 0, len, StandardCharsets.UTF_8)) != i) {
+                throw new IllegalArgumentException("Corrupt flight dataset: duplicate dictionary entry");
+            }
+        }
+        return dict;
+    }
+}
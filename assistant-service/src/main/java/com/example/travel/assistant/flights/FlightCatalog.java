@@ -0,0 +1,221 @@
+package com.example.travel.assistant.flights;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns the published {@link FlightSnapshot}.
+ *
+ * A reload builds a complete new snapshot (rows plus every index) on the calling thread and
+ * publishes it with a single atomic reference swap; searches read {@link #current()} once
+ * per call, so they never block and never observe a half-built index. Reloads are triggered
+ * by the admin endpoint or by a file watcher on the dataset location; a failed or empty load
+ * keeps the previous snapshot.
+ *
+ * Binary datasets are memory-mapped, so publish a new file by writing it next to the old one
+ * and renaming it over the dataset path rather than rewriting it in place.
+ */
+@Component
+public class FlightCatalog implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightCatalog.class);
+
+    private static final long WATCH_DEBOUNCE_MS = 500;
+
+    /** A published snapshot with its generation (1 for the startup load). */
+    public record Published(FlightSnapshot snapshot, long generation, Instant loadedAt, long buildMillis) {}
+
+    private final ResourceLoader resourceLoader;
+    private final String datasetLocation;
+    private final int syntheticCount;
+    private final PlaceResolver.Counters placeCounters = new PlaceResolver.Counters();
+    private final AtomicReference<Published> published = new AtomicReference<>();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failedReloads = new AtomicLong();
+    private volatile WatchService watchService;
+
+    public FlightCatalog(ResourceLoader resourceLoader,
+                         @Value("${assistant.tools.flight.dataset:classpath:/data/flights.csv}") String datasetLocation,
+                         @Value("${assistant.tools.flight.synthetic-count:${ASSISTANT_TOOLS_FLIGHT_SYNTHETIC_COUNT:500}}") int syntheticCount,
+                         @Value("${assistant.tools.flight.watch:${ASSISTANT_TOOLS_FLIGHT_WATCH:true}}") boolean watch) {
+        this.resourceLoader = resourceLoader;
+        this.datasetLocation = datasetLocation;
+        this.syntheticCount = Math.max(0, syntheticCount);
+        long started = System.nanoTime();
+        FlightStore store = FlightDatasetLoader.load(resourceLoader, datasetLocation, this.syntheticCount);
+        FlightSnapshot snapshot = FlightSnapshot.build(store, placeCounters);
+        published.set(new Published(snapshot, 1, Instant.now(), (System.nanoTime() - started) / 1_000_000));
+        if (watch) startWatcher();
+    }
+
+    /** The snapshot searches should use; read it once per request. */
+    public FlightSnapshot current() {
+        return published.get().snapshot();
+    }
+
+    public Published published() {
+        return published.get();
+    }
+
+    /**
+     * Loads the dataset again and publishes it. Concurrent reload requests are serialized;
+     * searches keep using the previous snapshot until the swap.
+     */
+    public Published reload() throws IOException {
+        reloadLock.lock();
+        try {
+            long started = System.nanoTime();
+            FlightStore store;
+            try {
+                store = FlightDatasetLoader.read(resourceLoader, datasetLocation, syntheticCount);
+                if (store.isEmpty()) throw new IOException("dataset " + datasetLocation + " has no valid rows");
+            } catch (IOException | RuntimeException e) {
+                failedReloads.incrementAndGet();
+                log.warn("[FlightCatalog] Reload of {} failed, keeping generation {}: {}",
+                        datasetLocation, published.get().generation(), e.toString());
+                throw e;
+            }
+            FlightSnapshot snapshot = FlightSnapshot.build(store, placeCounters);
+            Published previous = published.get();
+            Published next = new Published(snapshot, previous.generation() + 1, Instant.now(),
+                    (System.nanoTime() - started) / 1_000_000);
+            published.set(next);
+            reloads.incrementAndGet();
+            log.info("[FlightCatalog] Published generation {} with {} flights (built in {} ms).",
+                    next.generation(), store.size(), next.buildMillis());
+            return next;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    public Map<String, Object> describe() {
+        Published p = published.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("dataset", datasetLocation);
+        out.put("generation", p.generation());
+        out.put("flights", p.snapshot().store().size());
+        out.put("loadedAt", p.loadedAt().toString());
+        out.put("buildMillis", p.buildMillis());
+        out.put("watching", watchService != null);
+        return out;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("assistant.flights.place.resolutions", placeCounters, PlaceResolver.Counters::hits)
+                .tag("result", "hit")
+                .description("Origin/destination resolutions served from the resolver cache")
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.place.resolutions", placeCounters, PlaceResolver.Counters::misses)
+                .tag("result", "miss")
+                .description("Origin/destination resolutions computed against the dataset")
+                .register(registry);
+        Gauge.builder("assistant.flights.place.cache.hit.ratio", placeCounters, PlaceResolver.Counters::hitRate)
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.reloads", reloads, AtomicLong::get)
+                .tag("result", "success")
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.reloads", failedReloads, AtomicLong::get)
+                .tag("result", "failure")
+                .register(registry);
+        Gauge.builder("assistant.flights.rows", this, c -> c.current().store().size())
+                .description("Flights in the published snapshot")
+                .register(registry);
+        Gauge.builder("assistant.flights.generation", this, c -> c.published().generation())
+                .register(registry);
+    }
+
+    private void startWatcher() {
+        Path file;
+        try {
+            Resource resource = FlightDatasetLoader.resolve(resourceLoader, datasetLocation);
+            if (!resource.isFile()) {
+                log.debug("[FlightCatalog] Dataset {} is not a plain file; file watching disabled.", datasetLocation);
+                return;
+            }
+            file = resource.getFile().toPath().toAbsolutePath();
+            WatchService ws = FileSystems.getDefault().newWatchService();
+            // watch the directory: editors and rename-based publishing replace the file itself
+            file.getParent().register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = ws;
+        } catch (Exception e) {
+            log.warn("[FlightCatalog] Could not watch dataset {}: {}", datasetLocation, e.toString());
+            return;
+        }
+        Thread t = new Thread(() -> watchLoop(file), "flight-dataset-watcher");
+        t.setDaemon(true);
+        t.start();
+        log.info("[FlightCatalog] Watching {} for changes.", file);
+    }
+
+    private void watchLoop(Path file) {
+        WatchService ws = watchService;
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                boolean changed = touches(key, name);
+                key.reset();
+                if (!changed) continue;
+                // let the writer finish: wait until the directory has been quiet for a moment
+                while ((key = ws.poll(WATCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    touches(key, name);
+                    key.reset();
+                }
+                try {
+                    reload();
+                } catch (Exception ignore) {
+                    // already logged; keep the previous snapshot and wait for the next change
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private static boolean touches(WatchKey key, Path name) {
+        boolean hit = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (name.equals(event.context())) hit = true;
+        }
+        return hit;
+    }
+
+    @PreDestroy
+    public void close() {
+        WatchService ws = watchService;
+        watchService = null;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException ignore) {}
+        }
+    }
+}
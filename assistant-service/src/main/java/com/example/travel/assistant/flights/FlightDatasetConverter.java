@@ -0,0 +1,81 @@
+package com.example.travel.assistant.flights;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * Offline converter from the CSV dataset to the memory-mappable binary format.
+ *
+ * <pre>
+ * java -cp assistant-service.jar -Dloader.main=com.example.travel.assistant.flights.FlightDatasetConverter \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher flights.csv flights.bin [--sorted] [--synthetic=N]
+ * </pre>
+ * {@code --sorted} orders the rows by (origin, destination, date, price) so each route/date
+ * bucket is contiguous in the file; {@code --synthetic=N} bakes in the same synthetic capital
+ * flights the CSV loader would add at startup.
+ */
+public final class FlightDatasetConverter {
+
+    private FlightDatasetConverter() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: FlightDatasetConverter <input.csv> <output.bin> [--sorted] [--synthetic=N]");
+            System.exit(2);
+        }
+        boolean sorted = false;
+        int synthetic = 0;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--sorted")) sorted = true;
+            else if (args[i].startsWith("--synthetic=")) synthetic = Integer.parseInt(args[i].substring("--synthetic=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+        long started = System.nanoTime();
+        FlightStore store = convert(Path.of(args[0]), Path.of(args[1]), sorted, synthetic);
+        System.out.printf("Wrote %,d flights to %s in %d ms%n", store.size(), args[1], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public static FlightStore convert(Path csv, Path output, boolean sorted, int syntheticCount) throws IOException {
+        FlightStore.Builder builder = new FlightStore.Builder(
+                FlightDatasetLoader.estimateRows(Files.size(csv)) + Math.max(0, syntheticCount));
+        CsvFlightIngest.Report report = CsvFlightIngest.ingest(csv, builder);
+        if (!report.header()) throw new IOException("CSV file has no header: " + csv);
+        System.out.printf("Ingested %,d lines in %d ms (%,d rows/s): %,d accepted, %,d duplicates, %,d rejected%n",
+                report.lines(), report.millis(), report.rowsPerSecond(), report.accepted(), report.duplicates(), report.rejectedCount());
+        for (CsvFlightIngest.Rejection r : report.rejected()) {
+            System.err.println("Rejected line " + r.line() + ": " + r.reason());
+        }
+        if (syntheticCount > 0) {
+            FlightDatasetLoader.addCapitalFlights(builder, syntheticCount);
+        }
+        FlightStore store = builder.build();
+        if (sorted) store = sortedByRoute(store);
+        FlightBinaryFormat.write(store, output, sorted ? FlightBinaryFormat.FLAG_SORTED : 0);
+        return store;
+    }
+
+    /** Rebuilds the store with rows ordered by (origin, destination, date, price, original row). */
+    static FlightStore sortedByRoute(FlightStore store) {
+        int[] order = IntStream.range(0, store.size()).boxed()
+                .sorted((a, b) -> {
+                    int c = store.origin(a).compareTo(store.origin(b));
+                    if (c == 0) c = store.destination(a).compareTo(store.destination(b));
+                    if (c == 0) c = Integer.compare(store.epochDay(a), store.epochDay(b));
+                    if (c == 0) c = Double.compare(store.price(a), store.price(b));
+                    return c != 0 ? c : Integer.compare(a, b);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+        FlightStore.Builder builder = new FlightStore.Builder(store.size());
+        for (int row : order) {
+            builder.add(store.carrier(row), store.flightNumber(row), store.origin(row), store.destination(row),
+                    java.time.LocalDate.ofEpochDay(store.epochDay(row)),
+                    FlightStore.fromEpochMinute(store.departureMinute(row)),
+                    FlightStore.fromEpochMinute(store.arrivalMinute(row)),
+                    store.price(row), store.currency(row), store.originCity(row), store.destinationCity(row));
+        }
+        return builder.build();
+    }
+}
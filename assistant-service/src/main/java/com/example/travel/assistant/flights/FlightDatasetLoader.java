@@ -0,0 +1,164 @@
+package com.example.travel.assistant.flights;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Loads the flight dataset into a {@link FlightStore}. Two formats are accepted and told apart
+ * by their first bytes: the CSV bundled with the app, which is parsed and augmented with
+ * deterministic synthetic capital-to-capital flights, and the binary format produced by
+ * {@link FlightDatasetConverter}, which is memory-mapped as-is.
+ */
+public final class FlightDatasetLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightDatasetLoader.class);
+
+    private FlightDatasetLoader() {}
+
+    /** Loads the dataset, falling back to an empty store (mock flights) when it is missing or unreadable. */
+    public static FlightStore load(ResourceLoader loader, String location, int syntheticCount) {
+        try {
+            return read(loader, location, syntheticCount);
+        } catch (FileNotFoundException e) {
+            log.warn("[FlightDatasetLoader] Dataset not found at {}. Using mock generator.", location);
+            return FlightStore.empty();
+        } catch (Exception e) {
+            log.warn("[FlightDatasetLoader] Failed to load dataset {}: {}. Using mock generator.", location, e.toString());
+            return FlightStore.empty();
+        }
+    }
+
+    /** Loads the dataset or throws, so a reload can keep the previous data on failure. */
+    public static FlightStore read(ResourceLoader loader, String location, int syntheticCount) throws IOException {
+        Resource resource = resolve(loader, location);
+        if (!resource.exists()) throw new FileNotFoundException(location);
+        try (BufferedInputStream in = new BufferedInputStream(resource.getInputStream())) {
+            byte[] head = new byte[FlightBinaryFormat.MAGIC.length];
+            in.mark(head.length);
+            int n = in.readNBytes(head, 0, head.length);
+            in.reset();
+            if (FlightBinaryFormat.isBinary(head, n)) {
+                return loadBinary(resource, in, location, syntheticCount);
+            }
+            return loadCsv(resource, in, location, syntheticCount);
+        }
+    }
+
+    public static Resource resolve(ResourceLoader loader, String location) {
+        return location.startsWith("classpath:")
+                ? new ClassPathResource(location.substring("classpath:".length()))
+                : loader.getResource(location);
+    }
+
+    private static FlightStore loadBinary(Resource resource, InputStream in, String location, int syntheticCount) throws IOException {
+        long started = System.nanoTime();
+        FlightStore store;
+        String mode;
+        if (resource.isFile()) {
+            store = FlightBinaryFormat.map(resource.getFile().toPath());
+            mode = "mapped";
+        } else {
+            // classpath entries inside a jar cannot be mapped; read them onto the heap instead
+            store = FlightBinaryFormat.read(ByteBuffer.wrap(in.readAllBytes()));
+            mode = "heap";
+        }
+        if (syntheticCount > 0) {
+            log.info("[FlightDatasetLoader] Synthetic flights are not added to binary datasets; bake them in with the converter instead.");
+        }
+        log.info("[FlightDatasetLoader] Opened binary dataset {} ({}): {} flights in {} ms.",
+                location, mode, store.size(), (System.nanoTime() - started) / 1_000_000);
+        return store;
+    }
+
+    private static FlightStore loadCsv(Resource resource, InputStream in, String location, int syntheticCount) throws IOException {
+        CsvFlightIngest.Report report;
+        FlightStore.Builder builder;
+        if (resource.isFile()) {
+            Path file = resource.getFile().toPath();
+            builder = new FlightStore.Builder(estimateRows(Files.size(file)) + Math.max(0, syntheticCount));
+            report = CsvFlightIngest.ingest(file, builder);
+        } else {
+            byte[] data = in.readAllBytes();
+            builder = new FlightStore.Builder(estimateRows(data.length) + Math.max(0, syntheticCount));
+            report = CsvFlightIngest.ingest(data, builder);
+        }
+        if (!report.header()) return FlightStore.empty();
+        logReport(location, report);
+        // Augment with additional synthetic capital-to-capital flights for wider coverage (configurable)
+        if (syntheticCount > 0) {
+            addCapitalFlights(builder, syntheticCount);
+        }
+        FlightStore store = builder.build();
+        log.info("[FlightDatasetLoader] Loaded {} flights from dataset {} and augmented +{} capital flights (unique total={}).", report.accepted(), location, syntheticCount, store.size());
+        return store;
+    }
+
+    static int estimateRows(long bytes) {
+        // a typical row is ~80 bytes; the builder grows or trims as needed
+        return (int) Math.min(Integer.MAX_VALUE / FlightStore.ROW_BYTES, 1024 + bytes / 80);
+    }
+
+    static void logReport(String location, CsvFlightIngest.Report report) {
+        log.info("[FlightDatasetLoader] Ingested {} lines from {} in {} ms ({} rows/s, {} chunks): {} accepted, {} duplicates, {} rejected.",
+                report.lines(), location, report.millis(), report.rowsPerSecond(), report.chunks(),
+                report.accepted(), report.duplicates(), report.rejectedCount());
+        int shown = 0;
+        for (CsvFlightIngest.Rejection r : report.rejected()) {
+            if (shown++ == 20) {
+                log.warn("[FlightDatasetLoader] ... {} more rejected lines", report.rejectedCount() - 20);
+                break;
+            }
+            log.warn("[FlightDatasetLoader] Rejected line {} of {}: {}", r.line(), location, r.reason());
+        }
+    }
+
+    static void addCapitalFlights(FlightStore.Builder builder, int count) {
+        String[][] capitals = new String[][]{
+                {"LHR","London"}, {"CDG","Paris"}, {"BER","Berlin"}, {"MAD","Madrid"}, {"FCO","Rome"},
+                {"IAD","Washington"}, {"MEX","Mexico City"}, {"BSB","Brasilia"}, {"EZE","Buenos Aires"},
+                {"SVO","Moscow"}, {"PEK","Beijing"}, {"HND","Tokyo"}, {"ICN","Seoul"}, {"BKK","Bangkok"},
+                {"SIN","Singapore"}, {"CGK","Jakarta"}, {"DEL","New Delhi"}, {"CBR","Canberra"}, {"WLG","Wellington"},
+                {"MNL","Manila"}, {"HAN","Hanoi"}, {"RUH","Riyadh"}, {"AUH","Abu Dhabi"}, {"DOH","Doha"},
+                {"CAI","Cairo"}, {"NBO","Nairobi"}, {"JNB","Johannesburg"}, {"ADD","Addis Ababa"}, {"ATH","Athens"},
+                {"OSL","Oslo"}, {"CPH","Copenhagen"}, {"ARN","Stockholm"}, {"HEL","Helsinki"}, {"DUB","Dublin"},
+                {"LIS","Lisbon"}, {"VIE","Vienna"}, {"PRG","Prague"}, {"ZAG","Zagreb"}, {"BUD","Budapest"},
+                {"BTS","Bratislava"}, {"WAW","Warsaw"}, {"BRU","Brussels"}, {"AMS","Amsterdam"}, {"ZRH","Zurich"},
+                {"IST","Istanbul"}, {"TLV","Tel Aviv"}, {"TUN","Tunis"}, {"ALG","Algiers"}, {"DKR","Dakar"}
+        };
+        String[] carriers = {"CapitalAir", "MetroFly", "EuroWings", "GlobeAir"};
+        Random rnd = new Random(424242); // deterministic
+        LocalDate firstDate = LocalDate.of(2025, 12, 20);
+        for (int i = 0; i < count; i++) {
+            int oi = rnd.nextInt(capitals.length);
+            int di = rnd.nextInt(capitals.length);
+            if (di == oi) { di = (di + 1) % capitals.length; }
+            LocalDate date = firstDate.plusDays(rnd.nextInt(10)); // 2025-12-20..29
+            int depH = 5 + rnd.nextInt(18); // 05..22
+            int depM = (rnd.nextInt(4)) * 15; // 00,15,30,45
+            int durH = 2 + rnd.nextInt(9); // 2..10 hours
+            double base = 120 + rnd.nextInt(600); // 120..719
+            double total = Math.round((base) * 100.0) / 100.0;
+            String carrier = carriers[i % carriers.length];
+            LocalDateTime dep = date.atTime(depH, depM);
+            LocalDateTime arr = dep.plusHours(durH).plusMinutes(30);
+            builder.add(carrier, carrier.substring(0, 2).toUpperCase(Locale.ROOT) + (1000 + i),
+                    capitals[oi][0], capitals[di][0], date, dep, arr, total, "USD",
+                    capitals[oi][1], capitals[di][1]);
+        }
+    }
+}
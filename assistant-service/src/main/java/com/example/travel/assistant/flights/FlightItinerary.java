@@ -0,0 +1,41 @@
+package com.example.travel.assistant.flights;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A direct flight or a one-stop connection with its legs, as returned by the connection
+ * search. {@code layoverMinutes} is null for direct flights.
+ */
+public record FlightItinerary(List<Flight> legs,
+                              double price,
+                              String currency,
+                              OffsetDateTime departure,
+                              OffsetDateTime arrival,
+                              int durationMinutes,
+                              Integer layoverMinutes) {
+
+    public int stops() { return legs.size() - 1; }
+
+    /** The connecting airport, or null for a direct flight. */
+    public String via() { return legs.size() > 1 ? legs.get(0).destination() : null; }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("stops", stops());
+        if (via() != null) out.put("via", via());
+        out.put("price", Math.round(price * 100.0) / 100.0);
+        out.put("currency", currency);
+        out.put("departure", Flight.iso(departure));
+        out.put("arrival", Flight.iso(arrival));
+        out.put("durationMinutes", durationMinutes);
+        if (layoverMinutes != null) out.put("layoverMinutes", layoverMinutes);
+        List<Map<String, Object>> legMaps = new ArrayList<>(legs.size());
+        for (Flight leg : legs) legMaps.add(leg.toMap());
+        out.put("legs", legMaps);
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.travel.assistant.flights;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable UTF-8 JSON fragments of flight rows, exactly as {@link ObjectMapper} writes
+ * {@link FlightStore#toMap(int, ZoneId)}, so tool responses can be assembled by copying bytes
+ * instead of building maps and serializing them for every call.
+ *
+ * A row's fragment is rendered the first time it is returned and then shared by every
+ * response of the snapshot; rows that are never returned cost one null slot. Responses are
+ * assembled in pooled buffers, so the only allocation per response is the final string. The
+ * pool is striped by thread id rather than thread-local, because with virtual threads every
+ * request runs on a new thread and a thread-local buffer would never be reused.
+ */
+public final class FlightJsonFragments {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final byte[] OK_PREFIX = "{\"status\":\"OK\",\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEXT_CURSOR = ",\"nextCursor\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final int POOL_MASK = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2 - 1;
+    private static final AtomicReferenceArray<Buffer> POOL = new AtomicReferenceArray<>(POOL_MASK + 1);
+
+    private final FlightStore store;
+    private final ZoneId zone;
+    private final AtomicReferenceArray<byte[]> fragments;
+
+    public FlightJsonFragments(FlightStore store, ZoneId zone) {
+        this.store = store;
+        this.zone = zone;
+        this.fragments = new AtomicReferenceArray<>(store.size());
+    }
+
+    public ZoneId zone() { return zone; }
+
+    /** The row as a JSON object; concurrent first calls may both render it, the bytes are equal. */
+    public byte[] fragment(int row) {
+        byte[] f = fragments.get(row);
+        if (f == null) {
+            try {
+                f = MAPPER.writeValueAsBytes(store.toMap(row, zone));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize flight row " + row, e);
+            }
+            fragments.lazySet(row, f);
+        }
+        return f;
+    }
+
+    /** {@code {"status":"OK","data":[row, ...]}} for the rows in order. */
+    public String okList(int[] rows) {
+        return okPage(rows, null);
+    }
+
+    /**
+     * {@code {"status":"OK","data":[row, ...],"nextCursor":"..."}}; the cursor is omitted when
+     * null, which gives {@link #okList}. The cursor must not need JSON escaping.
+     */
+    public String okPage(int[] rows, String nextCursor) {
+        Buffer buf = Buffer.acquire();
+        buf.append(OK_PREFIX).append((byte) '[');
+        for (int i = 0; i < rows.length; i++) {
+            if (i > 0) buf.append((byte) ',');
+            buf.append(fragment(rows[i]));
+        }
+        buf.append((byte) ']');
+        if (nextCursor != null) buf.append(NEXT_CURSOR).append(nextCursor.getBytes(StandardCharsets.UTF_8)).append((byte) '"');
+        return buf.append((byte) '}').release();
+    }
+
+    /** {@code {"status":"OK","data":row}}. */
+    public String okRow(int row) {
+        return Buffer.acquire().append(OK_PREFIX).append(fragment(row)).append((byte) '}').release();
+    }
+
+    /** Growable byte buffer reused across responses. */
+    private static final class Buffer {
+        private static final int MAX_RETAINED = 1 << 20;
+
+        private byte[] bytes = new byte[8192];
+        private int length;
+
+        /** A pooled buffer for the calling thread's stripe, or a new one when it is taken. */
+        static Buffer acquire() {
+            Buffer b = POOL.getAndSet(stripe(), null);
+            if (b == null) return new Buffer();
+            b.length = 0;
+            return b;
+        }
+
+        /** The contents as a string; the buffer goes back to the pool and must not be used again. */
+        String release() {
+            String s = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            // don't keep a huge buffer around after one exceptionally large response
+            if (bytes.length <= MAX_RETAINED) POOL.lazySet(stripe(), this);
+            return s;
+        }
+
+        private static int stripe() {
+            return (int) Thread.currentThread().threadId() & POOL_MASK;
+        }
+
+        Buffer append(byte b) {
+            ensure(1);
+            bytes[length++] = b;
+            return this;
+        }
+
+        Buffer append(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+            return this;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.travel.assistant.flights;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Immutable view of the flight dataset together with every index derived from it.
+ * Searches read a single snapshot, so rows and indexes are always consistent.
+ */
+public final class FlightSnapshot {
+
+    private final FlightStore store;
+    private final RouteDateIndex routeIndex;
+    private final OriginCheapestIndex originIndex;
+    private final DepartureIndex departureIndex;
+    private final FareCalendarIndex fareCalendar;
+    private final FlightJsonFragments json;
+    private final int[][] airportCities; // airport id -> distinct city ids seen for it
+    private final PlaceResolver places;
+
+    private FlightSnapshot(FlightStore store, RouteDateIndex routeIndex, int[][] airportCities, PlaceResolver.Counters counters) {
+        this.store = store;
+        this.routeIndex = routeIndex;
+        this.originIndex = OriginCheapestIndex.build(store, routeIndex);
+        this.departureIndex = DepartureIndex.build(store);
+        this.fareCalendar = FareCalendarIndex.build(store, routeIndex);
+        this.json = new FlightJsonFragments(store, ZoneId.systemDefault());
+        this.airportCities = airportCities;
+        this.places = new PlaceResolver(store, airportCities, counters);
+    }
+
+    public static FlightSnapshot build(FlightStore store) {
+        return build(store, new PlaceResolver.Counters());
+    }
+
+    public static FlightSnapshot build(FlightStore store, PlaceResolver.Counters placeCounters) {
+        return new FlightSnapshot(store, RouteDateIndex.build(store), airportCities(store), placeCounters);
+    }
+
+    public FlightStore store() { return store; }
+    public RouteDateIndex routeIndex() { return routeIndex; }
+    public OriginCheapestIndex originIndex() { return originIndex; }
+    public DepartureIndex departureIndex() { return departureIndex; }
+    public FareCalendarIndex fareCalendar() { return fareCalendar; }
+    public PlaceResolver places() { return places; }
+
+    /** JSON fragments of the rows, with times in the system time zone (as the tools render them). */
+    public FlightJsonFragments json() { return json; }
+
+    /** City ids recorded for the airport in either the origin or the destination columns. */
+    public int[] citiesOf(int airportId) { return airportCities[airportId]; }
+
+    private static int[][] airportCities(FlightStore store) {
+        int airports = store.airports().size();
+        int[][] out = new int[airports][];
+        int[] counts = new int[airports];
+        for (int row = 0, n = store.size(); row < n; row++) {
+            add(out, counts, store.originId(row), store.originCityId(row));
+            add(out, counts, store.destinationId(row), store.destinationCityId(row));
+        }
+        for (int a = 0; a < airports; a++) {
+            out[a] = out[a] == null ? new int[0] : Arrays.copyOf(out[a], counts[a]);
+        }
+        return out;
+    }
+
+    private static void add(int[][] out, int[] counts, int airport, int city) {
+        int[] list = out[airport];
+        if (list == null) {
+            list = out[airport] = new int[2];
+        } else {
+            // an airport almost always maps to a single city, so a linear check is enough
+            for (int i = 0; i < counts[airport]; i++) {
+                if (list[i] == city) return;
+            }
+        }
+        if (counts[airport] == list.length) list = out[airport] = Arrays.copyOf(list, list.length * 2);
+        list[counts[airport]++] = city;
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.travel.assistant.flights;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable columnar flight dataset.
+ *
+ * Each flight is a row index into parallel primitive columns: airports, cities, carriers,
+ * flight numbers and currencies are dictionary-encoded ints, the date is an epoch day,
+ * departure/arrival are local epoch minutes and the price is a double. {@link Flight} views (and
+ * their maps) are only built for the rows that are actually returned to a caller.
+ *
+ * Columns are {@link IntBuffer}s and a {@link DoubleBuffer}: wrapped arrays when the store is
+ * built from CSV, or read-only views of a mapped binary dataset file (one section per column, see
+ * {@link FlightBinaryFormat}), in which case the data stays in the OS page cache rather than on
+ * the Java heap. Either way a scan over one field touches only that field's column.
+ */
+public final class FlightStore {
+
+    // int column order, shared with FlightBinaryFormat; the price column follows them
+    static final int COL_CARRIER = 0;
+    static final int COL_FLIGHT_NUMBER = 1;
+    static final int COL_ORIGIN = 2;
+    static final int COL_DESTINATION = 3;
+    static final int COL_ORIGIN_CITY = 4;
+    static final int COL_DESTINATION_CITY = 5;
+    static final int COL_DATE = 6;
+    static final int COL_DEPARTURE = 7;
+    static final int COL_ARRIVAL = 8;
+    static final int COL_CURRENCY = 9;
+    static final int INT_COLUMNS = 10;
+    /** Bytes per row across all columns. */
+    static final int ROW_BYTES = INT_COLUMNS * Integer.BYTES + Double.BYTES;
+
+    private final StringDictionary carriers;
+    private final StringDictionary flightNumbers;
+    private final StringDictionary airports;
+    private final StringDictionary cities;
+    private final StringDictionary currencies;
+
+    private final int size;
+    private final IntBuffer carrier;
+    private final IntBuffer flightNumber;
+    private final IntBuffer origin;
+    private final IntBuffer destination;
+    private final IntBuffer originCity;
+    private final IntBuffer destinationCity;
+    private final IntBuffer date;
+    private final IntBuffer departure;
+    private final IntBuffer arrival;
+    private final IntBuffer currency;
+    private final DoubleBuffer price;
+    private final boolean sortedByRoute;
+
+    // Trip index: open-addressing table of row+1 (0 = empty) keyed by the normalized
+    // (carrier without spaces, flight number, date) triple, compared case-insensitively.
+    private final IntBuffer tripSlots;
+    private final String[] carrierKeys;
+    private final String[] flightNumberKeys;
+
+    /** {@code columns} holds the {@value #INT_COLUMNS} int columns in {@code COL_*} order. */
+    FlightStore(StringDictionary carriers, StringDictionary flightNumbers, StringDictionary airports,
+                StringDictionary cities, StringDictionary currencies, int size, IntBuffer[] columns,
+                DoubleBuffer price, IntBuffer tripSlots, boolean sortedByRoute) {
+        this.carriers = carriers;
+        this.flightNumbers = flightNumbers;
+        this.airports = airports;
+        this.cities = cities;
+        this.currencies = currencies;
+        this.size = size;
+        this.carrier = columns[COL_CARRIER];
+        this.flightNumber = columns[COL_FLIGHT_NUMBER];
+        this.origin = columns[COL_ORIGIN];
+        this.destination = columns[COL_DESTINATION];
+        this.originCity = columns[COL_ORIGIN_CITY];
+        this.destinationCity = columns[COL_DESTINATION_CITY];
+        this.date = columns[COL_DATE];
+        this.departure = columns[COL_DEPARTURE];
+        this.arrival = columns[COL_ARRIVAL];
+        this.currency = columns[COL_CURRENCY];
+        this.price = price;
+        this.tripSlots = tripSlots;
+        this.sortedByRoute = sortedByRoute;
+        this.carrierKeys = new String[carriers.size()];
+        for (int i = 0; i < carrierKeys.length; i++) carrierKeys[i] = carrierKey(carriers.get(i));
+        this.flightNumberKeys = new String[flightNumbers.size()];
+        for (int i = 0; i < flightNumberKeys.length; i++) flightNumberKeys[i] = flightNumberKey(flightNumbers.get(i));
+    }
+
+    public static FlightStore empty() {
+        return new Builder(0).build();
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * True when rows are ordered by (origin, destination, date, price, row), as written by
+     * {@code FlightDatasetConverter --sorted}: every route/day is then a price-ordered run of rows.
+     */
+    boolean sortedByRoute() { return sortedByRoute; }
+
+    // ---- Dictionaries ----
+    public StringDictionary airports() { return airports; }
+    public StringDictionary cities() { return cities; }
+    public StringDictionary carriers() { return carriers; }
+    StringDictionary flightNumbers() { return flightNumbers; }
+    StringDictionary currencies() { return currencies; }
+
+    // ---- Raw sections, for FlightBinaryFormat ----
+    IntBuffer[] columns() {
+        IntBuffer[] columns = {
+                carrier, flightNumber, origin, destination, originCity, destinationCity,
+                date, departure, arrival, currency
+        };
+        for (int c = 0; c < columns.length; c++) columns[c] = columns[c].duplicate();
+        return columns;
+    }
+    DoubleBuffer prices() { return price.duplicate(); }
+    IntBuffer tripSlots() { return tripSlots.duplicate(); }
+
+    // ---- Encoded columns ----
+    public int originId(int row) { return origin.get(row); }
+    public int destinationId(int row) { return destination.get(row); }
+    public int originCityId(int row) { return originCity.get(row); }
+    public int destinationCityId(int row) { return destinationCity.get(row); }
+    public int carrierId(int row) { return carrier.get(row); }
+    public int currencyId(int row) { return currency.get(row); }
+    public int epochDay(int row) { return date.get(row); }
+    public int departureMinute(int row) { return departure.get(row); }
+    public int arrivalMinute(int row) { return arrival.get(row); }
+    public double price(int row) { return price.get(row); }
+
+    // ---- Decoded values ----
+    public String carrier(int row) { return carriers.get(carrierId(row)); }
+    public String flightNumber(int row) { return flightNumbers.get(flightNumber.get(row)); }
+    public String origin(int row) { return airports.get(originId(row)); }
+    public String destination(int row) { return airports.get(destinationId(row)); }
+    public String originCity(int row) { return cities.get(originCityId(row)); }
+    public String destinationCity(int row) { return cities.get(destinationCityId(row)); }
+    public String currency(int row) { return currencies.get(currencyId(row)); }
+    public String date(int row) { return LocalDate.ofEpochDay(epochDay(row)).toString(); }
+
+    /** Returns the row for the trip or -1 when the dataset has no such flight. */
+    public int findTrip(String carrier, String flightNumber, String date) {
+        int day;
+        try {
+            day = (int) LocalDate.parse(date.trim()).toEpochDay();
+        } catch (Exception e) {
+            return -1;
+        }
+        String ck = carrierKey(carrier);
+        String fk = flightNumberKey(flightNumber);
+        int mask = tripSlots.capacity() - 1;
+        int i = tripHash(ck, fk, day) & mask;
+        int slot;
+        while ((slot = tripSlots.get(i)) != 0) {
+            int row = slot - 1;
+            if (epochDay(row) == day
+                    && carrierKeys[carrierId(row)].equals(ck)
+                    && flightNumberKeys[this.flightNumber.get(row)].equals(fk)) {
+                return row;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Typed view of a row. Local epoch minutes become offset date-times in the given zone,
+     * matching the ISO_OFFSET_DATE_TIME format used by the rest of the assistant.
+     */
+    public Flight flight(int row, ZoneId zone) {
+        return flight(row, zone, arrivalMinute(row));
+    }
+
+    /** {@link #flight(int, ZoneId)} landing at {@code arrivalMinute}, e.g. an arrival rolled to the next day. */
+    public Flight flight(int row, ZoneId zone, int arrivalMinute) {
+        return new Flight(carrier(row), flightNumber(row), origin(row), destination(row),
+                LocalDate.ofEpochDay(epochDay(row)),
+                atZone(departureMinute(row), zone), atZone(arrivalMinute, zone),
+                price(row), currency(row), originCity(row), destinationCity(row));
+    }
+
+    /** The tool-facing map view of a row ({@link Flight#toMap()}). */
+    public Map<String, Object> toMap(int row, ZoneId zone) {
+        return flight(row, zone).toMap();
+    }
+
+    /**
+     * Sorts {@code rows[from, to)} by ascending price. Ties are broken by row index, so the
+     * result matches a stable sort over rows collected in dataset order.
+     */
+    public void sortByPrice(int[] rows, int from, int to) {
+        if (to - from < 2) return;
+        quickSort(rows, from, to - 1);
+    }
+
+    private boolean less(int a, int b) {
+        double pa = price(a);
+        double pb = price(b);
+        return pa < pb || (pa == pb && a < b);
+    }
+
+    private void quickSort(int[] rows, int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            int pivot = median(rows[lo], rows[mid], rows[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (less(rows[i], pivot)) i++;
+                while (less(pivot, rows[j])) j--;
+                if (i <= j) {
+                    int t = rows[i]; rows[i] = rows[j]; rows[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into the smaller half to bound stack depth
+            if (j - lo < hi - i) {
+                quickSort(rows, lo, j);
+                lo = i;
+            } else {
+                quickSort(rows, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int v = rows[i];
+            int k = i - 1;
+            while (k >= lo && less(v, rows[k])) {
+                rows[k + 1] = rows[k];
+                k--;
+            }
+            rows[k + 1] = v;
+        }
+    }
+
+    private int median(int a, int b, int c) {
+        if (less(a, b)) {
+            if (less(b, c)) return b;
+            return less(a, c) ? c : a;
+        }
+        if (less(a, c)) return a;
+        return less(b, c) ? c : b;
+    }
+
+    private static String carrierKey(String carrier) {
+        return carrier == null ? "" : carrier.replace(" ", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String flightNumberKey(String flightNumber) {
+        return flightNumber == null ? "" : flightNumber.toLowerCase(Locale.ROOT);
+    }
+
+    private static int tripHash(String carrierKey, String flightNumberKey, int day) {
+        int h = (carrierKey.hashCode() * 31 + flightNumberKey.hashCode()) * 31 + day;
+        return h ^ (h >>> 16) ^ (h >>> 7);
+    }
+
+    public static int toEpochMinute(LocalDateTime ldt) {
+        return (int) (ldt.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    public static LocalDateTime fromEpochMinute(int minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private static OffsetDateTime atZone(int minute, ZoneId zone) {
+        return fromEpochMinute(minute).atZone(zone).toOffsetDateTime();
+    }
+
+    /**
+     * Accumulates rows into growable primitive columns. Rows are de-duplicated by
+     * (carrier, flightNumber, date); the first occurrence wins.
+     */
+    public static final class Builder {
+        private final StringDictionary carriers = new StringDictionary();
+        private final StringDictionary flightNumbers = new StringDictionary();
+        private final StringDictionary airports = new StringDictionary();
+        private final StringDictionary cities = new StringDictionary();
+        private final StringDictionary currencies = new StringDictionary();
+        private final List<String> carrierKeys = new ArrayList<>();
+        private final List<String> flightNumberKeys = new ArrayList<>();
+        private int[] tripSlots;
+
+        private int size;
+        private int capacity;
+        private final int[][] columns = new int[INT_COLUMNS][];
+        private double[] price;
+
+        public Builder(int expectedRows) {
+            capacity = Math.max(16, expectedRows);
+            for (int c = 0; c < INT_COLUMNS; c++) columns[c] = new int[capacity];
+            price = new double[capacity];
+            tripSlots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        }
+
+        /** Adds a row; returns false when a flight with the same trip key was already added. */
+        public boolean add(String carrierName, String flightNo, String originCode, String destinationCode,
+                           LocalDate day, LocalDateTime dep, LocalDateTime arr, double fare, String currencyCode,
+                           String originCityName, String destinationCityName) {
+            int carrierId = internCarrier(carrierName);
+            int flightNumberId = internFlightNumber(flightNo);
+            int epochDay = (int) day.toEpochDay();
+            int slot = freeTripSlot(carrierId, flightNumberId, epochDay);
+            if (slot < 0) return false;
+            append(slot, carrierId, flightNumberId, internAirport(originCode), internAirport(destinationCode),
+                    internCity(originCityName), internCity(destinationCityName), epochDay,
+                    toEpochMinute(dep), toEpochMinute(arr), fare, internCurrency(currencyCode));
+            return true;
+        }
+
+        // ---- Encoded appends, for ingest paths that resolve dictionary ids themselves ----
+
+        int internCarrier(String carrierName) {
+            int id = carriers.intern(carrierName);
+            if (id == carrierKeys.size()) carrierKeys.add(share(carriers.get(id), carrierKey(carrierName)));
+            return id;
+        }
+
+        int internFlightNumber(String flightNo) {
+            int id = flightNumbers.intern(flightNo);
+            if (id == flightNumberKeys.size()) flightNumberKeys.add(share(flightNumbers.get(id), flightNumberKey(flightNo)));
+            return id;
+        }
+
+        int internAirport(String code) { return airports.intern(code); }
+        int internCity(String name) { return cities.intern(name); }
+        int internCurrency(String code) { return currencies.intern(code); }
+
+        /** Trip table slot for a new trip, or -1 when the trip was already added. */
+        int freeTripSlot(int carrierId, int flightNumberId, int epochDay) {
+            String ck = carrierKeys.get(carrierId);
+            String fk = flightNumberKeys.get(flightNumberId);
+            int mask = tripSlots.length - 1;
+            int i = tripHash(ck, fk, epochDay) & mask;
+            int slot;
+            while ((slot = tripSlots[i]) != 0) {
+                int row = slot - 1;
+                if (columns[COL_DATE][row] == epochDay
+                        && carrierKeys.get(columns[COL_CARRIER][row]).equals(ck)
+                        && flightNumberKeys.get(columns[COL_FLIGHT_NUMBER][row]).equals(fk)) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /** Appends a row whose trip slot came from {@link #freeTripSlot} with no other add in between. */
+        void append(int tripSlot, int carrierId, int flightNumberId, int originId, int destinationId,
+                    int originCityId, int destinationCityId, int epochDay, int departureMinute, int arrivalMinute,
+                    double fare, int currencyId) {
+            if (size == capacity) grow();
+            tripSlots[tripSlot] = size + 1;
+            columns[COL_CARRIER][size] = carrierId;
+            columns[COL_FLIGHT_NUMBER][size] = flightNumberId;
+            columns[COL_ORIGIN][size] = originId;
+            columns[COL_DESTINATION][size] = destinationId;
+            columns[COL_ORIGIN_CITY][size] = originCityId;
+            columns[COL_DESTINATION_CITY][size] = destinationCityId;
+            columns[COL_DATE][size] = epochDay;
+            columns[COL_DEPARTURE][size] = departureMinute;
+            columns[COL_ARRIVAL][size] = arrivalMinute;
+            columns[COL_CURRENCY][size] = currencyId;
+            price[size] = fare;
+            size++;
+            if (size * 2 > tripSlots.length) rehashTrips();
+        }
+
+        private static String share(String original, String key) {
+            return original.equals(key) ? original : key;
+        }
+
+        private void rehashTrips() {
+            int[] slots = new int[tripSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int row = 0; row < size; row++) {
+                int i = tripHash(carrierKeys.get(columns[COL_CARRIER][row]),
+                        flightNumberKeys.get(columns[COL_FLIGHT_NUMBER][row]), columns[COL_DATE][row]) & mask;
+                while (slots[i] != 0) i = (i + 1) & mask;
+                slots[i] = row + 1;
+            }
+            tripSlots = slots;
+        }
+
+        public int size() { return size; }
+
+        private void grow() {
+            resize(capacity + (capacity >> 1));
+        }
+
+        private void resize(int newCapacity) {
+            for (int c = 0; c < INT_COLUMNS; c++) columns[c] = Arrays.copyOf(columns[c], newCapacity);
+            price = Arrays.copyOf(price, newCapacity);
+            capacity = newCapacity;
+        }
+
+        public FlightStore build() {
+            if (capacity != size) resize(size);
+            IntBuffer[] wrapped = new IntBuffer[INT_COLUMNS];
+            for (int c = 0; c < INT_COLUMNS; c++) wrapped[c] = IntBuffer.wrap(columns[c]);
+            return new FlightStore(carriers, flightNumbers, airports, cities, currencies,
+                    size, wrapped, DoubleBuffer.wrap(price), IntBuffer.wrap(tripSlots), false);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.travel.assistant.flights;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open-addressing long -> int map used by the flight indexes to avoid boxing.
+ * Values must be non-negative; {@link #get(long)} returns -1 for absent keys.
+ */
+public final class LongIntHashMap {
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expected) {
+        int cap = Integer.highestOneBit(Math.max(4, (int) (expected / 0.6f)) - 1) << 1;
+        keys = new long[cap];
+        values = new int[cap];
+        Arrays.fill(values, -1);
+        mask = cap - 1;
+    }
+
+    public int get(long key) {
+        int i = slot(key);
+        while (values[i] >= 0) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    public void put(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException("value must be >= 0");
+        int i = slot(key);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (int) (keys.length * 0.6f)) rehash();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, -1);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] < 0) continue;
+            int j = slot(oldKeys[i]);
+            while (values[j] >= 0) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.travel.assistant.flights;
+
+import java.util.Arrays;
+
+/**
+ * Materialized "where can I fly from X" index: for every origin airport it holds the cheapest
+ * flight to each destination, both per day and across all days, as small arrays already
+ * sorted by price (ties by row order). Top-N queries walk a slice of these arrays.
+ *
+ * Built from the {@link RouteDateIndex} bucket heads as part of a {@link FlightSnapshot}, so
+ * it is always consistent with the rows it points to.
+ */
+public final class OriginCheapestIndex {
+
+    // per (origin, day): one row per destination
+    private final LongIntHashMap dayBucketByKey;
+    private final int[] dayStart;
+    private final int[] dayRows;
+    // per origin across all days: one row per destination
+    private final int[] originStart;
+    private final int[] originRows;
+
+    private OriginCheapestIndex(LongIntHashMap dayBucketByKey, int[] dayStart, int[] dayRows,
+                                int[] originStart, int[] originRows) {
+        this.dayBucketByKey = dayBucketByKey;
+        this.dayStart = dayStart;
+        this.dayRows = dayRows;
+        this.originStart = originStart;
+        this.originRows = originRows;
+    }
+
+    public static OriginCheapestIndex build(FlightStore store, RouteDateIndex routes) {
+        int buckets = routes.bucketCount();
+        int[] heads = new int[buckets];
+        for (int b = 0; b < buckets; b++) heads[b] = routes.cheapest(b);
+
+        // group route/day heads by (origin, day)
+        LongIntHashMap dayBucketByKey = new LongIntHashMap(Math.max(16, buckets / 4));
+        int[] groupOfHead = new int[buckets];
+        int[] counts = new int[64];
+        int groups = 0;
+        for (int b = 0; b < buckets; b++) {
+            int row = heads[b];
+            long key = key(store.originId(row), store.epochDay(row));
+            int g = dayBucketByKey.get(key);
+            if (g < 0) {
+                g = groups++;
+                dayBucketByKey.put(key, g);
+                if (g == counts.length) counts = Arrays.copyOf(counts, g * 2);
+            }
+            counts[g]++;
+            groupOfHead[b] = g;
+        }
+        int[] dayStart = prefixSums(counts, groups);
+        int[] dayRows = scatter(heads, groupOfHead, dayStart, groups);
+        for (int g = 0; g < groups; g++) store.sortByPrice(dayRows, dayStart[g], dayStart[g + 1]);
+
+        // cheapest head per (origin, destination) across days, then grouped by origin
+        LongIntHashMap pairSlot = new LongIntHashMap(Math.max(16, buckets / 8));
+        int[] pairBest = new int[Math.max(16, buckets)];
+        int pairs = 0;
+        for (int row : heads) {
+            long key = key(store.originId(row), store.destinationId(row));
+            int p = pairSlot.get(key);
+            if (p < 0) {
+                pairSlot.put(key, pairs);
+                pairBest[pairs++] = row;
+            } else {
+                int cur = pairBest[p];
+                if (store.price(row) < store.price(cur) || (store.price(row) == store.price(cur) && row < cur)) {
+                    pairBest[p] = row;
+                }
+            }
+        }
+        int airports = store.airports().size();
+        int[] perOrigin = new int[airports];
+        int[] originOfPair = new int[pairs];
+        for (int p = 0; p < pairs; p++) {
+            originOfPair[p] = store.originId(pairBest[p]);
+            perOrigin[originOfPair[p]]++;
+        }
+        int[] originStart = prefixSums(perOrigin, airports);
+        int[] originRows = scatter(Arrays.copyOf(pairBest, pairs), originOfPair, originStart, airports);
+        for (int o = 0; o < airports; o++) store.sortByPrice(originRows, originStart[o], originStart[o + 1]);
+
+        return new OriginCheapestIndex(dayBucketByKey, dayStart, dayRows, originStart, originRows);
+    }
+
+    private static long key(int hi, int lo) {
+        return ((long) hi << 32) | (lo & 0xFFFFFFFFL);
+    }
+
+    private static int[] prefixSums(int[] counts, int groups) {
+        int[] start = new int[groups + 1];
+        for (int g = 0; g < groups; g++) start[g + 1] = start[g] + counts[g];
+        return start;
+    }
+
+    private static int[] scatter(int[] values, int[] groupOf, int[] start, int groups) {
+        int[] fill = Arrays.copyOf(start, groups);
+        int[] out = new int[values.length];
+        for (int i = 0; i < values.length; i++) out[fill[groupOf[i]]++] = values[i];
+        return out;
+    }
+
+    // ---- Per origin and day ----
+
+    /** Slice id for the origin on the given day, or -1 when it has no departures that day. */
+    public int daySlice(int originId, int epochDay) {
+        return dayBucketByKey.get(key(originId, epochDay));
+    }
+
+    public int daySliceStart(int slice) { return dayStart[slice]; }
+    public int daySliceEnd(int slice) { return dayStart[slice + 1]; }
+    public int dayRow(int position) { return dayRows[position]; }
+
+    // ---- Per origin across all days ----
+
+    public int originStart(int originId) { return originStart[originId]; }
+    public int originEnd(int originId) { return originStart[originId + 1]; }
+    public int originRow(int position) { return originRows[position]; }
+}
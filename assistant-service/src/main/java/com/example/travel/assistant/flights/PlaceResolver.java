@@ -0,0 +1,233 @@
+package com.example.travel.assistant.flights;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the user's origin/destination input (IATA code, EN/RU alias or city name) to the
+ * set of airport ids of a {@link FlightStore} once per query, so row filtering is an int
+ * comparison. Resolutions are cached per dataset; hit/miss counters are shared across datasets.
+ */
+public final class PlaceResolver {
+
+    private static final int MAX_CACHED = 4096;
+
+    // Simple normalization dictionaries: alias (EN/RU/common forms) -> IATA; and IATA -> canonical city
+    private static final Map<String, String> ALIAS_TO_IATA = new HashMap<>();
+    private static final Map<String, String> IATA_TO_CITY = new HashMap<>();
+    static {
+        // US
+        addMapping("SFO", "San Francisco", "Сан-Франциско", "SF");
+        addMapping("JFK", "New York", "Нью-Йорк", "NYC");
+        addMapping("LAX", "Los Angeles", "Лос-Анджелес", "LA");
+        addMapping("IAD", "Washington", "Вашингтон", "Washington DC", "DC");
+        // Europe
+        addMapping("LHR", "London", "Лондон");
+        addMapping("LGW", "London", "Лондон", "Gatwick");
+        addMapping("CDG", "Paris", "Париж");
+        addMapping("BER", "Berlin", "Берлин");
+        addMapping("MAD", "Madrid", "Мадрид");
+        addMapping("FCO", "Rome", "Рим");
+        addMapping("DUB", "Dublin", "Дублин");
+        addMapping("LIS", "Lisbon", "Лиссабон");
+        addMapping("VIE", "Vienna", "Вена");
+        addMapping("PRG", "Prague", "Прага");
+        addMapping("WAW", "Warsaw", "Варшава");
+        addMapping("AMS", "Amsterdam", "Амстердам");
+        addMapping("ZRH", "Zurich", "Цюрих");
+        addMapping("OSL", "Oslo", "Осло");
+        addMapping("CPH", "Copenhagen", "Копенгаген");
+        addMapping("HEL", "Helsinki", "Хельсинки");
+        addMapping("ARN", "Stockholm", "Стокгольм");
+        // Asia / MEA / Others
+        addMapping("SVO", "Moscow", "Москва");
+        addMapping("PEK", "Beijing", "Пекин", "Beijing City");
+        addMapping("HND", "Tokyo", "Токио");
+        addMapping("ICN", "Seoul", "Сеул");
+        addMapping("BKK", "Bangkok", "Бангкок");
+        addMapping("SIN", "Singapore", "Сингапур");
+        addMapping("CGK", "Jakarta", "Джакарта");
+        addMapping("DEL", "New Delhi", "Дели", "Delhi");
+        addMapping("CBR", "Canberra", "Канберра");
+        addMapping("WLG", "Wellington", "Веллингтон");
+        addMapping("MNL", "Manila", "Манила");
+        addMapping("HAN", "Hanoi", "Ханой");
+        addMapping("RUH", "Riyadh", "Эр-Рияд");
+        addMapping("AUH", "Abu Dhabi", "Абу-Даби");
+        addMapping("DOH", "Doha", "Доха");
+        addMapping("CAI", "Cairo", "Каир");
+        addMapping("NBO", "Nairobi", "Найроби");
+        addMapping("JNB", "Johannesburg", "Йоханнесбург");
+        addMapping("ADD", "Addis Ababa", "Аддис-Абеба");
+        addMapping("ATH", "Athens", "Афины");
+        addMapping("TLV", "Tel Aviv", "Тель-Авив");
+        addMapping("TUN", "Tunis", "Тунис");
+        addMapping("ALG", "Algiers", "Алжир");
+        addMapping("DKR", "Dakar", "Дакар");
+    }
+
+    private static void addMapping(String iata, String city, String... aliases) {
+        IATA_TO_CITY.put(iata.toUpperCase(Locale.ROOT), city);
+        // map base city name as alias too
+        ALIAS_TO_IATA.put(slug(city), iata.toUpperCase(Locale.ROOT));
+        ALIAS_TO_IATA.put(iata.toUpperCase(Locale.ROOT), iata.toUpperCase(Locale.ROOT));
+        for (String a : aliases) {
+            if (a == null) continue;
+            ALIAS_TO_IATA.put(slug(a), iata.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final FlightStore store;
+    private final Map<String, int[]> airportsByCode = new HashMap<>(); // upper-case code -> ids
+    private final String[] citySlugs;
+    private final int[][] airportsByCity;
+    private final Map<String, int[]> cache = new ConcurrentHashMap<>();
+    private final Counters counters;
+
+    /** Cache hit/miss counters, kept across dataset snapshots. */
+    public static final class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        public long hits() { return hits.sum(); }
+        public long misses() { return misses.sum(); }
+
+        public double hitRate() {
+            long h = hits(), total = h + misses();
+            return total == 0 ? 0.0 : (double) h / total;
+        }
+    }
+
+    PlaceResolver(FlightStore store, int[][] airportCities, Counters counters) {
+        this.store = store;
+        this.counters = counters;
+        StringDictionary airports = store.airports();
+        for (int a = 0; a < airports.size(); a++) {
+            airportsByCode.merge(airports.get(a).toUpperCase(Locale.ROOT), new int[]{a}, PlaceResolver::union);
+        }
+        StringDictionary cities = store.cities();
+        citySlugs = new String[cities.size()];
+        for (int c = 0; c < cities.size(); c++) {
+            citySlugs[c] = slug(cities.get(c));
+        }
+        int[] counts = new int[cities.size()];
+        for (int[] list : airportCities) {
+            for (int c : list) counts[c]++;
+        }
+        airportsByCity = new int[cities.size()][];
+        for (int c = 0; c < counts.length; c++) airportsByCity[c] = new int[counts[c]];
+        Arrays.fill(counts, 0);
+        for (int a = 0; a < airportCities.length; a++) {
+            for (int c : airportCities[a]) airportsByCity[c][counts[c]++] = a;
+        }
+    }
+
+    /** Sorted airport ids matching the input; empty when nothing matches. */
+    public int[] resolve(String input) {
+        if (input == null || input.isBlank()) return new int[0];
+        String key = input.trim().toLowerCase(Locale.ROOT);
+        int[] cached = cache.get(key);
+        if (cached != null) {
+            counters.hits.increment();
+            return cached;
+        }
+        counters.misses.increment();
+        int[] ids = compute(input.trim());
+        if (cache.size() >= MAX_CACHED) cache.clear();
+        cache.put(key, ids);
+        return ids;
+    }
+
+    public Counters counters() { return counters; }
+
+    private int[] compute(String in) {
+        boolean[] match = new boolean[store.airports().size()];
+        String code = canonicalIataOrNull(in);
+        if (code != null) {
+            int[] direct = airportsByCode.get(code);
+            if (isIataLike(in)) {
+                if (direct != null) return direct;
+                // a three-letter alias such as NYC is not an airport code of the dataset
+                String alias = ALIAS_TO_IATA.get(slug(in));
+                if (alias == null) return new int[0];
+                code = alias;
+                direct = airportsByCode.get(code);
+            }
+            if (direct != null) for (int a : direct) match[a] = true;
+            // expand an alias to every dataset airport of the same city (e.g. London -> LHR, LGW)
+            String city = IATA_TO_CITY.get(code);
+            if (city != null) markCity(slug(city), null, match);
+            return collect(match);
+        }
+        // Compare by city names (slug to ignore case/diacritics and punctuation), then raw case-insensitive
+        markCity(slug(in), in, match);
+        int[] byCode = airportsByCode.get(in.toUpperCase(Locale.ROOT));
+        if (byCode != null) for (int a : byCode) match[a] = true;
+        return collect(match);
+    }
+
+    private void markCity(String citySlug, String raw, boolean[] match) {
+        StringDictionary cities = store.cities();
+        for (int c = 0; c < citySlugs.length; c++) {
+            boolean same = (!citySlug.isEmpty() && citySlug.equals(citySlugs[c]))
+                    || (raw != null && raw.equalsIgnoreCase(cities.get(c)));
+            if (!same) continue;
+            for (int a : airportsByCity[c]) match[a] = true;
+        }
+    }
+
+    private static int[] collect(boolean[] match) {
+        int n = 0;
+        for (boolean m : match) if (m) n++;
+        int[] out = new int[n];
+        n = 0;
+        for (int a = 0; a < match.length; a++) if (match[a]) out[n++] = a;
+        return out;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        Arrays.sort(out);
+        return out;
+    }
+
+    // ---- Helpers for normalization ----
+    static String slug(String s) {
+        if (s == null) return "";
+        String t = s.trim().toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(t.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                pendingSpace = false;
+                sb.append(c);
+            } else if (Character.isWhitespace(c) || c == '-') {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isIataLike(String in) {
+        if (in.length() != 3) return false;
+        for (int i = 0; i < 3; i++) {
+            char c = in.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'))) return false;
+        }
+        return true;
+    }
+
+    static String canonicalIataOrNull(String input) {
+        if (input == null || input.isBlank()) return null;
+        String in = input.trim();
+        if (isIataLike(in)) return in.toUpperCase(Locale.ROOT);
+        return ALIAS_TO_IATA.get(slug(in));
+    }
+}
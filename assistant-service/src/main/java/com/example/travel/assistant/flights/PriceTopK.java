@@ -0,0 +1,101 @@
+package com.example.travel.assistant.flights;
+
+import java.util.Arrays;
+
+/**
+ * Bounded selection of the k cheapest rows in the same order as
+ * {@link FlightStore#sortByPrice} (ascending price, ties by row index), without sorting
+ * every candidate.
+ *
+ * Keeps a max-heap of at most k (price, row) pairs in primitive arrays: a candidate that is
+ * not cheaper than the heap's most expensive entry is rejected with a single comparison, so
+ * selecting k out of n rows costs O(n log k) and allocates O(k).
+ */
+public final class PriceTopK {
+
+    private final FlightStore store;
+    private final int capacity;
+    private double[] prices;
+    private int[] rows;
+    private int size;
+
+    public PriceTopK(FlightStore store, int k) {
+        this.store = store;
+        this.capacity = Math.max(0, k);
+        int initial = Math.min(this.capacity, 64);
+        this.prices = new double[initial];
+        this.rows = new int[initial];
+    }
+
+    /** The k cheapest of {@code rows[from, to)}, cheapest first. */
+    public static int[] cheapest(FlightStore store, int[] rows, int from, int to, int k) {
+        PriceTopK top = new PriceTopK(store, Math.min(k, to - from));
+        for (int i = from; i < to; i++) top.offer(rows[i]);
+        return top.drainAscending();
+    }
+
+    public void offer(int row) {
+        if (capacity == 0) return;
+        double price = store.price(row);
+        if (size < capacity) {
+            if (size == rows.length) grow();
+            prices[size] = price;
+            rows[size] = row;
+            siftUp(size++);
+        } else if (after(prices[0], rows[0], price, row)) {
+            prices[0] = price;
+            rows[0] = row;
+            siftDown(0, size);
+        }
+    }
+
+    public int size() { return size; }
+
+    /** Returns the kept rows, cheapest first, and empties the selection. */
+    public int[] drainAscending() {
+        // in-place heap sort: move the current maximum behind the shrinking heap
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        int[] out = Arrays.copyOf(rows, size);
+        size = 0;
+        return out;
+    }
+
+    /** True when (pa, ra) sorts after (pb, rb). */
+    static boolean after(double pa, int ra, double pb, int rb) {
+        return pa > pb || (pa == pb && ra > rb);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!after(prices[i], rows[i], prices[parent], rows[parent])) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) return;
+            if (child + 1 < n && after(prices[child + 1], rows[child + 1], prices[child], rows[child])) child++;
+            if (!after(prices[child], rows[child], prices[i], rows[i])) return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double p = prices[a]; prices[a] = prices[b]; prices[b] = p;
+        int r = rows[a]; rows[a] = rows[b]; rows[b] = r;
+    }
+
+    private void grow() {
+        int next = (int) Math.min(capacity, Math.max(64L, rows.length * 2L));
+        prices = Arrays.copyOf(prices, next);
+        rows = Arrays.copyOf(rows, next);
+    }
+}
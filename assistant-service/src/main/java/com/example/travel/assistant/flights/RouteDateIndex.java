@@ -0,0 +1,137 @@
+package com.example.travel.assistant.flights;
+
+/**
+ * Composite (origin, destination, date) index over a {@link FlightStore}.
+ *
+ * All rows are laid out bucket by bucket in a single int array; each bucket holds the
+ * flights of one route on one day, already sorted by ascending price (ties by row order).
+ * A search is therefore a hash lookup plus a slice, and the cheapest flight is the first
+ * row of the bucket.
+ */
+public final class RouteDateIndex {
+
+    private final LongIntHashMap bucketByKey;
+    private final int[] bucketStart; // bucket b spans rows[bucketStart[b], bucketStart[b + 1])
+    private final int[] rows;
+
+    private RouteDateIndex(LongIntHashMap bucketByKey, int[] bucketStart, int[] rows) {
+        this.bucketByKey = bucketByKey;
+        this.bucketStart = bucketStart;
+        this.rows = rows;
+    }
+
+    public static RouteDateIndex build(FlightStore store) {
+        int n = store.size();
+        LongIntHashMap bucketByKey = new LongIntHashMap(Math.max(16, n / 8));
+        int[] bucketOfRow = new int[n];
+        int[] counts = new int[64];
+        int buckets = 0;
+        for (int row = 0; row < n; row++) {
+            long key = key(store.originId(row), store.destinationId(row), store.epochDay(row));
+            int b = bucketByKey.get(key);
+            if (b < 0) {
+                b = buckets++;
+                bucketByKey.put(key, b);
+                if (b == counts.length) counts = java.util.Arrays.copyOf(counts, b * 2);
+            }
+            counts[b]++;
+            bucketOfRow[row] = b;
+        }
+        int[] start = new int[buckets + 1];
+        for (int b = 0; b < buckets; b++) {
+            start[b + 1] = start[b] + counts[b];
+        }
+        // scatter rows in dataset order, then sort each bucket by price; in a route-sorted
+        // dataset that order already is price order, so the sort is skipped
+        int[] fill = java.util.Arrays.copyOf(start, buckets);
+        int[] rows = new int[n];
+        for (int row = 0; row < n; row++) {
+            rows[fill[bucketOfRow[row]]++] = row;
+        }
+        if (!store.sortedByRoute()) {
+            for (int b = 0; b < buckets; b++) {
+                store.sortByPrice(rows, start[b], start[b + 1]);
+            }
+        }
+        return new RouteDateIndex(bucketByKey, start, rows);
+    }
+
+    static long key(int originId, int destinationId, int epochDay) {
+        return ((long) originId << 44) | ((long) (destinationId & 0xFFFFF) << 24) | (epochDay & 0xFFFFFFL);
+    }
+
+    /** Returns the bucket id for the route and day, or -1 when there are no flights. */
+    public int bucket(int originId, int destinationId, int epochDay) {
+        return bucketByKey.get(key(originId, destinationId, epochDay));
+    }
+
+    public int bucketStart(int bucket) { return bucketStart[bucket]; }
+    public int bucketEnd(int bucket) { return bucketStart[bucket + 1]; }
+    public int row(int position) { return rows[position]; }
+
+    /** Cheapest row of the bucket (O(1)). */
+    public int cheapest(int bucket) { return rows[bucketStart[bucket]]; }
+
+    public int bucketCount() { return bucketStart.length - 1; }
+
+    /**
+     * Rows {@code [offset, offset + limit)} of the union of the given buckets in price order,
+     * as if they were concatenated and sorted with {@link FlightStore#sortByPrice}. Buckets are
+     * already sorted, so this is a k-way merge over a min-heap of bucket heads that stops after
+     * {@code offset + limit} rows instead of sorting the whole union.
+     */
+    public int[] merge(FlightStore store, int[] buckets, int offset, int limit) {
+        int k = buckets.length;
+        int[] pos = new int[k];
+        int[] end = new int[k];
+        double[] headPrice = new double[k];
+        int[] headRow = new int[k];
+        int[] heap = new int[k]; // bucket slots ordered by (headPrice, headRow)
+        int n = 0;
+        for (int i = 0; i < k; i++) {
+            pos[i] = bucketStart(buckets[i]);
+            end[i] = bucketEnd(buckets[i]);
+            if (pos[i] == end[i]) continue;
+            headRow[i] = rows[pos[i]];
+            headPrice[i] = store.price(headRow[i]);
+            heap[n] = i;
+            siftUp(heap, n++, headPrice, headRow);
+        }
+        int[] out = new int[Math.max(0, limit)];
+        int taken = 0;
+        for (int skipped = 0; n > 0 && taken < out.length; ) {
+            int s = heap[0];
+            if (skipped < offset) skipped++;
+            else out[taken++] = headRow[s];
+            if (++pos[s] < end[s]) {
+                headRow[s] = rows[pos[s]];
+                headPrice[s] = store.price(headRow[s]);
+            } else {
+                heap[0] = heap[--n];
+            }
+            siftDown(heap, n, headPrice, headRow);
+        }
+        return taken == out.length ? out : java.util.Arrays.copyOf(out, taken);
+    }
+
+    private static void siftUp(int[] heap, int i, double[] price, int[] row) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!PriceTopK.after(price[heap[parent]], row[heap[parent]], price[heap[i]], row[heap[i]])) return;
+            int t = heap[i]; heap[i] = heap[parent]; heap[parent] = t;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int n, double[] price, int[] row) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) return;
+            if (child + 1 < n && PriceTopK.after(price[heap[child]], row[heap[child]], price[heap[child + 1]], row[heap[child + 1]])) child++;
+            if (!PriceTopK.after(price[heap[i]], row[heap[i]], price[heap[child]], row[heap[child]])) return;
+            int t = heap[i]; heap[i] = heap[child]; heap[child] = t;
+            i = child;
+        }
+    }
+}
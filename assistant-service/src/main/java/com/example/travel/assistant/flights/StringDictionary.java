@@ -0,0 +1,42 @@
+package com.example.travel.assistant.flights;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only string dictionary used to encode repeated flight attributes
+ * (airports, cities, carriers, ...) as dense int ids starting at 0.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /** Returns the id of the value, adding it if it is not present yet. */
+    int intern(String value) {
+        String v = value == null ? "" : value;
+        Integer id = ids.get(v);
+        if (id != null) return id;
+        int next = values.size();
+        values.add(v);
+        ids.put(v, next);
+        return next;
+    }
+
+    /** Returns the id of the value or -1 when the dictionary does not contain it. */
+    public int idOf(String value) {
+        if (value == null) return -1;
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    public String get(int id) {
+        return values.get(id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.travel.assistant.llm;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Set;
+
+/** A {@link ChatLanguageModel} whose every call goes through the {@link LlmGateway}. */
+public class GatedChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final LlmGateway gateway;
+
+    public GatedChatLanguageModel(ChatLanguageModel delegate, LlmGateway gateway) {
+        this.delegate = delegate;
+        this.gateway = gateway;
+    }
+
+    /** The model's answer to tool results continues a turn that was already admitted. */
+    static boolean followUp(List<ChatMessage> messages) {
+        return messages != null && !messages.isEmpty()
+                && messages.get(messages.size() - 1) instanceof ToolExecutionResultMessage;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return gateway.call(followUp(messages), () -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return gateway.call(followUp(messages), () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return gateway.call(followUp(messages), () -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        return gateway.call(followUp(request.messages()), () -> delegate.chat(request));
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
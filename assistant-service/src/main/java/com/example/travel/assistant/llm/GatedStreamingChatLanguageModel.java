@@ -0,0 +1,77 @@
+package com.example.travel.assistant.llm;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A {@link StreamingChatLanguageModel} whose every call goes through the {@link LlmGateway}.
+ * The slot is held until the stream completes or fails, which may be after {@code generate}
+ * returns for models that stream on their own threads.
+ */
+public class GatedStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private final StreamingChatLanguageModel delegate;
+    private final LlmGateway gateway;
+
+    public GatedStreamingChatLanguageModel(StreamingChatLanguageModel delegate, LlmGateway gateway) {
+        this.delegate = delegate;
+        this.gateway = gateway;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        gated(messages, handler, h -> delegate.generate(messages, h));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications, StreamingResponseHandler<AiMessage> handler) {
+        gated(messages, handler, h -> delegate.generate(messages, toolSpecifications, h));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification, StreamingResponseHandler<AiMessage> handler) {
+        gated(messages, handler, h -> delegate.generate(messages, toolSpecification, h));
+    }
+
+    private void gated(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler,
+                       Consumer<StreamingResponseHandler<AiMessage>> call) {
+        gateway.acquire(GatedChatLanguageModel.followUp(messages));
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) gateway.release(System.nanoTime() - start);
+        };
+        try {
+            call.accept(new StreamingResponseHandler<>() {
+                @Override
+                public void onNext(String token) {
+                    handler.onNext(token);
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    // free the slot first: completing may run tools and call the model again
+                    release.run();
+                    handler.onComplete(response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    release.run();
+                    handler.onError(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+}
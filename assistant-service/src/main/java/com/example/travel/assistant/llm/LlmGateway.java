@@ -0,0 +1,266 @@
+package com.example.travel.assistant.llm;
+
+import com.example.travel.assistant.llm.LlmRejectedException.Reason;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the model: at most {@code max-concurrent} calls run at once,
+ * up to {@code max-queued} more wait in line for at most {@code max-wait-ms}, and new calls are
+ * admitted at no more than {@code rate-per-second} (token bucket with {@code burst} tokens).
+ *
+ * A call that cannot be admitted fails fast with {@link LlmRejectedException} and a
+ * Retry-After estimate instead of adding to the provider's load and timing out a minute later.
+ * A freed slot goes directly to the oldest waiter whose deadline has not passed; waiters that
+ * gave up are dropped, so the model never works for a caller that is no longer there.
+ *
+ * Follow-up calls of a turn already in progress (the model's answer to a tool result) skip the
+ * rate limit and the queue cap and wait at the head of the line: rejecting them would throw
+ * away the turn after its tools, such as a booking, have already run.
+ */
+@Component
+public class LlmGateway implements MeterBinder {
+
+    private static final class Waiter {
+        final Condition ready;
+        final long enqueuedAt;
+        final long deadline;
+        boolean granted;
+
+        Waiter(Condition ready, long enqueuedAt, long deadline) {
+            this.ready = ready;
+            this.enqueuedAt = enqueuedAt;
+            this.deadline = deadline;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final double ratePerSecond;
+    private final double burst;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private int inFlight;
+    private double tokens;
+    private long refilledAt;
+    /** Moving average of call latency, for Retry-After estimates. */
+    private long avgLatencyNanos = TimeUnit.SECONDS.toNanos(1);
+    private final AtomicLong admitted = new AtomicLong();
+    private final Map<Reason, AtomicLong> rejected = new EnumMap<>(Reason.class);
+    private volatile Timer waitTimer;
+    private volatile Timer callTimer;
+    private volatile DistributionSummary depthOnArrival;
+
+    @Autowired
+    public LlmGateway(@Value("${assistant.llm.max-concurrent:${ASSISTANT_LLM_MAX_CONCURRENT:16}}") int maxConcurrent,
+                      @Value("${assistant.llm.max-queued:${ASSISTANT_LLM_MAX_QUEUED:64}}") int maxQueued,
+                      @Value("${assistant.llm.max-wait-ms:${ASSISTANT_LLM_MAX_WAIT_MS:5000}}") long maxWaitMs,
+                      @Value("${assistant.llm.rate-per-second:${ASSISTANT_LLM_RATE_PER_SECOND:10}}") double ratePerSecond,
+                      @Value("${assistant.llm.burst:${ASSISTANT_LLM_BURST:20}}") int burst) {
+        this(maxConcurrent, maxQueued, TimeUnit.MILLISECONDS.toNanos(maxWaitMs), ratePerSecond, burst, System::nanoTime);
+    }
+
+    LlmGateway(int maxConcurrent, int maxQueued, long maxWaitNanos, double ratePerSecond, int burst, LongSupplier clock) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxWaitNanos = Math.max(0, maxWaitNanos);
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.clock = clock;
+        this.tokens = this.burst;
+        this.refilledAt = clock.getAsLong();
+        for (Reason r : Reason.values()) rejected.put(r, new AtomicLong());
+    }
+
+    /**
+     * Runs the model call once it is admitted. {@code followUp} marks the model's answer to a
+     * tool result within a turn that was already admitted.
+     */
+    public <T> T call(boolean followUp, Supplier<T> work) {
+        acquire(followUp);
+        long start = clock.getAsLong();
+        try {
+            return work.get();
+        } finally {
+            release(clock.getAsLong() - start);
+        }
+    }
+
+    /** Takes a slot for a call whose completion is reported later through {@link #release}. */
+    void acquire(boolean followUp) {
+        long now = clock.getAsLong();
+        Waiter w;
+        lock.lock();
+        try {
+            DistributionSummary depth = depthOnArrival;
+            if (depth != null) depth.record(queue.size());
+            boolean slotFree = inFlight < maxConcurrent;
+            if (!followUp) {
+                if (!slotFree && queue.size() >= maxQueued) {
+                    throw reject(Reason.QUEUE_FULL, queueRetryAfter(),
+                            "The assistant is busy (" + queue.size() + " requests waiting for the model)");
+                }
+                long tokenWait = takeToken(now);
+                if (tokenWait > 0) {
+                    throw reject(Reason.RATE_LIMITED, TimeUnit.NANOSECONDS.toSeconds(tokenWait + 999_999_999L),
+                            "Too many requests to the model; retry shortly");
+                }
+            }
+            if (slotFree) {
+                inFlight++;
+                admitted(0);
+                return;
+            }
+            w = new Waiter(lock.newCondition(), now, now + maxWaitNanos);
+            if (followUp) queue.addFirst(w);
+            else queue.addLast(w);
+            while (!w.granted) {
+                long left = w.deadline - clock.getAsLong();
+                if (left <= 0) {
+                    queue.remove(w);
+                    throw reject(Reason.QUEUE_TIMEOUT, queueRetryAfter(),
+                            "The assistant is busy; no model capacity within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                }
+                try {
+                    w.ready.awaitNanos(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (w.granted) {
+                        handOff(clock.getAsLong()); // the slot was ours already: pass it on
+                    } else {
+                        queue.remove(w);
+                    }
+                    throw reject(Reason.QUEUE_TIMEOUT, queueRetryAfter(), "Interrupted while waiting for the model");
+                }
+            }
+            admitted(clock.getAsLong() - w.enqueuedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Frees the slot of a finished call that took {@code latencyNanos}. */
+    void release(long latencyNanos) {
+        Timer t = callTimer;
+        if (t != null) t.record(latencyNanos, TimeUnit.NANOSECONDS);
+        lock.lock();
+        try {
+            avgLatencyNanos += (latencyNanos - avgLatencyNanos) / 8;
+            handOff(clock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Gives the caller's slot to the next live waiter, or returns it to the pool. */
+    private void handOff(long now) {
+        Waiter next;
+        while ((next = queue.pollFirst()) != null) {
+            next.ready.signal();
+            if (next.deadline - now > 0) {
+                next.granted = true;
+                return;
+            }
+            // its caller has given up: it wakes up, finds itself not granted and rejects itself
+        }
+        inFlight--;
+    }
+
+    private void admitted(long waitNanos) {
+        admitted.incrementAndGet();
+        Timer t = waitTimer;
+        if (t != null) t.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Takes a token; returns 0, or how long until the next token when there is none. */
+    private long takeToken(long now) {
+        if (ratePerSecond <= 0) return 0;
+        tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerSecond / 1e9);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) * 1e9 / ratePerSecond);
+    }
+
+    /** Roughly how long until the current queue has drained, in seconds (1..60). */
+    private long queueRetryAfter() {
+        long nanos = avgLatencyNanos * (queue.size() + 1) / maxConcurrent;
+        return Math.min(60, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L)));
+    }
+
+    private LlmRejectedException reject(Reason reason, long retryAfterSeconds, String message) {
+        rejected.get(reason).incrementAndGet();
+        return new LlmRejectedException(reason, retryAfterSeconds, message);
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long rejected(Reason reason) { return rejected.get(reason).get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("assistant.llm.inflight", this, LlmGateway::inFlight)
+                .description("Model calls in progress")
+                .register(registry);
+        Gauge.builder("assistant.llm.queue.depth", this, LlmGateway::queued)
+                .description("Model calls waiting for a free slot")
+                .register(registry);
+        depthOnArrival = DistributionSummary.builder("assistant.llm.queue.depth.on.arrival")
+                .description("Model calls already waiting when a call arrives")
+                .publishPercentileHistogram()
+                .register(registry);
+        waitTimer = Timer.builder("assistant.llm.queue.wait")
+                .description("Time admitted model calls waited for a slot")
+                .publishPercentileHistogram()
+                .register(registry);
+        callTimer = Timer.builder("assistant.llm.call")
+                .description("Duration of admitted model calls")
+                .publishPercentileHistogram()
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.admitted", admitted, AtomicLong::get)
+                .register(registry);
+        for (Reason r : Reason.values()) {
+            FunctionCounter.builder("assistant.llm.rejected", rejected.get(r), AtomicLong::get)
+                    .tag("reason", r.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+    }
+}
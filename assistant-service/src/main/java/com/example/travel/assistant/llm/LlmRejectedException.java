@@ -0,0 +1,34 @@
+package com.example.travel.assistant.llm;
+
+/**
+ * Thrown instead of calling the model when {@link LlmGateway} cannot admit the call: the rate
+ * limit is used up (429) or the model is saturated and the wait queue is full or too slow (503).
+ */
+public class LlmRejectedException extends RuntimeException {
+
+    public enum Reason {
+        RATE_LIMITED(429), QUEUE_FULL(503), QUEUE_TIMEOUT(503);
+
+        private final int status;
+
+        Reason(int status) { this.status = status; }
+
+        public int status() { return status; }
+    }
+
+    private final Reason reason;
+    private final long retryAfterSeconds;
+
+    public LlmRejectedException(Reason reason, long retryAfterSeconds, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public Reason getReason() { return reason; }
+
+    /** HTTP status to answer with: 429 for the rate limit, 503 for saturation. */
+    public int getStatus() { return reason.status(); }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
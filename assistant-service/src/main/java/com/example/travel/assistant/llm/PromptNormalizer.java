@@ -0,0 +1,56 @@
+package com.example.travel.assistant.llm;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a prompt into the key {@link ResponseCache} looks it up by. Prompts with the same key
+ * are expected to get the same answer from the model, so a normalizer may only drop what the
+ * model's answer does not depend on.
+ */
+@FunctionalInterface
+public interface PromptNormalizer {
+
+    Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    String normalize(String prompt);
+
+    default PromptNormalizer andThen(PromptNormalizer next) {
+        return prompt -> next.normalize(normalize(prompt));
+    }
+
+    /** The prompt as is. */
+    static PromptNormalizer exact() {
+        return prompt -> prompt;
+    }
+
+    /** Trims the prompt and collapses every run of whitespace, line breaks included, to one space. */
+    static PromptNormalizer collapseWhitespace() {
+        return prompt -> WHITESPACE.matcher(prompt.strip()).replaceAll(" ");
+    }
+
+    static PromptNormalizer ignoreCase() {
+        return prompt -> prompt.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Drops the lines that start (after leading whitespace) with one of the prefixes, such as a
+     * request id or timestamp line that changes on every call without changing the answer.
+     */
+    static PromptNormalizer dropLinesStartingWith(List<String> prefixes) {
+        if (prefixes.isEmpty()) return exact();
+        return prompt -> prompt.lines()
+                .filter(line -> prefixes.stream().noneMatch(line.stripLeading()::startsWith))
+                .collect(Collectors.joining("\n"));
+    }
+
+    /** Volatile lines first, while line breaks still exist, then whitespace and case. */
+    static PromptNormalizer of(boolean collapseWhitespace, boolean ignoreCase, List<String> volatileLinePrefixes) {
+        PromptNormalizer n = dropLinesStartingWith(volatileLinePrefixes);
+        if (collapseWhitespace) n = n.andThen(collapseWhitespace());
+        if (ignoreCase) n = n.andThen(ignoreCase());
+        return n;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.travel.assistant.llm;
+
+import com.example.travel.assistant.cache.TtlLruCache;
+import com.example.travel.assistant.config.AssistantGeminiProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link TtlLruCache} of plain model answers ({@code AssistantService.ask/askJson}), keyed by the
+ * prompt after {@link PromptNormalizer normalization} and by the response format.
+ *
+ * Only worth it while the model is close to deterministic: when assistant.gemini.temperature is
+ * above {@code max-temperature} every call bypasses the cache, since asking again is then
+ * expected to give a different answer. Failed calls are never cached.
+ *
+ * Each entry remembers the tokens and time its call cost, so hits add up to the tokens and
+ * milliseconds the cache saved.
+ */
+@Component
+public class ResponseCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    /** A model answer with what it cost; {@code tokens} is the provider's total token count. */
+    public record Answer(String text, long tokens, long millis) {}
+
+    private record Key(boolean json, String prompt) {}
+
+    private final boolean enabled;
+    private final PromptNormalizer normalizer;
+    private final TtlLruCache<Key, Answer> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong savedTokens = new AtomicLong();
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    @Autowired
+    public ResponseCache(AssistantGeminiProperties geminiProps,
+                         @Value("${assistant.llm.cache.max-entries:${ASSISTANT_LLM_CACHE_MAX_ENTRIES:2000}}") int maxEntries,
+                         @Value("${assistant.llm.cache.ttl-seconds:${ASSISTANT_LLM_CACHE_TTL_SECONDS:600}}") long ttlSeconds,
+                         @Value("${assistant.llm.cache.max-temperature:${ASSISTANT_LLM_CACHE_MAX_TEMPERATURE:0.3}}") double maxTemperature,
+                         @Value("${assistant.llm.cache.collapse-whitespace:${ASSISTANT_LLM_CACHE_COLLAPSE_WHITESPACE:true}}") boolean collapseWhitespace,
+                         @Value("${assistant.llm.cache.ignore-case:${ASSISTANT_LLM_CACHE_IGNORE_CASE:false}}") boolean ignoreCase,
+                         @Value("${assistant.llm.cache.volatile-lines:${ASSISTANT_LLM_CACHE_VOLATILE_LINES:}}") String volatileLines) {
+        this(maxEntries, ttlSeconds * 1_000_000_000L, geminiProps.getTemperature() <= maxTemperature,
+                PromptNormalizer.of(collapseWhitespace, ignoreCase, Arrays.stream(volatileLines.split(","))
+                        .map(String::strip).filter(s -> !s.isEmpty()).toList()),
+                System::nanoTime);
+        if (geminiProps.getTemperature() > maxTemperature && maxEntries > 0) {
+            log.info("[ResponseCache] Disabled: temperature {} is above assistant.llm.cache.max-temperature {}",
+                    geminiProps.getTemperature(), maxTemperature);
+        }
+    }
+
+    ResponseCache(int maxEntries, long ttlNanos, boolean enabled, PromptNormalizer normalizer, LongSupplier clock) {
+        this.entries = new TtlLruCache<>(maxEntries, ttlNanos, clock);
+        this.enabled = enabled && entries.enabled();
+        this.normalizer = normalizer;
+    }
+
+    /** A cache that calls the model every time. */
+    public static ResponseCache disabled() {
+        return new ResponseCache(0, 0, false, PromptNormalizer.exact(), System::nanoTime);
+    }
+
+    /**
+     * Returns the cached answer to the prompt, calling the model on a miss. The call runs
+     * outside the lock; concurrent misses for the same key each call (identical requests are
+     * coalesced by {@link SingleFlight}), and the later one wins. A null answer or text is
+     * returned as is and not cached.
+     */
+    public String get(boolean json, String prompt, Supplier<Answer> call) {
+        if (!enabled) {
+            bypassed.incrementAndGet();
+            return text(call.get());
+        }
+        Key key = new Key(json, normalizer.normalize(prompt));
+        Answer cached = entries.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            savedTokens.addAndGet(cached.tokens());
+            savedMillis.addAndGet(cached.millis());
+            return cached.text();
+        }
+        misses.incrementAndGet();
+        Answer answer = call.get();
+        if (answer != null && answer.text() != null) entries.put(key, answer);
+        return text(answer);
+    }
+
+    private static String text(Answer answer) {
+        return answer == null ? null : answer.text();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    long hits() { return hits.get(); }
+    long misses() { return misses.get(); }
+    long bypassed() { return bypassed.get(); }
+    long savedTokens() { return savedTokens.get(); }
+    long savedMillis() { return savedMillis.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("assistant.llm.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Plain model calls answered from the response cache")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.cache.requests", bypassed, AtomicLong::get)
+                .tag("result", "bypass")
+                .description("Plain model calls made with the cache disabled")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.cache.evictions", entries, TtlLruCache::sizeEvictions)
+                .tag("cause", "size")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.cache.evictions", entries, TtlLruCache::expiredEvictions)
+                .tag("cause", "expired")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.cache.saved.tokens", savedTokens, AtomicLong::get)
+                .description("Model tokens not spent thanks to cache hits")
+                .baseUnit("tokens")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.cache.saved.time", savedMillis, AtomicLong::get)
+                .description("Model call time not spent thanks to cache hits")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("assistant.llm.cache.size", this, ResponseCache::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.travel.assistant.llm;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A {@link ChatLanguageModel} over an ordered chain of models: the first is the primary, the
+ * rest are fallbacks, tried in order when every attempt so far has failed.
+ *
+ * Hedging: when the primary has not answered after the {@code percentile} of its recent
+ * latencies (clamped to [min-delay, max-delay]), a second request goes to the next model in the
+ * chain, or to the primary again when there is none. The first answer wins and the other
+ * attempt is interrupted. Only the first attempt of a call is hedged, and at most once, so at
+ * the default p95 about one call in twenty costs a second request.
+ *
+ * A rejection by {@link LlmGateway} is not a model failure: it does not trigger a fallback, which
+ * would only be rejected as well, and a rejected hedge is ignored while the primary still runs.
+ */
+public class RoutedChatLanguageModel implements ChatLanguageModel {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutedChatLanguageModel.class);
+
+    /** Primary latencies the hedge delay is computed from. */
+    static final int WINDOW = 256;
+    /** Below this many samples the percentile means little; hedge after max-delay. */
+    static final int MIN_SAMPLES = 20;
+
+    public record Route(String name, ChatLanguageModel model) {}
+
+    private record Outcome(Attempt attempt, Object value, Throwable error) {}
+
+    private final class Attempt {
+        final Route route;
+        final long start = System.nanoTime();
+        volatile boolean cancelled;
+        Thread thread;
+
+        Attempt(Route route) { this.route = route; }
+
+        <T> void start(Function<ChatLanguageModel, T> call, BlockingQueue<Outcome> outcomes) {
+            thread = Thread.ofVirtual().name("llm-attempt-", 0).start(() -> {
+                Outcome o;
+                try {
+                    o = new Outcome(this, call.apply(route.model()), null);
+                } catch (Throwable t) {
+                    o = new Outcome(this, null, t);
+                }
+                record(this, cancelled ? "cancelled" : o.error() == null ? "success" : "error");
+                outcomes.add(o);
+            });
+        }
+    }
+
+    private final List<Route> routes;
+    private final boolean hedge;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final MeterRegistry registry;
+    private final long[] window = new long[WINDOW];
+    private long samples;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter fallbacks;
+
+    public RoutedChatLanguageModel(List<Route> routes, boolean hedge, double percentile,
+                                   long minDelayMs, long maxDelayMs, MeterRegistry registry) {
+        if (routes.isEmpty()) throw new IllegalArgumentException("at least one model is required");
+        this.routes = List.copyOf(routes);
+        this.hedge = hedge;
+        this.percentile = Math.min(1, Math.max(0, percentile));
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.maxDelayNanos = Math.max(minDelayNanos, TimeUnit.MILLISECONDS.toNanos(maxDelayMs));
+        this.registry = registry;
+        this.hedges = Counter.builder("assistant.llm.hedge.sent")
+                .description("Second requests sent because the primary was slow")
+                .register(registry);
+        this.hedgeWins = Counter.builder("assistant.llm.hedge.won")
+                .description("Hedge requests that answered first")
+                .register(registry);
+        this.fallbacks = Counter.builder("assistant.llm.fallback")
+                .description("Requests sent to the next model after every attempt failed")
+                .register(registry);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return route(m -> m.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return route(m -> m.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return route(m -> m.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        return route(m -> m.chat(request));
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return routes.get(0).model().supportedCapabilities();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T route(Function<ChatLanguageModel, T> call) {
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        List<Attempt> running = new ArrayList<>(2);
+        int next = 0;
+        Attempt primary = start(routes.get(next++), call, outcomes, running);
+        boolean hedged = !hedge;
+        long hedgeAt = primary.start + hedgeDelayNanos();
+        Throwable failure = null;
+        try {
+            while (true) {
+                Outcome o;
+                if (!hedged) {
+                    o = outcomes.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (o == null) {
+                        hedged = true;
+                        Route target = next < routes.size() ? routes.get(next++) : routes.get(0);
+                        log.debug("[RoutedChatLanguageModel] {} slower than {} ms; hedging to {}", primary.route.name(),
+                                TimeUnit.NANOSECONDS.toMillis(hedgeAt - primary.start), target.name());
+                        hedges.increment();
+                        start(target, call, outcomes, running);
+                        continue;
+                    }
+                } else {
+                    o = outcomes.take();
+                }
+                running.remove(o.attempt());
+                if (o.attempt() == primary && o.error() == null) remember(System.nanoTime() - primary.start);
+                if (o.error() == null) {
+                    if (o.attempt() != primary && running.contains(primary)) hedgeWins.increment();
+                    return (T) o.value();
+                }
+                if (failure == null || failure instanceof LlmRejectedException) failure = o.error();
+                if (!running.isEmpty()) continue;
+                if (o.error() instanceof LlmRejectedException || next >= routes.size()) break;
+                log.warn("[RoutedChatLanguageModel] {} failed ({}); falling back to {}",
+                        o.attempt().route.name(), o.error().toString(), routes.get(next).name());
+                fallbacks.increment();
+                hedged = true; // fallbacks are not hedged
+                start(routes.get(next++), call, outcomes, running);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the model");
+        } finally {
+            for (Attempt loser : running) {
+                loser.cancelled = true;
+                loser.thread.interrupt();
+                if (loser == primary) remember(System.nanoTime() - primary.start);
+            }
+        }
+        if (failure instanceof RuntimeException re) throw re;
+        if (failure instanceof Error err) throw err;
+        throw new IllegalStateException(failure);
+    }
+
+    private <T> Attempt start(Route route, Function<ChatLanguageModel, T> call,
+                              BlockingQueue<Outcome> outcomes, List<Attempt> running) {
+        Attempt a = new Attempt(route);
+        running.add(a);
+        a.start(call, outcomes);
+        return a;
+    }
+
+    private void record(Attempt a, String outcome) {
+        Timer.builder("assistant.llm.model.latency")
+                .description("Latency of each request to a model, hedges and fallbacks included")
+                .tag("model", a.route.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - a.start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Remembers how long the primary took. An attempt that lost to a hedge is recorded with the
+     * time it had run when cancelled: a lower bound, but dropping it would hide the slow tail
+     * and pull the percentile down.
+     */
+    private void remember(long nanos) {
+        synchronized (window) {
+            window[(int) (samples++ % WINDOW)] = nanos;
+        }
+    }
+
+    long hedgeDelayNanos() {
+        long[] copy;
+        synchronized (window) {
+            if (samples < MIN_SAMPLES) return maxDelayNanos;
+            copy = Arrays.copyOf(window, (int) Math.min(samples, WINDOW));
+        }
+        Arrays.sort(copy);
+        long p = copy[Math.max(0, Math.min(copy.length - 1, (int) Math.ceil(percentile * copy.length) - 1))];
+        return Math.min(maxDelayNanos, Math.max(minDelayNanos, p));
+    }
+}
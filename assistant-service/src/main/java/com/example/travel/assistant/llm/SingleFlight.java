@@ -0,0 +1,134 @@
+package com.example.travel.assistant.llm;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent model calls: the first caller for a key starts the call, and
+ * callers arriving with the same key while it is in flight wait for it and share its result or
+ * failure. Nothing is kept once the call completes; that is {@link ResponseCache}'s job.
+ *
+ * The call runs on its own virtual thread rather than the first caller's, so any caller may go
+ * away (its thread is interrupted) without failing the others. The call itself is interrupted
+ * only when every caller waiting for it has gone.
+ */
+@Component
+public class SingleFlight implements MeterBinder {
+
+    private static final class Flight<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        Thread worker;
+        int waiters = 1;
+    }
+
+    private final Map<Object, Flight<?>> flights = new HashMap<>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong followers = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    /**
+     * Returns the result of {@code call}, shared with every concurrent caller passing an equal
+     * key. Throws what the call threw, or {@link CancellationException} if this caller's thread
+     * is interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T run(Object key, Supplier<T> call) {
+        Flight<T> flight;
+        synchronized (flights) {
+            flight = (Flight<T>) flights.get(key);
+            if (flight != null) {
+                flight.waiters++;
+                followers.incrementAndGet();
+            } else {
+                flight = new Flight<>();
+                flights.put(key, flight);
+                leaders.incrementAndGet();
+                Flight<T> f = flight;
+                flight.worker = Thread.ofVirtual().name("llm-call-", 0).start(() -> complete(key, f, call));
+            }
+        }
+        try {
+            return flight.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leave(key, flight);
+            throw new CancellationException("Interrupted while waiting for the model");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private <T> void complete(Object key, Flight<T> flight, Supplier<T> call) {
+        try {
+            flight.result.complete(call.get());
+        } catch (Throwable t) {
+            flight.result.completeExceptionally(t);
+        } finally {
+            synchronized (flights) {
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    /** Drops a caller that stopped waiting; the last one to go cancels the call. */
+    private void leave(Object key, Flight<?> flight) {
+        synchronized (flights) {
+            if (--flight.waiters > 0 || flight.result.isDone()) return;
+            // no one is left to use the answer: free the key and stop the call
+            flights.remove(key, flight);
+            abandoned.incrementAndGet();
+        }
+        flight.worker.interrupt();
+    }
+
+    public int inFlight() {
+        synchronized (flights) {
+            return flights.size();
+        }
+    }
+
+    long leaders() { return leaders.get(); }
+    long followers() { return followers.get(); }
+    long abandoned() { return abandoned.get(); }
+
+    /** Share of calls that joined one already in flight, since startup. */
+    double coalescedRatio() {
+        long joined = followers.get();
+        long total = leaders.get() + joined;
+        return total == 0 ? 0 : (double) joined / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("assistant.llm.singleflight.calls", leaders, AtomicLong::get)
+                .tag("role", "leader")
+                .description("Model calls actually made")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.singleflight.calls", followers, AtomicLong::get)
+                .tag("role", "follower")
+                .description("Model calls that shared an identical call already in flight")
+                .register(registry);
+        FunctionCounter.builder("assistant.llm.singleflight.abandoned", abandoned, AtomicLong::get)
+                .description("Model calls interrupted because every caller had gone")
+                .register(registry);
+        Gauge.builder("assistant.llm.singleflight.inflight", this, SingleFlight::inFlight)
+                .register(registry);
+        Gauge.builder("assistant.llm.singleflight.coalesced.ratio", this, SingleFlight::coalescedRatio)
+                .description("Followers / all calls since startup")
+                .register(registry);
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.travel.assistant.memory;
 
+import com.example.travel.assistant.agent.TurnListener;
+
 /**
  * Simple thread-local holder for current conversation memory id.
  * AgentService sets it before delegating to the agent so tools can
  * access the memory id and write summaries into chat memory.
+ * A streaming turn also sets its {@link TurnListener}, so tool progress can be reported.
  */
 public final class ConversationContext {
 
     private ConversationContext() {}
 
     private static final ThreadLocal<String> MEMORY_ID = new ThreadLocal<>();
+    private static final ThreadLocal<TurnListener> LISTENER = new ThreadLocal<>();
 
     public static void setMemoryId(String memoryId) {
         if (memoryId == null || memoryId.isBlank()) {
@@ -23,7 +27,22 @@ public final class ConversationContext {
         return MEMORY_ID.get();
     }
 
+    public static void setListener(TurnListener listener) {
+        if (listener == null) {
+            LISTENER.remove();
+        } else {
+            LISTENER.set(listener);
+        }
+    }
+
+    /** Reports interim progress to the streaming client of the current turn, if any. */
+    public static void status(String message) {
+        TurnListener listener = LISTENER.get();
+        if (listener != null) listener.status(message);
+    }
+
     public static void clear() {
         MEMORY_ID.remove();
+        LISTENER.remove();
     }
 }
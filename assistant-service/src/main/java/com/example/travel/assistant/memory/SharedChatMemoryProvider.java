@@ -1,44 +1,96 @@
 package com.example.travel.assistant.memory;
 
+import com.example.travel.assistant.cache.TtlLruCache;
+import com.example.travel.assistant.session.InMemorySessionStore;
+import com.example.travel.assistant.session.SessionStore;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 /**
- * Shared memory registry storing per-session MessageWindowChatMemory instances
- * and exposing simple debug helpers to inspect/clear memory.
+ * Shared memory registry handing out per-session MessageWindowChatMemory views over the
+ * {@link SessionStore}, and exposing simple debug helpers to inspect/clear memory.
+ *
+ * A memory reads its messages on every access, so the provider keeps the messages of recently
+ * active sessions in the heap, with the same bounds as the session state: at most
+ * {@code maxSessions}, least recently used first out, and dropped after the idle TTL. Misses
+ * read through to the store and every change is written through, so an evicted session (or one
+ * from before a restart, with a persistent store) is reloaded on its next message.
  */
 public class SharedChatMemoryProvider {
 
-    private final ConcurrentHashMap<String, MessageWindowChatMemory> memories = new ConcurrentHashMap<>();
+    private final SessionStore store;
+    private final TtlLruCache<String, List<ChatMessage>> resident;
+    private final ChatMemoryStore cached = new CachedStore();
     private final int maxMessages;
 
     public SharedChatMemoryProvider() { this(20); }
 
-    public SharedChatMemoryProvider(int maxMessages) { this.maxMessages = maxMessages; }
+    public SharedChatMemoryProvider(int maxMessages) { this(maxMessages, new InMemorySessionStore()); }
+
+    public SharedChatMemoryProvider(int maxMessages, SessionStore store) {
+        this(maxMessages, store, 10_000, 1800L * 1_000_000_000L, System::nanoTime);
+    }
+
+    public SharedChatMemoryProvider(int maxMessages, SessionStore store, int maxSessions, long idleTtlNanos,
+                                    LongSupplier clock) {
+        this.maxMessages = maxMessages;
+        this.store = store;
+        this.resident = new TtlLruCache<>(maxSessions, idleTtlNanos, true, clock);
+    }
 
     public MessageWindowChatMemory get(Object memoryId) {
         String key = memoryId != null ? memoryId.toString() : "default";
-        return memories.computeIfAbsent(key, k -> MessageWindowChatMemory.withMaxMessages(maxMessages));
+        return MessageWindowChatMemory.builder().id(key).maxMessages(maxMessages).chatMemoryStore(cached).build();
     }
 
-    public Set<String> keys() { return new TreeSet<>(memories.keySet()); }
+    public Set<String> keys() { return store.sessionIds(); }
 
     public List<Map<String, Object>> dump(String sessionId) {
-        MessageWindowChatMemory m = memories.get(sessionId != null ? sessionId : "default");
-        if (m == null) return List.of();
-        return m.messages().stream().map(SharedChatMemoryProvider::toMap).collect(Collectors.toList());
+        return cached.getMessages(sessionId != null ? sessionId : "default").stream()
+                .map(SharedChatMemoryProvider::toMap).collect(Collectors.toList());
     }
 
     public void clear(String sessionId) {
-        MessageWindowChatMemory m = memories.get(sessionId != null ? sessionId : "default");
-        if (m != null) m.clear();
+        cached.deleteMessages(sessionId != null ? sessionId : "default");
+    }
+
+    /** Sessions whose messages are held in the heap. */
+    int residentSessions() { return resident.size(); }
+
+    /** The store behind a heap copy of each active session's messages. */
+    private final class CachedStore implements ChatMemoryStore {
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            String key = String.valueOf(memoryId);
+            List<ChatMessage> messages = resident.get(key);
+            if (messages != null) return messages;
+            messages = List.copyOf(store.getMessages(key));
+            resident.put(key, messages);
+            return messages;
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            String key = String.valueOf(memoryId);
+            store.updateMessages(key, messages);
+            resident.put(key, List.copyOf(messages));
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            String key = String.valueOf(memoryId);
+            store.deleteMessages(key);
+            resident.remove(key);
+        }
     }
 
     private static Map<String, Object> toMap(ChatMessage msg) {
@@ -0,0 +1,47 @@
+package com.example.travel.assistant.nlu;
+
+/**
+ * EN/RU keyword groups the server-side intents are built from. A cue is present when any of
+ * its phrases occurs in the prompt (case-insensitive); whole-word cues also require a
+ * non-letter/digit (or the text edge) on both sides of the phrase.
+ */
+public enum Cue {
+    /** Words that turn "my bookings" into something other than listing them. */
+    MODIFY_WORD(false, "cancel", "delete", "remove", "отмен", "удал"),
+    LIST_BOOKINGS(false, "show my bookings", "show bookings", "list bookings", "my bookings",
+            "мои брони", "мои бронирования", "покажи брони", "список брони", "список бронирований"),
+    RESCHEDULE(false, "reschedule", "rebook", "move flight", "change flight", "change booking",
+            "перенес", "перенести", "перенос", "сменить рейс", "изменить рейс", "изменить брон"),
+    RESCHEDULE_CONFIRM(false, "reschedule it", "confirm reschedule", "do reschedule", "перенеси", "подтверди перенос"),
+    /** Bare "reschedule" while a reschedule is pending confirms it. */
+    RESCHEDULE_WORD(false, "reschedule", "перенест", "перенос"),
+    CONFIRM(true, "confirm", "ok", "okay", "yes", "да", "ок"),
+    BOOK_PHRASE(false, "book it", "book that", "book this", "reserve"),
+    BOOK_WORD(true, "book"),
+    /** Words that keep a booking verb from creating a booking. */
+    CANCEL_OR_DELETE(false, "cancel", "delete", "отмен"),
+    CANCEL_BOOKING(false, "cancel booking", "delete booking", "отмени брон", "удали брон"),
+    CANCEL_WORD(true, "cancel"),
+    LAST(false, "last", "послед"),
+    ADVISE(false, "advise", "recommend", "suggest"),
+    BEST(false, "best", "cheapest", "lowest"),
+    CHEAPEST(false, "cheapest", "lowest"),
+    FLIGHT(false, "flight"),
+    FIRST(false, "first"),
+    SECOND(false, "second"),
+    THIRD(false, "third"),
+    FOURTH(false, "fourth"),
+    FIFTH(false, "fifth");
+
+    final boolean wholeWord;
+    final String[] phrases;
+
+    Cue(boolean wholeWord, String... phrases) {
+        this.wholeWord = wholeWord;
+        this.phrases = phrases;
+    }
+
+    long bit() {
+        return 1L << ordinal();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.travel.assistant.nlu;
+
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Intent and slot extraction for one user turn: a single Aho-Corasick pass finds every
+ * keyword cue, and a handful of precompiled patterns pull out the ordinal, booking id and
+ * route. The result is an immutable {@link TurnAnalysis} that all server-side branches read,
+ * computed once per turn.
+ */
+public final class IntentEngine {
+
+    private static final KeywordAutomaton KEYWORDS = new KeywordAutomaton(Cue.values());
+
+    private static final Cue[] ORDINAL_WORDS = {Cue.FIRST, Cue.SECOND, Cue.THIRD, Cue.FOURTH, Cue.FIFTH};
+    private static final String[] EXACT_BOOKINGS = {"bookings", "my bookings", "список броней", "брони", "мои брони"};
+
+    private static final Pattern NUMERIC_ORDINAL =
+            Pattern.compile("(?:^|\\s)(?:option|number|#)?\\s*(\\d+)(?:st|nd|rd|th)?\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern UUID =
+            Pattern.compile("\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    private static final Pattern IATA_ROUTE =
+            Pattern.compile("\\b([A-Z]{3})\\b\\s*(?:->|—|–|-| to |→)?\\s*\\b([A-Z]{3})\\b");
+    private static final Pattern FROM_TO =
+            Pattern.compile("(?i)from\\s+([A-Za-z\\-\\s]+?)\\s+to\\s+([A-Za-z\\-\\s]+)");
+    private static final Pattern FROM_ONLY =
+            Pattern.compile("(?i)from\\s+([A-Za-z]{3}|[A-Za-z\\-\\s]+?)(?:\\s+(?:on|at|by)\\b|[?.!,]|$)");
+    private static final Pattern IATA = Pattern.compile("\\b([A-Z]{3})\\b");
+
+    private IntentEngine() {}
+
+    /**
+     * @param dateParser resolves the turn's date (see {@link TurnAnalysis#date()}), called once
+     *                   here; may be null when no branch needs dates
+     */
+    public static TurnAnalysis analyze(String prompt, Function<String, String> dateParser) {
+        String text = prompt == null ? "" : prompt.trim();
+        long cues = KEYWORDS.scan(text);
+        return new TurnAnalysis(prompt, cues, exactBookings(text), ordinal(text, cues), uuid(text),
+                route(text), originOnly(text), dateParser == null ? null : dateParser.apply(prompt));
+    }
+
+    private static boolean exactBookings(String text) {
+        for (String s : EXACT_BOOKINGS) {
+            if (s.equalsIgnoreCase(text)) return true;
+        }
+        return false;
+    }
+
+    private static Integer ordinal(String text, long cues) {
+        for (int i = 0; i < ORDINAL_WORDS.length; i++) {
+            if ((cues & ORDINAL_WORDS[i].bit()) != 0) return i + 1;
+        }
+        Matcher m = NUMERIC_ORDINAL.matcher(text);
+        if (m.find()) {
+            try { return Integer.parseInt(m.group(1)); } catch (Exception ignore) {}
+        }
+        return null;
+    }
+
+    private static String uuid(String text) {
+        Matcher m = UUID.matcher(text);
+        return m.find() ? m.group() : null;
+    }
+
+    private static TurnAnalysis.Route route(String text) {
+        Matcher m = IATA_ROUTE.matcher(text);
+        if (m.find()) return new TurnAnalysis.Route(m.group(1), m.group(2));
+        m = FROM_TO.matcher(text);
+        if (m.find()) return new TurnAnalysis.Route(m.group(1).trim(), m.group(2).trim());
+        return null;
+    }
+
+    private static String originOnly(String text) {
+        Matcher m = FROM_ONLY.matcher(text);
+        if (m.find()) return m.group(1).trim();
+        m = IATA.matcher(text);
+        return m.find() ? m.group(1) : null;
+    }
+}
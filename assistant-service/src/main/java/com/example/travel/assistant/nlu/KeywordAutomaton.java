@@ -0,0 +1,134 @@
+package com.example.travel.assistant.nlu;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Aho-Corasick automaton over the phrases of every {@link Cue}: one left-to-right pass over
+ * the prompt finds all cues, however many phrases there are, instead of one
+ * {@code contains} scan per phrase.
+ *
+ * Characters are lower-cased on the fly. States are numbered from 0 (the root); each state
+ * keeps its outgoing edges in small parallel arrays, which stay short for keyword sets like
+ * these. Cues that need whole words are checked at match time against the characters
+ * around the match.
+ */
+final class KeywordAutomaton {
+
+    private char[][] edgeChars = new char[64][];
+    private int[][] edgeTargets = new int[64][];
+    private int[] fail;
+    /** Substring cues completed at the state, including those of its fail chain. */
+    private long[] output = new long[64];
+    /** Whole-word matches completed at the state: pairs of (cue bit index, phrase length). */
+    private int[][] wordOutput = new int[64][];
+    private int states = 1;
+
+    KeywordAutomaton(Cue... cues) {
+        for (Cue cue : cues) {
+            for (String phrase : cue.phrases) add(phrase.toLowerCase(Locale.ROOT), cue);
+        }
+        link();
+    }
+
+    private void add(String phrase, Cue cue) {
+        int s = 0;
+        for (int i = 0; i < phrase.length(); i++) {
+            int next = edge(s, phrase.charAt(i));
+            if (next < 0) next = newEdge(s, phrase.charAt(i));
+            s = next;
+        }
+        if (cue.wholeWord) wordOutput[s] = append(wordOutput[s], cue.ordinal(), phrase.length());
+        else output[s] |= cue.bit();
+    }
+
+    private int newEdge(int from, char c) {
+        if (states == output.length) {
+            int n = states * 2;
+            edgeChars = Arrays.copyOf(edgeChars, n);
+            edgeTargets = Arrays.copyOf(edgeTargets, n);
+            output = Arrays.copyOf(output, n);
+            wordOutput = Arrays.copyOf(wordOutput, n);
+        }
+        int to = states++;
+        char[] cs = edgeChars[from];
+        int k = cs == null ? 0 : cs.length;
+        edgeChars[from] = cs == null ? new char[]{c} : Arrays.copyOf(cs, k + 1);
+        edgeChars[from][k] = c;
+        edgeTargets[from] = edgeTargets[from] == null ? new int[]{to} : Arrays.copyOf(edgeTargets[from], k + 1);
+        edgeTargets[from][k] = to;
+        return to;
+    }
+
+    private int edge(int s, char c) {
+        char[] cs = edgeChars[s];
+        if (cs == null) return -1;
+        for (int i = 0; i < cs.length; i++) {
+            if (cs[i] == c) return edgeTargets[s][i];
+        }
+        return -1;
+    }
+
+    /** Breadth-first fail links; outputs are merged along them so a scan reads one state. */
+    private void link() {
+        fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        if (edgeTargets[0] != null) {
+            for (int t : edgeTargets[0]) queue.add(t);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            if (edgeChars[s] == null) continue;
+            for (int i = 0; i < edgeChars[s].length; i++) {
+                char c = edgeChars[s][i];
+                int t = edgeTargets[s][i];
+                int f = fail[s];
+                while (f != 0 && edge(f, c) < 0) f = fail[f];
+                int target = edge(f, c);
+                fail[t] = (target >= 0 && target != t) ? target : 0;
+                output[t] |= output[fail[t]];
+                if (wordOutput[fail[t]] != null) {
+                    for (int k = 0; k < wordOutput[fail[t]].length; k += 2) {
+                        wordOutput[t] = append(wordOutput[t], wordOutput[fail[t]][k], wordOutput[fail[t]][k + 1]);
+                    }
+                }
+                queue.add(t);
+            }
+        }
+    }
+
+    /** Bit set of the cues found in the text ({@link Cue#bit()}). */
+    long scan(CharSequence text) {
+        long found = 0;
+        int s = 0;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = edge(s, c)) < 0 && s != 0) s = fail[s];
+            s = Math.max(next, 0);
+            found |= output[s];
+            int[] words = wordOutput[s];
+            if (words != null) {
+                for (int k = 0; k < words.length; k += 2) {
+                    int start = i + 1 - words[k + 1];
+                    if (!wordChar(text, start - 1) && !wordChar(text, i + 1)) found |= 1L << words[k];
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean wordChar(CharSequence text, int i) {
+        return i >= 0 && i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+    }
+
+    private static int[] append(int[] pairs, int a, int b) {
+        int k = pairs == null ? 0 : pairs.length;
+        int[] out = pairs == null ? new int[2] : Arrays.copyOf(pairs, k + 2);
+        out[k] = a;
+        out[k + 1] = b;
+        return out;
+    }
+}
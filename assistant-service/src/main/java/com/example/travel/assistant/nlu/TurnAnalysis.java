@@ -0,0 +1,86 @@
+package com.example.travel.assistant.nlu;
+
+/**
+ * Everything the server-side intents need from one user turn, extracted once by
+ * {@link IntentEngine#analyze}. Session state (pending reschedules, last search) is not part of
+ * it; callers combine the two. Immutable.
+ */
+public final class TurnAnalysis {
+
+    /** Origin and destination as written (IATA codes or city names). */
+    public record Route(String origin, String destination) {}
+
+    private final String prompt;
+    private final long cues;
+    private final boolean exactBookings;
+    private final Integer ordinal;
+    private final String uuid;
+    private final Route route;
+    private final String originOnly;
+    private final String date;
+
+    TurnAnalysis(String prompt, long cues, boolean exactBookings, Integer ordinal, String uuid,
+                 Route route, String originOnly, String date) {
+        this.prompt = prompt;
+        this.cues = cues;
+        this.exactBookings = exactBookings;
+        this.ordinal = ordinal;
+        this.uuid = uuid;
+        this.route = route;
+        this.originOnly = originOnly;
+        this.date = date;
+    }
+
+    public String prompt() { return prompt; }
+
+    public boolean has(Cue cue) {
+        return (cues & cue.bit()) != 0;
+    }
+
+    /** 1-based option the turn refers to ("second", "2nd", "option 3"), or null. */
+    public Integer ordinal() { return ordinal; }
+
+    /** First booking id (UUID) in the turn, or null. */
+    public String uuid() { return uuid; }
+
+    /** "SFO -> JFK" or "from New York to London", or null. */
+    public Route route() { return route; }
+
+    /** Origin of "from X" without a destination (or a lone IATA code), or null. */
+    public String originOnly() { return originOnly; }
+
+    /** YYYY-MM-DD the turn mentions, or null. */
+    public String date() { return date; }
+
+    // ---- intents ----
+
+    /** "show my bookings", "мои брони", bare "bookings"; never when cancelling or deleting. */
+    public boolean bookingsIntent() {
+        if (has(Cue.MODIFY_WORD)) return false;
+        return has(Cue.LIST_BOOKINGS) || exactBookings;
+    }
+
+    public boolean rescheduleKeyword() { return has(Cue.RESCHEDULE); }
+
+    /** Words that confirm a pending reschedule: explicit phrases, a generic yes/ok, or the bare verb. */
+    public boolean rescheduleConfirmWords() {
+        return has(Cue.RESCHEDULE_CONFIRM) || has(Cue.CONFIRM) || has(Cue.RESCHEDULE_WORD);
+    }
+
+    /** "book it", "reserve", a standalone "book"; not while cancelling or deleting. */
+    public boolean bookCreateIntent() {
+        return (has(Cue.BOOK_PHRASE) || has(Cue.BOOK_WORD)) && !has(Cue.CANCEL_OR_DELETE);
+    }
+
+    public boolean cancelIntent() { return has(Cue.CANCEL_BOOKING) || has(Cue.CANCEL_WORD); }
+
+    public boolean wantsLast() { return has(Cue.LAST); }
+
+    public boolean adviseIntent() { return has(Cue.ADVISE); }
+
+    public boolean asksBest() { return has(Cue.BEST); }
+
+    public boolean cheapestIntent() { return has(Cue.CHEAPEST); }
+
+    public boolean flightIntent() { return has(Cue.CHEAPEST) || has(Cue.FLIGHT) || route != null; }
+}
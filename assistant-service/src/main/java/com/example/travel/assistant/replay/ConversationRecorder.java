@@ -0,0 +1,180 @@
+package com.example.travel.assistant.replay;
+
+import com.example.travel.assistant.memory.ConversationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Records every model call of the running service into a replay file for
+ * {@link ScriptedChatLanguageModel}: the session, the turn's prompt and step, how long the call
+ * took, and the tool calls or text the model answered. Off unless
+ * {@code assistant.replay.record-file} is set; the file is appended to.
+ *
+ * Prompts are written as users typed them, so a recording holds whatever personal data the
+ * conversations contained.
+ */
+@Component
+public class ConversationRecorder implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationRecorder.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path file;
+    private BufferedWriter out;
+
+    public ConversationRecorder(@Value("${assistant.replay.record-file:${ASSISTANT_REPLAY_RECORD_FILE:}}") String file) {
+        this.file = file == null || file.isBlank() ? null : Path.of(file);
+        if (this.file != null) log.info("[ConversationRecorder] Recording model calls to {}", this.file);
+    }
+
+    public boolean enabled() {
+        return file != null;
+    }
+
+    /** The model, recording its calls when recording is on. */
+    public ChatLanguageModel record(ChatLanguageModel model) {
+        if (!enabled()) return model;
+        return new ChatLanguageModel() {
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages) {
+                return recorded(messages, false, () -> model.generate(messages));
+            }
+
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+                return recorded(messages, false, () -> model.generate(messages, toolSpecifications));
+            }
+
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+                return recorded(messages, false, () -> model.generate(messages, toolSpecification));
+            }
+
+            @Override
+            public ChatResponse chat(ChatRequest request) {
+                boolean json = request.responseFormat() != null && request.responseFormat().type() == ResponseFormatType.JSON;
+                long start = System.nanoTime();
+                ChatResponse r = model.chat(request);
+                write(request.messages(), json, r == null ? null : r.aiMessage(), start);
+                return r;
+            }
+
+            @Override
+            public Set<Capability> supportedCapabilities() {
+                return model.supportedCapabilities();
+            }
+        };
+    }
+
+    /** The streaming model, recording each completed response when recording is on. */
+    public StreamingChatLanguageModel record(StreamingChatLanguageModel model) {
+        if (!enabled()) return model;
+        return new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                model.generate(messages, recording(messages, handler));
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications, StreamingResponseHandler<AiMessage> handler) {
+                model.generate(messages, toolSpecifications, recording(messages, handler));
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification, StreamingResponseHandler<AiMessage> handler) {
+                model.generate(messages, toolSpecification, recording(messages, handler));
+            }
+        };
+    }
+
+    private Response<AiMessage> recorded(List<ChatMessage> messages, boolean json, Supplier<Response<AiMessage>> call) {
+        long start = System.nanoTime();
+        Response<AiMessage> r = call.get();
+        write(messages, json, r == null ? null : r.content(), start);
+        return r;
+    }
+
+    private StreamingResponseHandler<AiMessage> recording(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        long start = System.nanoTime();
+        // the memory id is only set on the turn's thread; a model may complete on another one
+        String session = ConversationContext.getMemoryId();
+        return new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                write(session, messages, false, response == null ? null : response.content(), start);
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        };
+    }
+
+    private void write(List<ChatMessage> messages, boolean json, AiMessage answer, long start) {
+        write(ConversationContext.getMemoryId(), messages, json, answer, start);
+    }
+
+    private void write(String session, List<ChatMessage> messages, boolean json, AiMessage answer, long start) {
+        if (answer == null) return;
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        List<ReplayStep.ToolCall> toolCalls = answer.hasToolExecutionRequests()
+                ? answer.toolExecutionRequests().stream().map(t -> new ReplayStep.ToolCall(t.name(), t.arguments())).toList()
+                : null;
+        ReplayStep step = new ReplayStep(session, ReplayScript.prompt(messages), json, ReplayScript.step(messages),
+                millis, toolCalls == null ? answer.text() : null, toolCalls);
+        try {
+            String line = mapper.writeValueAsString(step);
+            synchronized (this) {
+                if (out == null) {
+                    Path parent = file.toAbsolutePath().getParent();
+                    if (parent != null) Files.createDirectories(parent);
+                    out = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                out.write(line);
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            // a recording is a by-product; never fail the user's turn over it
+            log.warn("[ConversationRecorder] Cannot record model call to {}: {}", file, e.toString());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.travel.assistant.replay;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How long the scripted model takes to answer a call. Specs:
+ * <pre>
+ *   none                       answer at once
+ *   recorded                   as long as the recorded call took (0 for unrecorded calls)
+ *   fixed:800                  always 800 ms
+ *   uniform:200-1500           uniformly between 200 and 1500 ms
+ *   lognormal:900:6000         median 900 ms, p99 6000 ms: the long tail of a hosted model
+ * </pre>
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+    /** z-score of the 99th percentile of the standard normal distribution. */
+    double Z_99 = 2.326;
+
+    /** Milliseconds to wait before answering; {@code recorded} is null for unrecorded calls. */
+    long millis(ReplayStep recorded);
+
+    /** Parses a spec and multiplies every latency by {@code scale}. */
+    static LatencyModel parse(String spec, double scale) {
+        String s = spec == null ? "" : spec.trim().toLowerCase(Locale.ROOT);
+        String[] parts = s.split(":");
+        LatencyModel base;
+        try {
+            base = switch (parts[0]) {
+                case "", "none" -> step -> 0;
+                case "recorded" -> step -> step == null ? 0 : step.millis();
+                case "fixed" -> {
+                    long ms = Long.parseLong(parts[1]);
+                    yield step -> ms;
+                }
+                case "uniform" -> {
+                    String[] range = parts[1].split("-");
+                    long min = Long.parseLong(range[0]);
+                    long max = Long.parseLong(range[1]);
+                    yield step -> ThreadLocalRandom.current().nextLong(min, max + 1);
+                }
+                case "lognormal" -> {
+                    double median = Double.parseDouble(parts[1]);
+                    double sigma = Math.log(Double.parseDouble(parts[2]) / median) / Z_99;
+                    yield step -> Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+                }
+                default -> throw new IllegalStateException("unknown latency model '" + parts[0] + "'");
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("assistant.replay.latency must be none, recorded, fixed:<ms>, "
+                    + "uniform:<min>-<max> or lognormal:<median>:<p99>, got '" + spec + "'", e);
+        }
+        if (scale == 1) return base;
+        return step -> Math.round(base.millis(step) * scale);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.travel.assistant.replay;
+
+import com.example.travel.assistant.llm.PromptNormalizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded model calls loaded from a replay file (JSON lines of {@link ReplayStep}), looked up
+ * by response format, prompt (whitespace-normalized) and step. When the same prompt was recorded
+ * more than once, the first recording of each step wins.
+ */
+public class ReplayScript {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayScript.class);
+    private static final PromptNormalizer NORMALIZER = PromptNormalizer.collapseWhitespace();
+
+    private record Key(boolean json, String prompt, int step) {}
+
+    private final Map<Key, ReplayStep> steps = new HashMap<>();
+
+    public ReplayScript(List<ReplayStep> recorded) {
+        for (ReplayStep s : recorded) {
+            if (s.prompt() == null) continue;
+            steps.putIfAbsent(new Key(s.json(), NORMALIZER.normalize(s.prompt()), s.step()), s);
+        }
+    }
+
+    /** Loads a replay file; a missing or empty path gives an empty script. */
+    public static ReplayScript load(String file) {
+        if (file == null || file.isBlank()) return new ReplayScript(List.of());
+        Path path = Path.of(file);
+        if (!Files.exists(path)) {
+            log.warn("[ReplayScript] Replay file {} not found; every call gets the default answer", path);
+            return new ReplayScript(List.of());
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        List<ReplayStep> recorded = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                try {
+                    recorded.add(mapper.readValue(line, ReplayStep.class));
+                } catch (IOException e) {
+                    log.warn("[ReplayScript] Skipping line {} of {}: {}", lineNo, path, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read replay file " + path, e);
+        }
+        ReplayScript script = new ReplayScript(recorded);
+        log.info("[ReplayScript] Loaded {} recorded model calls ({} distinct) from {}", recorded.size(), script.size(), path);
+        return script;
+    }
+
+    public ReplayStep find(boolean json, String prompt, int step) {
+        return prompt == null ? null : steps.get(new Key(json, NORMALIZER.normalize(prompt), step));
+    }
+
+    public int size() {
+        return steps.size();
+    }
+
+    /** The text of the last user message: the turn's prompt. */
+    static String prompt(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage u) return u.hasSingleText() ? u.singleText() : u.toString();
+        }
+        return null;
+    }
+
+    /** How many model answers the turn has had since its prompt: the step of the next call. */
+    static int step(List<ChatMessage> messages) {
+        int step = 0;
+        for (int i = messages.size() - 1; i >= 0 && !(messages.get(i) instanceof UserMessage); i--) {
+            if (messages.get(i) instanceof AiMessage) step++;
+        }
+        return step;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.travel.assistant.replay;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One recorded model call, a line of the replay file: what the model answered to {@code prompt}
+ * at {@code step} of the turn (0 for the first call, 1 for the call after the first round of
+ * tool results, ...). The answer is either {@code toolCalls} or {@code text}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReplayStep(String session, String prompt, boolean json, int step, long millis,
+                         String text, List<ToolCall> toolCalls) {
+
+    public record ToolCall(String name, String arguments) {}
+
+    public boolean hasToolCalls() {
+        return toolCalls != null && !toolCalls.isEmpty();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.travel.assistant.replay;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for Gemini that answers from a {@link ReplayScript}: for the turn's prompt and
+ * step it returns the recorded tool calls or text, after a delay drawn from a
+ * {@link LatencyModel}. The tools themselves run for real, so a replay exercises the whole agent
+ * pipeline without the network. Calls that were not recorded get {@code defaultAnswer}, or
+ * {@code {}} when JSON was asked for.
+ *
+ * Like the Gemini streaming model, streaming runs on the caller's thread.
+ */
+public class ScriptedChatLanguageModel implements ChatLanguageModel, StreamingChatLanguageModel {
+
+    private final ReplayScript script;
+    private final LatencyModel latency;
+    private final String defaultAnswer;
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong unscripted = new AtomicLong();
+
+    public ScriptedChatLanguageModel(ReplayScript script, LatencyModel latency, String defaultAnswer) {
+        this.script = script;
+        this.latency = latency;
+        this.defaultAnswer = defaultAnswer;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return answer(messages, false);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return answer(messages, false);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return answer(messages, false);
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        boolean json = request.responseFormat() != null && request.responseFormat().type() == ResponseFormatType.JSON;
+        Response<AiMessage> r = answer(request.messages(), json);
+        return ChatResponse.builder()
+                .aiMessage(r.content())
+                .tokenUsage(r.tokenUsage())
+                .finishReason(r.finishReason())
+                .build();
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        generate(messages, List.of(), handler);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification, StreamingResponseHandler<AiMessage> handler) {
+        generate(messages, List.of(toolSpecification), handler);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications, StreamingResponseHandler<AiMessage> handler) {
+        Response<AiMessage> r;
+        try {
+            r = answer(messages, false);
+        } catch (RuntimeException e) {
+            handler.onError(e);
+            return;
+        }
+        String text = r.content().text();
+        if (text != null) {
+            // word by word, so clients see the answer build up as with a real stream
+            for (String token : text.split("(?<= )")) handler.onNext(token);
+        }
+        handler.onComplete(r);
+    }
+
+    private Response<AiMessage> answer(List<ChatMessage> messages, boolean json) {
+        ReplayStep step = script.find(json, ReplayScript.prompt(messages), ReplayScript.step(messages));
+        sleep(latency.millis(step));
+        if (step == null) {
+            unscripted.incrementAndGet();
+            return Response.from(AiMessage.from(json ? "{}" : defaultAnswer), new TokenUsage(0, 0), FinishReason.STOP);
+        }
+        replayed.incrementAndGet();
+        if (step.hasToolCalls()) {
+            List<ToolExecutionRequest> calls = new ArrayList<>(step.toolCalls().size());
+            for (ReplayStep.ToolCall c : step.toolCalls()) {
+                calls.add(ToolExecutionRequest.builder()
+                        .id("replay-" + calls.size())
+                        .name(c.name())
+                        .arguments(c.arguments())
+                        .build());
+            }
+            return Response.from(AiMessage.from(calls), new TokenUsage(0, 0), FinishReason.TOOL_EXECUTION);
+        }
+        return Response.from(AiMessage.from(step.text() == null ? "" : step.text()), new TokenUsage(0, 0), FinishReason.STOP);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while simulating model latency");
+        }
+    }
+
+    /** Calls answered from the script. */
+    public long replayed() { return replayed.get(); }
+
+    /** Calls that were not in the script and got the default answer. */
+    public long unscripted() { return unscripted.get(); }
+}
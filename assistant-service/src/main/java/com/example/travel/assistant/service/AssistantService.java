@@ -1,16 +1,22 @@
 package com.example.travel.assistant.service;
 
+import com.example.travel.assistant.llm.LlmRejectedException;
+import com.example.travel.assistant.llm.ResponseCache;
+import com.example.travel.assistant.llm.SingleFlight;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.request.ResponseFormat;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class AssistantService {
@@ -20,30 +26,31 @@ public class AssistantService {
     private static final String OFFLINE_SYSTEM = "You operate fully offline. Use only internal tools and provided context. Prefer tool calls for factual data. Ask only for missing details. Do not suggest external websites or apps. Keep replies short and plain text.";
 
     private final ChatLanguageModel model;
+    private final ResponseCache cache;
+    private final SingleFlight singleFlight;
 
-    public AssistantService(ChatLanguageModel model) {
+    /** Identical requests to the same model; the model bean fixes model name and temperature. */
+    private record Call(ChatLanguageModel model, ChatRequest request) {}
+
+    @Autowired
+    public AssistantService(ChatLanguageModel model, ResponseCache cache, SingleFlight singleFlight) {
         this.model = model;
+        this.cache = cache;
+        this.singleFlight = singleFlight;
+    }
+
+    AssistantService(ChatLanguageModel model) {
+        this(model, ResponseCache.disabled(), new SingleFlight());
     }
 
     private String askWithModel(String prompt, boolean jsonFormat) {
         String safePrompt = prompt == null ? "" : prompt;
-        long start = System.currentTimeMillis();
         try {
-            ChatRequest.Builder builder = ChatRequest.builder();
-            if (jsonFormat) {
-                builder.responseFormat(ResponseFormat.JSON)
-                        .messages(List.of(UserMessage.from(safePrompt)));
-            } else {
-                builder.messages(List.of(
-                        SystemMessage.from(OFFLINE_SYSTEM),
-                        UserMessage.from(safePrompt)
-                ));
-            }
-            ChatResponse resp = model.chat(builder.build());
-            long dur = System.currentTimeMillis() - start;
-            String out = resp != null && resp.aiMessage() != null ? resp.aiMessage().text() : null;
-            log.debug("[AssistantService] LLM ask{} done in {} ms; len(response)={}", jsonFormat ? "(json)" : "", dur, out == null ? 0 : out.length());
-            return out;
+            return cache.get(jsonFormat, safePrompt, () -> call(safePrompt, jsonFormat));
+        } catch (LlmRejectedException ex) {
+            throw ex; // not admitted: let the caller answer 429/503 instead of retrying here
+        } catch (CancellationException ex) {
+            throw ex; // the caller went away; nobody wants a fallback answer
         } catch (Exception ex) {
             log.warn("[AssistantService] LLM ask{} error: {}", jsonFormat ? "(json)" : "", ex.toString());
             if (jsonFormat) {
@@ -57,6 +64,30 @@ public class AssistantService {
         }
     }
 
+    private ResponseCache.Answer call(String prompt, boolean jsonFormat) {
+        long start = System.currentTimeMillis();
+        ChatRequest.Builder builder = ChatRequest.builder();
+        if (jsonFormat) {
+            builder.responseFormat(ResponseFormat.JSON)
+                    .messages(List.of(UserMessage.from(prompt)));
+        } else {
+            builder.messages(List.of(
+                    SystemMessage.from(OFFLINE_SYSTEM),
+                    UserMessage.from(prompt)
+            ));
+        }
+        ChatRequest request = builder.build();
+        ChatResponse resp = singleFlight.run(new Call(model, request), () -> model.chat(request));
+        long dur = System.currentTimeMillis() - start;
+        String out = resp != null && resp.aiMessage() != null ? resp.aiMessage().text() : null;
+        log.debug("[AssistantService] LLM ask{} done in {} ms; len(response)={}", jsonFormat ? "(json)" : "", dur, out == null ? 0 : out.length());
+        TokenUsage usage = resp != null ? resp.tokenUsage() : null;
+        long tokens = usage != null && usage.totalTokenCount() != null
+                ? usage.totalTokenCount()
+                : (prompt.length() + (out == null ? 0 : out.length())) / 4; // ~4 chars per token when not reported
+        return new ResponseCache.Answer(out, tokens, dur);
+    }
+
     public String ask(String prompt) {
         return askWithModel(prompt, false);
     }
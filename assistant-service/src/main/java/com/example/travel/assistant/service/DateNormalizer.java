@@ -0,0 +1,311 @@
+package com.example.travel.assistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes the date mentioned in a user message to ISO YYYY-MM-DD.
+ *
+ * A rule-based EN/RU parser runs first and covers ISO and numeric dates, month names
+ * ("Dec 12", "12 декабря"), relative days ("tomorrow", "через 3 дня") and weekdays
+ * ("next Friday", "в пятницу"); a missing year resolves to the nearest future date. The LLM
+ * is asked only when the local parser finds something date-like it cannot resolve on its own
+ * (an invalid or day/month-ambiguous date, several different dates, "next week", a month
+ * without a day); text without any date mention never leaves the process.
+ */
+@Component
+public class DateNormalizer implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(DateNormalizer.class);
+
+    public enum Outcome { DATE, NONE, AMBIGUOUS }
+
+    /** Local parse result; {@code date} is set only for {@link Outcome#DATE}. */
+    public record Parse(Outcome outcome, LocalDate date) {
+        static final Parse NONE = new Parse(Outcome.NONE, null);
+        static final Parse AMBIGUOUS = new Parse(Outcome.AMBIGUOUS, null);
+    }
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS;
+
+    private static final String EN_MONTH = "(jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?|sept?(?:ember)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?)";
+    private static final String RU_MONTH = "(январ[яь]|янв|феврал[яь]|фев|марта?|апрел[яь]|апр|ма[яй]|июн[яь]|июл[яь]|августа?|авг|сентябр[яь]|сент?|октябр[яь]|окт|ноябр[яь]|нояб?|декабр[яь]|дек)";
+    private static final String YEAR = "(?:,?\\s+(\\d{4})(?:\\s*(?:года|год|г)\\b\\.?)?)?";
+
+    private static final Pattern UUID = Pattern.compile("\\b[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\b", FLAGS);
+    private static final Pattern ISO = Pattern.compile("(?<![\\d.])(\\d{4})[-/.](\\d{1,2})[-/.](\\d{1,2})(?![\\d.])", FLAGS);
+    private static final Pattern DOTTED = Pattern.compile("(?<![\\d.$€£₽])(\\d{1,2})\\.(\\d{1,2})(?:\\.(\\d{4}|\\d{2}))?(?![\\d.])", FLAGS);
+    private static final Pattern SLASHED = Pattern.compile("(?<![\\d/])(\\d{1,2})/(\\d{1,2})(?:/(\\d{4}|\\d{2}))?(?![\\d/])", FLAGS);
+    private static final Pattern EN_MONTH_DAY = Pattern.compile("\\b" + EN_MONTH + "\\.?\\s+(\\d{1,2})(?:st|nd|rd|th)?\\b" + YEAR, FLAGS);
+    private static final Pattern EN_DAY_MONTH = Pattern.compile("\\b(\\d{1,2})(?:st|nd|rd|th)?\\s+(?:of\\s+)?" + EN_MONTH + "\\b\\.?" + YEAR, FLAGS);
+    private static final Pattern RU_DAY_MONTH = Pattern.compile("\\b(\\d{1,2})(?:-?го)?\\s+" + RU_MONTH + "\\b\\.?" + YEAR, FLAGS);
+    private static final Pattern RELATIVE_DAY = Pattern.compile("\\b(day after tomorrow|послезавтра|tomorrow|завтра|today|tonight|сегодня)\\b", FLAGS);
+    private static final Pattern IN_DAYS = Pattern.compile("\\b(?:in|через)\\s+(\\d{1,3}|a|an|one|two|three|одн[уа]|один|два|две|три)?\\s*(days?|weeks?|дн[ейяь]+|день|недел[юиья]+)\\b", FLAGS);
+    private static final Pattern EN_WEEKDAY = Pattern.compile("\\b(?:(next|this|coming|on)\\s+)?(monday|tuesday|wednesday|thursday|friday|saturday|sunday)\\b", FLAGS);
+    private static final Pattern RU_WEEKDAY = Pattern.compile("\\b(?:(?:в|во)\\s+)?(?:(следующ\\w*|эт[оуи]\\w*|ближайш\\w*)\\s+)?(понедельник|вторник|сред[ау]|четверг|пятниц[ау]|суббот[ау]|воскресенье)\\b", FLAGS);
+    /** Date-like phrases the rules do not resolve: worth asking the LLM when nothing else matched. */
+    private static final Pattern VAGUE = Pattern.compile("\\b(next week|this week|weekend|next month|end of (?:the )?month|beginning of|middle of|"
+            + "january|february|march|april|june|july|august|september|october|november|december|"
+            + "недел|выходн|месяц|январ|феврал|март|апрел|мае|июн|июл|август|сентябр|октябр|ноябр|декабр)", FLAGS);
+
+    private static final Map<String, DayOfWeek> WEEKDAYS = Map.ofEntries(
+            Map.entry("monday", DayOfWeek.MONDAY), Map.entry("tuesday", DayOfWeek.TUESDAY),
+            Map.entry("wednesday", DayOfWeek.WEDNESDAY), Map.entry("thursday", DayOfWeek.THURSDAY),
+            Map.entry("friday", DayOfWeek.FRIDAY), Map.entry("saturday", DayOfWeek.SATURDAY),
+            Map.entry("sunday", DayOfWeek.SUNDAY), Map.entry("понедельник", DayOfWeek.MONDAY),
+            Map.entry("вторник", DayOfWeek.TUESDAY), Map.entry("сред", DayOfWeek.WEDNESDAY),
+            Map.entry("четверг", DayOfWeek.THURSDAY), Map.entry("пятниц", DayOfWeek.FRIDAY),
+            Map.entry("суббот", DayOfWeek.SATURDAY), Map.entry("воскресенье", DayOfWeek.SUNDAY));
+
+    private final Function<String, String> askJson;
+    private final Clock clock;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong localDates = new AtomicLong();
+    private final AtomicLong localNone = new AtomicLong();
+    private final AtomicLong llmDates = new AtomicLong();
+    private final AtomicLong llmNone = new AtomicLong();
+
+    @Autowired
+    public DateNormalizer(AssistantService llm) {
+        this(llm::askJson, Clock.systemDefaultZone());
+    }
+
+    DateNormalizer(Function<String, String> askJson, Clock clock) {
+        this.askJson = askJson;
+        this.clock = clock;
+    }
+
+    /** The date mentioned in the text as YYYY-MM-DD, or null when there is none. */
+    public String normalize(String text) {
+        if (text == null || text.isBlank()) return null;
+        LocalDate today = LocalDate.now(clock);
+        Parse local = parse(text, today);
+        if (local.outcome() == Outcome.DATE) {
+            localDates.incrementAndGet();
+            return local.date().toString();
+        }
+        if (local.outcome() == Outcome.NONE) {
+            localNone.incrementAndGet();
+            return null;
+        }
+        String date = askLlm(text, today);
+        (date != null ? llmDates : llmNone).incrementAndGet();
+        return date;
+    }
+
+    /** Rule-based parse relative to {@code today}; never calls the LLM. */
+    public Parse parse(String text, LocalDate today) {
+        if (text == null || text.isBlank()) return Parse.NONE;
+        StringBuilder s = new StringBuilder(UUID.matcher(text).replaceAll(" "));
+        Set<LocalDate> found = new LinkedHashSet<>();
+        boolean[] unclear = {false};
+
+        scan(s, ISO, m -> explicit(m.group(1), m.group(2), m.group(3)), found, unclear);
+        scan(s, EN_MONTH_DAY, m -> monthDay(today, month(m.group(1)), m.group(2), m.group(3)), found, unclear);
+        scan(s, EN_DAY_MONTH, m -> monthDay(today, month(m.group(2)), m.group(1), m.group(3)), found, unclear);
+        scan(s, RU_DAY_MONTH, m -> monthDay(today, month(m.group(2)), m.group(1), m.group(3)), found, unclear);
+        scan(s, DOTTED, m -> {
+            // D.M[.Y], the RU convention; a number like 12.50 is a price, not a date
+            int d = Integer.parseInt(m.group(1));
+            int mo = Integer.parseInt(m.group(2));
+            if (mo < 1 || mo > 12 || d < 1) return SKIP;
+            return m.group(3) != null ? explicit(year(m.group(3)), String.valueOf(mo), String.valueOf(d)) : monthDay(today, mo, m.group(1), null);
+        }, found, unclear);
+        scan(s, SLASHED, m -> {
+            int a = Integer.parseInt(m.group(1));
+            int b = Integer.parseInt(m.group(2));
+            int mo, d;
+            if (a > 12 && b <= 12) { d = a; mo = b; }
+            else if (b > 12 && a <= 12) { mo = a; d = b; }
+            else if (a == b) { mo = a; d = a; }
+            else return null; // 03/04: March 4 or 3 April
+            return m.group(3) != null ? explicit(year(m.group(3)), String.valueOf(mo), String.valueOf(d)) : monthDay(today, mo, String.valueOf(d), null);
+        }, found, unclear);
+        scan(s, RELATIVE_DAY, m -> switch (m.group(1).toLowerCase(Locale.ROOT)) {
+            case "day after tomorrow", "послезавтра" -> today.plusDays(2);
+            case "tomorrow", "завтра" -> today.plusDays(1);
+            default -> today;
+        }, found, unclear);
+        scan(s, IN_DAYS, m -> {
+            String unit = m.group(2).toLowerCase(Locale.ROOT);
+            boolean weeks = unit.startsWith("week") || unit.startsWith("недел");
+            // "через неделю" is one week; "in days" says nothing
+            int n = m.group(1) == null ? (weeks ? 1 : -1) : count(m.group(1));
+            if (n < 0) return null;
+            return weeks ? today.plusWeeks(n) : today.plusDays(n);
+        }, found, unclear);
+        scan(s, EN_WEEKDAY, m -> weekday(today, m.group(1), WEEKDAYS.get(m.group(2).toLowerCase(Locale.ROOT))), found, unclear);
+        scan(s, RU_WEEKDAY, m -> weekday(today, m.group(1), ruWeekday(m.group(2))), found, unclear);
+
+        if (unclear[0] || found.size() > 1) return Parse.AMBIGUOUS;
+        if (found.size() == 1) return new Parse(Outcome.DATE, found.iterator().next());
+        return VAGUE.matcher(s).find() ? Parse.AMBIGUOUS : Parse.NONE;
+    }
+
+    /** Marker for a match that turned out not to be a date at all. */
+    private static final LocalDate SKIP = LocalDate.MIN;
+
+    /**
+     * Applies one rule and blanks what it matched, so later rules don't read a part of it
+     * again ("day after tomorrow" is not also "tomorrow"). A null date marks the text unclear.
+     */
+    private static void scan(StringBuilder s, Pattern p, Function<Matcher, LocalDate> rule,
+                             Set<LocalDate> found, boolean[] unclear) {
+        Matcher m = p.matcher(s);
+        while (m.find()) {
+            LocalDate d;
+            try {
+                d = rule.apply(m);
+            } catch (DateTimeException | NumberFormatException e) {
+                d = null;
+            }
+            if (d == SKIP) continue;
+            if (d == null) unclear[0] = true;
+            else found.add(d);
+            for (int i = m.start(); i < m.end(); i++) s.setCharAt(i, ' ');
+        }
+    }
+
+    private static LocalDate explicit(String year, String month, String day) {
+        return LocalDate.of(Integer.parseInt(year), Integer.parseInt(month), Integer.parseInt(day));
+    }
+
+    /** Day and month with an optional year; without one, the nearest date on or after today. */
+    private static LocalDate monthDay(LocalDate today, int month, String day, String year) {
+        int d = Integer.parseInt(day);
+        if (year != null) return LocalDate.of(Integer.parseInt(year), month, d);
+        if (month < 1 || month > 12 || d < 1 || d > 31) return null;
+        for (int y = today.getYear(); y <= today.getYear() + 4; y++) { // Feb 29 waits for a leap year
+            try {
+                LocalDate candidate = LocalDate.of(y, month, d);
+                if (!candidate.isBefore(today)) return candidate;
+            } catch (DateTimeException ignore) {
+                if (d > 29 || month != 2) return null; // April 31 never exists
+            }
+        }
+        return null;
+    }
+
+    private static String year(String y) {
+        return y.length() == 2 ? "20" + y : y;
+    }
+
+    private static int month(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        String[][] prefixes = {
+                {"jan", "янв"}, {"feb", "фев"}, {"mar", "мар"}, {"apr", "апр"}, {"may", "ма"}, {"jun", "июн"},
+                {"jul", "июл"}, {"aug", "авг"}, {"sep", "сен"}, {"oct", "окт"}, {"nov", "ноя"}, {"dec", "дек"}};
+        for (int i = 0; i < prefixes.length; i++) {
+            for (String p : prefixes[i]) {
+                if (n.startsWith(p)) return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int count(String word) {
+        return switch (word.toLowerCase(Locale.ROOT)) {
+            case "a", "an", "one", "один", "одна", "одну" -> 1;
+            case "two", "два", "две" -> 2;
+            case "three", "три" -> 3;
+            default -> {
+                try {
+                    yield Integer.parseInt(word);
+                } catch (NumberFormatException e) {
+                    yield -1;
+                }
+            }
+        };
+    }
+
+    private static DayOfWeek ruWeekday(String word) {
+        String w = word.toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, DayOfWeek> e : WEEKDAYS.entrySet()) {
+            if (w.startsWith(e.getKey())) return e.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * "this Friday" may be today; "Friday", "next Friday" and "в пятницу" are the first one
+     * after today.
+     */
+    private static LocalDate weekday(LocalDate today, String qualifier, DayOfWeek day) {
+        if (day == null) return null;
+        String q = qualifier == null ? "" : qualifier.toLowerCase(Locale.ROOT);
+        if (q.equals("this") || q.startsWith("эт")) return today.with(TemporalAdjusters.nextOrSame(day));
+        return today.with(TemporalAdjusters.next(day));
+    }
+
+    private String askLlm(String text, LocalDate today) {
+        try {
+            String prompt = String.join("\n",
+                    "Task: Extract a concrete calendar date from the user's text and normalize it to ISO YYYY-MM-DD.",
+                    "Rules:",
+                    "- Languages: EN and RU.",
+                    "- If the text does not clearly contain a date, do not guess; return hasDate=false and date=null.",
+                    "- If the year is missing but a month/day are present, infer the NEAREST FUTURE date relative to 'now'.",
+                    "- Do not infer a date from booking contexts, IDs, or general phrases; only from explicit date mentions.",
+                    "- Respond with JSON only.",
+                    "now: " + today,
+                    "text: " + text,
+                    "Return JSON schema: {\"hasDate\": true|false, \"date\": \"YYYY-MM-DD\" | null, \"confidence\": number }");
+            String json = askJson.apply(prompt);
+            if (json != null && json.trim().startsWith("{")) {
+                Map<?, ?> map = mapper.readValue(json, Map.class);
+                Object has = map.get("hasDate");
+                boolean hasDate = has instanceof Boolean ? (Boolean) has : Boolean.parseBoolean(String.valueOf(has));
+                Object d = map.get("date");
+                Object confObj = map.get("confidence");
+                double conf = 1.0;
+                try { if (confObj != null) conf = Double.parseDouble(String.valueOf(confObj)); } catch (Exception ignore) {}
+                if (hasDate && d != null && conf >= 0.6) {
+                    return LocalDate.parse(String.valueOf(d).trim()).toString();
+                }
+            }
+        } catch (Exception e) {
+            log.debug("[DateNormalizer] LLM date fallback failed: {}", e.toString());
+        }
+        return null;
+    }
+
+    long localDates() { return localDates.get(); }
+    long localNone() { return localNone.get(); }
+    long llmCalls() { return llmDates.get() + llmNone.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        register(registry, localDates, "local", "date");
+        register(registry, localNone, "local", "none");
+        register(registry, llmDates, "llm", "date");
+        register(registry, llmNone, "llm", "none");
+    }
+
+    private static void register(MeterRegistry registry, AtomicLong counter, String source, String result) {
+        FunctionCounter.builder("assistant.nlu.date.parse", counter, AtomicLong::get)
+                .tag("source", source)
+                .tag("result", result)
+                .description("Date normalizations by where they were resolved")
+                .register(registry);
+    }
+}
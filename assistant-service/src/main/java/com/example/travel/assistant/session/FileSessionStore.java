@@ -0,0 +1,254 @@
+package com.example.travel.assistant.session;
+
+import dev.langchain4j.data.message.ChatMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded, single-file session store: an append-only log of {@link SessionCodec} records with
+ * an in-heap index of where each session's latest messages and state start.
+ *
+ * Layout: the magic {@code SESSLOG1}, then records of
+ * <pre>
+ *   body length (int) | CRC32 of body (int) | kind (byte) | session id (string) | payload
+ * </pre>
+ * Every write appends a record; deletes append a tombstone. Opening the file replays it to
+ * rebuild the index and cuts off a torn record at the tail (a crash mid-write). Writes are not
+ * forced to disk until {@link #flush()}, which {@link WriteBehindSessionStore} calls once per
+ * batch. When less than half of a large file is live, the next flush rewrites it with only
+ * the latest records.
+ */
+public class FileSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSessionStore.class);
+
+    static final byte[] MAGIC = "SESSLOG1".getBytes(StandardCharsets.US_ASCII);
+    private static final int RECORD_HEADER = 8;
+    private static final long COMPACT_MIN_BYTES = 8L << 20;
+
+    private static final byte MESSAGES = 1;
+    private static final byte STATE = 2;
+    private static final byte MESSAGES_DELETED = 3;
+    private static final byte STATE_DELETED = 4;
+
+    private record Loc(long offset, int length) {}
+
+    private final Path file;
+    private final long compactMinBytes;
+    private FileChannel channel;
+    private long end;
+    private long liveBytes;
+    private final Map<String, Loc> messages = new HashMap<>();
+    private final Map<String, Loc> states = new HashMap<>();
+
+    public FileSessionStore(Path file) {
+        this(file, COMPACT_MIN_BYTES);
+    }
+
+    FileSessionStore(Path file, long compactMinBytes) {
+        this.file = file;
+        this.compactMinBytes = compactMinBytes;
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open session store " + file, e);
+        }
+        log.info("[FileSessionStore] Opened {}: {} sessions with messages, {} with state, {} bytes ({} live)",
+                file, messages.size(), states.size(), end, liveBytes);
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        messages.clear();
+        states.clear();
+        liveBytes = 0;
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+            end = MAGIC.length;
+            return;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        channel.read(magic, 0);
+        if (!Arrays.equals(magic.array(), MAGIC)) throw new IOException("Not a session store: bad magic in " + file);
+        long pos = MAGIC.length;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (pos + RECORD_HEADER <= size) {
+            header.clear();
+            channel.read(header, pos);
+            int length = header.getInt(0);
+            if (length <= 0 || pos + RECORD_HEADER + length > size) break;
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, pos + RECORD_HEADER);
+            if (crc(body.array()) != header.getInt(4)) break;
+            body.flip();
+            byte kind = body.get();
+            String id = SessionCodec.string(body);
+            index(kind, id, new Loc(pos, RECORD_HEADER + length));
+            pos += RECORD_HEADER + length;
+        }
+        if (pos < size) {
+            log.warn("[FileSessionStore] Dropping {} bytes of incomplete records at the end of {}", size - pos, file);
+            channel.truncate(pos);
+        }
+        end = pos;
+    }
+
+    private void index(byte kind, String id, Loc loc) {
+        Loc old = switch (kind) {
+            case MESSAGES -> messages.put(id, loc);
+            case STATE -> states.put(id, loc);
+            case MESSAGES_DELETED -> messages.remove(id);
+            case STATE_DELETED -> states.remove(id);
+            default -> throw new IllegalStateException("Corrupt session store: record kind " + kind);
+        };
+        if (old != null) liveBytes -= old.length;
+        if (kind == MESSAGES || kind == STATE) liveBytes += loc.length;
+    }
+
+    @Override
+    public synchronized List<ChatMessage> getMessages(Object memoryId) {
+        ByteBuffer payload = read(messages.get(String.valueOf(memoryId)));
+        return payload == null ? List.of() : SessionCodec.decodeMessages(payload);
+    }
+
+    @Override
+    public synchronized void updateMessages(Object memoryId, List<ChatMessage> list) {
+        append(MESSAGES, String.valueOf(memoryId), SessionCodec.encodeMessages(list));
+    }
+
+    @Override
+    public synchronized void deleteMessages(Object memoryId) {
+        String id = String.valueOf(memoryId);
+        if (messages.containsKey(id)) append(MESSAGES_DELETED, id, new byte[0]);
+    }
+
+    @Override
+    public synchronized SessionState loadState(String memoryId) {
+        ByteBuffer payload = read(states.get(memoryId));
+        return payload == null ? null : SessionCodec.decodeState(payload);
+    }
+
+    @Override
+    public synchronized void saveState(String memoryId, SessionState state) {
+        if (state == null || state.isEmpty()) {
+            if (states.containsKey(memoryId)) append(STATE_DELETED, memoryId, new byte[0]);
+        } else {
+            append(STATE, memoryId, SessionCodec.encodeState(state));
+        }
+    }
+
+    @Override
+    public synchronized Set<String> sessionIds() {
+        return new TreeSet<>(messages.keySet());
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            channel.force(false);
+            if (end > compactMinBytes && liveBytes * 2 < end) compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot flush session store " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("[FileSessionStore] Closing {} failed: {}", file, e.toString());
+        }
+    }
+
+    synchronized long fileBytes() { return end; }
+
+    synchronized long liveBytes() { return liveBytes; }
+
+    private void append(byte kind, String id, byte[] payload) {
+        SessionCodec.Writer body = new SessionCodec.Writer();
+        body.write(kind);
+        body.string(id);
+        body.write(payload, 0, payload.length);
+        byte[] bytes = body.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + bytes.length);
+        record.putInt(bytes.length).putInt(crc(bytes)).put(bytes).flip();
+        try {
+            long at = end;
+            while (record.hasRemaining()) at += channel.write(record, at);
+            index(kind, id, new Loc(end, RECORD_HEADER + bytes.length));
+            end = at;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write session store " + file, e);
+        }
+    }
+
+    /** The payload of the record at the location (kind and id skipped), or null. */
+    private ByteBuffer read(Loc loc) {
+        if (loc == null) return null;
+        ByteBuffer buf = ByteBuffer.allocate(loc.length - RECORD_HEADER);
+        try {
+            long at = loc.offset + RECORD_HEADER;
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, at + buf.position()) < 0) throw new IOException("Unexpected end of " + file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read session store " + file, e);
+        }
+        buf.flip();
+        buf.get();
+        SessionCodec.string(buf);
+        return buf;
+    }
+
+    /** Rewrites the file with only the live records, then swaps it in atomically. */
+    private void compact() throws IOException {
+        long before = end;
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(MAGIC));
+            for (Map<String, Loc> index : List.of(messages, states)) {
+                for (Loc loc : index.values()) {
+                    long done = 0;
+                    while (done < loc.length) done += channel.transferTo(loc.offset + done, loc.length - done, out);
+                }
+            }
+            out.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // reopens the compacted file, or the untouched original when the move failed
+            open();
+        }
+        log.info("[FileSessionStore] Compacted {}: {} -> {} bytes", file, before, end);
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.travel.assistant.session;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap-only store: chat messages in a map, nothing survives a restart. Session state is not
+ * kept here at all, since {@link SessionStateStore} already holds it and keeping a second,
+ * unbounded copy would defeat that store's limits; evicted state is simply gone.
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    private final ConcurrentHashMap<String, List<ChatMessage>> messages = new ConcurrentHashMap<>();
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return messages.getOrDefault(String.valueOf(memoryId), List.of());
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> list) {
+        messages.put(String.valueOf(memoryId), List.copyOf(list));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        messages.remove(String.valueOf(memoryId));
+    }
+
+    @Override
+    public SessionState loadState(String memoryId) {
+        return null;
+    }
+
+    @Override
+    public void saveState(String memoryId, SessionState state) {
+    }
+
+    @Override
+    public Set<String> sessionIds() {
+        return new TreeSet<>(messages.keySet());
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.travel.assistant.session;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a session already has as many turns waiting as its mailbox allows, or when a turn
+ * did not get its reply within the mailbox's wait limit.
+ */
+public class SessionBusyException extends RuntimeException {
+
+    private final String sessionId;
+    private final boolean timedOut;
+
+    public SessionBusyException(String sessionId, int queued) {
+        super("Session " + sessionId + " already has " + queued + " messages waiting; retry when the current reply arrives");
+        this.sessionId = sessionId;
+        this.timedOut = false;
+    }
+
+    public SessionBusyException(String sessionId, Duration waited) {
+        super("Session " + sessionId + " did not answer within " + waited.toMillis() + " ms; retry later");
+        this.sessionId = sessionId;
+        this.timedOut = true;
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    /** True when the turn waited too long rather than being refused up front. */
+    public boolean isTimedOut() { return timedOut; }
+}
@@ -0,0 +1,307 @@
+package com.example.travel.assistant.session;
+
+import com.example.travel.assistant.flights.Flight;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of chat messages and {@link SessionState}.
+ *
+ * Numbers are unsigned LEB128 varints (zig-zag for signed values), strings are a varint of
+ * length + 1 followed by UTF-8 bytes, with 0 meaning null; lists use the same "count + 1"
+ * convention so null and empty stay distinct. A flight costs its strings plus about 25 bytes,
+ * against several hundred as JSON. User messages keep their name and text only; images and
+ * other non-text content are not stored.
+ */
+public final class SessionCodec {
+
+    static final int STATE_VERSION = 1;
+
+    private static final int SYSTEM = 1;
+    private static final int USER = 2;
+    private static final int AI = 3;
+    private static final int TOOL_RESULT = 4;
+
+    private static final int V_NULL = 0;
+    private static final int V_STRING = 1;
+    private static final int V_LONG = 2;
+    private static final int V_DOUBLE = 3;
+    private static final int V_BOOLEAN = 4;
+
+    private SessionCodec() {}
+
+    public static byte[] encodeMessages(List<ChatMessage> messages) {
+        Writer w = new Writer();
+        w.varint(messages.size());
+        for (ChatMessage m : messages) {
+            if (m instanceof SystemMessage sm) {
+                w.varint(SYSTEM);
+                w.string(sm.text());
+            } else if (m instanceof UserMessage um) {
+                w.varint(USER);
+                w.string(um.name());
+                w.string(userText(um));
+            } else if (m instanceof AiMessage am) {
+                w.varint(AI);
+                w.string(am.text());
+                List<ToolExecutionRequest> requests = am.hasToolExecutionRequests() ? am.toolExecutionRequests() : List.of();
+                w.varint(requests.size());
+                for (ToolExecutionRequest r : requests) {
+                    w.string(r.id());
+                    w.string(r.name());
+                    w.string(r.arguments());
+                }
+            } else if (m instanceof ToolExecutionResultMessage tm) {
+                w.varint(TOOL_RESULT);
+                w.string(tm.id());
+                w.string(tm.toolName());
+                w.string(tm.text());
+            } else {
+                throw new IllegalArgumentException("Unsupported chat message type " + m.getClass().getName());
+            }
+        }
+        return w.toByteArray();
+    }
+
+    public static List<ChatMessage> decodeMessages(ByteBuffer in) {
+        int n = (int) varint(in);
+        List<ChatMessage> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int type = (int) varint(in);
+            switch (type) {
+                case SYSTEM -> out.add(SystemMessage.from(string(in)));
+                case USER -> {
+                    String name = string(in);
+                    String text = string(in);
+                    out.add(name == null ? UserMessage.from(text) : UserMessage.from(name, text));
+                }
+                case AI -> {
+                    String text = string(in);
+                    int requests = (int) varint(in);
+                    List<ToolExecutionRequest> rs = new ArrayList<>(requests);
+                    for (int r = 0; r < requests; r++) {
+                        rs.add(ToolExecutionRequest.builder().id(string(in)).name(string(in)).arguments(string(in)).build());
+                    }
+                    if (rs.isEmpty()) out.add(AiMessage.from(text == null ? "" : text));
+                    else if (text == null) out.add(AiMessage.from(rs));
+                    else out.add(AiMessage.from(text, rs));
+                }
+                case TOOL_RESULT -> out.add(ToolExecutionResultMessage.from(string(in), string(in), string(in)));
+                default -> throw new IllegalArgumentException("Corrupt session record: message type " + type);
+            }
+        }
+        return out;
+    }
+
+    public static byte[] encodeState(SessionState s) {
+        Writer w = new Writer();
+        w.varint(STATE_VERSION);
+        w.string(s.userId());
+        w.string(s.lastBookingId());
+        w.string(s.rescheduleTargetBookingId());
+        w.string(s.rescheduleNewDate());
+        List<Flight> search = s.lastSearch();
+        w.varint(search == null ? 0 : search.size() + 1);
+        if (search != null) for (Flight f : search) flight(w, f);
+        w.varint(s.lastChosen() == null ? 0 : 1);
+        if (s.lastChosen() != null) flight(w, s.lastChosen());
+        List<Map<String, Object>> candidates = s.cancelCandidates();
+        w.varint(candidates == null ? 0 : candidates.size() + 1);
+        if (candidates != null) {
+            for (Map<String, Object> c : candidates) {
+                w.varint(c.size());
+                for (Map.Entry<String, Object> e : c.entrySet()) {
+                    w.string(e.getKey());
+                    value(w, e.getValue());
+                }
+            }
+        }
+        return w.toByteArray();
+    }
+
+    public static SessionState decodeState(ByteBuffer in) {
+        int version = (int) varint(in);
+        if (version != STATE_VERSION) throw new IllegalArgumentException("Unsupported session state version " + version);
+        String userId = string(in);
+        String lastBookingId = string(in);
+        String target = string(in);
+        String newDate = string(in);
+        int n = (int) varint(in);
+        List<Flight> search = null;
+        if (n > 0) {
+            search = new ArrayList<>(n - 1);
+            for (int i = 1; i < n; i++) search.add(flight(in));
+        }
+        Flight chosen = varint(in) == 1 ? flight(in) : null;
+        int c = (int) varint(in);
+        List<Map<String, Object>> candidates = null;
+        if (c > 0) {
+            candidates = new ArrayList<>(c - 1);
+            for (int i = 1; i < c; i++) {
+                int size = (int) varint(in);
+                Map<String, Object> m = new LinkedHashMap<>();
+                for (int k = 0; k < size; k++) m.put(string(in), value(in));
+                candidates.add(m);
+            }
+        }
+        return new SessionState(userId, search == null ? null : List.copyOf(search), chosen, lastBookingId, target, newDate,
+                candidates == null ? null : List.copyOf(candidates));
+    }
+
+    private static String userText(UserMessage um) {
+        if (um.hasSingleText()) return um.singleText();
+        StringBuilder sb = new StringBuilder();
+        for (Content c : um.contents()) {
+            if (c instanceof TextContent tc) {
+                if (!sb.isEmpty()) sb.append('\n');
+                sb.append(tc.text());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void flight(Writer w, Flight f) {
+        w.string(f.carrier());
+        w.string(f.flightNumber());
+        w.string(f.origin());
+        w.string(f.destination());
+        w.signed(f.date().toEpochDay());
+        time(w, f.departure());
+        time(w, f.arrival());
+        w.fixed64(Double.doubleToRawLongBits(f.price()));
+        w.string(f.currency());
+        w.string(f.originCity());
+        w.string(f.destinationCity());
+    }
+
+    private static Flight flight(ByteBuffer in) {
+        String carrier = string(in);
+        String number = string(in);
+        String origin = string(in);
+        String destination = string(in);
+        LocalDate date = LocalDate.ofEpochDay(signed(in));
+        OffsetDateTime dep = time(in);
+        OffsetDateTime arr = time(in);
+        double price = Double.longBitsToDouble(in.getLong());
+        return new Flight(carrier, number, origin, destination, date, dep, arr, price,
+                string(in), string(in), string(in));
+    }
+
+    private static void time(Writer w, OffsetDateTime t) {
+        w.signed(t.toEpochSecond());
+        w.signed(t.getOffset().getTotalSeconds());
+    }
+
+    private static OffsetDateTime time(ByteBuffer in) {
+        long epochSecond = signed(in);
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds((int) signed(in));
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), offset);
+    }
+
+    private static void value(Writer w, Object v) {
+        if (v == null) {
+            w.varint(V_NULL);
+        } else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+            w.varint(V_LONG);
+            w.signed(((Number) v).longValue());
+        } else if (v instanceof Number n) {
+            w.varint(V_DOUBLE);
+            w.fixed64(Double.doubleToRawLongBits(n.doubleValue()));
+        } else if (v instanceof Boolean b) {
+            w.varint(V_BOOLEAN);
+            w.varint(b ? 1 : 0);
+        } else {
+            w.varint(V_STRING);
+            w.string(String.valueOf(v));
+        }
+    }
+
+    private static Object value(ByteBuffer in) {
+        int type = (int) varint(in);
+        return switch (type) {
+            case V_NULL -> null;
+            case V_STRING -> string(in);
+            case V_LONG -> signed(in);
+            case V_DOUBLE -> Double.longBitsToDouble(in.getLong());
+            case V_BOOLEAN -> varint(in) == 1;
+            default -> throw new IllegalArgumentException("Corrupt session record: value type " + type);
+        };
+    }
+
+    // ---- primitives ----
+
+    static long varint(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("Corrupt session record: varint too long");
+    }
+
+    static long signed(ByteBuffer in) {
+        long v = varint(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static String string(ByteBuffer in) {
+        int n = (int) varint(in);
+        if (n == 0) return null;
+        byte[] bytes = new byte[n - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Growable output with the varint and string helpers the encoders use. */
+    static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(256);
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void signed(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        void fixed64(long v) {
+            for (int i = 56; i >= 0; i -= 8) write((int) (v >>> i));
+        }
+
+        void string(String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.travel.assistant.session;
+
+import com.example.travel.assistant.config.AssistantGeminiProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs the turns of one session strictly one after another, and turns of different sessions in
+ * parallel.
+ *
+ * Each session with work in progress has a mailbox: a queue of waiting turns drained by one
+ * virtual thread. The mailbox exists only while it has work; it is created and removed through
+ * {@link ConcurrentHashMap#compute}, so there is no lock shared between sessions. Callers block
+ * until their own turn has run.
+ *
+ * Floods are bounded per session. A turn whose key equals one already waiting or running (a
+ * double submit or a client retry) joins it and gets the same reply instead of running twice.
+ * Beyond {@code max-queued} waiting turns, new ones are rejected with
+ * {@link SessionBusyException}.
+ *
+ * A caller waits at most the model's request timeout plus {@code wait-margin-ms} for its reply,
+ * counted from when it arrived, so a turn stuck behind a hung one does not hold its request
+ * forever. It then gets a {@link SessionBusyException}. A caller can also go away by being
+ * interrupted. Once every caller of a turn has gone, the turn is taken off the queue if it has
+ * not started, or interrupted if it is running.
+ */
+@Component
+public class SessionMailbox implements MeterBinder {
+
+    private static final class Turn<T> {
+        final String key;
+        final Supplier<T> work;
+        final long enqueuedAt;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        int waiters = 1;
+
+        Turn(String key, Supplier<T> work, long enqueuedAt) {
+            this.key = key;
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class Mailbox {
+        final ArrayDeque<Turn<?>> queue = new ArrayDeque<>();
+        Turn<?> running;
+        Thread runner;
+        boolean draining;
+
+        Turn<?> find(String key) {
+            if (running != null && key.equals(running.key)) return running;
+            for (Turn<?> t : queue) {
+                if (key.equals(t.key)) return t;
+            }
+            return null;
+        }
+    }
+
+    /** Session whose turn the current thread is running; nested calls for it run inline. */
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final int maxQueued;
+    private final boolean mergeDuplicates;
+    private final long maxWaitNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Thread.Builder threads = Thread.ofVirtual().name("session-turn-", 0);
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    @Autowired
+    public SessionMailbox(AssistantGeminiProperties geminiProps,
+                          @Value("${assistant.session.mailbox.max-queued:${ASSISTANT_SESSION_MAILBOX_MAX_QUEUED:4}}") int maxQueued,
+                          @Value("${assistant.session.mailbox.merge-duplicates:${ASSISTANT_SESSION_MAILBOX_MERGE_DUPLICATES:true}}") boolean mergeDuplicates,
+                          @Value("${assistant.session.mailbox.wait-margin-ms:${ASSISTANT_SESSION_MAILBOX_WAIT_MARGIN_MS:10000}}") long waitMarginMs) {
+        this(maxQueued, mergeDuplicates,
+                TimeUnit.MILLISECONDS.toNanos(geminiProps.getRequestTimeoutMs() + waitMarginMs), System::nanoTime);
+    }
+
+    /** A mailbox whose callers wait for their reply as long as it takes. */
+    public SessionMailbox(int maxQueued, boolean mergeDuplicates) {
+        this(maxQueued, mergeDuplicates, 0, System::nanoTime);
+    }
+
+    /** {@code maxWaitNanos} of zero or less waits without a limit. */
+    SessionMailbox(int maxQueued, boolean mergeDuplicates, long maxWaitNanos, LongSupplier clock) {
+        this.maxQueued = Math.max(0, maxQueued);
+        this.mergeDuplicates = mergeDuplicates;
+        this.maxWaitNanos = maxWaitNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the work as the session's next turn and returns its result, waiting for earlier turns
+     * of the session first. {@code key} identifies the request (e.g. user and prompt) for
+     * merging duplicates; null never merges. Without a session id the work runs right away.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T run(String sessionId, String key, Supplier<T> work) {
+        if (sessionId == null || sessionId.equals(CURRENT.get())) return work.get();
+        Turn<T> turn = new Turn<>(key, work, clock.getAsLong());
+        Turn<?>[] joined = new Turn<?>[1];
+        boolean[] start = new boolean[1];
+        int[] depth = {-1};
+        mailboxes.compute(sessionId, (id, mb) -> {
+            if (mb == null) mb = new Mailbox();
+            Turn<?> same = mergeDuplicates && key != null ? mb.find(key) : null;
+            if (same != null) {
+                same.waiters++;
+                joined[0] = same;
+            } else if (mb.draining && mb.queue.size() >= maxQueued) {
+                depth[0] = mb.queue.size();
+            } else {
+                mb.queue.add(turn);
+                queued.incrementAndGet();
+                if (!mb.draining) mb.draining = start[0] = true;
+            }
+            return mb;
+        });
+        if (depth[0] >= 0) {
+            rejected.incrementAndGet();
+            throw new SessionBusyException(sessionId, depth[0]);
+        }
+        if (joined[0] != null) {
+            merged.incrementAndGet();
+            return await(sessionId, (Turn<T>) joined[0], turn.enqueuedAt);
+        }
+        if (start[0]) threads.start(() -> drain(sessionId));
+        return await(sessionId, turn, turn.enqueuedAt);
+    }
+
+    private void drain(String sessionId) {
+        CURRENT.set(sessionId);
+        try {
+            while (true) {
+                Turn<?>[] next = new Turn<?>[1];
+                mailboxes.computeIfPresent(sessionId, (id, mb) -> {
+                    // an interrupt meant for the turn that just finished must not reach the next one
+                    Thread.interrupted();
+                    mb.runner = Thread.currentThread();
+                    mb.running = mb.queue.poll();
+                    if (mb.running == null) return null; // nothing left: the mailbox goes away
+                    next[0] = mb.running;
+                    return mb;
+                });
+                if (next[0] == null) return;
+                queued.decrementAndGet();
+                execute(next[0]);
+            }
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    private <T> void execute(Turn<T> turn) {
+        started.incrementAndGet();
+        waitNanos.addAndGet(Math.max(0, clock.getAsLong() - turn.enqueuedAt));
+        try {
+            turn.result.complete(turn.work.get());
+        } catch (Throwable t) {
+            turn.result.completeExceptionally(t);
+        }
+    }
+
+    private <T> T await(String sessionId, Turn<T> turn, long arrivedAt) {
+        try {
+            if (maxWaitNanos <= 0) return turn.result.get();
+            return turn.result.get(Math.max(0, arrivedAt + maxWaitNanos - clock.getAsLong()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            leave(sessionId, turn);
+            timedOut.incrementAndGet();
+            throw new SessionBusyException(sessionId, Duration.ofNanos(maxWaitNanos));
+        } catch (InterruptedException e) {
+            leave(sessionId, turn);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the session's turn", e);
+        } catch (ExecutionException e) {
+            Throwable cause = Objects.requireNonNullElse(e.getCause(), e);
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** A caller stops waiting; the last one to go drops the turn, or interrupts it if it is running. */
+    private void leave(String sessionId, Turn<?> turn) {
+        mailboxes.computeIfPresent(sessionId, (id, mb) -> {
+            if (--turn.waiters > 0 || turn.result.isDone()) return mb;
+            if (mb.queue.remove(turn)) {
+                queued.decrementAndGet();
+            } else if (mb.running == turn) {
+                mb.runner.interrupt();
+            }
+            return mb;
+        });
+    }
+
+    /** Sessions with a turn running or waiting. */
+    public int activeSessions() { return mailboxes.size(); }
+
+    /** Turns waiting behind a running turn of their session. */
+    public int queued() { return queued.get(); }
+
+    long merged() { return merged.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("assistant.session.mailbox.sessions", this, SessionMailbox::activeSessions)
+                .description("Sessions with a turn running or waiting")
+                .register(registry);
+        Gauge.builder("assistant.session.mailbox.queued", this, SessionMailbox::queued)
+                .description("Turns waiting for an earlier turn of the same session")
+                .register(registry);
+        FunctionTimer.builder("assistant.session.mailbox.wait", this,
+                        m -> m.started.get(), m -> m.waitNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Time turns spent waiting for earlier turns of their session")
+                .register(registry);
+        FunctionCounter.builder("assistant.session.mailbox.merged", merged, AtomicLong::get)
+                .description("Duplicate turns answered by an identical turn already in progress")
+                .register(registry);
+        FunctionCounter.builder("assistant.session.mailbox.rejected", rejected, AtomicLong::get)
+                .description("Turns rejected because the session's mailbox was full")
+                .register(registry);
+        FunctionCounter.builder("assistant.session.mailbox.timeouts", timedOut, AtomicLong::get)
+                .description("Turns whose caller gave up waiting for the reply")
+                .register(registry);
+    }
+}
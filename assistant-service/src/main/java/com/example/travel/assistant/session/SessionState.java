@@ -0,0 +1,69 @@
+package com.example.travel.assistant.session;
+
+import com.example.travel.assistant.flights.Flight;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the assistant remembers about one chat session between turns. Immutable: updates go
+ * through {@link SessionStateStore#update} with the {@code with*} copies, so the store always
+ * knows how many flights each session retains.
+ *
+ * @param userId                    active user id, if the user told us
+ * @param lastSearch                flights of the last search, for "first", "the cheapest" etc.
+ * @param lastChosen                flight the user picked from the last search
+ * @param lastBookingId             booking created or used last, for "cancel it"
+ * @param rescheduleTargetBookingId booking a pending reschedule moves
+ * @param rescheduleNewDate         date a pending reschedule moves it to
+ * @param cancelCandidates          bookings offered for cancellation, for "first"/"last"
+ */
+public record SessionState(String userId,
+                           List<Flight> lastSearch,
+                           Flight lastChosen,
+                           String lastBookingId,
+                           String rescheduleTargetBookingId,
+                           String rescheduleNewDate,
+                           List<Map<String, Object>> cancelCandidates) {
+
+    public static final SessionState EMPTY = new SessionState(null, null, null, null, null, null, null);
+
+    public SessionState withUserId(String v) {
+        return new SessionState(v, lastSearch, lastChosen, lastBookingId, rescheduleTargetBookingId, rescheduleNewDate, cancelCandidates);
+    }
+
+    public SessionState withLastSearch(List<Flight> v) {
+        return new SessionState(userId, v == null ? null : List.copyOf(v), lastChosen, lastBookingId, rescheduleTargetBookingId, rescheduleNewDate, cancelCandidates);
+    }
+
+    public SessionState withLastChosen(Flight v) {
+        return new SessionState(userId, lastSearch, v, lastBookingId, rescheduleTargetBookingId, rescheduleNewDate, cancelCandidates);
+    }
+
+    public SessionState withLastBookingId(String v) {
+        return new SessionState(userId, lastSearch, lastChosen, v, rescheduleTargetBookingId, rescheduleNewDate, cancelCandidates);
+    }
+
+    /** Starts, updates or (with nulls) clears the pending reschedule. */
+    public SessionState withReschedule(String targetBookingId, String newDate) {
+        return new SessionState(userId, lastSearch, lastChosen, lastBookingId, targetBookingId, newDate, cancelCandidates);
+    }
+
+    public SessionState withCancelCandidates(List<Map<String, Object>> v) {
+        return new SessionState(userId, lastSearch, lastChosen, lastBookingId, rescheduleTargetBookingId, rescheduleNewDate,
+                v == null ? null : List.copyOf(v));
+    }
+
+    public boolean reschedulePending() {
+        return rescheduleTargetBookingId != null;
+    }
+
+    /** Flights the session keeps alive; the store's weight limit is expressed in these. */
+    public int retainedFlights() {
+        return (lastSearch == null ? 0 : lastSearch.size()) + (lastChosen == null ? 0 : 1);
+    }
+
+    public boolean isEmpty() {
+        return equals(EMPTY);
+    }
+}
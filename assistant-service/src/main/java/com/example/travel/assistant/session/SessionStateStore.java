@@ -0,0 +1,226 @@
+package com.example.travel.assistant.session;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded store of {@link SessionState} keyed by memory id.
+ *
+ * Sessions are kept in access order. A session that has not been read or written for the idle
+ * TTL is dropped, and when the store holds more sessions than {@code max-entries} or more
+ * flights than {@code max-retained-flights} in total, the least recently used sessions are
+ * evicted until it fits again. Expired sessions are swept from the cold end on every access,
+ * so the sweep costs nothing when there is nothing to drop.
+ *
+ * The store is the working set in front of a {@link SessionStore}: a session missing from the
+ * heap is loaded from it, and every change is handed to it. Eviction only drops the heap copy,
+ * so with a persistent store an evicted session is reloaded on its next message.
+ *
+ * Loads, updates and writes to the backing store are serialized per session by a striped lock,
+ * so a slow store or update holds up only the sessions of one stripe. The access order and the
+ * flight weight have their own lock, which is held only for map bookkeeping.
+ */
+@Component
+public class SessionStateStore implements MeterBinder {
+
+    private record Entry(SessionState state, long lastAccess) {}
+
+    private static final int STRIPES = 64;
+
+    private final int maxEntries;
+    private final long maxRetainedFlights;
+    private final long idleTtlNanos;
+    private final LongSupplier clock;
+    private final SessionStore backing;
+    private final ReentrantLock[] sessionLocks = new ReentrantLock[STRIPES];
+    private final ReentrantLock lruLock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long retainedFlights;
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicLong weightEvictions = new AtomicLong();
+    private final AtomicLong expiredEvictions = new AtomicLong();
+
+    @Autowired
+    public SessionStateStore(@Value("${assistant.session.max-entries:${ASSISTANT_SESSION_MAX_ENTRIES:10000}}") int maxEntries,
+                             @Value("${assistant.session.max-retained-flights:${ASSISTANT_SESSION_MAX_RETAINED_FLIGHTS:200000}}") long maxRetainedFlights,
+                             @Value("${assistant.session.idle-ttl-seconds:${ASSISTANT_SESSION_IDLE_TTL_SECONDS:1800}}") long idleTtlSeconds,
+                             SessionStore backing) {
+        this(maxEntries, maxRetainedFlights, idleTtlSeconds * 1_000_000_000L, System::nanoTime, backing);
+    }
+
+    SessionStateStore(int maxEntries, long maxRetainedFlights, long idleTtlNanos, LongSupplier clock) {
+        this(maxEntries, maxRetainedFlights, idleTtlNanos, clock, new InMemorySessionStore());
+    }
+
+    SessionStateStore(int maxEntries, long maxRetainedFlights, long idleTtlNanos, LongSupplier clock, SessionStore backing) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxRetainedFlights = Math.max(0, maxRetainedFlights);
+        this.idleTtlNanos = idleTtlNanos;
+        this.clock = clock;
+        this.backing = backing;
+        for (int i = 0; i < STRIPES; i++) sessionLocks[i] = new ReentrantLock();
+    }
+
+    /** The session's state, or {@link SessionState#EMPTY} for unknown or expired sessions. */
+    public SessionState get(String memoryId) {
+        if (memoryId == null) return SessionState.EMPTY;
+        long now = clock.getAsLong();
+        SessionState resident = touch(memoryId, now);
+        if (resident != null) return resident;
+        ReentrantLock lock = sessionLock(memoryId);
+        lock.lock();
+        try {
+            return load(memoryId, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the update to the session's current state and stores the result; a session whose
+     * state becomes empty is removed. Updates of one session run one at a time.
+     */
+    public SessionState update(String memoryId, UnaryOperator<SessionState> update) {
+        if (memoryId == null) return SessionState.EMPTY;
+        long now = clock.getAsLong();
+        ReentrantLock lock = sessionLock(memoryId);
+        lock.lock();
+        try {
+            SessionState before = load(memoryId, now);
+            SessionState after = update.apply(before);
+            if (after == null) after = SessionState.EMPTY;
+            if (!after.equals(before)) backing.saveState(memoryId, after);
+            store(memoryId, after, now);
+            return after;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The resident state, reading it from the backing store on a miss. Needs the session lock. */
+    private SessionState load(String memoryId, long now) {
+        SessionState resident = touch(memoryId, now);
+        if (resident != null) return resident;
+        SessionState loaded = backing.loadState(memoryId);
+        if (loaded == null || loaded.isEmpty()) return SessionState.EMPTY;
+        store(memoryId, loaded, now);
+        return loaded;
+    }
+
+    /** The resident state marked as just used, or null when the session is not in the heap. */
+    private SessionState touch(String memoryId, long now) {
+        lruLock.lock();
+        try {
+            sweepExpired(now);
+            Entry e = sessions.get(memoryId);
+            if (e == null) return null;
+            sessions.put(memoryId, new Entry(e.state, now));
+            return e.state;
+        } finally {
+            lruLock.unlock();
+        }
+    }
+
+    /** Makes the state resident, or drops the session when it is empty, and enforces the limits. */
+    private void store(String memoryId, SessionState state, long now) {
+        lruLock.lock();
+        try {
+            // the previous copy may have been evicted meanwhile, so account for what is there now
+            Entry old = state.isEmpty() ? sessions.remove(memoryId) : sessions.put(memoryId, new Entry(state, now));
+            if (old != null) retainedFlights -= old.state.retainedFlights();
+            if (state.isEmpty()) return;
+            retainedFlights += state.retainedFlights();
+            evictOverLimits(memoryId);
+        } finally {
+            lruLock.unlock();
+        }
+    }
+
+    private ReentrantLock sessionLock(String memoryId) {
+        int h = memoryId.hashCode();
+        return sessionLocks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    public void remove(String memoryId) {
+        update(memoryId, s -> SessionState.EMPTY);
+    }
+
+    private void sweepExpired(long now) {
+        if (idleTtlNanos <= 0) return;
+        Iterator<Entry> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (now - e.lastAccess < idleTtlNanos) return; // access order: the rest is fresher
+            it.remove();
+            retainedFlights -= e.state.retainedFlights();
+            expiredEvictions.incrementAndGet();
+        }
+    }
+
+    /** Drops least recently used sessions, never the one just written, until both limits hold. */
+    private void evictOverLimits(String keep) {
+        Iterator<Map.Entry<String, Entry>> it = sessions.entrySet().iterator();
+        while ((sessions.size() > maxEntries || retainedFlights > maxRetainedFlights) && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            boolean bySize = sessions.size() > maxEntries;
+            it.remove();
+            retainedFlights -= e.getValue().state.retainedFlights();
+            (bySize ? sizeEvictions : weightEvictions).incrementAndGet();
+        }
+    }
+
+    public int size() {
+        lruLock.lock();
+        try {
+            sweepExpired(clock.getAsLong());
+            return sessions.size();
+        } finally {
+            lruLock.unlock();
+        }
+    }
+
+    public long retainedFlights() {
+        lruLock.lock();
+        try {
+            sweepExpired(clock.getAsLong());
+            return retainedFlights;
+        } finally {
+            lruLock.unlock();
+        }
+    }
+
+    long evictions() { return sizeEvictions.get() + weightEvictions.get() + expiredEvictions.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("assistant.sessions.active", this, SessionStateStore::size)
+                .description("Chat sessions with remembered state")
+                .register(registry);
+        Gauge.builder("assistant.sessions.retained.flights", this, SessionStateStore::retainedFlights)
+                .description("Flights held by session state (last searches and chosen flights)")
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.evictions", sizeEvictions, AtomicLong::get)
+                .tag("cause", "size")
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.evictions", weightEvictions, AtomicLong::get)
+                .tag("cause", "weight")
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.evictions", expiredEvictions, AtomicLong::get)
+                .tag("cause", "expired")
+                .register(registry);
+    }
+}
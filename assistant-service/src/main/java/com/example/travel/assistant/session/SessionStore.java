@@ -0,0 +1,32 @@
+package com.example.travel.assistant.session;
+
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.Set;
+
+/**
+ * Where chat sessions live between turns: the LLM chat memory (as a LangChain4j
+ * {@link ChatMemoryStore}) and the assistant's {@link SessionState}.
+ *
+ * {@link SessionStateStore} and the chat memory provider keep working copies of recently active
+ * sessions in the heap, read through to the store on a miss and write every change through, so
+ * a store that outlives the process (or is shared by several replicas) lets a conversation
+ * continue after a restart or on another instance.
+ * Implementations must be thread-safe.
+ */
+public interface SessionStore extends ChatMemoryStore {
+
+    /** The persisted state of the session, or null when there is none. */
+    SessionState loadState(String memoryId);
+
+    /** Persists the session's state; {@link SessionState#EMPTY} deletes it. */
+    void saveState(String memoryId, SessionState state);
+
+    /** Ids of the sessions with stored chat messages. */
+    Set<String> sessionIds();
+
+    /** Makes every write accepted so far durable. */
+    default void flush() {}
+
+    default void close() {}
+}
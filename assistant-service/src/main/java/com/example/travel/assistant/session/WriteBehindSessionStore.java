@@ -0,0 +1,247 @@
+package com.example.travel.assistant.session;
+
+import dev.langchain4j.data.message.ChatMessage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind wrapper for a slow (disk or network) {@link SessionStore}.
+ *
+ * Writes only replace the session's pending value in memory, so a turn never waits for I/O and
+ * several writes to one session between flushes cost a single record. A background thread
+ * hands the pending values to the delegate every {@code intervalMillis} (sooner when
+ * {@code batchSize} sessions are pending) and then calls {@link SessionStore#flush()} once for
+ * the whole batch. Reads see pending and in-flight values first, so they never observe an older
+ * value than the last write. A failed batch is kept and retried on the next round unless newer
+ * writes replaced it.
+ */
+public class WriteBehindSessionStore implements SessionStore, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindSessionStore.class);
+
+    private record Key(boolean state, String id) {}
+
+    /** Pending value of a deleted message list. */
+    private static final Object DELETED = new Object();
+
+    private final SessionStore delegate;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final Object lock = new Object();
+    /** Held while a batch is written, so batches reach the delegate one at a time and in order. */
+    private final Object flushLock = new Object();
+    private LinkedHashMap<Key, Object> pending = new LinkedHashMap<>();
+    private Map<Key, Object> inFlight = Map.of();
+    private boolean closed;
+    private final Thread writer;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong flushedRecords = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public WriteBehindSessionStore(SessionStore delegate, long intervalMillis, int batchSize) {
+        this.delegate = delegate;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.writer = new Thread(this::run, "session-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ---- reads: pending, then in flight, then the delegate ----
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ChatMessage> getMessages(Object memoryId) {
+        Object v = buffered(new Key(false, String.valueOf(memoryId)));
+        if (v == DELETED) return List.of();
+        if (v != null) return (List<ChatMessage>) v;
+        return delegate.getMessages(memoryId);
+    }
+
+    @Override
+    public SessionState loadState(String memoryId) {
+        Object v = buffered(new Key(true, memoryId));
+        if (v != null) return v == SessionState.EMPTY ? null : (SessionState) v;
+        return delegate.loadState(memoryId);
+    }
+
+    private Object buffered(Key key) {
+        synchronized (lock) {
+            Object v = pending.get(key);
+            return v != null ? v : inFlight.get(key);
+        }
+    }
+
+    @Override
+    public Set<String> sessionIds() {
+        Set<String> ids = new TreeSet<>(delegate.sessionIds());
+        synchronized (lock) {
+            for (Map<Key, Object> m : List.of(inFlight, pending)) {
+                for (Map.Entry<Key, Object> e : m.entrySet()) {
+                    if (e.getKey().state) continue;
+                    if (e.getValue() == DELETED) ids.remove(e.getKey().id);
+                    else ids.add(e.getKey().id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // ---- writes: replace the pending value ----
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        enqueue(new Key(false, String.valueOf(memoryId)), List.copyOf(messages));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        enqueue(new Key(false, String.valueOf(memoryId)), DELETED);
+    }
+
+    @Override
+    public void saveState(String memoryId, SessionState state) {
+        enqueue(new Key(true, memoryId), state == null ? SessionState.EMPTY : state);
+    }
+
+    private void enqueue(Key key, Object value) {
+        writes.incrementAndGet();
+        synchronized (lock) {
+            pending.remove(key); // re-insert at the tail: batches go out oldest first
+            pending.put(key, value);
+            if (pending.size() >= batchSize) lock.notifyAll();
+        }
+    }
+
+    // ---- background flushing ----
+
+    private void run() {
+        boolean failed = false;
+        while (true) {
+            synchronized (lock) {
+                // after a failure, wait a full interval before retrying even if the batch is full
+                if (!closed && (failed || pending.size() < batchSize)) {
+                    try {
+                        lock.wait(intervalMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (closed) return;
+            }
+            failed = !flushPending();
+        }
+    }
+
+    /** Writes out everything pending now; returns false when the batch failed. */
+    private boolean flushPending() {
+        synchronized (flushLock) {
+            return flushBatch();
+        }
+    }
+
+    private boolean flushBatch() {
+        Map<Key, Object> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) return true;
+            batch = pending;
+            inFlight = batch;
+            pending = new LinkedHashMap<>();
+        }
+        try {
+            for (Map.Entry<Key, Object> e : batch.entrySet()) {
+                write(e.getKey(), e.getValue());
+            }
+            delegate.flush();
+            batches.incrementAndGet();
+            flushedRecords.addAndGet(batch.size());
+            synchronized (lock) {
+                inFlight = Map.of();
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            failures.incrementAndGet();
+            log.warn("[WriteBehindSessionStore] Flushing {} sessions failed, will retry: {}", batch.size(), ex.toString());
+            synchronized (lock) {
+                // keep newer writes; put the rest back in front of them
+                LinkedHashMap<Key, Object> retry = new LinkedHashMap<>(batch);
+                retry.keySet().removeAll(pending.keySet());
+                retry.putAll(pending);
+                pending = retry;
+                inFlight = Map.of();
+            }
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Key key, Object value) {
+        if (key.state) {
+            delegate.saveState(key.id, (SessionState) value);
+        } else if (value == DELETED) {
+            delegate.deleteMessages(key.id);
+        } else {
+            delegate.updateMessages(key.id, (List<ChatMessage>) value);
+        }
+    }
+
+    /** Blocks until everything written so far has reached the delegate and been flushed. */
+    @Override
+    public void flush() {
+        if (!flushPending()) throw new IllegalStateException("Session store flush failed");
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flushPending();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    public int pending() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("assistant.sessions.store.pending", this, WriteBehindSessionStore::pending)
+                .description("Sessions with writes not yet handed to the session store")
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.store.writes", writes, AtomicLong::get)
+                .description("Session writes accepted (before coalescing)")
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.store.flushed", flushedRecords, AtomicLong::get)
+                .description("Session records written to the store")
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.store.batches", batches, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("assistant.sessions.store.failures", failures, AtomicLong::get)
+                .register(registry);
+    }
+}
@@ -5,27 +5,36 @@ import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.AiMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import com.example.travel.assistant.service.AgentService;
 
+import com.example.travel.assistant.flights.ConnectionSearch;
+import com.example.travel.assistant.flights.Flight;
+import com.example.travel.assistant.flights.FlightCatalog;
+import com.example.travel.assistant.flights.FlightItinerary;
+import com.example.travel.assistant.flights.FlightSnapshot;
+import com.example.travel.assistant.flights.FlightStore;
+import com.example.travel.assistant.flights.OriginCheapestIndex;
+import com.example.travel.assistant.flights.PriceTopK;
+import com.example.travel.assistant.flights.RouteDateIndex;
 import com.example.travel.assistant.memory.SharedChatMemoryProvider;
 import com.example.travel.assistant.memory.ConversationContext;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * Flight search tool that reads from a local dataset file (CSV) bundled with the app.
+ * Flight search tool that reads from a local dataset file (CSV or binary) bundled with the app,
+ * as published by {@link FlightCatalog}; every call reads the current snapshot once.
+ * The dataset is held in a columnar {@link FlightStore} with a (origin, destination, date) index
+ * whose buckets are pre-sorted by price, and a per-origin cheapest-destination index for the
+ * "where can I fly" tools; {@link Flight} views are built only for returned rows, and in-process
+ * callers (the agent service) get them through the typed find* methods without any JSON.
+ * Serialized responses are
+ * kept in a {@link SearchResultCache} keyed by the canonical query and the dataset generation;
+ * dataset rows are written from the snapshot's pre-serialized JSON fragments.
  * Fallbacks to deterministic mock data if the file is not available.
  */
 @Component
@@ -35,13 +44,19 @@ public class FlightSearchTool {
 
 
     private final ObjectMapper mapper = new ObjectMapper();
-    private final List<Map<String, Object>> dataset; // loaded once and reused
+    private final FlightCatalog catalog; // publishes a new snapshot on reload
+    private final SearchResultCache cache;
     private final SharedChatMemoryProvider memoryProvider;
     private final ObjectProvider<AgentService> agentServiceProvider;
-    private final Map<String, Map<String, Object>> tripIndex = new HashMap<>();
-    private final int syntheticCount;
     private final ZoneId systemZone = ZoneId.systemDefault();
 
+    // rows per searchFlights page; further pages are requested with the returned nextCursor
+    @Value("${assistant.tools.flight.page-size:${ASSISTANT_TOOLS_FLIGHT_PAGE_SIZE:20}}")
+    private int pageSize = 20;
+
+    // destinations recommendFromOrigin remembers as the session's last search, its pick first
+    private static final int RECOMMEND_OPTIONS = 5;
+
     // --- Standard response wrappers for tools ---
     private String wrapOk(Object data) {
         try {
@@ -68,145 +83,138 @@ public class FlightSearchTool {
         }
     }
 
-    // Simple normalization dictionaries: alias (EN/RU/common forms) -> IATA; and IATA -> canonical city
-    private static final Map<String, String> ALIAS_TO_IATA = new HashMap<>();
-    private static final Map<String, String> IATA_TO_CITY = new HashMap<>();
-    static {
-        // US
-        addMapping("SFO", "San Francisco", "Сан-Франциско", "SF");
-        addMapping("JFK", "New York", "Нью-Йорк", "NYC");
-        addMapping("LAX", "Los Angeles", "Лос-Анджелес", "LA");
-        addMapping("IAD", "Washington", "Вашингтон", "Washington DC", "DC");
-        // Europe
-        addMapping("LHR", "London", "Лондон");
-        addMapping("LGW", "London", "Лондон", "Gatwick");
-        addMapping("CDG", "Paris", "Париж");
-        addMapping("BER", "Berlin", "Берлин");
-        addMapping("MAD", "Madrid", "Мадрид");
-        addMapping("FCO", "Rome", "Рим");
-        addMapping("DUB", "Dublin", "Дублин");
-        addMapping("LIS", "Lisbon", "Лиссабон");
-        addMapping("VIE", "Vienna", "Вена");
-        addMapping("PRG", "Prague", "Прага");
-        addMapping("WAW", "Warsaw", "Варшава");
-        addMapping("AMS", "Amsterdam", "Амстердам");
-        addMapping("ZRH", "Zurich", "Цюрих");
-        addMapping("OSL", "Oslo", "Осло");
-        addMapping("CPH", "Copenhagen", "Копенгаген");
-        addMapping("HEL", "Helsinki", "Хельсинки");
-        addMapping("ARN", "Stockholm", "Стокгольм");
-        // Asia / MEA / Others
-        addMapping("SVO", "Moscow", "Москва");
-        addMapping("PEK", "Beijing", "Пекин", "Beijing City");
-        addMapping("HND", "Tokyo", "Токио");
-        addMapping("ICN", "Seoul", "Сеул");
-        addMapping("BKK", "Bangkok", "Бангкок");
-        addMapping("SIN", "Singapore", "Сингапур");
-        addMapping("CGK", "Jakarta", "Джакарта");
-        addMapping("DEL", "New Delhi", "Дели", "Delhi");
-        addMapping("CBR", "Canberra", "Канберра");
-        addMapping("WLG", "Wellington", "Веллингтон");
-        addMapping("MNL", "Manila", "Манила");
-        addMapping("HAN", "Hanoi", "Ханой");
-        addMapping("RUH", "Riyadh", "Эр-Рияд");
-        addMapping("AUH", "Abu Dhabi", "Абу-Даби");
-        addMapping("DOH", "Doha", "Доха");
-        addMapping("CAI", "Cairo", "Каир");
-        addMapping("NBO", "Nairobi", "Найроби");
-        addMapping("JNB", "Johannesburg", "Йоханнесбург");
-        addMapping("ADD", "Addis Ababa", "Аддис-Абеба");
-        addMapping("ATH", "Athens", "Афины");
-        addMapping("TLV", "Tel Aviv", "Тель-Авив");
-        addMapping("TUN", "Tunis", "Тунис");
-        addMapping("ALG", "Algiers", "Алжир");
-        addMapping("DKR", "Dakar", "Дакар");
-    }
-
-    private static void addMapping(String iata, String city, String... aliases) {
-        IATA_TO_CITY.put(iata.toUpperCase(Locale.ROOT), city);
-        // map base city name as alias too
-        ALIAS_TO_IATA.put(slug(city), iata.toUpperCase(Locale.ROOT));
-        ALIAS_TO_IATA.put(iata.toUpperCase(Locale.ROOT), iata.toUpperCase(Locale.ROOT));
-        for (String a : aliases) {
-            if (a == null) continue;
-            ALIAS_TO_IATA.put(slug(a), iata.toUpperCase(Locale.ROOT));
-        }
-    }
-
-    public FlightSearchTool(ResourceLoader resourceLoader,
-                            @Value("${assistant.tools.flight.dataset:classpath:/data/flights.csv}") String datasetLocation,
+    public FlightSearchTool(FlightCatalog catalog,
+                            SearchResultCache cache,
                             SharedChatMemoryProvider memoryProvider,
-                            ObjectProvider<AgentService> agentServiceProvider,
-                            @Value("${assistant.tools.flight.synthetic-count:${ASSISTANT_TOOLS_FLIGHT_SYNTHETIC_COUNT:500}}") int syntheticCount) {
-        this.syntheticCount = Math.max(0, syntheticCount);
+                            ObjectProvider<AgentService> agentServiceProvider) {
+        this.catalog = catalog;
+        this.cache = cache;
         this.memoryProvider = memoryProvider;
         this.agentServiceProvider = agentServiceProvider;
-        this.dataset = loadDataset(resourceLoader, datasetLocation);
-        buildTripIndex();
     }
 
-    @Tool("Search flights for given origin, destination and date (YYYY-MM-DD). origin/destination can be a city name or IATA code. Date can be written in natural language; you MUST normalize it to YYYY-MM-DD (infer year to nearest future date). If normalization fails, ask only for the date. Returns a structured JSON: { status, data: [flights], error? }. If any argument is missing, ask the user only for that specific piece.")
+    /** Every flight of the route and date, unpaged; the tool below is the paged variant. */
     public String searchFlights(String origin, String destination, String date) {
+        return searchFlights(origin, destination, date, null, Integer.MAX_VALUE);
+    }
+
+    @Tool("Search flights for given origin, destination and date (YYYY-MM-DD). origin/destination can be a city name or IATA code. Date can be written in natural language; you MUST normalize it to YYYY-MM-DD (infer year to nearest future date). If normalization fails, ask only for the date. Results are paged, cheapest first: leave cursor empty for the first page and pass the returned nextCursor only when the user wants more options. Returns a structured JSON: { status, data: [flights], nextCursor?, error? }. If any argument is missing, ask the user only for that specific piece.")
+    public String searchFlights(String origin, String destination, String date, String cursor) {
+        return searchFlights(origin, destination, date, cursor, pageSize);
+    }
+
+    private String searchFlights(String origin, String destination, String date, String cursor, int limit) {
         try {
             var validation = validate(origin, destination, date);
             if (validation != null) return wrapError("VALIDATION", validation);
-
-            List<Map<String, Object>> flights = fromDataset(origin, destination, date);
-            if (flights.isEmpty()) {
-                flights = mockFlights(origin, destination, date);
-            }
-            writeTopSummaryToChatMemory("last_search: " + origin + " -> " + destination + " on " + date, flights);
-            rememberServerLastSearch(flights);
-            return wrapOk(flights);
+            int offset = parseCursor(cursor);
+            return apply(searchFlightsResult(origin, destination, date, offset, limit),
+                    "last_search: " + origin + " -> " + destination + " on " + date + (offset > 0 ? " (from option " + (offset + 1) + ")" : ""));
         } catch (Exception e) {
             return wrapError("INTERNAL_ERROR", "Failed to search flights: " + e.getMessage());
         }
     }
 
+    @Tool("Search itineraries with at most one stop (direct flights included) for given origin, destination and date (YYYY-MM-DD). Use it when searchFlights or cheapestFlight reports NO_DIRECT_FLIGHTS or the user asks for connections. origin/destination can be a city name or IATA code; normalize the date to YYYY-MM-DD. sortBy is 'price' (default) or 'duration'; limit defaults to 5 (max 10). Returns a structured JSON: { status, data: [itineraries with legs], error? }.")
+    public String searchConnections(String origin, String destination, String date, String sortBy, Integer limit) {
+        try {
+            var validation = validate(origin, destination, date);
+            if (validation != null) return wrapError("VALIDATION", validation);
+            ConnectionSearch.Rank rank = sortBy != null && sortBy.trim().equalsIgnoreCase("duration")
+                    ? ConnectionSearch.Rank.DURATION : ConnectionSearch.Rank.PRICE;
+            int topN = (limit == null || limit <= 0) ? 5 : Math.min(limit, 10);
+            FlightCatalog.Published published = catalog.published();
+            FlightSnapshot snap = published.snapshot();
+            ResolvedRoute route = ResolvedRoute.resolve(snap, origin, destination);
+            SearchResultCache.Result result = cache.get(published.generation(),
+                    routeQuery("searchConnections", route, date) + "|" + rank + "|" + topN, () -> {
+                List<FlightItinerary> found = itineraries(snap, route, date, rank, topN);
+                if (found.isEmpty()) return errorResult("NOT_FOUND", "No direct or one-stop itineraries found for the given route and date");
+                List<Map<String, Object>> maps = new ArrayList<>(found.size());
+                for (FlightItinerary it : found) maps.add(it.toMap());
+                return new SearchResultCache.Result(wrapOk(maps), null, null, itinerarySummary(found));
+            });
+            return apply(result, "last_search (connections): " + origin + " -> " + destination + " on " + date);
+        } catch (Exception e) {
+            return wrapError("INTERNAL_ERROR", "Failed to search connections: " + e.getMessage());
+        }
+    }
+
     @Tool("Find the cheapest flight for given origin, destination and date (YYYY-MM-DD). origin/destination can be a city name or IATA code. Date can be written in natural language; you MUST normalize it to YYYY-MM-DD (infer year to nearest future date). If normalization fails, ask only for the date. Returns a structured JSON: { status, data: {flight}, error? }. If any argument is missing, ask the user only for that specific piece.")
     public String cheapestFlight(String origin, String destination, String date) {
         try {
             var validation = validate(origin, destination, date);
             if (validation != null) return wrapError("VALIDATION", validation);
-
-            List<Map<String, Object>> flights = fromDataset(origin, destination, date);
-            if (flights.isEmpty()) {
-                flights = mockFlights(origin, destination, date);
-            }
-            writeTopSummaryToChatMemory("last_search (cheapest candidates): " + origin + " -> " + destination + " on " + date, flights);
-            Map<String, Object> best = flights.stream()
-                    .min(Comparator.comparingDouble(f -> ((Number) f.get("price")).doubleValue()))
-                    .orElse(new java.util.LinkedHashMap<>());
-            rememberServerLastSearch(flights);
-            if (best.get("price") != null) {
-                rememberChosenServer(best);
-            }
-            if (best.isEmpty()) {
-                return wrapError("NOT_FOUND", "No flights found for the given route and date");
-            }
-            return wrapOk(best);
+            return apply(cheapestFlightResult(origin, destination, date),
+                    "last_search (cheapest candidates): " + origin + " -> " + destination + " on " + date);
         } catch (Exception e) {
             return wrapError("INTERNAL_ERROR", "Failed to find cheapest flight: " + e.getMessage());
         }
     }
 
+    @Tool("Fare calendar: the lowest price per day for a route in a window of +/- days around a date (YYYY-MM-DD). Use it for flexible-date questions such as 'cheapest day around Dec 22'; one call replaces a search per date. origin/destination can be a city name or IATA code; normalize the date to YYYY-MM-DD. days defaults to 3 (max 15); past days are skipped. Returns a structured JSON: { status, data: { cheapestDate, days: [{date, price|null, currency, flights, flightNumber, carrier}] }, error? }.")
+    public String fareCalendar(String origin, String destination, String date, Integer days) {
+        try {
+            var validation = validate(origin, destination, date);
+            if (validation != null) return wrapError("VALIDATION", validation);
+            int radius = (days == null || days < 0) ? 3 : Math.min(days, 15);
+            LocalDate center = LocalDate.parse(date.trim());
+            LocalDate from = center.minusDays(radius);
+            LocalDate today = LocalDate.now(systemZone);
+            if (from.isBefore(today)) from = today;
+            int fromDay = (int) from.toEpochDay();
+            int length = (int) (center.toEpochDay() + radius) - fromDay + 1;
+
+            FlightCatalog.Published published = catalog.published();
+            FlightSnapshot snap = published.snapshot();
+            ResolvedRoute route = ResolvedRoute.resolve(snap, origin, destination);
+            SearchResultCache.Result result = cache.get(published.generation(),
+                    routeQuery("fareCalendar", route, from + "+" + length), () -> {
+                FlightStore store = snap.store();
+                int[] routes = new int[route.origins().length * route.destinations().length];
+                int r = 0;
+                for (int o : route.origins()) {
+                    for (int d : route.destinations()) routes[r++] = snap.fareCalendar().route(o, d);
+                }
+                int[] cheapest = new int[length];
+                int[] counts = new int[length];
+                snap.fareCalendar().fill(store, routes, fromDay, cheapest, counts);
+
+                List<Map<String, Object>> calendar = new ArrayList<>(length);
+                int best = -1;
+                for (int i = 0; i < length; i++) {
+                    Map<String, Object> day = new LinkedHashMap<>();
+                    day.put("date", LocalDate.ofEpochDay(fromDay + i).toString());
+                    int row = cheapest[i];
+                    day.put("price", row < 0 ? null : store.price(row));
+                    day.put("currency", row < 0 ? null : store.currency(row));
+                    day.put("flights", counts[i]);
+                    if (row >= 0) {
+                        day.put("flightNumber", store.flightNumber(row));
+                        day.put("carrier", store.carrier(row));
+                        if (best < 0 || store.price(row) < store.price(cheapest[best])) best = i;
+                    }
+                    calendar.add(day);
+                }
+                if (best < 0) return errorResult("NOT_FOUND", "No flights found for the given route around this date");
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("cheapestDate", calendar.get(best).get("date"));
+                out.put("days", calendar);
+                return new SearchResultCache.Result(wrapOk(out), null, null, calendarSummary(calendar));
+            });
+            return apply(result, "fare_calendar: " + origin + " -> " + destination + " around " + date);
+        } catch (Exception e) {
+            return wrapError("INTERNAL_ERROR", "Failed to build fare calendar: " + e.getMessage());
+        }
+    }
+
     @Tool("Suggest destinations from a given origin. Date is optional (YYYY-MM-DD). If provided in natural language, normalize it to YYYY-MM-DD (infer year to nearest future date). If normalization fails, ask only for the date. If date is empty, pick the cheapest per destination across all dates in the dataset. Returns a structured JSON: { status, data: [flights(one per destination)] }.")
     public String suggestDestinations(String origin, String date, Integer limit) {
         try {
             if (origin == null || origin.isBlank()) return wrapError("VALIDATION", "origin is required");
             int topN = (limit == null || limit <= 0) ? 5 : Math.min(limit, 10);
-            List<Map<String, Object>> options = fromDatasetAnyDestination(origin, date)
-                    .stream()
-                    .collect(Collectors.groupingBy(r -> String.valueOf(r.get("destination"))))
-                    .values().stream()
-                    .map(list -> list.stream().min(Comparator.comparingDouble(r -> ((Number) r.get("price")).doubleValue())).orElse(null))
-                    .filter(Objects::nonNull)
-                    .sorted(Comparator.comparingDouble(r -> ((Number) r.get("price")).doubleValue()))
-                    .limit(topN)
-                    .collect(Collectors.toList());
-            writeTopSummaryToChatMemory("last_search: from " + origin + (date != null && !date.isBlank() ? (" on " + date) : ""), options);
-            rememberServerLastSearch(options);
-            return wrapOk(options);
+            return apply(suggestResult(origin, date, topN),
+                    "last_search: from " + origin + (date != null && !date.isBlank() ? (" on " + date) : ""));
         } catch (Exception e) {
             return wrapError("INTERNAL_ERROR", "Failed to suggest destinations: " + e.getMessage());
         }
@@ -216,20 +224,130 @@ public class FlightSearchTool {
     public String recommendFromOrigin(String origin, String date) {
         try {
             if (origin == null || origin.isBlank()) return wrapError("VALIDATION", "origin is required");
-            List<Map<String, Object>> options = fromDatasetAnyDestination(origin, date);
-            if (options.isEmpty()) return wrapError("NOT_FOUND", "No flights found");
-            Map<String, Object> best = options.stream()
-                    .min(Comparator.comparingDouble(r -> ((Number) r.get("price")).doubleValue()))
-                    .orElse(options.get(0));
-            writeTopSummaryToChatMemory("last_search: from " + origin + (date != null && !date.isBlank() ? (" on " + date) : ""), options);
-            rememberServerLastSearch(options);
-            rememberChosenServer(best);
-            return wrapOk(best);
+            return apply(recommendResult(origin, date),
+                    "last_search: from " + origin + (date != null && !date.isBlank() ? (" on " + date) : ""));
         } catch (Exception e) {
             return wrapError("INTERNAL_ERROR", "Failed to recommend flight: " + e.getMessage());
         }
     }
 
+    // ---- Typed API for in-process callers (no JSON, no session side effects) ----
+
+    /** Every flight of {@link #findFlights(String, String, String, int, int)}, unpaged. */
+    public List<Flight> findFlights(String origin, String destination, String date) {
+        return findFlights(origin, destination, date, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Flights {@code [offset, offset + limit)} of the route and date, cheapest first. Empty when
+     * the arguments are invalid or when the dataset only has one-stop connections (see
+     * {@link #findConnections}); falls back to mock flights when the route is unknown, like
+     * {@link #searchFlights}.
+     */
+    public List<Flight> findFlights(String origin, String destination, String date, int offset, int limit) {
+        if (validate(origin, destination, date) != null || offset < 0 || limit <= 0) return List.of();
+        List<Flight> flights = searchFlightsResult(origin, destination, date, offset, limit).flights();
+        return flights != null ? flights : List.of();
+    }
+
+    /** The cheapest direct flight for the route and date, or null (also when only connections exist). */
+    public Flight findCheapest(String origin, String destination, String date) {
+        if (validate(origin, destination, date) != null) return null;
+        return cheapestFlightResult(origin, destination, date).chosen();
+    }
+
+    /** The cheapest flight per destination from the origin, optionally on a date or date prefix. */
+    public List<Flight> suggestFrom(String origin, String date, int limit) {
+        if (origin == null || origin.isBlank()) return List.of();
+        List<Flight> flights = suggestResult(origin, date, Math.max(1, Math.min(limit, 10))).flights();
+        return flights != null ? flights : List.of();
+    }
+
+    /** The cheapest flight from the origin, or null. */
+    public Flight recommendFrom(String origin, String date) {
+        if (origin == null || origin.isBlank()) return null;
+        return recommendResult(origin, date).chosen();
+    }
+
+    /** Direct and one-stop itineraries for the route and date, best first. */
+    public List<FlightItinerary> findConnections(String origin, String destination, String date,
+                                                 ConnectionSearch.Rank rank, int limit) {
+        if (validate(origin, destination, date) != null || limit <= 0) return List.of();
+        FlightSnapshot snap = catalog.current();
+        return itineraries(snap, ResolvedRoute.resolve(snap, origin, destination), date, rank, limit);
+    }
+
+    private SearchResultCache.Result searchFlightsResult(String origin, String destination, String date, int offset, int limit) {
+        FlightCatalog.Published published = catalog.published();
+        FlightSnapshot snap = published.snapshot();
+        ResolvedRoute route = ResolvedRoute.resolve(snap, origin, destination);
+        String query = routeQuery("searchFlights", route, date) + "|" + offset + "|" + limit;
+        return cache.get(published.generation(), query, () -> {
+            RoutePage page = routeRows(snap, route, date, offset, limit);
+            if (page.total() == 0) {
+                // prefer real one-stop itineraries over invented direct flights
+                if (!connections(snap, route, date, ConnectionSearch.Rank.PRICE, 1).isEmpty()) {
+                    return errorResult("NO_DIRECT_FLIGHTS", "No direct flights for this route and date, but one-stop connections exist; call searchConnections");
+                }
+                List<Flight> mock = mockFlights(snap, route, date);
+                int from = Math.min(offset, mock.size());
+                mock = mock.subList(from, from + Math.min(limit, mock.size() - from));
+                return new SearchResultCache.Result(wrapOk(toMaps(mock)), mock, null, topSummary(mock));
+            }
+            int next = offset + page.rows().length;
+            String cursor = next < page.total() ? String.valueOf(next) : null;
+            List<Flight> flights = toFlights(snap.store(), page.rows());
+            return new SearchResultCache.Result(snap.json().okPage(page.rows(), cursor), flights, null, topSummary(flights));
+        });
+    }
+
+    private SearchResultCache.Result cheapestFlightResult(String origin, String destination, String date) {
+        FlightCatalog.Published published = catalog.published();
+        FlightSnapshot snap = published.snapshot();
+        ResolvedRoute route = ResolvedRoute.resolve(snap, origin, destination);
+        return cache.get(published.generation(), routeQuery("cheapestFlight", route, date), () -> {
+            int[] rows = routeRows(snap, route, date, 0, pageSize).rows();
+            if (rows.length > 0) {
+                // rows are sorted by price, so the cheapest flight is the head of the slice
+                List<Flight> flights = toFlights(snap.store(), rows);
+                return new SearchResultCache.Result(snap.json().okRow(rows[0]), flights, flights.get(0), topSummary(flights));
+            }
+            if (!connections(snap, route, date, ConnectionSearch.Rank.PRICE, 1).isEmpty()) {
+                return errorResult("NO_DIRECT_FLIGHTS", "No direct flights for this route and date, but one-stop connections exist; call searchConnections");
+            }
+            List<Flight> flights = mockFlights(snap, route, date);
+            Flight best = flights.stream().min(Comparator.comparingDouble(Flight::price)).orElse(null);
+            String json = best == null
+                    ? wrapError("NOT_FOUND", "No flights found for the given route and date")
+                    : wrapOk(best.toMap());
+            return new SearchResultCache.Result(json, flights, best, topSummary(flights));
+        });
+    }
+
+    private SearchResultCache.Result suggestResult(String origin, String date, int topN) {
+        FlightCatalog.Published published = catalog.published();
+        FlightSnapshot snap = published.snapshot();
+        int[] origins = snap.places().resolve(origin);
+        return cache.get(published.generation(), originQuery("suggestDestinations", origins, date) + "|" + topN, () -> {
+            int[] rows = cheapestByDestination(snap, origins, date, topN);
+            List<Flight> options = toFlights(snap.store(), rows);
+            return new SearchResultCache.Result(snap.json().okList(rows), options, null, topSummary(options));
+        });
+    }
+
+    private SearchResultCache.Result recommendResult(String origin, String date) {
+        FlightCatalog.Published published = catalog.published();
+        FlightSnapshot snap = published.snapshot();
+        int[] origins = snap.places().resolve(origin);
+        return cache.get(published.generation(), originQuery("recommendFromOrigin", origins, date), () -> {
+            // one option per destination, cheapest first: the head is the recommendation
+            int[] rows = cheapestByDestination(snap, origins, date, RECOMMEND_OPTIONS);
+            if (rows.length == 0) return errorResult("NOT_FOUND", "No flights found");
+            List<Flight> options = toFlights(snap.store(), rows);
+            return new SearchResultCache.Result(snap.json().okRow(rows[0]), options, options.get(0), topSummary(options));
+        });
+    }
+
     private String validate(String origin, String destination, String date) {
         if (origin == null || origin.isBlank()) return "origin is required";
         if (destination == null || destination.isBlank()) return "destination is required";
@@ -248,7 +366,63 @@ public class FlightSearchTool {
         return null;
     }
 
-    private void rememberServerLastSearch(java.util.List<java.util.Map<String, Object>> list) {
+    // ---- Result cache keys and session side effects ----
+
+    /**
+     * Origin and destination of a query, as typed and as the airport ids they resolve to. Resolved
+     * once per query: the cache key, the index lookup, the connection search and the mock
+     * fallback all reuse it.
+     */
+    private record ResolvedRoute(String origin, String destination, int[] origins, int[] destinations) {
+        static ResolvedRoute resolve(FlightSnapshot snap, String origin, String destination) {
+            return new ResolvedRoute(origin, destination, snap.places().resolve(origin), snap.places().resolve(destination));
+        }
+
+        /** The first resolved airport code, or the text as typed (upper-cased) when it resolves to none. */
+        static String label(FlightSnapshot snap, int[] ids, String typed) {
+            return ids.length > 0 ? snap.store().airports().get(ids[0]) : typed.toUpperCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Canonical key of a route query: the resolved airport ids rather than the spelling used. A
+     * side that resolves to no airport is keyed by its text, which is what the mock fallback uses.
+     */
+    private static String routeQuery(String operation, ResolvedRoute route, String date) {
+        return operation + "|" + side(route.origins(), route.origin()) + "|" + side(route.destinations(), route.destination()) + "|" + date;
+    }
+
+    private static String side(int[] ids, String typed) {
+        return ids.length > 0 ? Arrays.toString(ids) : "'" + typed.toUpperCase(Locale.ROOT) + "'";
+    }
+
+    private static String originQuery(String operation, int[] origins, String date) {
+        return operation + "|" + Arrays.toString(origins) + "|" + (date == null ? "" : date.trim());
+    }
+
+    /** Offset encoded in a searchFlights cursor; anything unparsable starts from the first page. */
+    private static int parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0;
+        try {
+            return Math.max(0, Integer.parseInt(cursor.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private SearchResultCache.Result errorResult(String code, String message) {
+        return new SearchResultCache.Result(wrapError(code, message), null, null, null);
+    }
+
+    /** Replays what the tool remembers for the session (cached or fresh) and returns the JSON. */
+    private String apply(SearchResultCache.Result result, String context) {
+        if (result.memoryNote() != null) appendToChatMemory(context, result.memoryNote());
+        if (result.flights() != null) rememberServerLastSearch(result.flights());
+        if (result.chosen() != null) rememberChosenServer(result.chosen());
+        return result.json();
+    }
+
+    private void rememberServerLastSearch(List<Flight> list) {
         try {
             String memId = ConversationContext.getMemoryId();
             if (memId == null || list == null || list.isEmpty()) return;
@@ -259,10 +433,10 @@ public class FlightSearchTool {
         } catch (Exception ignore) {}
     }
 
-    private void rememberChosenServer(java.util.Map<String, Object> obj) {
+    private void rememberChosenServer(Flight obj) {
         try {
             String memId = ConversationContext.getMemoryId();
-            if (memId == null || obj == null || obj.isEmpty()) return;
+            if (memId == null || obj == null) return;
             AgentService svc = agentServiceProvider.getIfAvailable();
             if (svc != null) {
                 svc.rememberChosen(memId, obj);
@@ -270,312 +444,294 @@ public class FlightSearchTool {
         } catch (Exception ignore) {}
     }
 
-    private void writeTopSummaryToChatMemory(String context, List<Map<String, Object>> list) {
+    private void appendToChatMemory(String context, String summary) {
         try {
             String memId = ConversationContext.getMemoryId();
-            if (memId == null || list == null || list.isEmpty()) return;
+            if (memId == null || summary == null || summary.isEmpty()) return;
             var memory = memoryProvider.get(memId);
             if (memory == null) return;
-            StringBuilder sb = new StringBuilder();
-            if (context != null && !context.isBlank()) {
-                sb.append("Context: ").append(context).append("\n");
-            }
-            int n = Math.min(list.size(), 5);
-            for (int i = 0; i < n; i++) {
-                Map<String, Object> f = list.get(i);
-                sb.append(i + 1).append(") ")
-                  .append(String.valueOf(f.getOrDefault("carrier", "?"))).append(' ')
-                  .append(String.valueOf(f.getOrDefault("flightNumber", "?")))
-                  .append(" on ").append(String.valueOf(f.getOrDefault("date", "?")))
-                  .append("  ")
-                  .append(String.valueOf(f.getOrDefault("origin", "?"))).append(" -> ")
-                  .append(String.valueOf(f.getOrDefault("destination", "?")))
-                  .append(", price=")
-                  .append(String.valueOf(f.getOrDefault("price", "?"))).append(' ')
-                  .append(String.valueOf(f.getOrDefault("currency", "")))
-                  .append("\n");
-            }
-            if (list.size() > n) sb.append("(+").append(list.size() - n).append(" more)\n");
-            memory.add(AiMessage.from(sb.toString().trim()));
+            String text = (context != null && !context.isBlank()) ? "Context: " + context + "\n" + summary : summary;
+            memory.add(AiMessage.from(text));
         } catch (Exception ignore) {
         }
     }
 
-    private List<Map<String, Object>> fromDataset(String origin, String destination, String date) {
-        if (dataset == null || dataset.isEmpty()) return Collections.emptyList();
-        String o = origin.trim();
-        String d = destination.trim();
-        String dt = date.trim();
-        return dataset.stream()
-                .filter(r -> dt.equals(r.get("date")))
-                .filter(r -> matchesPlace(o, String.valueOf(r.get("origin")), String.valueOf(r.get("originCity")))
-                          && matchesPlace(d, String.valueOf(r.get("destination")), String.valueOf(r.get("destinationCity"))))
-                .sorted(Comparator.comparingDouble(r -> ((Number) r.get("price")).doubleValue()))
-                .collect(Collectors.toList());
+    private static String calendarSummary(List<Map<String, Object>> calendar) {
+        if (calendar == null || calendar.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, Object> day : calendar) {
+            sb.append(day.get("date")).append(": ");
+            if (day.get("price") == null) sb.append("no flights");
+            else sb.append("from ").append(day.get("price")).append(' ').append(day.get("currency"));
+            sb.append("\n");
+        }
+        return sb.toString().trim();
     }
 
-    private List<Map<String, Object>> fromDatasetAnyDestination(String origin, String dateOrNull) {
-        if (dataset == null || dataset.isEmpty()) return Collections.emptyList();
-        String o = origin.trim();
-        return dataset.stream()
-                .filter(r -> dateOrNull == null || dateOrNull.isBlank() || String.valueOf(r.get("date")).startsWith(dateOrNull.trim()))
-                .filter(r -> matchesPlace(o, String.valueOf(r.get("origin")), String.valueOf(r.get("originCity"))))
-                .collect(Collectors.toList());
+    private static String itinerarySummary(List<FlightItinerary> itineraries) {
+        if (itineraries == null || itineraries.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        int n = Math.min(itineraries.size(), 5);
+        for (int i = 0; i < n; i++) {
+            FlightItinerary it = itineraries.get(i);
+            sb.append(i + 1).append(") ");
+            for (int l = 0; l < it.legs().size(); l++) {
+                Flight f = it.legs().get(l);
+                if (l > 0) sb.append(" + ");
+                sb.append(f.carrier()).append(' ').append(f.flightNumber())
+                  .append(' ').append(f.origin()).append(" -> ").append(f.destination());
+            }
+            sb.append(", ").append(it.durationMinutes()).append(" min, price=")
+              .append(Math.round(it.price() * 100.0) / 100.0).append(' ').append(it.currency()).append("\n");
+        }
+        if (itineraries.size() > n) sb.append("(+").append(itineraries.size() - n).append(" more)\n");
+        return sb.toString().trim();
     }
 
-
-    private List<Map<String, Object>> mockFlights(String origin, String destination, String date) {
-        // Create deterministic pseudo-random prices based on inputs, so the same
-        // query yields identical results.
-        int seed = Objects.hash(origin.toUpperCase(Locale.ROOT), destination.toUpperCase(Locale.ROOT), date);
-        Random rnd = new Random(seed);
-
-        List<Map<String, Object>> flights = new ArrayList<>();
-        String[] carriers = {"ACME Air", "SkyLine", "BlueJet", "Nimbus"};
-        String[] numbers = {"101", "202", "303", "404"};
-
-        for (int i = 0; i < 4; i++) {
-            double base = 80 + (rnd.nextInt(120)); // 80..199
-            double taxes = Math.round((base * 0.21) * 100.0) / 100.0;
-            double total = Math.round((base + taxes) * 100.0) / 100.0;
-            Map<String, Object> f = new LinkedHashMap<>();
-            String o = origin.toUpperCase(Locale.ROOT);
-            String d = destination.toUpperCase(Locale.ROOT);
-            f.put("carrier", carriers[i]);
-            f.put("flightNumber", carriers[i].substring(0, 2).toUpperCase(Locale.ROOT) + numbers[i]);
-            f.put("origin", o);
-            f.put("destination", d);
-            f.put("date", date);
-            LocalDateTime dep = LocalDate.parse(date).atTime(6 + i * 3, (i * 13) % 60);
-            LocalDateTime arr = dep.plusHours(3).plusMinutes(45);
-            f.put("departure", toIsoOffset(dep));
-            f.put("arrival", toIsoOffset(arr));
-            f.put("price", total);
-            f.put("currency", "USD");
-            flights.add(f);
+    private static String topSummary(List<Flight> list) {
+        if (list == null || list.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        int n = Math.min(list.size(), 5);
+        for (int i = 0; i < n; i++) {
+            Flight f = list.get(i);
+            sb.append(i + 1).append(") ")
+              .append(f.carrier()).append(' ')
+              .append(f.flightNumber())
+              .append(" on ").append(f.date())
+              .append("  ")
+              .append(f.origin()).append(" -> ")
+              .append(f.destination())
+              .append(", price=")
+              .append(f.price()).append(' ')
+              .append(f.currency())
+              .append("\n");
         }
-        return flights;
+        if (list.size() > n) sb.append("(+").append(list.size() - n).append(" more)\n");
+        return sb.toString().trim();
     }
 
-    private List<Map<String, Object>> loadDataset(ResourceLoader loader, String location) {
+    /** One page of a route's rows and the number of rows on the route and date. */
+    private record RoutePage(int[] rows, int total) {}
+
+    /**
+     * Rows {@code [offset, offset + limit)} of the route on the given date, sorted by price. The
+     * (origin, destination, date) bucket of every pair of resolved airports is read directly: a
+     * single bucket is sliced, several buckets (a city served by several airports) are merged by
+     * price only as far as the requested page.
+     */
+    private RoutePage routeRows(FlightSnapshot snap, ResolvedRoute route, String date, int offset, int limit) {
+        FlightStore store = snap.store();
+        if (store.isEmpty()) return new RoutePage(new int[0], 0);
+        int day;
         try {
-            Resource resource = location.startsWith("classpath:")
-                    ? new ClassPathResource(location.substring("classpath:".length()))
-                    : loader.getResource(location);
-            if (!resource.exists()) {
-                log.warn("[FlightSearchTool] Dataset not found at {}. Using mock generator.", location);
-                return Collections.emptyList();
+            day = (int) LocalDate.parse(date.trim()).toEpochDay();
+        } catch (Exception e) {
+            return new RoutePage(new int[0], 0);
+        }
+        RouteDateIndex index = snap.routeIndex();
+        int[] buckets = new int[route.origins().length * route.destinations().length];
+        int n = 0;
+        int total = 0;
+        for (int o : route.origins()) {
+            for (int d : route.destinations()) {
+                int b = index.bucket(o, d, day);
+                if (b < 0) continue;
+                buckets[n++] = b;
+                total += index.bucketEnd(b) - index.bucketStart(b);
             }
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
-                String header = br.readLine(); // read header
-                if (header == null) return Collections.emptyList();
-                List<Map<String, Object>> rows = new ArrayList<>();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if (line.isBlank()) continue;
-                    String[] parts = line.split(",");
-                    if (parts.length < 9) continue;
-                    Map<String, Object> r = new LinkedHashMap<>();
-                    r.put("carrier", parts[0]);
-                    r.put("flightNumber", parts[1]);
-                    r.put("origin", parts[2]);
-                    r.put("destination", parts[3]);
-                    r.put("date", parts[4]);
-                    r.put("departure", toIsoOffset(parts[4], parts[5]));
-                    r.put("arrival", toIsoOffset(parts[4], parts[6]));
-                    try {
-                        r.put("price", Double.parseDouble(parts[7]));
-                    } catch (NumberFormatException nfe) {
-                        r.put("price", 0.0);
-                    }
-                    r.put("currency", parts[8]);
-                    // Require city columns to be present in the dataset; skip invalid lines
-                    if (parts.length < 11) continue;
-                    r.put("originCity", parts[9]);
-                    r.put("destinationCity", parts[10]);
-                    rows.add(r);
-                }
-                int before = rows.size();
-                // Augment with additional synthetic capital-to-capital flights for wider coverage (configurable)
-                if (syntheticCount > 0) {
-                    rows.addAll(generateCapitalFlights(syntheticCount));
+        }
+        int from = Math.min(offset, total);
+        int len = Math.min(limit, total - from);
+        if (n == 1) {
+            int[] out = new int[len];
+            for (int i = 0; i < len; i++) out[i] = index.row(index.bucketStart(buckets[0]) + from + i);
+            return new RoutePage(out, total);
+        }
+        return new RoutePage(index.merge(store, Arrays.copyOf(buckets, n), from, len), total);
+    }
+
+    /**
+     * Cheapest row per destination departing from origin, sorted by price and capped at limit,
+     * optionally restricted to a date or date prefix (YYYY-MM-DD, YYYY-MM, YYYY). Read from the
+     * per-origin index: a single origin airport on a single day (or across all dates) is one
+     * pre-sorted slice; several airports or days are merged and de-duplicated by destination.
+     */
+    private int[] cheapestByDestination(FlightSnapshot snap, int[] origins, String dateOrNull, int limit) {
+        FlightStore store = snap.store();
+        if (store.isEmpty()) return new int[0];
+        OriginCheapestIndex index = snap.originIndex();
+        String prefix = dateOrNull == null ? "" : dateOrNull.trim();
+        int[] range = prefix.isEmpty() ? null : dayRange(prefix);
+        if (!prefix.isEmpty() && range == null) return new int[0];
+
+        if (origins.length == 1 && (range == null || range[0] == range[1])) {
+            int from, to;
+            if (range == null) {
+                from = index.originStart(origins[0]);
+                to = index.originEnd(origins[0]);
+            } else {
+                int slice = index.daySlice(origins[0], range[0]);
+                if (slice < 0) return new int[0];
+                from = index.daySliceStart(slice);
+                to = index.daySliceEnd(slice);
+            }
+            int[] out = new int[Math.min(to - from, limit)];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = range == null ? index.originRow(from + i) : index.dayRow(from + i);
+            }
+            return out;
+        }
+
+        // cheapest row per destination over every slice, then the top `limit` of those by price
+        int[] best = new int[store.airports().size()];
+        Arrays.fill(best, -1);
+        for (int o : origins) {
+            if (range == null) {
+                for (int p = index.originStart(o), end = index.originEnd(o); p < end; p++) {
+                    keepCheapest(store, best, index.originRow(p));
                 }
-                // Deduplicate by (carrier+flightNumber+date)
-                java.util.LinkedHashMap<String, Map<String, Object>> unique = new java.util.LinkedHashMap<>();
-                for (Map<String, Object> r : rows) {
-                    unique.putIfAbsent(uniqueKey(r), r);
+                continue;
+            }
+            for (int day = range[0]; day <= range[1]; day++) {
+                int slice = index.daySlice(o, day);
+                if (slice < 0) continue;
+                for (int p = index.daySliceStart(slice), end = index.daySliceEnd(slice); p < end; p++) {
+                    keepCheapest(store, best, index.dayRow(p));
                 }
-                java.util.List<Map<String, Object>> out = new java.util.ArrayList<>(unique.values());
-                log.info("[FlightSearchTool] Loaded {} flights from dataset {} and augmented +{} capital flights (unique total={}).", before, location, syntheticCount, out.size());
-                return out;
             }
-        } catch (Exception e) {
-            log.warn("[FlightSearchTool] Failed to load dataset {}: {}. Using mock generator.", location, e.toString());
-            return Collections.emptyList();
         }
+        PriceTopK top = new PriceTopK(store, limit);
+        for (int row : best) {
+            if (row >= 0) top.offer(row);
+        }
+        return top.drainAscending();
     }
 
-    private List<Map<String, Object>> generateCapitalFlights(int count) {
-        List<Map<String, Object>> list = new ArrayList<>(count);
-        String[][] capitals = new String[][]{
-                {"LHR","London"}, {"CDG","Paris"}, {"BER","Berlin"}, {"MAD","Madrid"}, {"FCO","Rome"},
-                {"IAD","Washington"}, {"MEX","Mexico City"}, {"BSB","Brasilia"}, {"EZE","Buenos Aires"},
-                {"SVO","Moscow"}, {"PEK","Beijing"}, {"HND","Tokyo"}, {"ICN","Seoul"}, {"BKK","Bangkok"},
-                {"SIN","Singapore"}, {"CGK","Jakarta"}, {"DEL","New Delhi"}, {"CBR","Canberra"}, {"WLG","Wellington"},
-                {"MNL","Manila"}, {"HAN","Hanoi"}, {"RUH","Riyadh"}, {"AUH","Abu Dhabi"}, {"DOH","Doha"},
-                {"CAI","Cairo"}, {"NBO","Nairobi"}, {"JNB","Johannesburg"}, {"ADD","Addis Ababa"}, {"ATH","Athens"},
-                {"OSL","Oslo"}, {"CPH","Copenhagen"}, {"ARN","Stockholm"}, {"HEL","Helsinki"}, {"DUB","Dublin"},
-                {"LIS","Lisbon"}, {"VIE","Vienna"}, {"PRG","Prague"}, {"ZAG","Zagreb"}, {"BUD","Budapest"},
-                {"BTS","Bratislava"}, {"WAW","Warsaw"}, {"BRU","Brussels"}, {"AMS","Amsterdam"}, {"ZRH","Zurich"},
-                {"IST","Istanbul"}, {"TLV","Tel Aviv"}, {"TUN","Tunis"}, {"ALG","Algiers"}, {"DKR","Dakar"}
-        };
-        String[] carriers = {"CapitalAir", "MetroFly", "EuroWings", "GlobeAir"};
-        Random rnd = new Random(424242); // deterministic
-        String[] dates = new String[]{"2025-12-20","2025-12-21","2025-12-22","2025-12-23","2025-12-24","2025-12-25","2025-12-26","2025-12-27","2025-12-28","2025-12-29"};
-        for (int i = 0; i < count; i++) {
-            int oi = rnd.nextInt(capitals.length);
-            int di = rnd.nextInt(capitals.length);
-            if (di == oi) { di = (di + 1) % capitals.length; }
-            String oCode = capitals[oi][0];
-            String oCity = capitals[oi][1];
-            String dCode = capitals[di][0];
-            String dCity = capitals[di][1];
-            String date = dates[rnd.nextInt(dates.length)];
-            int depH = 5 + rnd.nextInt(18); // 05..22
-            int depM = (rnd.nextInt(4)) * 15; // 00,15,30,45
-            int durH = 2 + rnd.nextInt(9); // 2..10 hours
-            int arrH = (depH + durH) % 24;
-            int arrM = (depM + 30) % 60;
-            double base = 120 + rnd.nextInt(600); // 120..719
-            double total = Math.round((base) * 100.0) / 100.0;
-            Map<String, Object> r = new LinkedHashMap<>();
-            String carrier = carriers[i % carriers.length];
-            r.put("carrier", carrier);
-            r.put("flightNumber", carrier.substring(0, 2).toUpperCase(Locale.ROOT) + (1000 + i));
-            r.put("origin", oCode);
-            r.put("destination", dCode);
-            r.put("date", date);
-            LocalDate dateObj = LocalDate.parse(date);
-            LocalDateTime dep = dateObj.atTime(depH, depM);
-            LocalDateTime arr = dep.plusHours(durH).plusMinutes(30);
-            r.put("departure", toIsoOffset(dep));
-            r.put("arrival", toIsoOffset(arr));
-            r.put("price", total);
-            r.put("currency", "USD");
-            r.put("originCity", oCity);
-            r.put("destinationCity", dCity);
-            list.add(r);
+    private static void keepCheapest(FlightStore store, int[] best, int row) {
+        int dest = store.destinationId(row);
+        int cur = best[dest];
+        if (cur < 0 || store.price(row) < store.price(cur) || (store.price(row) == store.price(cur) && row < cur)) {
+            best[dest] = row;
         }
-        return list;
     }
 
-    // Lookup a specific flight in the dataset by tripId (<carrier>-<flightNumber>-<date>),
-    // where carrier in tripId may have spaces removed.
-    public Map<String, Object> lookupFlightByTripId(String tripId) {
-        if (tripId == null || tripId.isBlank()) return Collections.emptyMap();
+    private List<ConnectionSearch.Itinerary> connections(FlightSnapshot snap, ResolvedRoute route, String date,
+                                                         ConnectionSearch.Rank rank, int limit) {
+        int day;
         try {
-            String t = tripId.trim();
-            java.util.regex.Matcher m = java.util.regex.Pattern.compile("(.*)-(\\d{4}-\\d{2}-\\d{2})$").matcher(t);
-            if (!m.find()) return Collections.emptyMap();
-            String left = m.group(1);
-            String date = m.group(2);
-            int lastDash = left.lastIndexOf('-');
-            if (lastDash <= 0) return Collections.emptyMap();
-            String carrierPart = left.substring(0, lastDash);
-            String flightNumber = left.substring(lastDash + 1);
-            String key = normalizeTripKey(carrierPart, flightNumber, date);
-            Map<String, Object> r = tripIndex.get(key);
-            return r != null ? r : Collections.emptyMap();
+            day = (int) LocalDate.parse(date.trim()).toEpochDay();
         } catch (Exception e) {
-            return Collections.emptyMap();
+            return List.of();
         }
+        return ConnectionSearch.search(snap, route.origins(), route.destinations(), day, rank, limit);
     }
 
-    private static String normalizeCarrier(String s) {
-        if (s == null) return "";
-        return s.replace(" ", "").trim();
+    private List<FlightItinerary> itineraries(FlightSnapshot snap, ResolvedRoute route, String date,
+                                              ConnectionSearch.Rank rank, int limit) {
+        List<ConnectionSearch.Itinerary> found = connections(snap, route, date, rank, limit);
+        List<FlightItinerary> out = new ArrayList<>(found.size());
+        for (ConnectionSearch.Itinerary it : found) out.add(toItinerary(snap.store(), it));
+        return out;
     }
 
-    // ---- Helpers for normalization, ISO formatting, and indexing ----
-    private static String slug(String s) {
-        if (s == null) return "";
-        String t = s.trim().toLowerCase(Locale.ROOT);
-        StringBuilder sb = new StringBuilder(t.length());
-        for (int i = 0; i < t.length(); i++) {
-            char c = t.charAt(i);
-            if (Character.isLetterOrDigit(c)) sb.append(c);
-            else if (Character.isWhitespace(c) || c == '-') sb.append(' ');
-        }
-        return sb.toString().replaceAll("\\s+", " ").trim();
-    }
-
-    private String canonicalIataOrNull(String input) {
-        if (input == null || input.isBlank()) return null;
-        String in = input.trim();
-        if (in.matches("(?i)^[A-Z]{3}$")) return in.toUpperCase(Locale.ROOT);
-        String byAlias = ALIAS_TO_IATA.get(slug(in));
-        if (byAlias != null) return byAlias;
-        return null;
+    private FlightItinerary toItinerary(FlightStore store, ConnectionSearch.Itinerary it) {
+        List<Flight> legs = it.direct()
+                ? List.of(leg(store, it.first()))
+                : List.of(leg(store, it.first()), leg(store, it.second()));
+        Integer layover = it.direct() ? null : store.departureMinute(it.second()) - ConnectionSearch.arrival(store, it.first());
+        return new FlightItinerary(legs, it.price(), store.currency(it.first()),
+                FlightStore.fromEpochMinute(it.departureMinute()).atZone(systemZone).toOffsetDateTime(),
+                FlightStore.fromEpochMinute(it.arrivalMinute()).atZone(systemZone).toOffsetDateTime(),
+                it.durationMinutes(), layover);
     }
 
-    private boolean matchesPlace(String input, String rowCode, String rowCity) {
-        if (input == null || input.isBlank()) return false;
-        String codeFromInput = canonicalIataOrNull(input);
-        if (codeFromInput != null) {
-            return codeFromInput.equalsIgnoreCase(String.valueOf(rowCode));
-        }
-        // Compare by city names (slug to ignore case/diacritics and punctuation)
-        String inSlug = slug(input);
-        String rowCitySlug = slug(String.valueOf(rowCity));
-        if (!inSlug.isEmpty() && inSlug.equals(rowCitySlug)) return true;
-        // Fallback: raw case-insensitive compare
-        return input.equalsIgnoreCase(String.valueOf(rowCode)) || input.equalsIgnoreCase(String.valueOf(rowCity));
+    /** A leg of an itinerary; an overnight arrival lands the next day, as in the itinerary's own times. */
+    private Flight leg(FlightStore store, int row) {
+        return store.flight(row, systemZone, ConnectionSearch.arrival(store, row));
     }
 
-    private String toIsoOffset(String date, String time) {
+    /** Inclusive epoch-day range for a date prefix (YYYY-MM-DD, YYYY-MM or YYYY), or null if it is not one of those. */
+    private static int[] dayRange(String prefix) {
         try {
-            LocalDate d = LocalDate.parse(date);
-            LocalTime t;
-            if (time != null && !time.isBlank()) {
-                // ensure seconds present
-                t = LocalTime.parse(time.length() == 5 ? time + ":00" : time);
-            } else {
-                t = LocalTime.MIDNIGHT;
+            if (prefix.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                int day = (int) LocalDate.parse(prefix).toEpochDay();
+                return new int[]{day, day};
             }
-            return toIsoOffset(LocalDateTime.of(d, t));
-        } catch (Exception e) {
-            // If parse fails, return original concatenation as a last resort
-            String ts = date + "T" + (time == null ? "00:00:00" : (time.length() == 5 ? time + ":00" : time));
-            return ts + OffsetDateTime.now(systemZone).getOffset().toString();
-        }
+            if (prefix.matches("\\d{4}-\\d{2}")) {
+                YearMonth ym = YearMonth.parse(prefix);
+                return new int[]{(int) ym.atDay(1).toEpochDay(), (int) ym.atEndOfMonth().toEpochDay()};
+            }
+            if (prefix.matches("\\d{4}")) {
+                Year y = Year.parse(prefix);
+                return new int[]{(int) y.atDay(1).toEpochDay(), (int) y.atMonth(12).atEndOfMonth().toEpochDay()};
+            }
+        } catch (Exception ignore) {}
+        return null;
     }
 
-    private String toIsoOffset(LocalDateTime ldt) {
-        try {
-            ZonedDateTime zdt = ldt.atZone(systemZone);
-            return zdt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-        } catch (Exception e) {
-            return ldt.toString();
+    private List<Flight> toFlights(FlightStore store, int[] rows) {
+        List<Flight> out = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            out.add(store.flight(row, systemZone));
         }
+        return out;
     }
 
-    private String normalizeTripKey(String carrier, String flightNumber, String date) {
-        return (normalizeCarrier(carrier) + "-" + String.valueOf(flightNumber) + "-" + String.valueOf(date))
-                .toLowerCase(Locale.ROOT);
+    private static List<Map<String, Object>> toMaps(List<Flight> flights) {
+        List<Map<String, Object>> out = new ArrayList<>(flights.size());
+        for (Flight f : flights) out.add(f.toMap());
+        return out;
     }
 
-    private String uniqueKey(Map<String, Object> r) {
-        return (normalizeCarrier(String.valueOf(r.get("carrier"))) + "|"
-                + String.valueOf(r.get("flightNumber")) + "|"
-                + String.valueOf(r.get("date"))).toLowerCase(Locale.ROOT);
+
+    private List<Flight> mockFlights(FlightSnapshot snap, ResolvedRoute route, String date) {
+        // Create deterministic pseudo-random prices based on inputs, so the same
+        // query yields identical results. Seeded and labelled like the cache key: by the
+        // resolved airport, so every spelling of a place gets the same flights.
+        String o = ResolvedRoute.label(snap, route.origins(), route.origin());
+        String d = ResolvedRoute.label(snap, route.destinations(), route.destination());
+        int seed = Objects.hash(o, d, date);
+        Random rnd = new Random(seed);
+
+        List<Flight> flights = new ArrayList<>();
+        String[] carriers = {"ACME Air", "SkyLine", "BlueJet", "Nimbus"};
+        String[] numbers = {"101", "202", "303", "404"};
+
+        for (int i = 0; i < 4; i++) {
+            double base = 80 + (rnd.nextInt(120)); // 80..199
+            double taxes = Math.round((base * 0.21) * 100.0) / 100.0;
+            double total = Math.round((base + taxes) * 100.0) / 100.0;
+            LocalDate day = LocalDate.parse(date);
+            LocalDateTime dep = day.atTime(6 + i * 3, (i * 13) % 60);
+            LocalDateTime arr = dep.plusHours(3).plusMinutes(45);
+            flights.add(new Flight(carriers[i], carriers[i].substring(0, 2).toUpperCase(Locale.ROOT) + numbers[i],
+                    o, d, day, dep.atZone(systemZone).toOffsetDateTime(), arr.atZone(systemZone).toOffsetDateTime(),
+                    total, "USD", null, null));
+        }
+        return flights;
     }
 
-    private void buildTripIndex() {
-        tripIndex.clear();
-        if (dataset == null) return;
-        for (Map<String, Object> r : dataset) {
-            String key = normalizeTripKey(String.valueOf(r.get("carrier")), String.valueOf(r.get("flightNumber")), String.valueOf(r.get("date")));
-            tripIndex.putIfAbsent(key, r);
+    private static final java.util.regex.Pattern TRIP_ID = java.util.regex.Pattern.compile("(.*)-(\\d{4}-\\d{2}-\\d{2})$");
+
+    // Lookup a specific flight in the dataset by tripId (<carrier>-<flightNumber>-<date>),
+    // where carrier in tripId may have spaces removed. Returns null when there is no such flight.
+    public Flight findTrip(String tripId) {
+        if (tripId == null || tripId.isBlank()) return null;
+        try {
+            String t = tripId.trim();
+            java.util.regex.Matcher m = TRIP_ID.matcher(t);
+            if (!m.find()) return null;
+            String left = m.group(1);
+            String date = m.group(2);
+            int lastDash = left.lastIndexOf('-');
+            if (lastDash <= 0) return null;
+            String carrierPart = left.substring(0, lastDash);
+            String flightNumber = left.substring(lastDash + 1);
+            FlightStore store = catalog.current().store();
+            int row = store.findTrip(carrierPart, flightNumber, date);
+            return row >= 0 ? store.flight(row, systemZone) : null;
+        } catch (Exception e) {
+            return null;
         }
     }
 }
@@ -0,0 +1,113 @@
+package com.example.travel.assistant.tools;
+
+import com.example.travel.assistant.cache.TtlLruCache;
+import com.example.travel.assistant.flights.Flight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link TtlLruCache} of flight search results, shared by every session.
+ *
+ * Keys are canonical queries (operation, resolved airport ids, date, options) and carry the
+ * dataset generation they were computed from, so a reload invalidates every entry at the
+ * moment the new snapshot is published: a lookup with the new generation cannot match an old
+ * key, and the first one clears the map.
+ *
+ * Values hold the serialized tool response together with the typed flights the tool remembers
+ * for the session, so a hit skips the search and the JSON serialization, and in-process callers
+ * share the entries with the LLM tools.
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    /** A cached tool response; {@code flights}, {@code chosen} and {@code memoryNote} may be null. */
+    public record Result(String json, List<Flight> flights, Flight chosen, String memoryNote) {}
+
+    private record Key(long generation, String query) {}
+
+    private final TtlLruCache<Key, Result> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public SearchResultCache(@Value("${assistant.tools.flight.cache.max-entries:${ASSISTANT_TOOLS_FLIGHT_CACHE_MAX_ENTRIES:5000}}") int maxEntries,
+                             @Value("${assistant.tools.flight.cache.ttl-seconds:${ASSISTANT_TOOLS_FLIGHT_CACHE_TTL_SECONDS:300}}") long ttlSeconds) {
+        this(maxEntries, ttlSeconds * 1_000_000_000L, System::nanoTime);
+    }
+
+    SearchResultCache(int maxEntries, long ttlNanos, LongSupplier clock) {
+        this.entries = new TtlLruCache<>(maxEntries, ttlNanos, clock);
+    }
+
+    /**
+     * Returns the cached result of the query for the dataset generation, computing and caching
+     * it on a miss. The computation runs outside the lock; two concurrent misses for the same
+     * key both compute, and the later one wins.
+     */
+    public Result get(long generation, String query, Supplier<Result> compute) {
+        if (!entries.enabled()) return compute.get();
+        Key key = new Key(generation, query);
+        for (long current; generation > (current = this.generation.get()); ) {
+            if (this.generation.compareAndSet(current, generation)) {
+                if (entries.clear()) invalidations.incrementAndGet();
+                break;
+            }
+        }
+        Result cached = entries.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        Result result = compute.get();
+        if (generation == this.generation.get()) {
+            entries.put(key, result);
+            // a reload that cleared the map just before the put must not leave a stale entry
+            if (generation != this.generation.get()) entries.remove(key);
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    long hits() { return hits.get(); }
+    long misses() { return misses.get(); }
+    long evictions() { return entries.sizeEvictions() + entries.expiredEvictions(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("assistant.flights.search.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Flight tool calls answered from the result cache")
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.search.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Flight tool calls that ran the search")
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.search.cache.evictions", entries, TtlLruCache::sizeEvictions)
+                .tag("cause", "size")
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.search.cache.evictions", entries, TtlLruCache::expiredEvictions)
+                .tag("cause", "expired")
+                .register(registry);
+        FunctionCounter.builder("assistant.flights.search.cache.invalidations", invalidations, AtomicLong::get)
+                .description("Cache flushes caused by a dataset reload")
+                .register(registry);
+        Gauge.builder("assistant.flights.search.cache.size", this, SearchResultCache::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.travel.assistant.agent;
+
+import com.example.travel.assistant.memory.ConversationContext;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.AiServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatusReportingToolsTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    public class Tools {
+        @Tool("Search flights")
+        public String searchFlights(String origin) {
+            events.add("run " + origin + " for " + ConversationContext.getMemoryId());
+            return "{\"status\":\"OK\",\"data\":[]}";
+        }
+    }
+
+    /** Asks for one tool call, then streams its answer in two pieces. */
+    private static final class ScriptedStreamingModel implements StreamingChatLanguageModel {
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            generate(messages, List.of(), handler);
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, List<ToolSpecification> tools, StreamingResponseHandler<AiMessage> handler) {
+            if (!(messages.get(messages.size() - 1) instanceof ToolExecutionResultMessage)) {
+                handler.onComplete(Response.from(AiMessage.from(ToolExecutionRequest.builder()
+                        .id("1").name("searchFlights").arguments("{\"arg0\":\"JFK\"}").build())));
+                return;
+            }
+            handler.onNext("No flights ");
+            handler.onNext("found.");
+            handler.onComplete(Response.from(AiMessage.from("No flights found.")));
+        }
+    }
+
+    @AfterEach
+    void clearContext() {
+        ConversationContext.clear();
+    }
+
+    @Test
+    void reportsToolsBeforeTheyRunAndStreamsTheAnswer() {
+        TravelAssistantAgent agent = AiServices.builder(TravelAssistantAgent.class)
+                .streamingChatLanguageModel(new ScriptedStreamingModel())
+                .chatMemoryProvider(id -> MessageWindowChatMemory.withMaxMessages(10))
+                .tools(StatusReportingTools.of(List.of(new Tools())))
+                .build();
+        ConversationContext.setMemoryId("s1");
+        ConversationContext.setListener(new TurnListener() {
+            @Override
+            public void status(String message) { events.add("status " + message); }
+
+            @Override
+            public void token(String text) { events.add("listener token " + text); }
+        });
+
+        CompletableFuture<Response<AiMessage>> done = new CompletableFuture<>();
+        agent.chatStream("s1", "flights from JFK")
+                .onNext(t -> events.add("token " + t))
+                .onComplete(done::complete)
+                .onError(done::completeExceptionally)
+                .start();
+
+        assertEquals("No flights found.", done.join().content().text());
+        assertEquals(List.of("status Searching flights…", "run JFK for s1", "token No flights ", "token found."), events);
+    }
+
+    @Test
+    void withoutAStreamingClientToolsJustRun() {
+        var executors = StatusReportingTools.of(List.of(new Tools()));
+        assertEquals(List.of("searchFlights"), executors.keySet().stream().map(ToolSpecification::name).toList());
+        String result = executors.values().iterator().next().execute(ToolExecutionRequest.builder()
+                .id("1").name("searchFlights").arguments("{\"arg0\":\"LHR\"}").build(), "s2");
+        assertEquals("{\"status\":\"OK\",\"data\":[]}", result);
+        assertEquals(List.of("run LHR for null"), events);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.travel.assistant.config;
+
+import com.example.travel.assistant.session.SessionMailbox;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatVirtualThreadsWebServerFactoryCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrency ceiling of an embedded Tomcat whose requests block on a slow upstream, the way a
+ * chat turn blocks on Gemini: each request runs a turn through {@link SessionMailbox} that
+ * sleeps for {@link #LLM_MILLIS}. With platform threads at most {@link #POOL} requests are in
+ * progress at once (a stand-in for the default 200, scaled down to keep the test fast); with
+ * {@link TomcatVirtualThreadsWebServerFactoryCustomizer}, which {@code spring.threads.virtual.enabled}
+ * installs, every connection is served concurrently. Tagged {@code benchmark}: it takes seconds
+ * and asserts wall-clock ratios, so it runs with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ExecutionModeLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeLoadTest.class);
+
+    private static final int POOL = 16;
+    private static final int REQUESTS = 200;
+    private static final long LLM_MILLIS = 250;
+
+    private record Result(long millis, int peak) {}
+
+    private static Result load(boolean virtual) throws Exception {
+        SessionMailbox mailbox = new SessionMailbox(4, false);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        HttpServlet chat = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                int now = inFlight.incrementAndGet();
+                peak.accumulateAndGet(now, Math::max);
+                try {
+                    String reply = mailbox.run(req.getParameter("session"), null, () -> {
+                        try {
+                            Thread.sleep(LLM_MILLIS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "ok";
+                    });
+                    resp.getWriter().write(reply);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.addConnectorCustomizers(c -> {
+            AbstractProtocol<?> protocol = (AbstractProtocol<?>) c.getProtocolHandler();
+            protocol.setMaxThreads(POOL);
+            protocol.setAcceptCount(REQUESTS); // a full listen backlog drops SYNs, which clients retry after a second
+        });
+        if (virtual) new TomcatVirtualThreadsWebServerFactoryCustomizer().customize(factory);
+        WebServer server = factory.getWebServer(ctx -> ctx.addServlet("chat", chat).addMapping("/chat"));
+        server.start();
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            String base = "http://localhost:" + server.getPort() + "/chat?session=s";
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> calls = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                calls.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + i)).build(), HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> call : calls) {
+                HttpResponse<String> r = call.join();
+                assertEquals(200, r.statusCode());
+                assertEquals("ok", r.body());
+            }
+            return new Result((System.nanoTime() - start) / 1_000_000, peak.get());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void virtualThreadsLiftTheRequestThreadCeiling() throws Exception {
+        load(true); // warm up class loading and the JIT
+        Result platform = load(false);
+        Result virtual = load(true);
+        log.info("[ExecutionModeLoadTest] {} requests blocking {} ms each: platform ({} threads) {} ms, peak {} in flight;"
+                        + " virtual {} ms, peak {} in flight",
+                REQUESTS, LLM_MILLIS, POOL, platform.millis, platform.peak, virtual.millis, virtual.peak);
+
+        assertTrue(platform.peak <= POOL, "platform peak " + platform.peak);
+        assertTrue(platform.millis >= REQUESTS / POOL * LLM_MILLIS, "platform " + platform.millis + " ms");
+        assertTrue(virtual.peak > POOL * 4, "virtual peak " + virtual.peak);
+        assertTrue(virtual.millis * 2 < platform.millis, virtual.millis + " vs " + platform.millis + " ms");
+    }
+}
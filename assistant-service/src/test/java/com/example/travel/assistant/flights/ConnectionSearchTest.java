@@ -0,0 +1,153 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionSearchTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionSearchTest.class);
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private static void add(FlightStore.Builder b, String number, String from, String to, LocalDate day,
+                            int depHour, int depMinute, int arrHour, int arrMinute, double price) {
+        add(b, number, from, to, day, depHour, depMinute, arrHour, arrMinute, price, "USD");
+    }
+
+    private static void add(FlightStore.Builder b, String number, String from, String to, LocalDate day,
+                            int depHour, int depMinute, int arrHour, int arrMinute, double price, String currency) {
+        b.add("ACME Air", number, from, to, day, day.atTime(depHour, depMinute), day.atTime(arrHour, arrMinute),
+                price, currency, from, to);
+    }
+
+    private static int[] ids(FlightSnapshot snap, String code) {
+        return snap.places().resolve(code);
+    }
+
+    @Test
+    void joinsLegsAtHubRespectingConnectionWindow() {
+        FlightStore.Builder b = new FlightStore.Builder(16);
+        add(b, "AC1", "SFO", "JFK", DAY, 6, 0, 14, 0, 200);
+        add(b, "AC2", "JFK", "LHR", DAY, 14, 30, 23, 0, 100);             // 30 min layover: too short
+        add(b, "AC3", "JFK", "LHR", DAY, 18, 0, 6, 0, 300);               // overnight second leg
+        add(b, "AC4", "SFO", "LHR", DAY, 16, 0, 10, 0, 900);              // direct, overnight
+        add(b, "AC5", "SFO", "ORD", DAY, 7, 0, 13, 0, 150);
+        add(b, "AC6", "ORD", "LHR", DAY.plusDays(1), 3, 0, 15, 0, 250);   // next day, 14h layover: too long
+        add(b, "AC7", "ORD", "LHR", DAY, 20, 0, 9, 0, 400);
+        add(b, "AC8", "SFO", "JFK", DAY.plusDays(1), 6, 0, 14, 0, 10);    // wrong day for a first leg
+        FlightSnapshot snap = FlightSnapshot.build(b.build());
+        FlightStore store = snap.store();
+        int day = (int) DAY.toEpochDay();
+
+        List<ConnectionSearch.Itinerary> byPrice = ConnectionSearch.search(snap, ids(snap, "SFO"), ids(snap, "LHR"), day,
+                ConnectionSearch.Rank.PRICE, 10);
+        assertEquals(List.of("AC1+AC3", "AC5+AC7", "AC4"), byPrice.stream().map(it -> label(store, it)).toList());
+        ConnectionSearch.Itinerary best = byPrice.get(0);
+        assertEquals(500.0, best.price());
+        assertEquals(24 * 60, best.durationMinutes(), "06:00 to 06:00 the next day");
+        assertTrue(byPrice.get(2).direct());
+
+        List<ConnectionSearch.Itinerary> byDuration = ConnectionSearch.search(snap, ids(snap, "SFO"), ids(snap, "LHR"), day,
+                ConnectionSearch.Rank.DURATION, 2);
+        assertEquals(List.of("AC4", "AC1+AC3"), byDuration.stream().map(it -> label(store, it)).toList());
+
+        List<ConnectionSearch.Itinerary> shortConnection = ConnectionSearch.search(snap, ids(snap, "SFO"), ids(snap, "LHR"), day,
+                ConnectionSearch.Rank.PRICE, 1, 30, 12 * 60);
+        assertEquals("AC1+AC2", label(store, shortConnection.get(0)));
+    }
+
+    @Test
+    void doesNotJoinLegsPricedInDifferentCurrencies() {
+        FlightStore.Builder b = new FlightStore.Builder(4);
+        add(b, "AC1", "SFO", "JFK", DAY, 6, 0, 14, 0, 200);
+        add(b, "EU2", "JFK", "LHR", DAY, 16, 0, 4, 0, 90, "EUR");
+        add(b, "AC3", "JFK", "LHR", DAY, 18, 0, 6, 0, 300);
+        FlightSnapshot snap = FlightSnapshot.build(b.build());
+
+        List<ConnectionSearch.Itinerary> found = ConnectionSearch.search(snap, ids(snap, "SFO"), ids(snap, "LHR"),
+                (int) DAY.toEpochDay(), ConnectionSearch.Rank.PRICE, 10);
+        assertEquals(List.of("AC1+AC3"), found.stream().map(it -> label(snap.store(), it)).toList());
+    }
+
+    @Test
+    void matchesBruteForceJoin() {
+        FlightSnapshot snap = FlightSnapshot.build(RouteDateIndexBenchmarkTest.syntheticStore(20_000, 11));
+        FlightStore store = snap.store();
+        Random rnd = new Random(5);
+        int firstDay = (int) DAY.toEpochDay();
+        for (int q = 0; q < 50; q++) {
+            int origin = rnd.nextInt(store.airports().size());
+            int destination = rnd.nextInt(store.airports().size());
+            if (origin == destination) continue;
+            int day = firstDay + rnd.nextInt(30);
+            List<ConnectionSearch.Itinerary> found = ConnectionSearch.search(snap, new int[]{origin}, new int[]{destination},
+                    day, ConnectionSearch.Rank.PRICE, 5);
+            double[] expected = bruteForcePrices(store, origin, destination, day);
+            double[] actual = found.stream().mapToDouble(ConnectionSearch.Itinerary::price).toArray();
+            assertEquals(Arrays.toString(Arrays.copyOf(expected, Math.min(5, expected.length))), Arrays.toString(actual));
+        }
+    }
+
+    private static double[] bruteForcePrices(FlightStore store, int origin, int destination, int day) {
+        List<Double> prices = new ArrayList<>();
+        for (int a = 0; a < store.size(); a++) {
+            if (store.originId(a) != origin || store.departureMinute(a) / 1440 != day) continue;
+            if (store.destinationId(a) == destination) {
+                prices.add(store.price(a));
+                continue;
+            }
+            int arrival = ConnectionSearch.arrival(store, a);
+            for (int c = 0; c < store.size(); c++) {
+                if (store.originId(c) != store.destinationId(a) || store.destinationId(c) != destination) continue;
+                int layover = store.departureMinute(c) - arrival;
+                if (layover >= ConnectionSearch.DEFAULT_MIN_CONNECTION_MINUTES
+                        && layover <= ConnectionSearch.DEFAULT_MAX_CONNECTION_MINUTES) {
+                    prices.add(store.price(a) + store.price(c));
+                }
+            }
+        }
+        return prices.stream().sorted(Comparator.naturalOrder()).mapToDouble(Double::doubleValue).toArray();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void queryLatencyOnMillionRows() {
+        FlightSnapshot snap = FlightSnapshot.build(RouteDateIndexBenchmarkTest.syntheticStore(1_000_000, 42));
+        int airports = snap.store().airports().size();
+        int firstDay = (int) DAY.toEpochDay();
+        Random rnd = new Random(3);
+        long[] nanos = new long[2_000];
+        long sink = 0;
+        for (int i = -500; i < nanos.length; i++) { // the first 500 queries warm up
+            int origin = rnd.nextInt(airports);
+            int destination = (origin + 1 + rnd.nextInt(airports - 1)) % airports;
+            ConnectionSearch.Rank rank = (i & 1) == 0 ? ConnectionSearch.Rank.PRICE : ConnectionSearch.Rank.DURATION;
+            long start = System.nanoTime();
+            sink += ConnectionSearch.search(snap, new int[]{origin}, new int[]{destination}, firstDay + rnd.nextInt(30),
+                    rank, 10).size();
+            if (i >= 0) nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[nanos.length / 2] / 1_000;
+        long p99 = nanos[nanos.length * 99 / 100] / 1_000;
+        log.info("[ConnectionSearchBenchmark] rows={} p50={} us p99={} us itineraries={}", snap.store().size(), p50, p99, sink);
+        // generous bound for shared CI machines; typical p99 is well under a millisecond
+        assertTrue(p99 < 50_000, "p99 " + p99 + " us");
+    }
+
+    private static String label(FlightStore store, ConnectionSearch.Itinerary it) {
+        return it.direct() ? store.flightNumber(it.first())
+                : store.flightNumber(it.first()) + "+" + store.flightNumber(it.second());
+    }
+}
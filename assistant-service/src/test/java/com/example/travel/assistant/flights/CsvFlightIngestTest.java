@@ -0,0 +1,131 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvFlightIngestTest {
+
+    private static final String HEADER = "carrier,flightNumber,origin,destination,date,departure,arrival,price,currency,originCity,destinationCity";
+
+    @TempDir
+    Path tmp;
+
+    private static byte[] bundled() throws Exception {
+        try (var in = CsvFlightIngestTest.class.getResourceAsStream("/data/flights.csv")) {
+            return in.readAllBytes();
+        }
+    }
+
+    /** The straightforward String-based parse the ingest replaces. */
+    private static FlightStore reference(byte[] csv) {
+        FlightStore.Builder b = new FlightStore.Builder(16);
+        String[] lines = new String(csv, StandardCharsets.UTF_8).split("\r?\n");
+        for (int i = 1; i < lines.length; i++) {
+            String[] p = lines[i].split(",");
+            if (lines[i].isBlank() || p.length < 11) continue;
+            LocalDate day = LocalDate.parse(p[4]);
+            b.add(p[0], p[1], p[2], p[3], day, day.atTime(LocalTime.parse(p[5])), day.atTime(LocalTime.parse(p[6])),
+                    Double.parseDouble(p[7]), p[8], p[9], p[10]);
+        }
+        return b.build();
+    }
+
+    private static void assertSameRows(FlightStore expected, FlightStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.toMap(row, ZoneOffset.UTC), actual.toMap(row, ZoneOffset.UTC), "row " + row);
+        }
+        assertEquals(expected.airports().size(), actual.airports().size());
+    }
+
+    @Test
+    void chunkedParseMatchesSequentialParse() throws Exception {
+        byte[] csv = bundled();
+        FlightStore expected = reference(csv);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkBytes : new int[]{1, 97, 4096, CsvFlightIngest.DEFAULT_CHUNK_BYTES}) {
+                FlightStore.Builder builder = new FlightStore.Builder(16);
+                CsvFlightIngest.Report report = CsvFlightIngest.ingest(csv, builder, pool, chunkBytes);
+                assertEquals(0, report.rejectedCount());
+                assertSameRows(expected, builder.build());
+            }
+            Path file = tmp.resolve("flights.csv");
+            Files.write(file, csv);
+            FlightStore.Builder builder = new FlightStore.Builder(16);
+            CsvFlightIngest.ingest(file, builder, pool, 1000);
+            assertSameRows(expected, builder.build());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void handlesQuotesAndReportsRejectedLines() throws Exception {
+        String csv = String.join("\r\n",
+                HEADER,
+                "\"Sky, \"\"Line\"\"\",SL1,SFO,JFK,2030-01-01,06:00,10:30:15,\"1,234.50\",USD,San Francisco,\"New York\"",
+                "Nimbus,NB2,SFO,LAX,2030-02-30,07:00,08:30,89,USD,San Francisco,Los Angeles",
+                "",
+                "Nimbus,NB3,SFO,LAX,2030-01-02,07:00,08:30,89",
+                "Nimbus,NB4,SFO,LAX,2030-01-02,25:00,08:30,89,USD,San Francisco,Los Angeles",
+                "\"Nimbus,NB5,SFO,LAX,2030-01-02,07:00,08:30,89,USD,San Francisco,Los Angeles",
+                "Nimbus,NB6,SFO,LAX,2030-01-02,,08:30,abc,USD,San Francisco,Los Angeles",
+                "Nimbus,NB6,SFO,LAX,2030-01-02,09:00,10:30,50,USD,San Francisco,Los Angeles") + "\r\n";
+        for (int chunkBytes : new int[]{1, 64, 1 << 20}) {
+            FlightStore.Builder builder = new FlightStore.Builder(16);
+            CsvFlightIngest.Report report = CsvFlightIngest.ingest(csv.getBytes(StandardCharsets.UTF_8), builder,
+                    ForkJoinPool.commonPool(), chunkBytes);
+            FlightStore store = builder.build();
+
+            assertEquals(2, store.size());
+            assertEquals("Sky, \"Line\"", store.carrier(0));
+            assertEquals("New York", store.destinationCity(0));
+            assertEquals("2030-01-01T10:30:00Z", store.toMap(0, ZoneOffset.UTC).get("arrival"));
+            assertEquals(0.0, store.price(0), "a price with a thousands separator is not a number");
+            assertEquals("00:00", FlightStore.fromEpochMinute(store.departureMinute(1)).toLocalTime().toString());
+            assertEquals(0.0, store.price(1));
+
+            assertEquals(7, report.lines());
+            assertEquals(2, report.accepted());
+            assertEquals(1, report.duplicates());
+            assertEquals(4, report.rejectedCount());
+            assertEquals(List.of(
+                    new CsvFlightIngest.Rejection(3, "invalid date"),
+                    new CsvFlightIngest.Rejection(5, "expected 11 fields, found 8"),
+                    new CsvFlightIngest.Rejection(6, "invalid departure time"),
+                    new CsvFlightIngest.Rejection(7, "unterminated quoted field 1")), report.rejected());
+        }
+    }
+
+    @Test
+    void fieldDecodersMatchJavaTime() {
+        for (LocalDate d = LocalDate.of(1999, 12, 25); d.isBefore(LocalDate.of(2101, 1, 5)); d = d.plusDays(3)) {
+            byte[] b = d.toString().getBytes(StandardCharsets.US_ASCII);
+            assertEquals(d.toEpochDay(), CsvFlightIngest.epochDay(b, 0, b.length));
+        }
+        Random rnd = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            String s = rnd.nextInt(100_000) + "." + String.format("%0" + (1 + rnd.nextInt(4)) + "d", rnd.nextInt(10));
+            byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(s), CsvFlightIngest.price(b, 0, b.length), s);
+        }
+        for (String s : new String[]{"1e3", " 12.5", "-7.25", "123456789012345678.9", ""}) {
+            byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+            double expected = s.isEmpty() ? 0.0 : Double.parseDouble(s);
+            assertEquals(expected, CsvFlightIngest.price(b, 0, b.length), s);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FareCalendarIndexTest {
+
+    private static final int FIRST_DAY = (int) LocalDate.of(2030, 1, 1).toEpochDay();
+
+    @Test
+    void windowMatchesPerDayScan() {
+        FlightSnapshot snap = FlightSnapshot.build(RouteDateIndexBenchmarkTest.syntheticStore(50_000, 9));
+        FlightStore store = snap.store();
+        FareCalendarIndex calendar = snap.fareCalendar();
+        Random rnd = new Random(4);
+        int airports = store.airports().size();
+        int length = 15;
+        int[] cheapest = new int[length];
+        int[] counts = new int[length];
+        for (int q = 0; q < 200; q++) {
+            int o = rnd.nextInt(airports);
+            int d = rnd.nextInt(airports);
+            int fromDay = FIRST_DAY - 5 + rnd.nextInt(30);
+            calendar.fill(store, new int[]{calendar.route(o, d)}, fromDay, cheapest, counts);
+            for (int i = 0; i < length; i++) {
+                int best = -1;
+                int count = 0;
+                for (int row = 0; row < store.size(); row++) {
+                    if (store.originId(row) != o || store.destinationId(row) != d || store.epochDay(row) != fromDay + i) continue;
+                    count++;
+                    if (best < 0 || store.price(row) < store.price(best)) best = row;
+                }
+                assertEquals(best, cheapest[i], "route " + o + "->" + d + " day " + (fromDay + i));
+                assertEquals(count, counts[i]);
+            }
+        }
+    }
+
+    @Test
+    void mergesRoutesAndIgnoresUnknownOnes() {
+        LocalDate day = LocalDate.of(2030, 3, 1);
+        FlightStore.Builder b = new FlightStore.Builder(8);
+        b.add("A", "A1", "JFK", "LHR", day, day.atTime(9, 0), day.atTime(21, 0), 400, "USD", "New York", "London");
+        b.add("A", "A2", "EWR", "LHR", day, day.atTime(9, 0), day.atTime(21, 0), 350, "USD", "New York", "London");
+        b.add("A", "A3", "JFK", "LHR", day.plusDays(2), day.plusDays(2).atTime(9, 0), day.plusDays(2).atTime(21, 0), 300, "USD", "New York", "London");
+        FlightSnapshot snap = FlightSnapshot.build(b.build());
+        FareCalendarIndex calendar = snap.fareCalendar();
+        int lhr = snap.store().airports().idOf("LHR");
+        int[] routes = {
+                calendar.route(snap.store().airports().idOf("JFK"), lhr),
+                calendar.route(snap.store().airports().idOf("EWR"), lhr),
+                calendar.route(lhr, lhr)};
+        assertEquals(-1, routes[2]);
+        int[] cheapest = new int[4];
+        int[] counts = new int[4];
+        calendar.fill(snap.store(), routes, (int) day.toEpochDay() - 1, cheapest, counts);
+        assertEquals(-1, cheapest[0]);
+        assertEquals("A2", snap.store().flightNumber(cheapest[1]));
+        assertEquals(2, counts[1]);
+        assertEquals(-1, cheapest[2]);
+        assertEquals("A3", snap.store().flightNumber(cheapest[3]));
+    }
+}
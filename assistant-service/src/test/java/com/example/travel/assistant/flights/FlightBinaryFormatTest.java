@@ -0,0 +1,114 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightBinaryFormatTest {
+
+    @TempDir
+    Path tmp;
+
+    private Path bundledCsv() throws Exception {
+        Path csv = tmp.resolve("flights.csv");
+        try (var in = getClass().getResourceAsStream("/data/flights.csv")) {
+            Files.copy(in, csv);
+        }
+        return csv;
+    }
+
+    @Test
+    void mappedBinaryMatchesCsvStore() throws Exception {
+        Path csv = bundledCsv();
+        Path bin = tmp.resolve("flights.bin");
+        FlightDatasetConverter.convert(csv, bin, false, 50);
+
+        DefaultResourceLoader loader = new DefaultResourceLoader();
+        FlightStore fromCsv = FlightDatasetLoader.load(loader, csv.toUri().toString(), 50);
+        FlightStore mapped = FlightDatasetLoader.load(loader, bin.toUri().toString(), 0);
+        FlightStore heap = FlightBinaryFormat.read(ByteBuffer.wrap(Files.readAllBytes(bin)));
+
+        assertTrue(fromCsv.size() > 0);
+        assertFalse(mapped.sortedByRoute());
+        assertEquals(fromCsv.size(), mapped.size());
+        assertEquals(fromCsv.size(), heap.size());
+        for (int row = 0; row < fromCsv.size(); row++) {
+            assertEquals(fromCsv.toMap(row, ZoneOffset.UTC), mapped.toMap(row, ZoneOffset.UTC));
+            assertEquals(fromCsv.toMap(row, ZoneOffset.UTC), heap.toMap(row, ZoneOffset.UTC));
+            assertEquals(row, mapped.findTrip(fromCsv.carrier(row).replace(" ", ""), fromCsv.flightNumber(row), fromCsv.date(row)));
+        }
+    }
+
+    @Test
+    void sortedConversionGroupsRoutes() throws Exception {
+        Path bin = tmp.resolve("sorted.bin");
+        FlightStore built = FlightDatasetConverter.convert(bundledCsv(), bin, true, 0);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(bin));
+        assertEquals(FlightBinaryFormat.FLAG_SORTED, FlightBinaryFormat.flags(bytes));
+
+        FlightStore store = FlightBinaryFormat.map(bin);
+        assertTrue(store.sortedByRoute());
+        for (int row = 1; row < store.size(); row++) {
+            int c = store.origin(row - 1).compareTo(store.origin(row));
+            if (c == 0) c = store.destination(row - 1).compareTo(store.destination(row));
+            if (c == 0) c = Integer.compare(store.epochDay(row - 1), store.epochDay(row));
+            if (c == 0) c = Double.compare(store.price(row - 1), store.price(row));
+            assertTrue(c <= 0, "row " + row + " is out of order");
+        }
+        // every bucket is contiguous and price-ordered, so the index skips sorting and still
+        // matches the index built by sorting the same rows
+        RouteDateIndex index = RouteDateIndex.build(store);
+        RouteDateIndex resorted = RouteDateIndex.build(built);
+        assertEquals(resorted.bucketCount(), index.bucketCount());
+        for (int p = 0; p < store.size(); p++) assertEquals(resorted.row(p), index.row(p));
+        for (int b = 0; b < index.bucketCount(); b++) {
+            for (int p = index.bucketStart(b) + 1; p < index.bucketEnd(b); p++) {
+                assertEquals(index.row(p - 1) + 1, index.row(p));
+            }
+        }
+    }
+
+    @Test
+    void eachColumnIsItsOwnAlignedSection() throws Exception {
+        Path bin = tmp.resolve("flights.bin");
+        FlightStore store = FlightDatasetConverter.convert(bundledCsv(), bin, false, 0);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(bin)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(FlightBinaryFormat.VERSION, bytes.getInt(8));
+        assertEquals(FlightStore.INT_COLUMNS, bytes.getInt(20));
+
+        int directory = (int) bytes.getLong(40);
+        long previousEnd = 0;
+        for (int c = 0; c <= FlightStore.INT_COLUMNS; c++) {
+            long offset = bytes.getLong(directory + 8 * c);
+            assertEquals(0, offset % 8, "column " + c + " is not 8-byte aligned");
+            assertTrue(offset >= previousEnd, "column " + c + " overlaps the previous one");
+            previousEnd = offset + (long) store.size() * (c < FlightStore.INT_COLUMNS ? Integer.BYTES : Double.BYTES);
+        }
+        long dates = bytes.getLong(directory + 8 * FlightStore.COL_DATE);
+        long prices = bytes.getLong(directory + 8 * FlightStore.INT_COLUMNS);
+        for (int row = 0; row < store.size(); row++) {
+            assertEquals(store.epochDay(row), bytes.getInt((int) dates + Integer.BYTES * row));
+            assertEquals(store.price(row), bytes.getDouble((int) prices + Double.BYTES * row));
+        }
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws Exception {
+        Path bin = tmp.resolve("flights.bin");
+        FlightDatasetConverter.convert(bundledCsv(), bin, false, 0);
+        byte[] bytes = Files.readAllBytes(bin);
+        ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 16).slice();
+        assertThrows(IllegalArgumentException.class, () -> FlightBinaryFormat.read(truncated));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightCatalogTest {
+
+    private static final String HEADER = "carrier,flightNumber,origin,destination,date,departure,arrival,price,currency,originCity,destinationCity";
+
+    @TempDir
+    Path tmp;
+
+    private static String rows(int count, double price) {
+        StringBuilder sb = new StringBuilder(HEADER);
+        for (int i = 0; i < count; i++) {
+            sb.append("\nAir,A").append(i).append(",SFO,JFK,2030-01-0").append(1 + i % 5)
+              .append(",06:00,10:00,").append(price + i).append(",USD,San Francisco,New York");
+        }
+        return sb.toString();
+    }
+
+    private static void publish(Path target, String content) throws Exception {
+        Path staged = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(staged, content, StandardCharsets.UTF_8);
+        Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    void reloadPublishesNewSnapshotAndKeepsOldOnFailure() throws Exception {
+        Path csv = tmp.resolve("flights.csv");
+        publish(csv, rows(3, 100));
+        FlightCatalog catalog = new FlightCatalog(new DefaultResourceLoader(), csv.toUri().toString(), 0, false);
+        FlightSnapshot first = catalog.current();
+        assertEquals(3, first.store().size());
+
+        publish(csv, rows(7, 50));
+        FlightCatalog.Published next = catalog.reload();
+        assertEquals(2, next.generation());
+        assertEquals(7, catalog.current().store().size());
+        assertEquals(3, first.store().size(), "old snapshot is untouched");
+
+        publish(csv, HEADER + "\nnot,a,valid,row");
+        assertThrows(Exception.class, catalog::reload);
+        assertEquals(2, catalog.published().generation());
+        assertEquals(7, catalog.current().store().size());
+    }
+
+    @Test
+    void readersNeverSeeHalfBuiltSnapshots() throws Exception {
+        Path csv = tmp.resolve("flights.csv");
+        publish(csv, rows(50, 100));
+        FlightCatalog catalog = new FlightCatalog(new DefaultResourceLoader(), csv.toUri().toString(), 0, false);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        FlightSnapshot snap = catalog.current();
+                        FlightStore store = snap.store();
+                        RouteDateIndex index = snap.routeIndex();
+                        int total = 0;
+                        for (int b = 0; b < index.bucketCount(); b++) {
+                            total += index.bucketEnd(b) - index.bucketStart(b);
+                        }
+                        assertEquals(store.size(), total);
+                        int[] origins = snap.places().resolve("SFO");
+                        assertEquals(1, origins.length);
+                        assertTrue(index.row(index.bucketStart(0)) < store.size());
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[t].start();
+        }
+        for (int i = 0; i < 30; i++) {
+            publish(csv, rows(20 + i * 7, 100 - i));
+            catalog.reload();
+        }
+        done.set(true);
+        for (Thread t : readers) t.join();
+        assertNull(failure.get());
+        assertEquals(31, catalog.published().generation());
+    }
+
+    @Test
+    void fileWatcherReloadsOnChange() throws Exception {
+        Path csv = tmp.resolve("flights.csv");
+        publish(csv, rows(3, 100));
+        FlightCatalog catalog = new FlightCatalog(new DefaultResourceLoader(), csv.toUri().toString(), 0, true);
+        try {
+            publish(csv, rows(9, 100));
+            long deadline = System.currentTimeMillis() + 15_000;
+            while (catalog.current().store().size() != 9 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(9, catalog.current().store().size());
+            assertEquals(2, catalog.published().generation());
+        } finally {
+            catalog.close();
+        }
+    }
+}
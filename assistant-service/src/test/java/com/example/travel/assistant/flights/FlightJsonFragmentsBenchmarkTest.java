@@ -0,0 +1,94 @@
+package com.example.travel.assistant.flights;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bytes allocated per 200-flight tool response: maps + {@code ObjectMapper} (what {@code wrapOk}
+ * does) against concatenated row fragments. The allocation test is tagged {@code benchmark} and
+ * runs with {@code mvn test -Pbenchmark}.
+ */
+class FlightJsonFragmentsBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightJsonFragmentsBenchmarkTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static String viaMaps(FlightStore store, int[] rows, ZoneId zone) throws Exception {
+        List<Map<String, Object>> flights = new ArrayList<>(rows.length);
+        for (int row : rows) flights.add(store.toMap(row, zone));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("status", "OK");
+        out.put("data", flights);
+        return MAPPER.writeValueAsString(out);
+    }
+
+    @Test
+    void fragmentsMatchObjectMapperOutput() throws Exception {
+        FlightStore store = RouteDateIndexBenchmarkTest.syntheticStore(2_000, 3);
+        FlightJsonFragments json = new FlightJsonFragments(store, ZoneOffset.ofHours(-8));
+        int[] rows = {5, 0, 1999, 5};
+        assertEquals(viaMaps(store, rows, json.zone()), json.okList(rows));
+        assertEquals(viaMaps(store, new int[0], json.zone()), json.okList(new int[0]));
+        Map<String, Object> single = new LinkedHashMap<>();
+        single.put("status", "OK");
+        single.put("data", store.toMap(7, json.zone()));
+        assertEquals(MAPPER.writeValueAsString(single), json.okRow(7));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void allocatesLessPerResponse() throws Exception {
+        FlightStore store = RouteDateIndexBenchmarkTest.syntheticStore(10_000, 3);
+        ZoneId zone = ZoneId.systemDefault();
+        FlightJsonFragments json = new FlightJsonFragments(store, zone);
+        int[] rows = new int[200];
+        for (int i = 0; i < rows.length; i++) rows[i] = i * 37 % store.size();
+
+        long mapsBytes = bytesPerCall(() -> {
+            try {
+                return viaMaps(store, rows, zone).length();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long fragmentBytes = bytesPerCall(() -> json.okList(rows).length());
+        int responseChars = json.okList(rows).length();
+        log.info("[FlightJsonFragmentsBenchmark] 200 flights, {} chars: maps+ObjectMapper={} B/response fragments={} B/response",
+                responseChars, mapsBytes, fragmentBytes);
+        if (mapsBytes > 0) {
+            // the fragment path allocates little more than the response string itself
+            assertTrue(fragmentBytes * 3 < mapsBytes, fragmentBytes + " vs " + mapsBytes);
+        }
+    }
+
+    /** Average bytes allocated by the current thread per call, or 0 when the JVM cannot tell. */
+    private static long bytesPerCall(IntSupplier call) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx)
+                || !mx.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        long sink = 0;
+        for (int i = 0; i < 2_000; i++) sink += call.getAsInt(); // warm-up (also renders the fragments)
+        int calls = 2_000;
+        long before = mx.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < calls; i++) sink += call.getAsInt();
+        long after = mx.getCurrentThreadAllocatedBytes();
+        assertTrue(sink > 0);
+        return (after - before) / calls;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OriginCheapestIndexTest {
+
+    @Test
+    void matchesBruteForceCheapestPerDestination() {
+        FlightStore store = RouteDateIndexBenchmarkTest.syntheticStore(20_000, 11);
+        OriginCheapestIndex index = FlightSnapshot.build(store).originIndex();
+
+        // brute force: (origin, destination) -> cheapest row, first row wins on equal price
+        Map<Long, Integer> allDates = new HashMap<>();
+        Map<String, Integer> perDay = new HashMap<>();
+        for (int row = 0; row < store.size(); row++) {
+            long pair = ((long) store.originId(row) << 32) | store.destinationId(row);
+            allDates.merge(pair, row, (a, b) -> store.price(b) < store.price(a) ? b : a);
+            perDay.merge(pair + "@" + store.epochDay(row), row, (a, b) -> store.price(b) < store.price(a) ? b : a);
+        }
+
+        int total = 0;
+        for (int o = 0; o < store.airports().size(); o++) {
+            for (int p = index.originStart(o); p < index.originEnd(o); p++) {
+                int row = index.originRow(p);
+                assertEquals(o, store.originId(row));
+                assertEquals(allDates.get(((long) o << 32) | store.destinationId(row)), row);
+                if (p > index.originStart(o)) assertSorted(store, index.originRow(p - 1), row);
+                total++;
+            }
+        }
+        assertEquals(allDates.size(), total);
+
+        int daySlices = 0;
+        int first = store.epochDay(0);
+        for (int o = 0; o < store.airports().size(); o++) {
+            for (int day = first; day < first + 30; day++) {
+                int slice = index.daySlice(o, day);
+                if (slice < 0) continue;
+                for (int p = index.daySliceStart(slice); p < index.daySliceEnd(slice); p++) {
+                    int row = index.dayRow(p);
+                    long pair = ((long) o << 32) | store.destinationId(row);
+                    assertEquals(perDay.get(pair + "@" + day), row);
+                    if (p > index.daySliceStart(slice)) assertSorted(store, index.dayRow(p - 1), row);
+                    daySlices++;
+                }
+            }
+        }
+        assertEquals(perDay.size(), daySlices);
+    }
+
+    private static void assertSorted(FlightStore store, int prev, int cur) {
+        assertTrue(store.price(prev) < store.price(cur) || (store.price(prev) == store.price(cur) && prev < cur));
+    }
+}
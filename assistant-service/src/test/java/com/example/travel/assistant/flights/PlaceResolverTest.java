@@ -0,0 +1,49 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlaceResolverTest {
+
+    private static FlightSnapshot snapshot() {
+        FlightStore.Builder b = new FlightStore.Builder(4);
+        LocalDate day = LocalDate.of(2030, 1, 1);
+        b.add("A", "A1", "SFO", "JFK", day, day.atTime(6, 0), day.atTime(10, 0), 100, "USD", "San Francisco", "New York");
+        b.add("A", "A2", "LHR", "CDG", day, day.atTime(6, 0), day.atTime(8, 0), 90, "USD", "London", "Paris");
+        b.add("A", "A3", "LGW", "CDG", day, day.atTime(7, 0), day.atTime(9, 0), 80, "USD", "London", "Paris");
+        return FlightSnapshot.build(b.build());
+    }
+
+    private static int[] ids(FlightStore store, String... codes) {
+        int[] out = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) out[i] = store.airports().idOf(codes[i]);
+        java.util.Arrays.sort(out);
+        return out;
+    }
+
+    @Test
+    void resolvesCodesAliasesAndCities() {
+        FlightSnapshot snap = snapshot();
+        PlaceResolver places = snap.places();
+        FlightStore store = snap.store();
+        assertArrayEquals(ids(store, "LHR"), places.resolve("lhr"));
+        assertArrayEquals(ids(store, "LHR", "LGW"), places.resolve("Лондон"));
+        assertArrayEquals(ids(store, "JFK"), places.resolve("NYC"));
+        assertArrayEquals(ids(store, "SFO"), places.resolve("  san-francisco "));
+        assertEquals(0, places.resolve("Atlantis").length);
+    }
+
+    @Test
+    void countsCacheHits() {
+        PlaceResolver places = snapshot().places();
+        places.resolve("Paris");
+        places.resolve("paris");
+        places.resolve(" PARIS ");
+        assertEquals(2, places.counters().hits());
+        assertEquals(1, places.counters().misses());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bounded top-K selection against sorting every match: the first K rows must be identical to
+ * the full sort, and picking a page out of a large multi-airport route must be much cheaper
+ * than the boxed {@code sorted().collect()} it replaces. The timing test is tagged
+ * {@code benchmark} and runs with {@code mvn test -Pbenchmark}.
+ */
+class PriceTopKBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceTopKBenchmarkTest.class);
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    /** A city pair served by 3 x 3 airports on one day, with few distinct prices (many ties). */
+    private static FlightStore cityPairStore(int rowsPerRoute, int distinctPrices, long seed) {
+        Random rnd = new Random(seed);
+        FlightStore.Builder b = new FlightStore.Builder(rowsPerRoute * 9);
+        for (int i = 0; i < rowsPerRoute * 9; i++) {
+            int o = rnd.nextInt(3);
+            int d = rnd.nextInt(3);
+            LocalDateTime dep = DAY.atTime(rnd.nextInt(24), rnd.nextInt(60));
+            b.add("Carrier" + (i & 3), "X" + i, "O" + o, "D" + d, DAY, dep, dep.plusHours(5),
+                    100 + rnd.nextInt(distinctPrices), "USD", "Origin City", "Destination City");
+        }
+        return b.build();
+    }
+
+    private static int[] routeBuckets(FlightStore store, RouteDateIndex index) {
+        int day = (int) DAY.toEpochDay();
+        return IntStream.range(0, 3).flatMap(o -> IntStream.range(0, 3)
+                        .map(d -> index.bucket(store.airports().idOf("O" + o), store.airports().idOf("D" + d), day)))
+                .filter(b -> b >= 0)
+                .toArray();
+    }
+
+    private static int[] concat(RouteDateIndex index, int[] buckets) {
+        return Arrays.stream(buckets)
+                .flatMap(b -> IntStream.range(index.bucketStart(b), index.bucketEnd(b)).map(index::row))
+                .toArray();
+    }
+
+    /** What the search did before: collect every match and sort all of it. */
+    private static List<Integer> sortedCollect(FlightStore store, int[] rows) {
+        return Arrays.stream(rows).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(store::price).thenComparingInt(r -> r))
+                .toList();
+    }
+
+    @Test
+    void topKMatchesFullSortIncludingTies() {
+        FlightStore store = cityPairStore(500, 7, 3);
+        RouteDateIndex index = RouteDateIndex.build(store);
+        int[] buckets = routeBuckets(store, index);
+        int[] all = concat(index, buckets);
+        int[] sorted = all.clone();
+        store.sortByPrice(sorted, 0, sorted.length);
+        assertArrayEquals(sortedCollect(store, all).stream().mapToInt(Integer::intValue).toArray(), sorted);
+
+        for (int k : new int[]{0, 1, 5, 20, 333, all.length, all.length + 10}) {
+            int[] expected = Arrays.copyOf(sorted, Math.min(k, sorted.length));
+            assertArrayEquals(expected, PriceTopK.cheapest(store, all, 0, all.length, k), "k=" + k);
+            assertArrayEquals(expected, index.merge(store, buckets, 0, k), "merge k=" + k);
+        }
+        for (int offset : new int[]{0, 20, 40, all.length - 5, all.length}) {
+            int[] expected = Arrays.copyOfRange(sorted, offset, Math.min(offset + 20, sorted.length));
+            assertArrayEquals(expected, index.merge(store, buckets, offset, Math.min(20, sorted.length - offset)), "offset=" + offset);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void topKIsCheaperThanSortingEveryMatch() {
+        FlightStore store = cityPairStore(25_000, 900, 11);
+        RouteDateIndex index = RouteDateIndex.build(store);
+        int[] buckets = routeBuckets(store, index);
+        int[] all = concat(index, buckets);
+        int k = 20;
+
+        long sink = 0;
+        for (int i = 0; i < 5; i++) { // warm-up
+            sink += sortedCollect(store, all).get(k - 1);
+            sink += PriceTopK.cheapest(store, all, 0, all.length, k)[k - 1];
+            sink += index.merge(store, buckets, 0, k)[k - 1];
+        }
+        int runs = 20;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < runs; i++) sink += sortedCollect(store, all).subList(0, k).get(k - 1);
+        long sortNs = (System.nanoTime() - t0) / runs;
+        t0 = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            int[] copy = all.clone();
+            store.sortByPrice(copy, 0, copy.length);
+            sink += copy[k - 1];
+        }
+        long primitiveSortNs = (System.nanoTime() - t0) / runs;
+        t0 = System.nanoTime();
+        for (int i = 0; i < runs; i++) sink += PriceTopK.cheapest(store, all, 0, all.length, k)[k - 1];
+        long heapNs = (System.nanoTime() - t0) / runs;
+        t0 = System.nanoTime();
+        for (int i = 0; i < runs * 100; i++) sink += index.merge(store, buckets, 0, k)[k - 1];
+        long mergeNs = (System.nanoTime() - t0) / (runs * 100L);
+        assertTrue(sink > 0);
+
+        log.info("[PriceTopKBenchmark] {} matches in {} buckets, top {}: sorted().collect()={} ns sortByPrice={} ns heap={} ns bucket-merge={} ns",
+                all.length, buckets.length, k, sortNs, primitiveSortNs, heapNs, mergeNs);
+        // generous bounds for noisy CI machines; typical gaps are an order of magnitude larger
+        assertTrue(heapNs < sortNs, "heap " + heapNs + " ns vs sorted().collect() " + sortNs + " ns");
+        assertTrue(mergeNs * 10 < sortNs, "merge " + mergeNs + " ns vs sorted().collect() " + sortNs + " ns");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.travel.assistant.flights;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JUnit microbenchmark for the (origin, destination, date) index: lookup latency must stay flat
+ * as the dataset grows. The timing test is tagged {@code benchmark} and runs with
+ * {@code mvn test -Pbenchmark}, up to 1M rows by default; pass
+ * {@code -Dflights.bench.max-rows=10000000} (with enough heap, e.g. {@code -DargLine=-Xmx4g})
+ * to include the 10M-row dataset.
+ */
+class RouteDateIndexBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteDateIndexBenchmarkTest.class);
+    private static final int AIRPORTS = 200;
+    private static final int DAYS = 30;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    private static volatile double blackhole;
+
+    static FlightStore syntheticStore(int rows, long seed) {
+        Random rnd = new Random(seed);
+        FlightStore.Builder b = new FlightStore.Builder(rows);
+        for (int i = 0; i < rows; i++) {
+            int o = rnd.nextInt(AIRPORTS);
+            int d = (o + 1 + rnd.nextInt(AIRPORTS - 1)) % AIRPORTS;
+            LocalDate day = FIRST_DAY.plusDays(i % DAYS);
+            LocalDateTime dep = day.atTime(rnd.nextInt(24), rnd.nextInt(4) * 15);
+            b.add("Carrier" + (i & 3), "X" + (i / DAYS), "A" + o, "A" + d, day, dep, dep.plusHours(3),
+                    50 + rnd.nextInt(950), "USD", "City" + o, "City" + d);
+        }
+        return b.build();
+    }
+
+    @Test
+    void bucketsAreSortedByPrice() {
+        FlightStore store = syntheticStore(20_000, 7);
+        RouteDateIndex index = RouteDateIndex.build(store);
+        int total = 0;
+        for (int b = 0; b < index.bucketCount(); b++) {
+            int first = index.row(index.bucketStart(b));
+            for (int i = index.bucketStart(b) + 1; i < index.bucketEnd(b); i++) {
+                int prev = index.row(i - 1);
+                int cur = index.row(i);
+                assertTrue(store.price(prev) < store.price(cur) || (store.price(prev) == store.price(cur) && prev < cur));
+                assertEquals(store.originId(first), store.originId(cur));
+                assertEquals(store.destinationId(first), store.destinationId(cur));
+                assertEquals(store.epochDay(first), store.epochDay(cur));
+            }
+            total += index.bucketEnd(b) - index.bucketStart(b);
+        }
+        assertEquals(store.size(), total);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void lookupLatencyStaysFlatAsDatasetGrows() {
+        int maxRows = Integer.getInteger("flights.bench.max-rows", 1_000_000);
+        List<long[]> results = new ArrayList<>();
+        for (int rows : new int[]{400, 10_000, 100_000, 1_000_000, 10_000_000}) {
+            if (rows > maxRows) break;
+            FlightStore store = syntheticStore(rows, 42);
+            RouteDateIndex index = RouteDateIndex.build(store);
+            measure(store, index, 50_000); // warm-up
+            long ns = measure(store, index, 200_000);
+            results.add(new long[]{rows, ns});
+            log.info("[RouteDateIndexBenchmark] rows={} buckets={} lookup+cheapest+slice={} ns/op", rows, index.bucketCount(), ns);
+        }
+        long smallest = results.get(0)[1];
+        long largest = results.get(results.size() - 1)[1];
+        // generous bound: the lookup cost must not scale with the dataset size
+        assertTrue(largest <= smallest * 25 + 2_000, "lookup latency grew from " + smallest + " ns to " + largest + " ns");
+    }
+
+    private static long measure(FlightStore store, RouteDateIndex index, int ops) {
+        Random rnd = new Random(1);
+        int airports = store.airports().size();
+        int firstDay = (int) FIRST_DAY.toEpochDay();
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            int b = index.bucket(rnd.nextInt(airports), rnd.nextInt(airports), firstDay + rnd.nextInt(DAYS));
+            if (b < 0) continue;
+            sink += store.price(index.cheapest(b));
+            for (int p = index.bucketStart(b), end = Math.min(index.bucketEnd(b), p + 5); p < end; p++) {
+                sink += store.departureMinute(index.row(p));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole = sink; // keep the loop observable
+        return elapsed / ops;
+    }
+}
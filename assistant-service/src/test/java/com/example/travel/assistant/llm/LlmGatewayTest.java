@@ -0,0 +1,104 @@
+package com.example.travel.assistant.llm;
+
+import com.example.travel.assistant.llm.LlmRejectedException.Reason;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmGatewayTest {
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    private static <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, r -> Thread.ofVirtual().start(r));
+    }
+
+    private static String blockUntil(CountDownLatch release) {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return "first";
+    }
+
+    @Test
+    void queuesBeyondTheLimitAndServesFollowUpsFirst() throws Exception {
+        LlmGateway gateway = new LlmGateway(1, 2, TimeUnit.SECONDS.toNanos(5), 0, 1, System::nanoTime);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<String> first = async(() -> gateway.call(false, () -> blockUntil(release)));
+        await(() -> gateway.inFlight() == 1);
+        CompletableFuture<String> fresh = async(() -> gateway.call(false, () -> { order.add("fresh"); return "fresh"; }));
+        await(() -> gateway.queued() == 1);
+        CompletableFuture<String> followUp = async(() -> gateway.call(true, () -> { order.add("follow-up"); return "follow-up"; }));
+        await(() -> gateway.queued() == 2);
+
+        LlmRejectedException full = assertThrows(LlmRejectedException.class, () -> gateway.call(false, () -> "late"));
+        assertEquals(Reason.QUEUE_FULL, full.getReason());
+        assertEquals(503, full.getStatus());
+        assertTrue(full.getRetryAfterSeconds() >= 1);
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("follow-up", followUp.get(5, TimeUnit.SECONDS));
+        assertEquals("fresh", fresh.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("follow-up", "fresh"), order);
+        assertEquals(0, gateway.inFlight());
+    }
+
+    @Test
+    void waitersThatTimedOutAreRejectedAndSkipped() throws Exception {
+        LlmGateway gateway = new LlmGateway(1, 4, TimeUnit.MILLISECONDS.toNanos(50), 0, 1, System::nanoTime);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = async(() -> gateway.call(false, () -> blockUntil(release)));
+        await(() -> gateway.inFlight() == 1);
+        LlmRejectedException timedOut = assertThrows(LlmRejectedException.class, () -> gateway.call(false, () -> "never"));
+        assertEquals(Reason.QUEUE_TIMEOUT, timedOut.getReason());
+        assertEquals(0, gateway.queued());
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, gateway.inFlight());
+        assertEquals("next", gateway.call(false, () -> "next"));
+        assertEquals(1, gateway.rejected(Reason.QUEUE_TIMEOUT));
+    }
+
+    @Test
+    void rateLimitRejectsWithRetryAfterButLetsFollowUpsThrough() {
+        AtomicLong now = new AtomicLong();
+        LlmGateway gateway = new LlmGateway(8, 8, TimeUnit.SECONDS.toNanos(5), 2, 2, now::get);
+
+        assertEquals("a", gateway.call(false, () -> "a"));
+        assertEquals("b", gateway.call(false, () -> "b"));
+        LlmRejectedException limited = assertThrows(LlmRejectedException.class, () -> gateway.call(false, () -> "c"));
+        assertEquals(Reason.RATE_LIMITED, limited.getReason());
+        assertEquals(429, limited.getStatus());
+        assertEquals(1, limited.getRetryAfterSeconds());
+        // the rest of a turn already in progress is never rate limited
+        assertEquals("tool answer", gateway.call(true, () -> "tool answer"));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals("c", gateway.call(false, () -> "c"));
+        assertEquals(1, gateway.rejected(Reason.RATE_LIMITED));
+    }
+}
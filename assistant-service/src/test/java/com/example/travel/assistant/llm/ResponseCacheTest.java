@@ -0,0 +1,70 @@
+package com.example.travel.assistant.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private ResponseCache.Answer call(String text) {
+        calls.incrementAndGet();
+        return new ResponseCache.Answer(text, 120, 800);
+    }
+
+    @Test
+    void normalizedPromptsShareAnAnswerAndCountWhatTheySaved() {
+        PromptNormalizer normalizer = PromptNormalizer.of(true, true, List.of("request-id:"));
+        ResponseCache cache = new ResponseCache(10, 1_000, true, normalizer, now::get);
+
+        assertEquals("A", cache.get(true, "Extract the date\ntext: next Friday\nrequest-id: 1", () -> call("A")));
+        assertEquals("A", cache.get(true, "  extract the  date\n\n  TEXT: next friday\n  request-id: 2 ", () -> call("A2")));
+        // same prompt in the other response format is a different call
+        assertEquals("B", cache.get(false, "Extract the date\ntext: next Friday", () -> call("B")));
+
+        assertEquals(2, calls.get());
+        assertEquals(1, cache.hits());
+        assertEquals(120, cache.savedTokens());
+        assertEquals(800, cache.savedMillis());
+    }
+
+    @Test
+    void expiresEntriesAndNeverCachesFailures() {
+        ResponseCache cache = new ResponseCache(10, 1_000, true, PromptNormalizer.collapseWhitespace(), now::get);
+        assertNull(cache.get(false, "q", () -> call(null)));
+        assertEquals("A", cache.get(false, "q", () -> call("A")));
+        now.set(999);
+        assertEquals("A", cache.get(false, "q", () -> call("A2")));
+        now.set(1_000);
+        assertEquals("A3", cache.get(false, "q", () -> call("A3")));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        ResponseCache cache = new ResponseCache(2, 1_000, true, PromptNormalizer.exact(), now::get);
+        cache.get(false, "a", () -> call("A"));
+        cache.get(false, "b", () -> call("B"));
+        cache.get(false, "a", () -> call("A2"));
+        cache.get(false, "c", () -> call("C")); // evicts b
+        assertEquals("A", cache.get(false, "a", () -> call("A3")));
+        assertEquals("B2", cache.get(false, "b", () -> call("B2")));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void bypassedWhenTheModelIsNotDeterministic() {
+        ResponseCache cache = new ResponseCache(10, 1_000, false, PromptNormalizer.exact(), now::get);
+        assertEquals("A", cache.get(false, "q", () -> call("A")));
+        assertEquals("A2", cache.get(false, "q", () -> call("A2")));
+        assertEquals(2, cache.bypassed());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.travel.assistant.llm;
+
+import com.example.travel.assistant.llm.LlmRejectedException.Reason;
+import com.example.travel.assistant.llm.RoutedChatLanguageModel.Route;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutedChatLanguageModelTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /** Answers with its name after a delay, or fails with {@code error}. */
+    private static final class StubModel implements ChatLanguageModel {
+        final String name;
+        final long delayMs;
+        final RuntimeException error;
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        StubModel(String name, long delayMs, RuntimeException error) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.error = error;
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IllegalStateException("cancelled", e);
+            }
+            if (error != null) throw error;
+            return Response.from(AiMessage.from(name));
+        }
+    }
+
+    private static String ask(ChatLanguageModel model) {
+        return model.generate(List.of(UserMessage.from("hello"))).content().text();
+    }
+
+    private RoutedChatLanguageModel routed(boolean hedge, long minDelayMs, long maxDelayMs, StubModel... models) {
+        List<Route> routes = Arrays.stream(models).map(m -> new Route(m.name, m)).toList();
+        return new RoutedChatLanguageModel(routes, hedge, 0.95, minDelayMs, maxDelayMs, registry);
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTheLoserCancelled() throws Exception {
+        StubModel primary = new StubModel("primary", 5_000, null);
+        StubModel secondary = new StubModel("secondary", 10, null);
+        RoutedChatLanguageModel model = routed(true, 50, 50, primary, secondary);
+
+        long start = System.nanoTime();
+        assertEquals("secondary", ask(model));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "waited for the slow primary");
+        assertTrue(primary.interrupted.await(5, TimeUnit.SECONDS), "losing request was not cancelled");
+        assertEquals(1, registry.get("assistant.llm.hedge.sent").counter().count());
+        assertEquals(1, registry.get("assistant.llm.hedge.won").counter().count());
+    }
+
+    @Test
+    void hedgeDelayFollowsTheObservedLatency() {
+        StubModel primary = new StubModel("primary", 1, null);
+        RoutedChatLanguageModel model = routed(true, 1, 10_000, primary);
+        // too few samples yet: hedge only after the maximum delay
+        assertEquals(TimeUnit.SECONDS.toNanos(10), model.hedgeDelayNanos());
+        for (int i = 0; i < RoutedChatLanguageModel.MIN_SAMPLES; i++) ask(model);
+        assertTrue(model.hedgeDelayNanos() < TimeUnit.MILLISECONDS.toNanos(500), "delay did not adapt");
+        assertEquals(0, registry.get("assistant.llm.hedge.sent").counter().count());
+        assertEquals(RoutedChatLanguageModel.MIN_SAMPLES,
+                registry.get("assistant.llm.model.latency").tags("model", "primary", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void failuresFallBackInOrder() {
+        StubModel primary = new StubModel("primary", 0, new IllegalStateException("503 from primary"));
+        StubModel second = new StubModel("second", 0, new IllegalStateException("500 from second"));
+        StubModel third = new StubModel("third", 0, null);
+        RoutedChatLanguageModel model = routed(false, 0, 0, primary, second, third);
+
+        assertEquals("third", ask(model));
+        assertEquals(2, registry.get("assistant.llm.fallback").counter().count());
+        assertEquals(1, registry.get("assistant.llm.model.latency").tags("model", "second", "outcome", "error").timer().count());
+
+        StubModel last = new StubModel("last", 0, new IllegalStateException("down"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> ask(routed(false, 0, 0, primary, last)));
+        assertEquals("503 from primary", e.getMessage());
+    }
+
+    @Test
+    void gatewayRejectionIsNotFallenBackFrom() {
+        StubModel primary = new StubModel("primary", 0, new LlmRejectedException(Reason.QUEUE_FULL, 2, "busy"));
+        StubModel second = new StubModel("second", 0, null);
+        LlmRejectedException e = assertThrows(LlmRejectedException.class, () -> ask(routed(false, 0, 0, primary, second)));
+        assertEquals(Reason.QUEUE_FULL, e.getReason());
+        assertEquals(0, second.calls.get());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.travel.assistant.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    private static <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, r -> Thread.ofVirtual().start(r));
+    }
+
+    private String slowCall(String answer) {
+        calls.incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("call interrupted", e);
+        }
+        return answer;
+    }
+
+    @Test
+    void identicalConcurrentCallsShareOneCall() throws Exception {
+        CompletableFuture<String> leader = async(() -> singleFlight.run("q", () -> slowCall("A")));
+        await(() -> calls.get() == 1);
+        CompletableFuture<String> f1 = async(() -> singleFlight.run("q", () -> slowCall("A2")));
+        CompletableFuture<String> f2 = async(() -> singleFlight.run("q", () -> slowCall("A3")));
+        await(() -> singleFlight.followers() == 2);
+        CompletableFuture<String> other = async(() -> singleFlight.run("other", () -> slowCall("B")));
+        await(() -> calls.get() == 2);
+
+        release.countDown();
+        assertEquals("A", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("A", f1.get(5, TimeUnit.SECONDS));
+        assertEquals("A", f2.get(5, TimeUnit.SECONDS));
+        assertEquals("B", other.get(5, TimeUnit.SECONDS));
+        assertEquals(0.5, singleFlight.coalescedRatio());
+        await(() -> singleFlight.inFlight() == 0);
+        // completed calls are not remembered
+        assertEquals("C", singleFlight.run("q", () -> "C"));
+    }
+
+    @Test
+    void failuresAreSharedToo() throws Exception {
+        CompletableFuture<String> leader = async(() -> singleFlight.run("q", () -> {
+            slowCall("A");
+            throw new IllegalArgumentException("bad request");
+        }));
+        await(() -> calls.get() == 1);
+        CompletableFuture<String> follower = async(() -> singleFlight.run("q", () -> "never"));
+        await(() -> singleFlight.followers() == 1);
+
+        release.countDown();
+        Exception e = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        e = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void callOutlivesTheLeaderAndStopsWhenEveryCallerHasGone() throws Exception {
+        CompletableFuture<Object> leaderOutcome = new CompletableFuture<>();
+        Thread leader = Thread.ofVirtual().start(() -> {
+            try {
+                leaderOutcome.complete(singleFlight.run("q", () -> slowCall("A")));
+            } catch (RuntimeException e) {
+                leaderOutcome.complete(e);
+            }
+        });
+        await(() -> calls.get() == 1);
+        CompletableFuture<String> follower = async(() -> singleFlight.run("q", () -> slowCall("A2")));
+        await(() -> singleFlight.followers() == 1);
+
+        leader.interrupt();
+        assertInstanceOf(CancellationException.class, leaderOutcome.get(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals("A", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.abandoned());
+
+        CountDownLatch never = new CountDownLatch(1);
+        CompletableFuture<Throwable> callOutcome = new CompletableFuture<>();
+        Thread lone = Thread.ofVirtual().start(() -> assertThrows(CancellationException.class,
+                () -> singleFlight.run("q2", () -> {
+                    try {
+                        never.await();
+                    } catch (InterruptedException e) {
+                        callOutcome.complete(e);
+                    }
+                    return "unused";
+                })));
+        await(() -> singleFlight.inFlight() == 1);
+        lone.interrupt();
+        assertInstanceOf(InterruptedException.class, callOutcome.get(5, TimeUnit.SECONDS));
+        assertEquals(1, singleFlight.abandoned());
+        await(() -> singleFlight.inFlight() == 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.travel.assistant.memory;
+
+import com.example.travel.assistant.session.InMemorySessionStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedChatMemoryProviderTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final InMemorySessionStore store = new InMemorySessionStore() {
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            reads.incrementAndGet();
+            return super.getMessages(memoryId);
+        }
+    };
+
+    @Test
+    void activeSessionsAreReadFromTheHeapAndWrittenThrough() {
+        SharedChatMemoryProvider provider = new SharedChatMemoryProvider(10, store, 10, 1_000, now::get);
+        ChatMemory memory = provider.get("a");
+        memory.add(UserMessage.from("hi"));
+        memory.add(AiMessage.from("hello"));
+        provider.get("a").messages();
+        provider.get("a").messages();
+
+        assertEquals(1, reads.get());
+        assertEquals(List.of(UserMessage.from("hi"), AiMessage.from("hello")), store.getMessages("a"));
+    }
+
+    @Test
+    void evictedSessionsAreReloadedFromTheStore() {
+        SharedChatMemoryProvider provider = new SharedChatMemoryProvider(10, store, 1, 1_000, now::get);
+        provider.get("a").add(UserMessage.from("to a"));
+        provider.get("b").add(UserMessage.from("to b")); // only one session fits: a goes
+        assertEquals(1, provider.residentSessions());
+
+        assertEquals(List.of(UserMessage.from("to a")), provider.get("a").messages());
+        assertEquals(3, reads.get());
+
+        now.set(1_000); // idle for the TTL
+        assertEquals(0, provider.residentSessions());
+        assertEquals(List.of(UserMessage.from("to a")), provider.get("a").messages());
+        assertEquals(4, reads.get());
+
+        provider.clear("a");
+        assertTrue(provider.get("a").messages().isEmpty());
+        assertTrue(store.getMessages("a").isEmpty());
+    }
+}
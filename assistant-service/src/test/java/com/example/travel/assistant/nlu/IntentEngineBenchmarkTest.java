@@ -0,0 +1,235 @@
+package com.example.travel.assistant.nlu;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The single-pass engine against the per-method checks AgentService used to run on every
+ * turn (a lower-case copy and a run of {@code contains} calls per intent, plus
+ * {@code Pattern.compile} inside the method). Both must classify a realistic EN/RU corpus the
+ * same way, and the engine must be cheaper. The timing test is tagged {@code benchmark} and runs
+ * with {@code mvn test -Pbenchmark}.
+ */
+class IntentEngineBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IntentEngineBenchmarkTest.class);
+
+    private static final List<String> CORPUS = List.of(
+            "show my bookings",
+            "Мои брони",
+            "bookings",
+            "find flights from SFO to JFK on 2030-12-24",
+            "cheapest flight from New York to London tomorrow",
+            "LHR -> CDG next friday",
+            "I need a flight to Paris",
+            "advise me where to fly from Berlin",
+            "recommend the best trip from MAD on Dec 12",
+            "first",
+            "2nd",
+            "option 3 please",
+            "book it",
+            "Book the second one!",
+            "reserve that flight for me",
+            "cancel booking 3f2a9c10-1234-4abc-9def-202512240000",
+            "cancel the last one",
+            "отмени бронь",
+            "удали бронь пожалуйста",
+            "reschedule booking 3f2a9c10-1234-4abc-9def-202512240000 to 2030-12-28",
+            "перенести рейс на пятницу",
+            "change flight to next monday",
+            "reschedule it",
+            "ok",
+            "yes, confirm",
+            "What's the baggage allowance on economy tickets? I'd like to know before I decide anything about my trip.",
+            "Can you tell me the weather in Rome during the first week of May, and whether flights are usually cheap then?",
+            "Привет! Подскажи, пожалуйста, как лучше добраться из Москвы в Санкт-Петербург на выходных?");
+
+    /** What the intent checks cost before: each method lower-cases and scans the prompt again. */
+    static final class Legacy {
+        static boolean isBookingsIntent(String text) {
+            String t = text.toLowerCase(Locale.ROOT).trim();
+            if (t.contains("cancel") || t.contains("delete") || t.contains("remove")
+                    || t.contains("отмен") || t.contains("удал")) {
+                return false;
+            }
+            if (t.contains("show my bookings") || t.contains("show bookings") || t.contains("list bookings")
+                    || t.contains("my bookings") || t.contains("мои брони") || t.contains("мои бронирования")
+                    || t.contains("покажи брони") || t.contains("список брони") || t.contains("список бронирований")) {
+                return true;
+            }
+            return t.equals("bookings") || t.equals("my bookings") || t.equals("список броней") || t.equals("брони") || t.equals("мои брони");
+        }
+
+        static String[] extractRoute(String text) {
+            String t = text.trim();
+            java.util.regex.Matcher mIata = java.util.regex.Pattern.compile("\\b([A-Z]{3})\\b\\s*(?:->|—|–|-| to |→)?\\s*\\b([A-Z]{3})\\b").matcher(t);
+            if (mIata.find()) return new String[]{mIata.group(1), mIata.group(2)};
+            java.util.regex.Matcher mEn = java.util.regex.Pattern.compile("(?i)from\\s+([A-Za-z\\-\\s]+?)\\s+to\\s+([A-Za-z\\-\\s]+)").matcher(t);
+            if (mEn.find()) return new String[]{mEn.group(1).trim(), mEn.group(2).trim()};
+            return null;
+        }
+
+        static Integer parseOrdinal(String textLower) {
+            if (textLower.contains("first")) return 1;
+            if (textLower.contains("second")) return 2;
+            if (textLower.contains("third")) return 3;
+            if (textLower.contains("fourth")) return 4;
+            if (textLower.contains("fifth")) return 5;
+            java.util.regex.Matcher m = java.util.regex.Pattern
+                    .compile("(?:^|\\s)(?:option|number|#)?\\s*(\\d+)(?:st|nd|rd|th)?\\b")
+                    .matcher(textLower);
+            if (m.find()) {
+                try { return Integer.parseInt(m.group(1)); } catch (Exception ignore) {}
+            }
+            return null;
+        }
+
+        static boolean rescheduleKeyword(String lower) {
+            return lower.contains("reschedule") || lower.contains("rebook") || lower.contains("move flight")
+                    || lower.contains("change flight") || lower.contains("change booking")
+                    || lower.contains("перенес") || lower.contains("перенести") || lower.contains("перенос")
+                    || lower.contains("сменить рейс") || lower.contains("изменить рейс") || lower.contains("изменить брон");
+        }
+
+        static boolean rescheduleConfirmWords(String lower) {
+            boolean confirmWords = lower.contains("reschedule it") || lower.contains("confirm reschedule")
+                    || lower.contains("do reschedule") || lower.contains("перенеси") || lower.contains("подтверди перенос");
+            boolean genericConfirm = lower.matches(".*\\b(confirm|ok|okay|yes|да|ок)\\b.*");
+            boolean plainKeyword = lower.contains("reschedule") || lower.contains("перенест") || lower.contains("перенос");
+            return confirmWords || genericConfirm || plainKeyword;
+        }
+
+        static boolean isBookingCreateIntent(String lower) {
+            boolean hasVerb = lower.contains("book it") || lower.contains("book that") || lower.contains("book this")
+                    || lower.matches(".*\\bbook(\\s|!|\\.|$).*")
+                    || lower.contains("reserve");
+            boolean cancelWords = lower.contains("cancel") || lower.contains("delete") || lower.contains("отмен");
+            return hasVerb && !cancelWords;
+        }
+
+        static boolean isCancelBookingIntent(String lower) {
+            return lower.contains("cancel booking") || lower.contains("delete booking")
+                    || lower.matches(".*\\bcancel\\b.*")
+                    || lower.contains("отмени брон") || lower.contains("удали брон");
+        }
+
+        static String extractUuid(String text) {
+            java.util.regex.Matcher m = java.util.regex.Pattern.compile("\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b").matcher(text);
+            return m.find() ? m.group() : null;
+        }
+
+        /** Same fields as {@link IntentEngineBenchmarkTest#signature(TurnAnalysis)}, computed the old way. */
+        static String signature(String prompt) {
+            String lower = prompt.toLowerCase(Locale.ROOT);
+            String[] route = extractRoute(prompt);
+            boolean flight = lower.contains("cheapest") || lower.contains("lowest") || lower.contains("flight") || route != null;
+            return String.join("|",
+                    String.valueOf(isBookingsIntent(prompt)),
+                    String.valueOf(rescheduleKeyword(lower)),
+                    String.valueOf(rescheduleConfirmWords(lower)),
+                    String.valueOf(isBookingCreateIntent(lower)),
+                    String.valueOf(isCancelBookingIntent(lower)),
+                    String.valueOf(parseOrdinal(lower)),
+                    String.valueOf(extractUuid(prompt)),
+                    route == null ? "null" : Arrays.toString(route),
+                    String.valueOf(lower.contains("last") || lower.contains("послед")),
+                    String.valueOf(flight));
+        }
+    }
+
+    static String signature(TurnAnalysis a) {
+        TurnAnalysis.Route r = a.route();
+        return String.join("|",
+                String.valueOf(a.bookingsIntent()),
+                String.valueOf(a.rescheduleKeyword()),
+                String.valueOf(a.rescheduleConfirmWords()),
+                String.valueOf(a.bookCreateIntent()),
+                String.valueOf(a.cancelIntent()),
+                String.valueOf(a.ordinal()),
+                String.valueOf(a.uuid()),
+                r == null ? "null" : Arrays.toString(new String[]{r.origin(), r.destination()}),
+                String.valueOf(a.wantsLast()),
+                String.valueOf(a.flightIntent()));
+    }
+
+    @Test
+    void engineClassifiesCorpusLikeTheLegacyChecks() {
+        for (String prompt : CORPUS) {
+            assertEquals(Legacy.signature(prompt), signature(IntentEngine.analyze(prompt, null)), prompt);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void singlePassIsCheaperThanPerMethodChecks() {
+        long sink = 0;
+        for (int i = 0; i < 2_000; i++) { // warm-up
+            for (String p : CORPUS) {
+                sink += Legacy.signature(p).length();
+                sink += Objects.hashCode(IntentEngine.analyze(p, null).route());
+            }
+        }
+        // best of several alternating rounds, so one GC pause or descheduling does not decide it
+        long legacyNs = Long.MAX_VALUE;
+        long engineNs = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            sink += legacyRun(1_000);
+            legacyNs = Math.min(legacyNs, (System.nanoTime() - t0) / (1_000L * CORPUS.size()));
+            t0 = System.nanoTime();
+            sink += engineRun(1_000);
+            engineNs = Math.min(engineNs, (System.nanoTime() - t0) / (1_000L * CORPUS.size()));
+        }
+        assertTrue(sink != 0);
+
+        log.info("[IntentEngineBenchmark] {} prompts: per-method checks={} ns/turn single-pass={} ns/turn",
+                CORPUS.size(), legacyNs, engineNs);
+        assertTrue(engineNs < legacyNs, "single-pass " + engineNs + " ns vs per-method " + legacyNs + " ns");
+    }
+
+    private static long legacyRun(int runs) {
+        long sink = 0;
+        for (int i = 0; i < runs; i++) {
+            for (String p : CORPUS) {
+                String lower = p.toLowerCase(Locale.ROOT);
+                sink += Legacy.isBookingsIntent(p) ? 1 : 0;
+                sink += Legacy.rescheduleKeyword(lower) ? 1 : 0;
+                sink += Legacy.rescheduleConfirmWords(lower) ? 1 : 0;
+                sink += Legacy.isBookingCreateIntent(lower) ? 1 : 0;
+                sink += Legacy.isCancelBookingIntent(lower) ? 1 : 0;
+                sink += Objects.hashCode(Legacy.parseOrdinal(lower));
+                sink += Objects.hashCode(Legacy.extractUuid(p));
+                sink += Legacy.extractRoute(p) == null ? 0 : 1;
+            }
+        }
+        return sink;
+    }
+
+    private static long engineRun(int runs) {
+        long sink = 0;
+        for (int i = 0; i < runs; i++) {
+            for (String p : CORPUS) {
+                TurnAnalysis a = IntentEngine.analyze(p, null);
+                sink += a.bookingsIntent() ? 1 : 0;
+                sink += a.rescheduleKeyword() ? 1 : 0;
+                sink += a.rescheduleConfirmWords() ? 1 : 0;
+                sink += a.bookCreateIntent() ? 1 : 0;
+                sink += a.cancelIntent() ? 1 : 0;
+                sink += Objects.hashCode(a.ordinal());
+                sink += Objects.hashCode(a.uuid());
+                sink += a.route() == null ? 0 : 1;
+            }
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.travel.assistant.nlu;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntentEngineTest {
+
+    private static TurnAnalysis analyze(String prompt) {
+        return IntentEngine.analyze(prompt, null);
+    }
+
+    @Test
+    void automatonFindsOverlappingPhrasesAndRespectsWordBoundaries() {
+        KeywordAutomaton automaton = new KeywordAutomaton(Cue.values());
+        long cues = automaton.scan("Please CANCEL booking and show my bookings");
+        assertTrue((cues & Cue.CANCEL_BOOKING.bit()) != 0);
+        assertTrue((cues & Cue.CANCEL_WORD.bit()) != 0);
+        assertTrue((cues & Cue.LIST_BOOKINGS.bit()) != 0);
+        assertTrue((cues & Cue.MODIFY_WORD.bit()) != 0);
+
+        // "перенеси" contains "перенес" and confirms as well as starts a reschedule
+        long ru = automaton.scan("Перенеси на завтра");
+        assertTrue((ru & Cue.RESCHEDULE.bit()) != 0);
+        assertTrue((ru & Cue.RESCHEDULE_CONFIRM.bit()) != 0);
+
+        assertEquals(0, automaton.scan("cancellation policy") & Cue.CANCEL_WORD.bit());
+        assertEquals(0, automaton.scan("bookings") & Cue.BOOK_WORD.bit());
+        assertEquals(0, automaton.scan("tokyo") & Cue.CONFIRM.bit());
+        assertTrue((automaton.scan("ок, да") & Cue.CONFIRM.bit()) != 0);
+        assertTrue((automaton.scan("book!") & Cue.BOOK_WORD.bit()) != 0);
+    }
+
+    @Test
+    void bookingIntents() {
+        assertTrue(analyze("show my bookings").bookingsIntent());
+        assertTrue(analyze("  Брони ").bookingsIntent());
+        assertFalse(analyze("delete my bookings").bookingsIntent());
+        assertTrue(analyze("book the first").bookCreateIntent());
+        assertTrue(analyze("Reserve it please").bookCreateIntent());
+        assertFalse(analyze("cancel and book").bookCreateIntent());
+        assertFalse(analyze("my bookings").bookCreateIntent());
+        assertTrue(analyze("cancel the last one").cancelIntent());
+        assertTrue(analyze("отмени бронь").cancelIntent());
+        assertTrue(analyze("отмени последнюю бронь").wantsLast());
+        assertTrue(analyze("reschedule booking").rescheduleKeyword());
+        assertTrue(analyze("yes").rescheduleConfirmWords());
+        assertTrue(analyze("да").rescheduleConfirmWords());
+    }
+
+    @Test
+    void extractsSlots() {
+        TurnAnalysis a = analyze("book option 2 from SFO -> JFK");
+        assertEquals(2, a.ordinal());
+        assertEquals(new TurnAnalysis.Route("SFO", "JFK"), a.route());
+        assertEquals(3, analyze("the THIRD one").ordinal());
+        assertEquals(1, analyze("1st").ordinal());
+        assertNull(analyze("hello").ordinal());
+
+        assertEquals(new TurnAnalysis.Route("New York", "London"), analyze("cheapest flight from New York to London").route());
+        assertEquals("New York", analyze("advise me where to fly from New York").originOnly());
+        assertEquals("3f2a9c10-1234-4abc-9def-202512240000",
+                analyze("cancel booking 3f2a9c10-1234-4abc-9def-202512240000").uuid());
+        assertTrue(analyze("SFO to JFK").flightIntent());
+        assertFalse(analyze("hello there").flightIntent());
+    }
+
+    @Test
+    void dateIsParsedOncePerTurn() {
+        List<String> calls = new ArrayList<>();
+        TurnAnalysis a = IntentEngine.analyze("from SFO to JFK tomorrow", p -> {
+            calls.add(p);
+            return "2030-10-13";
+        });
+        assertEquals(List.of("from SFO to JFK tomorrow"), calls);
+        assertEquals("2030-10-13", a.date());
+        assertEquals("2030-10-13", a.date());
+        assertEquals(1, calls.size());
+    }
+}
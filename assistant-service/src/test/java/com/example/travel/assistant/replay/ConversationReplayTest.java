@@ -0,0 +1,170 @@
+package com.example.travel.assistant.replay;
+
+import com.example.travel.assistant.agent.StatusReportingTools;
+import com.example.travel.assistant.agent.TravelAssistantAgent;
+import com.example.travel.assistant.memory.ConversationContext;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.AiServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Records a conversation through {@link ConversationRecorder}, then replays it with
+ * {@link ScriptedChatLanguageModel}: same tool calls with the same arguments, same answer, and
+ * no model in the loop, which is what makes the replay fast enough to benchmark the pipeline.
+ * The throughput test is tagged {@code benchmark} and runs with {@code mvn test -Pbenchmark}.
+ */
+class ConversationReplayTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationReplayTest.class);
+
+    private static final int TURNS = 2_000;
+
+    private final List<String> toolRuns = new CopyOnWriteArrayList<>();
+
+    public class Tools {
+        @Tool("Search flights")
+        public String searchFlights(String origin) {
+            toolRuns.add(origin);
+            return "{\"status\":\"OK\",\"data\":[{\"origin\":\"" + origin + "\",\"price\":120}]}";
+        }
+    }
+
+    /** Stands in for Gemini during recording: one tool call, then an answer. */
+    private static final class LiveModel implements ChatLanguageModel {
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return generate(messages, List.of());
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> tools) {
+            if (!(messages.get(messages.size() - 1) instanceof ToolExecutionResultMessage)) {
+                return Response.from(AiMessage.from(ToolExecutionRequest.builder()
+                        .id("1").name("searchFlights").arguments("{\"arg0\":\"JFK\"}").build()));
+            }
+            return Response.from(AiMessage.from("One flight from JFK for 120 EUR."));
+        }
+    }
+
+    private TravelAssistantAgent agent(ChatLanguageModel model, StreamingChatLanguageModel streaming) {
+        var builder = AiServices.builder(TravelAssistantAgent.class)
+                .chatLanguageModel(model)
+                .chatMemoryProvider(id -> MessageWindowChatMemory.withMaxMessages(10))
+                .tools(StatusReportingTools.of(List.of(new Tools())));
+        if (streaming != null) builder.streamingChatLanguageModel(streaming);
+        return builder.build();
+    }
+
+    @AfterEach
+    void clearContext() {
+        ConversationContext.clear();
+    }
+
+    /** Records one turn of the live model into {@code file}. */
+    private void record(Path file) throws Exception {
+        try (ConversationRecorder recorder = new ConversationRecorder(file.toString())) {
+            ConversationContext.setMemoryId("s1");
+            assertEquals("One flight from JFK for 120 EUR.", agent(recorder.record(new LiveModel()), null).chat("s1", "flights from JFK"));
+        }
+    }
+
+    @Test
+    void recordedConversationReplaysWithItsToolCalls(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("replay.jsonl");
+        record(file);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"session\":\"s1\"") && lines.get(0).contains("\"name\":\"searchFlights\""), lines.get(0));
+        assertTrue(lines.get(1).contains("\"step\":1") && lines.get(1).contains("120 EUR"), lines.get(1));
+
+        toolRuns.clear();
+        ScriptedChatLanguageModel scripted = new ScriptedChatLanguageModel(
+                ReplayScript.load(file.toString()), LatencyModel.parse("none", 1), "no recording");
+        TravelAssistantAgent replay = agent(scripted, scripted);
+        assertEquals("One flight from JFK for 120 EUR.", replay.chat("r1", "  flights   from JFK "));
+        assertEquals(List.of("JFK"), toolRuns);
+        assertEquals("no recording", replay.chat("r2", "flights from LHR"));
+
+        CompletableFuture<Response<AiMessage>> streamed = new CompletableFuture<>();
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        replay.chatStream("r3", "flights from JFK")
+                .onNext(tokens::add)
+                .onComplete(streamed::complete)
+                .onError(streamed::completeExceptionally)
+                .start();
+        assertEquals("One flight from JFK for 120 EUR.", streamed.join().content().text());
+        assertEquals("One flight from JFK for 120 EUR.", String.join("", tokens));
+        assertEquals(List.of("JFK", "JFK"), toolRuns);
+        assertEquals(4, scripted.replayed());
+        assertEquals(1, scripted.unscripted());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void replaysThousandsOfTurnsPerSecond(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("replay.jsonl");
+        record(file);
+        toolRuns.clear();
+        ScriptedChatLanguageModel scripted = new ScriptedChatLanguageModel(
+                ReplayScript.load(file.toString()), LatencyModel.parse("none", 1), "no recording");
+        TravelAssistantAgent replay = agent(scripted, scripted);
+        replay.chat("warm-up", "flights from JFK");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TURNS; i++) replay.chat("bench-" + i, "flights from JFK");
+        long nanos = System.nanoTime() - start;
+        log.info("[ConversationReplayBenchmark] {} turns (2 model calls + 1 tool each) in {} ms: {} turns/s",
+                TURNS, nanos / 1_000_000, Math.round(TURNS * 1e9 / nanos));
+        assertEquals(1 + TURNS, toolRuns.size());
+        assertEquals(2 + 2 * TURNS, scripted.replayed());
+        assertEquals(0, scripted.unscripted());
+    }
+
+    @Test
+    void latencySpecs() {
+        ReplayStep recorded = new ReplayStep(null, "p", false, 0, 700, "a", null);
+        assertEquals(0, LatencyModel.parse("none", 1).millis(recorded));
+        assertEquals(700, LatencyModel.parse("recorded", 1).millis(recorded));
+        assertEquals(350, LatencyModel.parse("recorded", 0.5).millis(recorded));
+        assertEquals(0, LatencyModel.parse("recorded", 1).millis(null));
+        assertEquals(800, LatencyModel.parse("fixed:800", 1).millis(null));
+        LatencyModel uniform = LatencyModel.parse("uniform:200-300", 1);
+        LatencyModel lognormal = LatencyModel.parse("lognormal:900:6000", 1);
+        long[] samples = new long[2_001];
+        for (int i = 0; i < samples.length; i++) {
+            long u = uniform.millis(null);
+            assertTrue(u >= 200 && u <= 300, "uniform " + u);
+            samples[i] = lognormal.millis(null);
+        }
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        assertTrue(median > 700 && median < 1_150, "lognormal median " + median);
+        assertThrows(IllegalStateException.class, () -> LatencyModel.parse("gaussian:5", 1));
+        assertThrows(IllegalStateException.class, () -> LatencyModel.parse("uniform:5", 1));
+    }
+}
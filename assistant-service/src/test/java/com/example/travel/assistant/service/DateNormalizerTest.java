@@ -0,0 +1,98 @@
+package com.example.travel.assistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DateNormalizerTest {
+
+    // a Saturday
+    private static final LocalDate TODAY = LocalDate.of(2030, 10, 12);
+
+    private final List<String> prompts = new ArrayList<>();
+    private final DateNormalizer normalizer = new DateNormalizer(prompt -> {
+        prompts.add(prompt);
+        return "{\"hasDate\": true, \"date\": \"2030-04-03\", \"confidence\": 0.9}";
+    }, Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+    private String local(String text) {
+        DateNormalizer.Parse p = normalizer.parse(text, TODAY);
+        return p.outcome() == DateNormalizer.Outcome.DATE ? p.date().toString() : p.outcome().name();
+    }
+
+    @Test
+    void resolvesExplicitAndNumericDates() {
+        assertEquals("2030-12-24", local("flights from SFO to JFK on 2030-12-24"));
+        assertEquals("2031-01-05", local("на 05.01.2031"));
+        assertEquals("2030-12-24", local("24.12 please"));
+        assertEquals("2030-12-24", local("12/24"));
+        assertEquals("2030-12-24", local("24/12/30"));
+        assertEquals("AMBIGUOUS", local("on 03/04"));
+        assertEquals("AMBIGUOUS", local("2030-02-30"));
+        assertEquals("NONE", local("under 12.50 dollars"));
+    }
+
+    @Test
+    void resolvesMonthNamesWithNearestFutureYear() {
+        assertEquals("2030-12-12", local("Dec 12"));
+        assertEquals("2030-12-12", local("December 12th"));
+        assertEquals("2030-12-12", local("the 12th of December"));
+        assertEquals("2031-03-01", local("1 March"));
+        assertEquals("2030-10-12", local("Oct 12"));
+        assertEquals("2031-10-11", local("Oct 11"));
+        assertEquals("2032-02-29", local("Feb 29"));
+        assertEquals("2030-12-12", local("12 декабря"));
+        assertEquals("2031-01-03", local("3-го января"));
+        assertEquals("2032-05-09", local("9 мая 2032 года"));
+        assertEquals("AMBIGUOUS", local("April 31"));
+        assertEquals("AMBIGUOUS", local("sometime in December"));
+    }
+
+    @Test
+    void resolvesRelativeDaysAndWeekdays() {
+        assertEquals("2030-10-12", local("today"));
+        assertEquals("2030-10-13", local("tomorrow morning"));
+        assertEquals("2030-10-14", local("day after tomorrow"));
+        assertEquals("2030-10-14", local("послезавтра"));
+        assertEquals("2030-10-13", local("завтра"));
+        assertEquals("2030-10-15", local("in 3 days"));
+        assertEquals("2030-10-19", local("через неделю"));
+        assertEquals("2030-10-18", local("next Friday"));
+        assertEquals("2030-10-18", local("в пятницу"));
+        assertEquals("2030-10-12", local("this Saturday"));
+        assertEquals("2030-10-19", local("on saturday"));
+        assertEquals("2030-10-14", local("в следующий понедельник"));
+        assertEquals("AMBIGUOUS", local("next week"));
+        assertEquals("AMBIGUOUS", local("Dec 12 or Dec 14"));
+        assertEquals("2030-12-12", local("Dec 12, i.e. 2030-12-12"));
+    }
+
+    @Test
+    void textWithoutDatesStaysLocal() {
+        assertEquals("NONE", local("book the 2nd one"));
+        assertEquals("NONE", local("cancel booking 3f2a9c10-1234-4abc-9def-202512240000"));
+        assertEquals("NONE", local("show my bookings"));
+        assertEquals("NONE", local("cheapest flight from New York to London"));
+    }
+
+    @Test
+    void asksTheLlmOnlyWhenAmbiguousAndCountsSources() {
+        assertEquals("2030-12-12", normalizer.normalize("from SFO to JFK on Dec 12"));
+        assertNull(normalizer.normalize("show my bookings"));
+        assertEquals(0, prompts.size());
+
+        assertEquals("2030-04-03", normalizer.normalize("on 03/04"));
+        assertEquals(1, prompts.size());
+
+        assertEquals(1, normalizer.localDates());
+        assertEquals(1, normalizer.localNone());
+        assertEquals(1, normalizer.llmCalls());
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.travel.assistant.session;
+
+import com.example.travel.assistant.flights.Flight;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSessionStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static Flight flight(int i) {
+        OffsetDateTime dep = OffsetDateTime.of(2030, 1, 1, 8, i % 60, 0, 0, ZoneOffset.ofHours(-5));
+        return new Flight("Delta Air Lines", "DL" + i, "JFK", "LHR", LocalDate.of(2030, 1, 1),
+                dep, dep.plusHours(7).withOffsetSameInstant(ZoneOffset.UTC), 420.5 + i, "USD", "New York", "London");
+    }
+
+    private static List<ChatMessage> conversation() {
+        ToolExecutionRequest call = ToolExecutionRequest.builder().id("c1").name("searchFlights")
+                .arguments("{\"origin\":\"JFK\",\"destination\":\"LHR\"}").build();
+        return List.of(
+                SystemMessage.from("You are a travel assistant."),
+                UserMessage.from("Рейсы из Нью-Йорка в Лондон 1 января"),
+                AiMessage.from(call),
+                ToolExecutionResultMessage.from(call, "{\"status\":\"ok\"}"),
+                AiMessage.from("Here are the options."),
+                UserMessage.from("u-100", "book the first"));
+    }
+
+    private static SessionState state() {
+        Map<String, Object> candidate = new LinkedHashMap<>();
+        candidate.put("id", "3f2a9c10-1234-4abc-9def-202512240000");
+        candidate.put("price", 420.5);
+        candidate.put("seats", 2);
+        candidate.put("refundable", true);
+        candidate.put("note", null);
+        return SessionState.EMPTY.withUserId("u-100")
+                .withLastSearch(List.of(flight(1), flight(2), flight(3)))
+                .withLastChosen(flight(2))
+                .withLastBookingId("b-1")
+                .withReschedule("b-1", "2030-01-05")
+                .withCancelCandidates(List.of(candidate));
+    }
+
+    @Test
+    void codecRoundTripsMessagesAndState() throws Exception {
+        List<ChatMessage> messages = conversation();
+        assertEquals(messages, SessionCodec.decodeMessages(ByteBuffer.wrap(SessionCodec.encodeMessages(messages))));
+
+        SessionState s = state();
+        SessionState back = SessionCodec.decodeState(ByteBuffer.wrap(SessionCodec.encodeState(s)));
+        assertEquals(s.lastSearch(), back.lastSearch());
+        assertEquals(s.lastChosen(), back.lastChosen());
+        assertEquals(420.5, back.cancelCandidates().get(0).get("price"));
+        assertEquals(2L, back.cancelCandidates().get(0).get("seats"));
+        assertEquals(s.withCancelCandidates(null), back.withCancelCandidates(null));
+
+        // well under half the size of the same flights as tool JSON
+        List<Map<String, Object>> maps = new ArrayList<>();
+        s.lastSearch().forEach(f -> maps.add(f.toMap()));
+        maps.add(s.lastChosen().toMap());
+        int json = new ObjectMapper().writeValueAsBytes(maps).length;
+        int binary = SessionCodec.encodeState(s).length;
+        assertTrue(binary * 2 < json, "binary " + binary + " bytes vs JSON " + json);
+    }
+
+    @Test
+    void survivesReopenAndKeepsOnlyLatestValues() {
+        Path file = dir.resolve("sessions.log");
+        FileSessionStore store = new FileSessionStore(file);
+        store.updateMessages("s1", conversation().subList(0, 2));
+        store.updateMessages("s1", conversation());
+        store.updateMessages("s2", conversation().subList(0, 1));
+        store.deleteMessages("s2");
+        store.saveState("s1", state());
+        store.saveState("s3", SessionState.EMPTY.withUserId("u-3"));
+        store.saveState("s3", SessionState.EMPTY);
+        store.close();
+
+        FileSessionStore reopened = new FileSessionStore(file);
+        assertEquals(conversation(), reopened.getMessages("s1"));
+        assertEquals(List.of(), reopened.getMessages("s2"));
+        assertEquals(Set.of("s1"), reopened.sessionIds());
+        assertEquals(state().lastSearch(), reopened.loadState("s1").lastSearch());
+        assertNull(reopened.loadState("s3"));
+        reopened.close();
+    }
+
+    @Test
+    void dropsTornRecordAtTheTail() throws IOException {
+        Path file = dir.resolve("sessions.log");
+        FileSessionStore store = new FileSessionStore(file);
+        store.saveState("s1", SessionState.EMPTY.withUserId("u-1"));
+        store.saveState("s2", SessionState.EMPTY.withUserId("u-2"));
+        store.close();
+        long size = Files.size(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 3); // crash in the middle of the last record
+        }
+
+        FileSessionStore reopened = new FileSessionStore(file);
+        assertEquals("u-1", reopened.loadState("s1").userId());
+        assertNull(reopened.loadState("s2"));
+        reopened.saveState("s2", SessionState.EMPTY.withUserId("u-2b"));
+        reopened.close();
+        assertEquals("u-2b", new FileSessionStore(file).loadState("s2").userId());
+    }
+
+    @Test
+    void compactsWhenMostOfTheFileIsGarbage() {
+        Path file = dir.resolve("sessions.log");
+        FileSessionStore store = new FileSessionStore(file, 4096);
+        List<ChatMessage> history = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            history.add(UserMessage.from("message " + i));
+            store.updateMessages("s1", history.subList(Math.max(0, history.size() - 10), history.size()));
+        }
+        store.saveState("s1", state());
+        long before = store.fileBytes();
+        store.flush();
+        assertTrue(store.fileBytes() < before / 4, store.fileBytes() + " vs " + before);
+        assertEquals(store.liveBytes() + FileSessionStore.MAGIC.length, store.fileBytes());
+        assertEquals(history.subList(190, 200), store.getMessages("s1"));
+        store.close();
+        assertEquals(state().lastChosen(), new FileSessionStore(file).loadState("s1").lastChosen());
+    }
+}
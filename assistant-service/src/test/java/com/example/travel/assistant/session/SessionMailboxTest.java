@@ -0,0 +1,170 @@
+package com.example.travel.assistant.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionMailboxTest {
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    private static <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, r -> Thread.ofVirtual().start(r));
+    }
+
+    @Test
+    void runsTurnsOfOneSessionInOrderAndSessionsInParallel() throws Exception {
+        SessionMailbox mailbox = new SessionMailbox(8, true);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> log = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<String> first = async(() -> mailbox.run("a", "1", () -> {
+            log.add("a1 start");
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            log.add("a1 end");
+            return "a1";
+        }));
+        await(() -> log.contains("a1 start"));
+        CompletableFuture<String> second = async(() -> mailbox.run("a", "2", () -> {
+            log.add("a2");
+            return "a2";
+        }));
+        await(() -> mailbox.queued() == 1);
+
+        // another session is not held up by the busy one
+        assertEquals("b1", mailbox.run("b", "1", () -> "b1"));
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertEquals("a1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("a2", second.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a1 start", "a1 end", "a2"), log);
+        await(() -> mailbox.activeSessions() == 0);
+    }
+
+    @Test
+    void mergesDuplicatesAndRejectsFloods() throws Exception {
+        SessionMailbox mailbox = new SessionMailbox(1, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<Integer> first = async(() -> mailbox.run("a", "book the first", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return runs.incrementAndGet();
+        }));
+        started.await();
+        // a double submit joins the turn in progress instead of booking twice
+        CompletableFuture<Integer> duplicate = async(() -> mailbox.run("a", "book the first", runs::incrementAndGet));
+        await(() -> mailbox.merged() == 1);
+        CompletableFuture<Integer> queued = async(() -> mailbox.run("a", "next", () -> runs.addAndGet(10)));
+        await(() -> mailbox.queued() == 1);
+        assertThrows(SessionBusyException.class, () -> mailbox.run("a", "and another", () -> 0));
+
+        release.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(11, queued.get(5, TimeUnit.SECONDS));
+        assertEquals(11, runs.get());
+    }
+
+    @Test
+    void propagatesFailuresAndRunsNestedCallsInline() {
+        SessionMailbox mailbox = new SessionMailbox(4, true);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> mailbox.run("a", "x", () -> { throw new IllegalArgumentException("bad"); }));
+        assertEquals("bad", ex.getMessage());
+        // a turn calling back into its own session must not wait for itself
+        assertEquals("inner", mailbox.run("a", "outer", () -> mailbox.run("a", "inner", () -> "inner")));
+        assertEquals("none", mailbox.run(null, null, () -> "none"));
+    }
+
+    @Test
+    void callersStopWaitingAfterTheLimitAndUnstartedTurnsAreDropped() throws Exception {
+        SessionMailbox mailbox = new SessionMailbox(4, true, TimeUnit.MILLISECONDS.toNanos(100), System::nanoTime);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<String> hung = async(() -> mailbox.run("a", "1", () -> {
+            started.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // a stuck call that ignores being interrupted
+                }
+            }
+            return "late";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        SessionBusyException ex = assertThrows(SessionBusyException.class,
+                () -> mailbox.run("a", "2", () -> "a" + runs.incrementAndGet()));
+        assertTrue(ex.isTimedOut());
+        assertEquals(0, mailbox.queued());
+
+        ExecutionException first = assertThrows(ExecutionException.class, () -> hung.get(5, TimeUnit.SECONDS));
+        assertTrue(((SessionBusyException) first.getCause()).isTimedOut());
+        release.countDown();
+        await(() -> mailbox.activeSessions() == 0);
+        assertEquals(0, runs.get());
+        assertEquals("b", mailbox.run("a", "3", () -> "b"));
+    }
+
+    @Test
+    void aTurnWhoseCallersAllLeaveIsDroppedOrInterrupted() throws Exception {
+        SessionMailbox mailbox = new SessionMailbox(4, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger queuedRuns = new AtomicInteger();
+
+        Thread first = Thread.ofVirtual().start(() -> mailbox.run("a", "1", () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "never";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread second = Thread.ofVirtual().start(() -> mailbox.run("a", "2", queuedRuns::incrementAndGet));
+        await(() -> mailbox.queued() == 1);
+
+        second.interrupt(); // its turn has not started: it is dropped
+        await(() -> mailbox.queued() == 0);
+        first.interrupt(); // its turn is running: it is interrupted
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        await(() -> mailbox.activeSessions() == 0);
+        assertEquals(0, queuedRuns.get());
+        assertEquals("next", mailbox.run("a", "3", () -> "next"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.travel.assistant.session;
+
+import com.example.travel.assistant.flights.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStateStoreTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static List<Flight> flights(int n) {
+        OffsetDateTime dep = OffsetDateTime.of(2030, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        return IntStream.range(0, n)
+                .mapToObj(i -> new Flight("Carrier", "X" + i, "SFO", "JFK", LocalDate.of(2030, 1, 1),
+                        dep, dep.plusHours(5), 100 + i, "USD", "San Francisco", "New York"))
+                .toList();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSessionOverMaxEntries() {
+        SessionStateStore store = new SessionStateStore(2, 1_000, 1_000, now::get);
+        store.update("a", s -> s.withUserId("u-a"));
+        store.update("b", s -> s.withUserId("u-b"));
+        assertEquals("u-a", store.get("a").userId());
+        store.update("c", s -> s.withUserId("u-c")); // evicts b, the least recently used
+        assertNull(store.get("b").userId());
+        assertEquals("u-a", store.get("a").userId());
+        assertEquals(2, store.size());
+        assertEquals(1, store.evictions());
+    }
+
+    @Test
+    void dropsIdleSessions() {
+        SessionStateStore store = new SessionStateStore(10, 1_000, 1_000, now::get);
+        store.update("a", s -> s.withLastSearch(flights(3)));
+        store.update("b", s -> s.withUserId("u-b"));
+        now.set(600);
+        store.get("b"); // touched, stays
+        now.set(1_000);
+        assertSame(SessionState.EMPTY, store.get("a"));
+        assertEquals("u-b", store.get("b").userId());
+        assertEquals(0, store.retainedFlights());
+        assertEquals(1, store.evictions());
+    }
+
+    @Test
+    void retainedFlightsBoundTheStoreButNeverTheSessionJustWritten() {
+        SessionStateStore store = new SessionStateStore(10, 10, 1_000, now::get);
+        store.update("a", s -> s.withLastSearch(flights(4)));
+        store.update("b", s -> s.withLastSearch(flights(4)).withLastChosen(flights(1).get(0)));
+        assertEquals(9, store.retainedFlights());
+        store.update("c", s -> s.withLastSearch(flights(3))); // 12 > 10: a goes
+        assertNull(store.get("a").lastSearch());
+        assertEquals(8, store.retainedFlights());
+
+        store.update("a", s -> s.withLastSearch(flights(20))); // alone over the limit: everyone else goes
+        assertEquals(1, store.size());
+        assertEquals(20, store.retainedFlights());
+        store.update("a", s -> s.withLastSearch(flights(2)));
+        assertEquals(2, store.retainedFlights());
+    }
+
+    @Test
+    void emptiedSessionsAreRemoved() {
+        SessionStateStore store = new SessionStateStore(10, 100, 1_000, now::get);
+        store.update("a", s -> s.withReschedule("b-1", null));
+        assertTrue(store.get("a").reschedulePending());
+        store.update("a", s -> s.withReschedule(null, null));
+        assertEquals(0, store.size());
+        assertSame(SessionState.EMPTY, store.get(null));
+    }
+
+    @Test
+    void aBlockedWriteHoldsUpOnlyItsOwnSession() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SessionStore slow = new InMemorySessionStore() {
+            @Override
+            public void saveState(String memoryId, SessionState state) {
+                if (memoryId.equals("a")) {
+                    saving.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                super.saveState(memoryId, state);
+            }
+        };
+        SessionStateStore store = new SessionStateStore(10, 100, 1_000, now::get, slow);
+        CompletableFuture<SessionState> a = CompletableFuture.supplyAsync(() -> store.update("a", s -> s.withUserId("u-a")),
+                r -> Thread.ofVirtual().start(r));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        assertEquals("u-b", store.update("b", s -> s.withUserId("u-b")).userId());
+        assertEquals("u-b", store.get("b").userId());
+        assertFalse(a.isDone());
+
+        release.countDown();
+        assertEquals("u-a", a.get(5, TimeUnit.SECONDS).userId());
+        assertEquals("u-a", store.get("a").userId());
+        assertEquals(2, store.size());
+    }
+}
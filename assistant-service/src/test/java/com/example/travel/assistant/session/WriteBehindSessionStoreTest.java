@@ -0,0 +1,101 @@
+package com.example.travel.assistant.session;
+
+import com.example.travel.assistant.memory.SharedChatMemoryProvider;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WriteBehindSessionStoreTest {
+
+    @TempDir
+    Path dir;
+
+    /** Counts what reaches the delegate. */
+    private static final class CountingStore extends InMemorySessionStore {
+        final List<String> states = new ArrayList<>();
+        final AtomicInteger messageWrites = new AtomicInteger();
+        final AtomicInteger flushes = new AtomicInteger();
+        SessionState state;
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> list) {
+            messageWrites.incrementAndGet();
+            super.updateMessages(memoryId, list);
+        }
+
+        @Override
+        public SessionState loadState(String memoryId) { return state; }
+
+        @Override
+        public void saveState(String memoryId, SessionState s) {
+            states.add(s.userId());
+            state = s.isEmpty() ? null : s;
+        }
+
+        @Override
+        public void flush() { flushes.incrementAndGet(); }
+    }
+
+    @Test
+    void coalescesWritesAndReadsItsOwnWrites() {
+        CountingStore delegate = new CountingStore();
+        WriteBehindSessionStore store = new WriteBehindSessionStore(delegate, 60_000, 1_000);
+        for (int i = 0; i < 50; i++) {
+            store.updateMessages("s1", List.of(UserMessage.from("turn " + i)));
+            store.saveState("s1", SessionState.EMPTY.withUserId("u-" + i));
+        }
+        // nothing written yet, but readers see the latest values
+        assertEquals(0, delegate.messageWrites.get());
+        assertEquals(List.of(UserMessage.from("turn 49")), store.getMessages("s1"));
+        assertEquals("u-49", store.loadState("s1").userId());
+        assertEquals(2, store.pending()); // messages and state of one session
+
+        store.flush();
+        assertEquals(1, delegate.messageWrites.get());
+        assertEquals(List.of("u-49"), delegate.states);
+        assertEquals(1, delegate.flushes.get());
+        assertEquals(0, store.pending());
+
+        store.saveState("s1", SessionState.EMPTY);
+        assertNull(store.loadState("s1"));
+        store.close();
+        assertNull(delegate.state);
+    }
+
+    @Test
+    void conversationAndStateSurviveRestartWithFileStore() {
+        Path file = dir.resolve("sessions.log");
+        AtomicLong now = new AtomicLong();
+        WriteBehindSessionStore store = new WriteBehindSessionStore(new FileSessionStore(file), 10, 64);
+        SharedChatMemoryProvider memory = new SharedChatMemoryProvider(3, store);
+        SessionStateStore states = new SessionStateStore(10, 100, 1_000, now::get, store);
+        for (int i = 0; i < 5; i++) memory.get("s1").add(UserMessage.from("turn " + i));
+        states.update("s1", s -> s.withUserId("u-100").withLastBookingId("b-7"));
+        store.close();
+
+        WriteBehindSessionStore reopened = new WriteBehindSessionStore(new FileSessionStore(file), 10, 64);
+        SharedChatMemoryProvider memory2 = new SharedChatMemoryProvider(3, reopened);
+        SessionStateStore states2 = new SessionStateStore(10, 100, 1_000, now::get, reopened);
+        assertEquals(List.of("s1"), List.copyOf(memory2.keys()));
+        assertEquals(3, memory2.dump("s1").size());
+        assertEquals("turn 4", memory2.dump("s1").get(2).get("content"));
+        assertEquals("b-7", states2.get("s1").lastBookingId());
+
+        // evicted from the heap, reloaded from the store on the next access
+        states2.update("s2", s -> s.withUserId("u-2"));
+        now.set(2_000);
+        assertEquals(0, states2.size());
+        assertEquals("u-100", states2.get("s1").userId());
+        reopened.close();
+    }
+}
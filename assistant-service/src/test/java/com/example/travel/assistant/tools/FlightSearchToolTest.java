@@ -0,0 +1,237 @@
+package com.example.travel.assistant.tools;
+
+import com.example.travel.assistant.flights.ConnectionSearch;
+import com.example.travel.assistant.flights.Flight;
+import com.example.travel.assistant.flights.FlightCatalog;
+import com.example.travel.assistant.flights.FlightItinerary;
+import com.example.travel.assistant.flights.PlaceResolver;
+import com.example.travel.assistant.memory.SharedChatMemoryProvider;
+import com.example.travel.assistant.service.AgentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightSearchToolTest {
+
+    private static final String D1 = LocalDate.now().plusDays(30).toString();
+    private static final String D2 = LocalDate.now().plusDays(31).toString();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tmp;
+
+    private FlightCatalog catalog;
+    private SearchResultCache cache;
+    private FlightSearchTool tool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path csv = tmp.resolve("flights.csv");
+        Files.writeString(csv, String.join("\n",
+                "carrier,flightNumber,origin,destination,date,departure,arrival,price,currency,originCity,destinationCity",
+                "ACME Air,AC1,SFO,JFK," + D1 + ",06:00,10:00,250.00,USD,San Francisco,New York",
+                "SkyLine,SL2,SFO,JFK," + D1 + ",09:00,13:00,199.99,USD,San Francisco,New York",
+                "BlueJet,BJ3,SFO,JFK," + D1 + ",12:00,16:00,199.99,USD,San Francisco,New York",
+                "Nimbus,NB4,SFO,LAX," + D1 + ",07:00,08:30,89.00,USD,San Francisco,Los Angeles",
+                "Nimbus,NB4,SFO,LAX," + D1 + ",07:00,08:30,10.00,USD,San Francisco,Los Angeles",
+                "Nimbus,NB5,SFO,LAX," + D2 + ",07:00,08:30,79.00,USD,San Francisco,Los Angeles",
+                "ACME Air,AC6,JFK,LHR," + D2 + ",18:00,06:00,420.00,USD,New York,London",
+                "ACME Air,AC7,JFK,LHR," + D1 + ",21:00,09:00,450.00,USD,New York,London"
+        ), StandardCharsets.UTF_8);
+        catalog = new FlightCatalog(new DefaultResourceLoader(), csv.toUri().toString(), 0, false);
+        cache = new SearchResultCache(100, 60);
+        tool = new FlightSearchTool(catalog, cache, new SharedChatMemoryProvider(),
+                new StaticListableBeanFactory().getBeanProvider(AgentService.class));
+    }
+
+    private Object data(String json) throws Exception {
+        Map<?, ?> out = mapper.readValue(json, Map.class);
+        assertEquals("OK", out.get("status"), json);
+        return out.get("data");
+    }
+
+    @Test
+    void searchFlightsReturnsMatchesSortedByPrice() throws Exception {
+        List<?> flights = (List<?>) data(tool.searchFlights("San Francisco", "New York", D1));
+        assertEquals(3, flights.size());
+        Map<?, ?> first = (Map<?, ?>) flights.get(0);
+        assertEquals("SL2", first.get("flightNumber"));
+        assertEquals("BJ3", ((Map<?, ?>) flights.get(1)).get("flightNumber"));
+        assertEquals(D1, first.get("date"));
+        assertEquals(199.99, ((Number) first.get("price")).doubleValue());
+        assertTrue(String.valueOf(first.get("departure")).startsWith(D1 + "T09:00:00"));
+        assertEquals("New York", first.get("destinationCity"));
+    }
+
+    @Test
+    void cheapestFlightKeepsFirstLoadedDuplicate() throws Exception {
+        Map<?, ?> best = (Map<?, ?>) data(tool.cheapestFlight("SFO", "LAX", D1));
+        assertEquals("NB4", best.get("flightNumber"));
+        assertEquals(89.0, ((Number) best.get("price")).doubleValue());
+    }
+
+    @Test
+    void suggestDestinationsPicksCheapestPerDestination() throws Exception {
+        List<?> options = (List<?>) data(tool.suggestDestinations("SFO", null, 5));
+        assertEquals(2, options.size());
+        assertEquals("NB5", ((Map<?, ?>) options.get(0)).get("flightNumber"));
+        assertEquals("SL2", ((Map<?, ?>) options.get(1)).get("flightNumber"));
+
+        List<?> onDate = (List<?>) data(tool.suggestDestinations("SFO", D1, 5));
+        assertEquals("NB4", ((Map<?, ?>) onDate.get(0)).get("flightNumber"));
+    }
+
+    @Test
+    void recommendFromOriginReturnsCheapest() throws Exception {
+        Map<?, ?> best = (Map<?, ?>) data(tool.recommendFromOrigin("New York", null));
+        assertEquals("AC6", best.get("flightNumber"));
+    }
+
+    @Test
+    void searchFlightsPagesWithCursor() throws Exception {
+        ReflectionTestUtils.setField(tool, "pageSize", 2);
+        Map<?, ?> first = mapper.readValue(tool.searchFlights("SFO", "JFK", D1, null), Map.class);
+        assertEquals(List.of("SL2", "BJ3"), ((List<?>) first.get("data")).stream().map(f -> ((Map<?, ?>) f).get("flightNumber")).toList());
+        assertEquals("2", first.get("nextCursor"));
+
+        Map<?, ?> second = mapper.readValue(tool.searchFlights("SFO", "JFK", D1, "2"), Map.class);
+        assertEquals(List.of("AC1"), ((List<?>) second.get("data")).stream().map(f -> ((Map<?, ?>) f).get("flightNumber")).toList());
+        assertNull(second.get("nextCursor"));
+        assertEquals(List.of("AC1"), tool.findFlights("SFO", "JFK", D1, 2, 2).stream().map(Flight::flightNumber).toList());
+
+        // without a cursor argument the search is not paged
+        Map<?, ?> all = mapper.readValue(tool.searchFlights("SFO", "JFK", D1), Map.class);
+        assertEquals(3, ((List<?>) all.get("data")).size());
+        assertNull(all.get("nextCursor"));
+        assertEquals(3, tool.findFlights("SFO", "JFK", D1).size());
+    }
+
+    @Test
+    void findTripByTripId() {
+        Flight f = tool.findTrip("ACMEAir-AC6-" + D2);
+        assertEquals("LHR", f.destination());
+        assertEquals("ACMEAir-AC6-" + D2, f.tripId());
+        assertNull(tool.findTrip("ACMEAir-AC6-" + D1));
+    }
+
+    @Test
+    void typedApiMatchesToolResponses() throws Exception {
+        List<Flight> flights = tool.findFlights("San Francisco", "New York", D1);
+        assertEquals(List.of("SL2", "BJ3", "AC1"), flights.stream().map(Flight::flightNumber).toList());
+        assertEquals(data(tool.searchFlights("San Francisco", "New York", D1)),
+                mapper.readValue(mapper.writeValueAsString(flights.stream().map(Flight::toMap).toList()), List.class));
+        assertEquals(89.0, tool.findCheapest("SFO", "LAX", D1).price());
+        assertEquals("NB5", tool.recommendFrom("SFO", null).flightNumber());
+
+        assertTrue(tool.findFlights("San Francisco", "London", D1).isEmpty());
+        List<FlightItinerary> itineraries = tool.findConnections("San Francisco", "London", D1, ConnectionSearch.Rank.PRICE, 5);
+        assertEquals(1, itineraries.get(0).stops());
+        assertEquals("JFK", itineraries.get(0).via());
+        Flight overnight = itineraries.get(0).legs().get(1);
+        assertTrue(overnight.arrival().isAfter(overnight.departure()), overnight.toString());
+        assertEquals(itineraries.get(0).arrival(), overnight.arrival());
+        assertTrue(tool.findFlights("SFO", "JFK", "not a date").isEmpty());
+    }
+
+    @Test
+    void searchFlightsPointsToConnectionsWhenNoDirectFlight() throws Exception {
+        Map<?, ?> out = mapper.readValue(tool.searchFlights("San Francisco", "London", D1), Map.class);
+        assertEquals("ERROR", out.get("status"));
+        assertEquals("NO_DIRECT_FLIGHTS", ((Map<?, ?>) out.get("error")).get("code"));
+        Map<?, ?> cheapest = mapper.readValue(tool.cheapestFlight("San Francisco", "London", D1), Map.class);
+        assertEquals("NO_DIRECT_FLIGHTS", ((Map<?, ?>) cheapest.get("error")).get("code"));
+        assertNull(tool.findCheapest("SFO", "LHR", D1));
+
+        List<?> itineraries = (List<?>) data(tool.searchConnections("San Francisco", "London", D1, "price", null));
+        assertEquals(3, itineraries.size());
+        Map<?, ?> best = (Map<?, ?>) itineraries.get(0);
+        assertEquals(1, best.get("stops"));
+        assertEquals("JFK", best.get("via"));
+        assertEquals(649.99, ((Number) best.get("price")).doubleValue());
+        assertEquals(5 * 60, best.get("layoverMinutes"));
+        List<?> legs = (List<?>) best.get("legs");
+        assertEquals("BJ3", ((Map<?, ?>) legs.get(0)).get("flightNumber"));
+        assertEquals("AC7", ((Map<?, ?>) legs.get(1)).get("flightNumber"));
+
+        List<?> fastest = (List<?>) data(tool.searchConnections("SFO", "LHR", D1, "duration", 1));
+        assertEquals(21 * 60, ((Map<?, ?>) fastest.get(0)).get("durationMinutes"));
+    }
+
+    @Test
+    void fareCalendarListsCheapestPerDay() throws Exception {
+        Map<?, ?> calendar = (Map<?, ?>) data(tool.fareCalendar("San Francisco", "Los Angeles", D1, 1));
+        assertEquals(D2, calendar.get("cheapestDate"));
+        List<?> days = (List<?>) calendar.get("days");
+        assertEquals(3, days.size());
+        Map<?, ?> before = (Map<?, ?>) days.get(0);
+        assertEquals(LocalDate.parse(D1).minusDays(1).toString(), before.get("date"));
+        assertEquals(null, before.get("price"));
+        assertEquals(0, before.get("flights"));
+        Map<?, ?> onDate = (Map<?, ?>) days.get(1);
+        assertEquals(89.0, ((Number) onDate.get("price")).doubleValue());
+        assertEquals("NB4", onDate.get("flightNumber"));
+        assertEquals(79.0, ((Number) ((Map<?, ?>) days.get(2)).get("price")).doubleValue());
+
+        Map<?, ?> out = mapper.readValue(tool.fareCalendar("SFO", "LHR", D1, 3), Map.class);
+        assertEquals("NOT_FOUND", ((Map<?, ?>) out.get("error")).get("code"));
+    }
+
+    @Test
+    void eachSideIsResolvedOncePerQuery() {
+        PlaceResolver.Counters counters = catalog.current().places().counters();
+        long before = counters.hits() + counters.misses();
+        tool.searchFlights("San Francisco", "London", D1); // no direct flight: index lookup and connection search
+        tool.searchConnections("San Francisco", "London", D1, "price", null);
+        tool.fareCalendar("SFO", "LAX", D1, 1);
+        tool.suggestDestinations("SFO", D1, 3);
+        assertEquals(2 + 2 + 2 + 1, counters.hits() + counters.misses() - before);
+    }
+
+    @Test
+    void mockFallbackIsTheSameForEverySpellingOfAPlace() throws Exception {
+        // both places resolve, but nothing flies SFO -> JFK on D2, not even with a stop
+        String typed = tool.searchFlights("San Francisco", "New York", D2);
+        assertEquals(typed, tool.searchFlights("SFO", "JFK", D2));
+        Map<?, ?> first = (Map<?, ?>) ((List<?>) data(typed)).get(0);
+        assertEquals("SFO", first.get("origin"));
+        assertEquals("JFK", first.get("destination"));
+        assertEquals(1, cache.hits());
+
+        Map<?, ?> unknown = (Map<?, ?>) ((List<?>) data(tool.searchFlights("Atlantis", "JFK", D2))).get(0);
+        assertEquals("ATLANTIS", unknown.get("origin"));
+        assertEquals("JFK", unknown.get("destination"));
+    }
+
+    @Test
+    void repeatedQueriesAreServedFromCacheUntilReload() throws Exception {
+        String first = tool.searchFlights("San Francisco", "New York", D1);
+        assertEquals(first, tool.searchFlights("SFO", "JFK", D1), "same airports, different spelling");
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        Path csv = tmp.resolve("flights.csv");
+        Files.writeString(csv, Files.readString(csv)
+                + "\nSkyLine,SL9,SFO,JFK," + D1 + ",20:00,23:59,99.00,USD,San Francisco,New York", StandardCharsets.UTF_8);
+        catalog.reload();
+        List<?> flights = (List<?>) data(tool.searchFlights("SFO", "JFK", D1));
+        assertEquals(4, flights.size());
+        assertEquals("SL9", ((Map<?, ?>) flights.get(0)).get("flightNumber"));
+        assertEquals(2, cache.misses());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.travel.assistant.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchResultCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger computed = new AtomicInteger();
+
+    private SearchResultCache.Result compute(String json) {
+        computed.incrementAndGet();
+        return new SearchResultCache.Result(json, null, null, null);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        SearchResultCache cache = new SearchResultCache(2, 1_000, now::get);
+        cache.get(1, "a", () -> compute("A"));
+        cache.get(1, "b", () -> compute("B"));
+        assertEquals("A", cache.get(1, "a", () -> compute("A2")).json());
+        cache.get(1, "c", () -> compute("C")); // evicts b, the least recently used
+        assertEquals("A", cache.get(1, "a", () -> compute("A3")).json());
+        assertEquals("B2", cache.get(1, "b", () -> compute("B2")).json());
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        SearchResultCache cache = new SearchResultCache(10, 1_000, now::get);
+        cache.get(1, "a", () -> compute("A"));
+        now.set(999);
+        assertEquals("A", cache.get(1, "a", () -> compute("A2")).json());
+        now.set(1_000);
+        assertEquals("A3", cache.get(1, "a", () -> compute("A3")).json());
+        assertEquals(1, cache.evictions());
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    void newGenerationInvalidatesEverything() {
+        SearchResultCache cache = new SearchResultCache(10, 1_000, now::get);
+        cache.get(1, "a", () -> compute("A"));
+        cache.get(1, "b", () -> compute("B"));
+        assertEquals("A2", cache.get(2, "a", () -> compute("A2")).json());
+        assertEquals(1, cache.size());
+        // a request still holding the previous snapshot neither hits nor repopulates the cache
+        assertEquals("B-old", cache.get(1, "b", () -> compute("B-old")).json());
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    void zeroCapacityDisablesCaching() {
+        SearchResultCache cache = new SearchResultCache(0, 60);
+        cache.get(1, "a", () -> compute("A"));
+        cache.get(1, "a", () -> compute("A"));
+        assertEquals(2, computed.get());
+        assertEquals(0, cache.size());
+    }
+}